@@ -0,0 +1,339 @@
+package org.redisson;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded local cache of positive <code>contains</code> results keyed by 128-bit element hash.
+ * <p>
+ * Eviction follows W-TinyLFU: new entries enter small LRU window, entry evicted from window
+ * is admitted to main segmented LRU only if it's more frequent than main victim according to
+ * count-min sketch of recent accesses. Entries expire after <code>ttl</code>, which bounds
+ * staleness if invalidation message is lost.
+ * <p>
+ * Lookups read {@link ConcurrentHashMap} without lock and record accessed keys in striped lossy buffers.
+ * Buffered accesses update sketch and LRU order under lock in batches, by thread which fills a buffer
+ * or by next write. Access dropped by full buffer only loses its frequency and recency update.
+ *
+ * @author linfeng
+ */
+class CountingBloomFilterCache {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int BUFFER_SIZE = 16;
+
+    private final int windowSize;
+    private final int protectedSize;
+    private final int mainSize;
+    private final long ttl;
+
+    /**
+     * Expiration of cached entries by key, read without lock and written under lock.
+     */
+    private final ConcurrentHashMap<Key, Long> data = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 以下状态只在锁内访问
+    private final LinkedHashMap<Key, Long> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Long> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Long> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final byte[][] sketch;
+    private final long[] seeds;
+    private final int sketchMask;
+    private final int sampleSize;
+    private int samples;
+
+    private final ReadBuffer[] buffers;
+
+    /**
+     * Incremented by each invalidation, so result read before invalidation isn't cached after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private static final class Key {
+
+        final long hash1;
+        final long hash2;
+
+        Key(long[] hashes) {
+            this.hash1 = hashes[0];
+            this.hash2 = hashes[1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash1 == key.hash1 && hash2 == key.hash2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash1 ^ (hash1 >>> 32));
+        }
+
+    }
+
+    /**
+     * Ring buffer of accessed keys written by many threads and drained under lock.
+     */
+    private static final class ReadBuffer {
+
+        final AtomicReferenceArray<Key> keys = new AtomicReferenceArray<>(BUFFER_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        volatile long reads;
+
+        /**
+         * @return <code>true</code> if buffer is full and should be drained
+         */
+        boolean offer(Key key) {
+            long write = writes.get();
+            if (write - reads >= BUFFER_SIZE) {
+                return true;
+            }
+            if (writes.compareAndSet(write, write + 1)) {
+                keys.lazySet((int) (write & (BUFFER_SIZE - 1)), key);
+                return write + 1 - reads >= BUFFER_SIZE;
+            }
+            // 竞争失败时丢弃本次访问记录
+            return false;
+        }
+
+    }
+
+    /**
+     * @param maxSize - max amount of cached elements
+     * @param ttl     - time to live of entry in nanoseconds
+     */
+    CountingBloomFilterCache(int maxSize, long ttl) {
+        this.windowSize = Math.max(1, maxSize / 100);
+        this.mainSize = Math.max(1, maxSize - windowSize);
+        this.protectedSize = Math.max(1, mainSize * 4 / 5);
+        this.ttl = ttl;
+
+        int width = Integer.highestOneBit(Math.max(16, maxSize) * 2 - 1);
+        this.sketch = new byte[SKETCH_DEPTH][width];
+        this.sketchMask = width - 1;
+        this.sampleSize = 10 * Math.max(16, maxSize);
+        this.seeds = new long[SKETCH_DEPTH];
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            seeds[i] = ThreadLocalRandom.current().nextLong() | 1;
+        }
+
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+        this.buffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            buffers[i] = new ReadBuffer();
+        }
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    int size() {
+        return data.size();
+    }
+
+    boolean contains(long[] hashes) {
+        Key key = new Key(hashes);
+        Long expiration = data.get(key);
+        ReadBuffer buffer = buffers[(int) Thread.currentThread().getId() & (buffers.length - 1)];
+        if (buffer.offer(key) && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+        // 过期条目在下次整理时删除
+        return expiration != null && expiration - System.nanoTime() > 0;
+    }
+
+    /**
+     * Caches positive result unless element was invalidated since <code>generation</code>.
+     */
+    void put(long[] hashes, long generation) {
+        lock.lock();
+        try {
+            drain();
+            if (this.generation.get() != generation) {
+                return;
+            }
+
+            Key key = new Key(hashes);
+            long expiration = System.nanoTime() + ttl;
+            data.put(key, expiration);
+            if (protectedEntries.containsKey(key)) {
+                protectedEntries.put(key, expiration);
+                return;
+            }
+            if (probation.containsKey(key)) {
+                probation.put(key, expiration);
+                return;
+            }
+
+            window.put(key, expiration);
+            if (window.size() <= windowSize) {
+                return;
+            }
+
+            Map.Entry<Key, Long> candidate = eldest(window);
+            window.remove(candidate.getKey());
+            if (probation.size() + protectedEntries.size() < mainSize) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+
+            LinkedHashMap<Key, Long> victimSegment = probation.isEmpty() ? protectedEntries : probation;
+            Map.Entry<Key, Long> victim = eldest(victimSegment);
+            if (frequency(candidate.getKey()) > frequency(victim.getKey())) {
+                victimSegment.remove(victim.getKey());
+                data.remove(victim.getKey());
+                probation.put(candidate.getKey(), candidate.getValue());
+            } else {
+                data.remove(candidate.getKey());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void invalidate(long[] hashes) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            Key key = new Key(hashes);
+            data.remove(key);
+            if (window.remove(key) == null && probation.remove(key) == null) {
+                protectedEntries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedEntries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies buffered accesses to sketch and LRU order. Called under lock.
+     */
+    private void drain() {
+        for (ReadBuffer buffer : buffers) {
+            long read = buffer.reads;
+            long write = buffer.writes.get();
+            for (; read < write; read++) {
+                int index = (int) (read & (BUFFER_SIZE - 1));
+                Key key = buffer.keys.get(index);
+                if (key == null) {
+                    // 写入者已占位但尚未写入
+                    break;
+                }
+                buffer.keys.lazySet(index, null);
+                onAccess(key);
+            }
+            buffer.reads = read;
+        }
+    }
+
+    private void onAccess(Key key) {
+        increment(key);
+
+        Long expiration = window.get(key);
+        if (expiration != null) {
+            checkExpiration(window, key, expiration);
+            return;
+        }
+        expiration = protectedEntries.get(key);
+        if (expiration != null) {
+            checkExpiration(protectedEntries, key, expiration);
+            return;
+        }
+        expiration = probation.remove(key);
+        if (expiration == null) {
+            return;
+        }
+        if (expiration - System.nanoTime() <= 0) {
+            data.remove(key);
+            return;
+        }
+
+        protectedEntries.put(key, expiration);
+        if (protectedEntries.size() > protectedSize) {
+            Map.Entry<Key, Long> eldest = eldest(protectedEntries);
+            protectedEntries.remove(eldest.getKey());
+            probation.put(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void checkExpiration(Map<Key, Long> segment, Key key, long expiration) {
+        if (expiration - System.nanoTime() <= 0) {
+            segment.remove(key);
+            data.remove(key);
+        }
+    }
+
+    private static Map.Entry<Key, Long> eldest(LinkedHashMap<Key, Long> segment) {
+        Iterator<Map.Entry<Key, Long>> iterator = segment.entrySet().iterator();
+        return iterator.next();
+    }
+
+    private int index(Key key, int row) {
+        long hash = (key.hash2 + seeds[row]) * seeds[row];
+        return (int) (hash ^ (hash >>> 32)) & sketchMask;
+    }
+
+    private void increment(Key key) {
+        boolean incremented = false;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            int index = index(key, i);
+            if (sketch[i][index] < MAX_FREQUENCY) {
+                sketch[i][index]++;
+                incremented = true;
+            }
+        }
+        if (incremented && ++samples >= sampleSize) {
+            // 周期性减半，使频率反映近期访问
+            for (byte[] row : sketch) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] >>= 1;
+                }
+            }
+            samples /= 2;
+        }
+    }
+
+    private int frequency(Key key) {
+        int result = MAX_FREQUENCY;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            result = Math.min(result, sketch[i][index(key, i)]);
+        }
+        return result;
+    }
+
+}
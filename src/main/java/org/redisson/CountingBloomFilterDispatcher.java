@@ -0,0 +1,237 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisException;
+import org.redisson.command.CommandBatchService;
+import org.redisson.connection.ConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coalesces concurrent calls of counting Bloom filter.
+ * <p>
+ * Callers put hashed operations into lock-free queue and wait for result.
+ * Single dispatcher thread drains queue once batch size is reached or delay
+ * since oldest queued operation is elapsed, and sends all drained operations
+ * in one pipeline with one multi-element Lua script per operation type.
+ *
+ * @author linfeng
+ */
+class CountingBloomFilterDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CountingBloomFilterDispatcher.class);
+
+    enum OperationType {CONTAINS, ADD, REMOVE}
+
+    private static class Operation {
+
+        final OperationType type;
+        final long[] hashes;
+        final long enqueueTime = System.nanoTime();
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Operation(OperationType type, long[] hashes) {
+            this.type = type;
+            this.hashes = hashes;
+        }
+
+    }
+
+    private final RedissonCountingBloomFilter<?> filter;
+    private final ConnectionManager connectionManager;
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final Thread thread;
+
+    private final ConcurrentLinkedQueue<Operation> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean stopped;
+
+    CountingBloomFilterDispatcher(RedissonCountingBloomFilter<?> filter, ConnectionManager connectionManager,
+                                  CountingBloomFilterOptions options) {
+        this.filter = filter;
+        this.connectionManager = connectionManager;
+        this.maxBatchSize = options.getCoalescingBatchSize();
+        this.maxDelay = options.getCoalescingDelay();
+        this.thread = new Thread(this::run, "redisson-filter-dispatcher-" + filter.getName());
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queues operation and waits for its result.
+     */
+    boolean execute(OperationType type, long[] hashes) {
+        if (stopped) {
+            throw new IllegalStateException("Counting Bloom filter " + filter.getName() + " has been destroyed");
+        }
+
+        Operation operation = new Operation(type, hashes);
+        queue.add(operation);
+        if (stopped && queue.remove(operation)) {
+            // 分发线程已经退出，不会再处理队列
+            throw new IllegalStateException("Counting Bloom filter " + filter.getName() + " has been destroyed");
+        }
+        int size = pending.incrementAndGet();
+        if (size == 1 || size >= maxBatchSize) {
+            LockSupport.unpark(thread);
+        }
+
+        try {
+            return operation.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        try {
+            dispatchLoop();
+        } finally {
+            stopped = true;
+            IllegalStateException e = new IllegalStateException("Counting Bloom filter " + filter.getName() + " has been destroyed");
+            Operation operation;
+            while ((operation = queue.poll()) != null) {
+                operation.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        List<Operation> operations = new ArrayList<>(maxBatchSize);
+        while (!stopped) {
+            Operation oldest = queue.peek();
+            if (oldest == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long deadline = oldest.enqueueTime + maxDelay;
+            long remaining;
+            while (!stopped
+                    && pending.get() < maxBatchSize
+                    && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            Operation operation;
+            while (operations.size() < maxBatchSize
+                    && (operation = queue.poll()) != null) {
+                operations.add(operation);
+            }
+            pending.addAndGet(-operations.size());
+
+            try {
+                dispatch(operations);
+            } catch (Throwable e) {
+                log.error("Unable to dispatch operations of counting Bloom filter " + filter.getName(), e);
+                fail(operations, e);
+            }
+            operations.clear();
+        }
+    }
+
+    private void dispatch(List<Operation> operations) {
+        Map<OperationType, List<Operation>> groups = new EnumMap<>(OperationType.class);
+        for (Operation operation : operations) {
+            groups.computeIfAbsent(operation.type, k -> new ArrayList<>()).add(operation);
+        }
+
+        while (!groups.isEmpty()) {
+            CommandBatchService executorService = new CommandBatchService(connectionManager);
+            Map<OperationType, RFuture<long[]>> futures = new EnumMap<>(OperationType.class);
+            for (Map.Entry<OperationType, List<Operation>> entry : groups.entrySet()) {
+                List<long[]> hashes = new ArrayList<>(entry.getValue().size());
+                for (Operation operation : entry.getValue()) {
+                    hashes.add(operation.hashes);
+                }
+                futures.put(entry.getKey(), send(executorService, entry.getKey(), hashes));
+            }
+
+            RuntimeException failure = null;
+            try {
+                executorService.execute();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            // 每组结果单独处理，已经成功执行的脚本不能重发
+            boolean configChanged = false;
+            Iterator<Map.Entry<OperationType, List<Operation>>> iterator = groups.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<OperationType, List<Operation>> entry = iterator.next();
+                RFuture<long[]> future = futures.get(entry.getKey());
+                if (future.isSuccess()) {
+                    BitSet result = BitSet.valueOf(future.getNow());
+                    List<Operation> group = entry.getValue();
+                    for (int i = 0; i < group.size(); i++) {
+                        group.get(i).result.complete(result.get(i));
+                    }
+                } else if (isConfigChanged(future.cause())) {
+                    // 脚本在修改计数器之前检查配置，失败的组可以安全重试
+                    configChanged = true;
+                    continue;
+                } else {
+                    Throwable cause = future.cause() != null ? future.cause() : failure;
+                    fail(entry.getValue(), cause != null ? cause
+                            : new IllegalStateException("Operations of counting Bloom filter " + filter.getName() + " haven't been executed"));
+                }
+                iterator.remove();
+            }
+            if (configChanged) {
+                filter.readConfig();
+            }
+        }
+    }
+
+    private static boolean isConfigChanged(Throwable cause) {
+        return cause instanceof RedisException
+                && cause.getMessage() != null
+                && cause.getMessage().contains("Bloom filter config has been changed");
+    }
+
+    private static void fail(List<Operation> operations, Throwable cause) {
+        for (Operation operation : operations) {
+            operation.result.completeExceptionally(cause);
+        }
+    }
+
+    private RFuture<long[]> send(CommandBatchService executorService, OperationType type, List<long[]> hashes) {
+        switch (type) {
+            case ADD:
+                return filter.addHashesAsync(executorService, hashes);
+            case REMOVE:
+                return filter.removeHashesAsync(executorService, hashes);
+            default:
+                return filter.containsHashesAsync(executorService, hashes);
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.command.CommandAsyncExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local mirror of Redis counting Bloom filter.
+ * <p>
+ * Mirror is loaded by chunked snapshot of bitset and then kept fresh by polling delta log
+ * written by <code>add</code> and <code>remove</code> operations. Each delta contains absolute
+ * counter values, so deltas written during snapshot can be applied again safely.
+ * Mirror is reloaded if it lags behind delta log or filter config has been changed.
+ *
+ * @author linfeng
+ */
+class CountingBloomFilterMirror {
+
+    private static final Logger log = LoggerFactory.getLogger(CountingBloomFilterMirror.class);
+
+    private static final int SNAPSHOT_CHUNK_SIZE = 1024 * 1024;
+
+    private final CommandAsyncExecutor commandExecutor;
+    private final Codec codec;
+    private final String name;
+    private final String configName;
+    private final String seqName;
+    private final String deltaLogName;
+    private final int maxRepeat;
+    private final CountingBloomFilterOptions options;
+    private final ScheduledExecutorService executor;
+
+    private volatile LocalCountingBloomFilter<Object> local;
+    private volatile long lastSync;
+    private long seq;
+
+    CountingBloomFilterMirror(CommandAsyncExecutor commandExecutor, Codec codec, String name, String configName,
+                              String seqName, String deltaLogName, int maxRepeat, CountingBloomFilterOptions options) {
+        this.commandExecutor = commandExecutor;
+        this.codec = codec;
+        this.name = name;
+        this.configName = configName;
+        this.seqName = seqName;
+        this.deltaLogName = deltaLogName;
+        this.maxRepeat = maxRepeat;
+        this.options = options;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redisson-filter-mirror-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        executor.scheduleWithFixedDelay(this::sync, 0, options.getMirrorSyncInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        executor.shutdownNow();
+        local = null;
+    }
+
+    /**
+     * Checks element hashes against local counters.
+     *
+     * @return <code>null</code> if mirror isn't loaded or is staler than allowed
+     */
+    Boolean contains(long[] hashes) {
+        LocalCountingBloomFilter<Object> local = this.local;
+        if (local == null
+                || System.currentTimeMillis() - lastSync > options.getMirrorMaxStaleness()) {
+            return null;
+        }
+        return local.containsHash(hashes);
+    }
+
+    private void sync() {
+        try {
+            long startTime = System.currentTimeMillis();
+            LocalCountingBloomFilter<Object> local = this.local;
+            if (local == null || !poll(local)) {
+                local = snapshot();
+                this.local = local;
+            }
+            if (local != null) {
+                lastSync = startTime;
+            }
+        } catch (Exception e) {
+            log.warn("Unable to sync mirror of counting Bloom filter " + name, e);
+        }
+    }
+
+    /**
+     * Applies deltas written after last applied one.
+     *
+     * @return <code>false</code> if mirror should be reloaded
+     */
+    private boolean poll(LocalCountingBloomFilter<Object> local) {
+        List<Object> result = commandExecutor.get(ScriptRegistry.evalReadAsync(commandExecutor, configName, StringCodec.INSTANCE, RedisCommands.EVAL_LIST,
+                "local size = redis.call('hget', KEYS[1], 'size') or '';" +
+                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations') or '';" +
+                        "local seq = tonumber(redis.call('get', KEYS[2]) or '0');" +
+                        "local n = seq - tonumber(ARGV[1]);" +
+                        "if n < 0 or n > redis.call('llen', KEYS[3]) then " +
+                            "return {seq, size, hashIterations, 0};" +
+                        "end;" +
+                        "local result = {seq, size, hashIterations, 1};" +
+                        "if n > 0 then " +
+                            "for _, delta in ipairs(redis.call('lrange', KEYS[3], -n, -1)) do " +
+                                "table.insert(result, delta);" +
+                            "end;" +
+                        "end;" +
+                        "return result;",
+                Arrays.<Object>asList(configName, seqName, deltaLogName), seq));
+
+        if (!String.valueOf(local.getSize()).equals(result.get(1))
+                || !String.valueOf(local.getHashIterations()).equals(result.get(2))
+                || ((Long) result.get(3)) == 0) {
+            return false;
+        }
+
+        for (int i = 4; i < result.size(); i++) {
+            String delta = (String) result.get(i);
+            String changes = delta.substring(delta.indexOf(':') + 1);
+            for (String change : changes.split(",")) {
+                int separator = change.indexOf('=');
+                long offset = Long.parseLong(change.substring(0, separator));
+                int value = Math.min(maxRepeat, Integer.parseInt(change.substring(separator + 1)));
+                local.updateCounter(offset, previous -> value);
+            }
+        }
+        seq = (Long) result.get(0);
+        return true;
+    }
+
+    private LocalCountingBloomFilter<Object> snapshot() {
+        List<Object> config = commandExecutor.get(ScriptRegistry.evalWriteAsync(commandExecutor, configName, StringCodec.INSTANCE, RedisCommands.EVAL_LIST,
+                "if redis.call('hexists', KEYS[1], 'size') == 1 then " +
+                            "redis.call('hset', KEYS[1], 'deltaLog', ARGV[1]);" +
+                        "end;" +
+                        "return {tonumber(redis.call('get', KEYS[2]) or '0'), " +
+                                "redis.call('hget', KEYS[1], 'size') or '', " +
+                                "redis.call('hget', KEYS[1], 'hashIterations') or '', " +
+                                "redis.call('hget', KEYS[1], 'expectedInsertions') or '', " +
+                                "redis.call('hget', KEYS[1], 'falseProbability') or ''};",
+                Arrays.<Object>asList(configName, seqName), options.getDeltaLogSize()));
+
+        if ("".equals(config.get(1))) {
+            return null;
+        }
+
+        long size = Long.parseLong((String) config.get(1));
+        int hashIterations = Integer.parseInt((String) config.get(2));
+        long expectedInsertions = "".equals(config.get(3)) ? 0 : Long.parseLong((String) config.get(3));
+        double falseProbability = "".equals(config.get(4)) ? 0 : Double.parseDouble((String) config.get(4));
+
+        LocalCountingBloomFilter<Object> local = new LocalCountingBloomFilter<>(maxRepeat, codec);
+        local.init(size, hashIterations, expectedInsertions, falseProbability);
+
+        long length = (size * Integer.toBinaryString(maxRepeat).length() + Byte.SIZE - 1) / Byte.SIZE;
+        for (long offset = 0; offset < length; offset += SNAPSHOT_CHUNK_SIZE) {
+            byte[] chunk = commandExecutor.get(commandExecutor.readAsync(name, ByteArrayCodec.INSTANCE,
+                    new RedisCommand<byte[]>("GETRANGE"), name, offset, Math.min(length, offset + SNAPSHOT_CHUNK_SIZE) - 1));
+            if (chunk == null || chunk.length == 0) {
+                break;
+            }
+            local.importFrom(offset, chunk);
+            if (chunk.length < SNAPSHOT_CHUNK_SIZE) {
+                break;
+            }
+        }
+
+        seq = (Long) config.get(0);
+        if (!poll(local)) {
+            return null;
+        }
+        return local;
+    }
+
+}
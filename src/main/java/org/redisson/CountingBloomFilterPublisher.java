@@ -0,0 +1,242 @@
+package org.redisson;
+
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Publisher of per-element results of counting Bloom filter operation applied to source publisher.
+ * <p>
+ * Each source element is sent as soon as it arrives. Source is requested up to
+ * <code>maxInFlight</code> elements and then one more element per emitted result,
+ * so amount of sent and not emitted elements never exceeds <code>maxInFlight</code>.
+ * Results are emitted in source order.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+class CountingBloomFilterPublisher<T> implements Publisher<Boolean> {
+
+    private final RedissonCountingBloomFilter<?> filter;
+    private final Publisher<? extends T> source;
+    private final int maxInFlight;
+    private final Function<List<long[]>, RFuture<long[]>> operation;
+
+    CountingBloomFilterPublisher(RedissonCountingBloomFilter<?> filter, Publisher<? extends T> source, int maxInFlight,
+                                 Function<List<long[]>, RFuture<long[]>> operation) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight should be greater than 0");
+        }
+        this.filter = filter;
+        this.source = source;
+        this.maxInFlight = maxInFlight;
+        this.operation = operation;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Boolean> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber can't be null");
+        }
+        source.subscribe(new FilterSubscriber(subscriber));
+    }
+
+    private static class Slot {
+
+        volatile boolean done;
+        boolean result;
+        Throwable error;
+
+    }
+
+    private class FilterSubscriber implements Subscriber<T>, Subscription {
+
+        private final Subscriber<? super Boolean> downstream;
+        private final Queue<Slot> slots = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private Subscription upstream;
+        private volatile boolean sourceDone;
+        private volatile Throwable sourceError;
+        private volatile boolean cancelled;
+
+        FilterSubscriber(Subscriber<? super Boolean> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.upstream = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(maxInFlight);
+        }
+
+        @Override
+        public void onNext(T element) {
+            if (element == null) {
+                throw new NullPointerException("element can't be null");
+            }
+            if (cancelled) {
+                return;
+            }
+            Slot slot = new Slot();
+            slots.add(slot);
+            try {
+                send(slot, filter.hash(element));
+            } catch (Exception e) {
+                complete(slot, false, e);
+            }
+        }
+
+        private void send(Slot slot, long[] hashes) {
+            RFuture<long[]> future = operation.apply(Collections.singletonList(hashes));
+            future.addListener(new FutureListener<long[]>() {
+                @Override
+                public void operationComplete(Future<long[]> f) throws Exception {
+                    if (f.isSuccess()) {
+                        long[] result = f.getNow();
+                        complete(slot, result.length > 0 && (result[0] & 1) != 0, null);
+                        return;
+                    }
+
+                    Throwable cause = f.cause();
+                    if (cause instanceof RedisException
+                            && cause.getMessage() != null
+                            && cause.getMessage().contains("Bloom filter config has been changed")) {
+                        // 配置读取是阻塞调用，不能在netty线程中执行
+                        CompletableFuture.runAsync(() -> {
+                            try {
+                                filter.readConfig();
+                                send(slot, hashes);
+                            } catch (Exception e) {
+                                complete(slot, false, e);
+                            }
+                        });
+                        return;
+                    }
+                    complete(slot, false, cause);
+                }
+            });
+        }
+
+        private void complete(Slot slot, boolean result, Throwable error) {
+            slot.result = result;
+            slot.error = error;
+            slot.done = true;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            sourceError = t;
+            sourceDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            sourceDone = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("Requested amount should be greater than 0"));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+                slots.clear();
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            while (true) {
+                long demand = requested.get();
+                long emitted = 0;
+
+                while (emitted != demand) {
+                    if (cancelled) {
+                        slots.clear();
+                        return;
+                    }
+                    Slot slot = slots.peek();
+                    if (slot == null || !slot.done) {
+                        break;
+                    }
+                    slots.poll();
+                    if (slot.error != null) {
+                        cancel();
+                        downstream.onError(slot.error);
+                        return;
+                    }
+                    downstream.onNext(slot.result);
+                    emitted++;
+                }
+
+                if (cancelled) {
+                    slots.clear();
+                    return;
+                }
+                if (sourceDone && slots.isEmpty()) {
+                    cancelled = true;
+                    if (sourceError != null) {
+                        downstream.onError(sourceError);
+                    } else {
+                        downstream.onComplete();
+                    }
+                    return;
+                }
+
+                if (emitted > 0) {
+                    if (demand != Long.MAX_VALUE) {
+                        requested.addAndGet(-emitted);
+                    }
+                    if (!sourceDone) {
+                        upstream.request(emitted);
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+    }
+
+}
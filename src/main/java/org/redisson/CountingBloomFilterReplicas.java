@@ -0,0 +1,229 @@
+package org.redisson;
+
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.connection.ClientConnectionsEntry;
+import org.redisson.connection.ConnectionManager;
+import org.redisson.connection.MasterSlaveEntry;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Routes read-only operations of counting Bloom filter to replicas.
+ * <p>
+ * Master is polled by <code>INFO replication</code>. Each poll records master replication offset,
+ * so replica lag is the age of the latest recorded master offset which replica has acknowledged.
+ * Replicas are used round-robin while their lag is within bound; failed replica is excluded
+ * until next poll and the read is repeated on master.
+ *
+ * @author linfeng
+ */
+class CountingBloomFilterReplicas {
+
+    private static final Logger log = LoggerFactory.getLogger(CountingBloomFilterReplicas.class);
+
+    private static final long MIN_POLL_INTERVAL = 100;
+
+    private final ConnectionManager connectionManager;
+    private final CommandAsyncExecutor commandExecutor;
+    private final String name;
+    private final long maxLag;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Recorded <code>{time, master offset}</code> samples, accessed by poll thread only.
+     */
+    private final Deque<long[]> samples = new ArrayDeque<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<RedisClient> replicas = Collections.emptyList();
+    private volatile long lastWrite;
+
+    CountingBloomFilterReplicas(CommandAsyncExecutor commandExecutor, String name, long maxLag) {
+        this.connectionManager = commandExecutor.getConnectionManager();
+        this.commandExecutor = commandExecutor;
+        this.name = name;
+        this.maxLag = maxLag;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redisson-filter-replicas-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        long interval = Math.max(MIN_POLL_INTERVAL, maxLag / 2);
+        executor.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        executor.shutdownNow();
+        replicas = Collections.emptyList();
+    }
+
+    /**
+     * Marks write of this client, so following reads within max lag go to master.
+     */
+    void written() {
+        lastWrite = System.currentTimeMillis();
+    }
+
+    /**
+     * @return replica for next read or <code>null</code> if read should go to master
+     */
+    private RedisClient select() {
+        List<RedisClient> replicas = this.replicas;
+        if (replicas.isEmpty()
+                || System.currentTimeMillis() - lastWrite <= maxLag) {
+            return null;
+        }
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+    /**
+     * Executes read on replica and repeats it on master if replica fails.
+     * Config change error isn't repeated, so caller reloads config.
+     *
+     * @param read - read operation on given replica, or on master if replica is <code>null</code>
+     */
+    <R> RFuture<R> read(Function<RedisClient, RFuture<R>> read) {
+        RedisClient replica = select();
+        if (replica == null) {
+            return read.apply(null);
+        }
+
+        RPromise<R> result = new RedissonPromise<>();
+        read.apply(replica).addListener(new FutureListener<R>() {
+            @Override
+            public void operationComplete(Future<R> future) throws Exception {
+                if (future.isSuccess()) {
+                    result.trySuccess(future.getNow());
+                    return;
+                }
+                if (future.cause() instanceof RedisException
+                        && future.cause().getMessage() != null
+                        && future.cause().getMessage().contains("Bloom filter config has been changed")) {
+                    result.tryFailure(future.cause());
+                    return;
+                }
+
+                exclude(replica);
+                read.apply(null).addListener(new FutureListener<R>() {
+                    @Override
+                    public void operationComplete(Future<R> future) throws Exception {
+                        if (future.isSuccess()) {
+                            result.trySuccess(future.getNow());
+                        } else {
+                            result.tryFailure(future.cause());
+                        }
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    private void exclude(RedisClient replica) {
+        List<RedisClient> replicas = new ArrayList<>(this.replicas);
+        if (replicas.remove(replica)) {
+            this.replicas = replicas;
+        }
+    }
+
+    private void poll() {
+        try {
+            // INFO 发往 key 所在的 master
+            Map<String, String> info = commandExecutor.get(commandExecutor.writeAsync(name, StringCodec.INSTANCE,
+                    RedisCommands.INFO_REPLICATION));
+            long now = System.currentTimeMillis();
+            long masterOffset = Long.parseLong(info.get("master_repl_offset"));
+            samples.addLast(new long[] {now, masterOffset});
+            while (samples.size() > 1 && now - samples.peekFirst()[0] > maxLag) {
+                samples.removeFirst();
+            }
+
+            Map<String, RedisClient> clients = replicaClients();
+            List<RedisClient> result = new ArrayList<>(clients.size());
+            for (Map.Entry<String, String> entry : info.entrySet()) {
+                if (!entry.getKey().matches("slave\\d+")) {
+                    continue;
+                }
+                Map<String, String> replica = parse(entry.getValue());
+                RedisClient client = clients.get(replica.get("ip") + ":" + replica.get("port"));
+                if (client != null
+                        && "online".equals(replica.get("state"))
+                        && lag(now, Long.parseLong(replica.get("offset"))) <= maxLag) {
+                    result.add(client);
+                }
+            }
+            replicas = result;
+        } catch (Exception e) {
+            replicas = Collections.emptyList();
+            log.warn("Unable to check replicas of counting Bloom filter " + name, e);
+        }
+    }
+
+    /**
+     * @return age of the latest sample with master offset acknowledged by replica
+     */
+    private long lag(long now, long offset) {
+        long time = -1;
+        for (long[] sample : samples) {
+            if (sample[1] > offset) {
+                break;
+            }
+            time = sample[0];
+        }
+        return time < 0 ? Long.MAX_VALUE : now - time;
+    }
+
+    private Map<String, RedisClient> replicaClients() {
+        MasterSlaveEntry entry = connectionManager.getEntry(connectionManager.calcSlot(name));
+        Map<String, RedisClient> result = new HashMap<>();
+        if (entry == null) {
+            return result;
+        }
+        for (ClientConnectionsEntry replica : entry.getAllEntries()) {
+            if (replica.isFreezed() || replica.getClient().equals(entry.getClient())) {
+                continue;
+            }
+            InetSocketAddress addr = replica.getClient().getAddr();
+            result.put(addr.getAddress().getHostAddress() + ":" + addr.getPort(), replica.getClient());
+        }
+        return result;
+    }
+
+    private static Map<String, String> parse(String value) {
+        Map<String, String> result = new HashMap<>();
+        for (String field : value.split(",")) {
+            int separator = field.indexOf('=');
+            if (separator > 0) {
+                result.put(field.substring(0, separator), field.substring(separator + 1));
+            }
+        }
+        return result;
+    }
+
+}
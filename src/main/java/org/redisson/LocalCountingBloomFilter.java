@@ -0,0 +1,534 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.api.CountingBloomFilter;
+import org.redisson.client.codec.Codec;
+import org.redisson.misc.Hash;
+import sun.misc.Unsafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Local counting Bloom filter with off-heap counters.
+ * <p>
+ * Uses the same hashing, counter width and sizing as {@link RedissonCountingBloomFilter}
+ * and stores counters in the same big-endian bit layout as Redis bitset,
+ * so content of Redis filter can be imported or exported as is.
+ * Counters stay in direct or memory-mapped buffer and 64-bit words are updated in place with CAS.
+ * Reads and updates of counters located in one word are lock-free. Counter crossing word boundary
+ * and {@link #remove(Object)} take striped locks.
+ * Filter backed by file writes counters straight to mapped pages, {@link #flush()} only forces them to disk.
+ *
+ * @param <T> type of object
+ * @author linfeng
+ */
+public class LocalCountingBloomFilter<T> implements CountingBloomFilter<T>, Closeable {
+
+    private static final long MAGIC = 0x5243424600000001L;
+    private static final int HEADER_SIZE = 64;
+    private static final int LOCK_STRIPES = 64;
+    private static final int DEFAULT_MAX_REPEAT = 3;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private static final Unsafe UNSAFE;
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+            ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long size;
+    // 最大计数
+    private volatile int maxRepeat = DEFAULT_MAX_REPEAT;
+    private volatile int maxBinaryBit;
+    private volatile int hashIterations;
+    private volatile long expectedInsertions;
+    private volatile double falseProbability;
+
+    private final Codec codec;
+    private final Path file;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private FileChannel channel;
+    // 保持对缓冲区的引用，避免内存被释放
+    private ByteBuffer buffer;
+    private volatile long address;
+    private volatile long dataSize;
+
+    /**
+     * Creates filter stored in memory-mapped file.
+     * Filter config and counters are loaded from file if it has been initialized before.
+     *
+     * @param file   - file to store counters
+     * @param repeat - repeat number of object
+     * @param codec  - codec for values, should be the same as codec of Redis filter
+     */
+    public LocalCountingBloomFilter(Path file, int repeat, Codec codec) {
+        this.file = file;
+        this.codec = codec;
+        this.maxRepeat = repeat > 0 ? repeat : DEFAULT_MAX_REPEAT;
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        try {
+            if (Files.exists(file) && Files.size(file) > 0) {
+                open();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't open counting Bloom filter file " + file, e);
+        }
+    }
+
+    /**
+     * Creates filter stored in memory only.
+     *
+     * @param repeat - repeat number of object
+     * @param codec  - codec for values, should be the same as codec of Redis filter
+     */
+    public LocalCountingBloomFilter(int repeat, Codec codec) {
+        this.file = null;
+        this.codec = codec;
+        this.maxRepeat = repeat > 0 ? repeat : DEFAULT_MAX_REPEAT;
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = new RandomAccessFile(file.toFile(), "rw").getChannel();
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC) {
+            throw new IllegalStateException("File " + file + " doesn't contain counting Bloom filter");
+        }
+        if (header.getInt(20) != maxRepeat) {
+            throw new IllegalStateException("Counting Bloom filter file " + file + " has been created with repeat "
+                    + header.getInt(20) + " but expected " + maxRepeat);
+        }
+        map(header.getLong(8), header.getInt(16), header.getLong(24), header.getDouble(32));
+    }
+
+    private void map(long size, int hashIterations, long expectedInsertions, double falseProbability) throws IOException {
+        long dataSize = (size * maxBinaryBit + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+        if (file != null) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + dataSize);
+        } else {
+            buffer = ByteBuffer.allocateDirect((int) (HEADER_SIZE + dataSize));
+        }
+        buffer.putLong(0, MAGIC);
+        buffer.putLong(8, size);
+        buffer.putInt(16, hashIterations);
+        buffer.putInt(20, maxRepeat);
+        buffer.putLong(24, expectedInsertions);
+        buffer.putDouble(32, falseProbability);
+
+        this.dataSize = dataSize;
+        // 映射地址按页对齐，头部长度为 64，计数器所在的字都按 8 字节对齐
+        this.address = UNSAFE.getLong(buffer, ADDRESS_OFFSET) + HEADER_SIZE;
+        this.hashIterations = hashIterations;
+        this.expectedInsertions = expectedInsertions;
+        this.falseProbability = falseProbability;
+        this.size = size;
+    }
+
+    private long[] hash(Object object) {
+        ByteBuf state;
+        try {
+            state = codec.getValueEncoder().encode(object);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    private long[] indexes(Object object) {
+        checkInitialized();
+        long[] hashes = hash(object);
+        return RedissonCountingBloomFilter.hash(hashes[0], hashes[1], hashIterations, size, maxBinaryBit);
+    }
+
+    boolean containsHash(long[] hashes) {
+        for (long index : RedissonCountingBloomFilter.hash(hashes[0], hashes[1], hashIterations, size, maxBinaryBit)) {
+            if (readCounter(index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean add(T object) {
+        boolean added = false;
+        for (long index : indexes(object)) {
+            // 计数为0，则为新添加的元素
+            if (updateCounter(index, value -> Math.min(value + 1, maxRepeat)) == 0) {
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean contains(T object) {
+        for (long index : indexes(object)) {
+            if (readCounter(index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Holds striped locks of all element counters, so presence check and decrements
+     * of concurrent removes sharing a counter are never interleaved.
+     * Concurrent adds only increment counters and don't need locks.
+     */
+    @Override
+    public boolean remove(T object) {
+        long[] indexes = indexes(object);
+        boolean[] stripes = new boolean[LOCK_STRIPES];
+        for (long index : indexes) {
+            stripes[stripe(index / Long.SIZE)] = true;
+        }
+        // 按固定顺序加锁，避免死锁
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (stripes[i]) {
+                locks[i].lock();
+            }
+        }
+        try {
+            for (long index : indexes) {
+                if (readCounter(index) == 0) {
+                    return false;
+                }
+            }
+            for (long index : indexes) {
+                updateCounter(index, value -> Math.max(value - 1, 0));
+            }
+            return true;
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                if (stripes[i]) {
+                    locks[i].unlock();
+                }
+            }
+        }
+    }
+
+    private static int stripe(long wordIndex) {
+        return (int) (wordIndex % LOCK_STRIPES);
+    }
+
+    /**
+     * Reads word of counters. Words are stored big-endian as in Redis bitset.
+     */
+    private long readWord(long wordIndex) {
+        long value = UNSAFE.getLongVolatile(null, address + wordIndex * Long.BYTES);
+        return LITTLE_ENDIAN ? Long.reverseBytes(value) : value;
+    }
+
+    private boolean casWord(long wordIndex, long expected, long value) {
+        if (LITTLE_ENDIAN) {
+            expected = Long.reverseBytes(expected);
+            value = Long.reverseBytes(value);
+        }
+        return UNSAFE.compareAndSwapLong(null, address + wordIndex * Long.BYTES, expected, value);
+    }
+
+    int readCounter(long bitOffset) {
+        long wordIndex = bitOffset / Long.SIZE;
+        int bitInWord = (int) (bitOffset % Long.SIZE);
+        if (bitInWord + maxBinaryBit <= Long.SIZE) {
+            return (int) ((readWord(wordIndex) >>> (Long.SIZE - bitInWord - maxBinaryBit)) & ((1L << maxBinaryBit) - 1));
+        }
+
+        // 跨字计数器的两个字在锁内分别写入，读取也需要加锁
+        ReentrantLock lock = locks[stripe(wordIndex)];
+        lock.lock();
+        try {
+            return readCrossing(wordIndex, bitInWord);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int readCrossing(long wordIndex, int bitInWord) {
+        int firstBits = Long.SIZE - bitInWord;
+        int restBits = maxBinaryBit - firstBits;
+        long value = readWord(wordIndex) & ((1L << firstBits) - 1);
+        return (int) ((value << restBits) | (readWord(wordIndex + 1) >>> (Long.SIZE - restBits)));
+    }
+
+    /**
+     * Applies operation to counter and returns previous counter value.
+     * Counter located in one word is updated by single CAS.
+     * Counter crossing word boundary is updated by CAS of both words under striped lock,
+     * so concurrent updates and reads of the same counter are still serialized.
+     */
+    int updateCounter(long bitOffset, IntUnaryOperator operation) {
+        long wordIndex = bitOffset / Long.SIZE;
+        int bitInWord = (int) (bitOffset % Long.SIZE);
+        if (bitInWord + maxBinaryBit <= Long.SIZE) {
+            int shift = Long.SIZE - bitInWord - maxBinaryBit;
+            long mask = (1L << maxBinaryBit) - 1;
+            while (true) {
+                long word = readWord(wordIndex);
+                int previous = (int) ((word >>> shift) & mask);
+                int value = operation.applyAsInt(previous);
+                if (value == previous) {
+                    return previous;
+                }
+                long updated = (word & ~(mask << shift)) | ((long) value << shift);
+                if (casWord(wordIndex, word, updated)) {
+                    return previous;
+                }
+            }
+        }
+
+        ReentrantLock lock = locks[stripe(wordIndex)];
+        lock.lock();
+        try {
+            int previous = readCrossing(wordIndex, bitInWord);
+            int value = operation.applyAsInt(previous);
+            if (value != previous) {
+                int firstBits = Long.SIZE - bitInWord;
+                int restBits = maxBinaryBit - firstBits;
+                writeBits(wordIndex, (1L << firstBits) - 1, value >>> restBits);
+                writeBits(wordIndex + 1, ((1L << restBits) - 1) << (Long.SIZE - restBits),
+                        (long) (value & ((1 << restBits) - 1)) << (Long.SIZE - restBits));
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces bits of word selected by <code>mask</code> with <code>value</code>.
+     */
+    private void writeBits(long wordIndex, long mask, long value) {
+        while (true) {
+            long word = readWord(wordIndex);
+            long updated = (word & ~mask) | value;
+            if (casWord(wordIndex, word, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes bytes of Redis bitset starting from <code>byteOffset</code>.
+     */
+    private void writeBytes(long byteOffset, byte[] bytes, int length) {
+        int i = 0;
+        while (i < length) {
+            long wordIndex = (byteOffset + i) / Long.BYTES;
+            int first = (int) ((byteOffset + i) % Long.BYTES);
+            int count = Math.min(Long.BYTES - first, length - i);
+            long mask = 0;
+            long value = 0;
+            for (int j = 0; j < count; j++) {
+                int shift = (Long.BYTES - 1 - first - j) * Byte.SIZE;
+                mask |= 0xFFL << shift;
+                value |= (bytes[i + j] & 0xFFL) << shift;
+            }
+            writeBits(wordIndex, mask, value);
+            i += count;
+        }
+    }
+
+    @Override
+    public boolean tryInit(long expectedInsertions, double falseProbability) {
+        if (falseProbability > 1) {
+            throw new IllegalArgumentException("Counting Bloom filter false probability can't be greater than 1");
+        }
+        if (falseProbability < 0) {
+            throw new IllegalArgumentException("Counting Bloom filter false probability can't be negative");
+        }
+
+        synchronized (this) {
+            if (size != 0) {
+                return false;
+            }
+
+            long size = RedissonCountingBloomFilter.optimalNumOfBits(expectedInsertions, falseProbability);
+            if (size == 0) {
+                throw new IllegalArgumentException("Counting Bloom filter calculated size is " + size);
+            }
+            if (size * maxBinaryBit > getMaxSize()) {
+                throw new IllegalArgumentException("Counting Bloom filter size can't be greater than " + getMaxSize() + ". But calculated size is " + size);
+            }
+            int hashIterations = RedissonCountingBloomFilter.optimalNumOfHashFunctions(expectedInsertions, size);
+
+            try {
+                if (file != null) {
+                    channel = new RandomAccessFile(file.toFile(), "rw").getChannel();
+                }
+                map(size, hashIterations, expectedInsertions, falseProbability);
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't create counting Bloom filter file " + file, e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Initializes filter with config of existing Redis filter.
+     */
+    void init(long size, int hashIterations, long expectedInsertions, double falseProbability) {
+        synchronized (this) {
+            if (this.size != 0) {
+                throw new IllegalStateException("Counting Bloom filter has been initialized already");
+            }
+            try {
+                if (file != null) {
+                    channel = new RandomAccessFile(file.toFile(), "rw").getChannel();
+                }
+                map(size, hashIterations, expectedInsertions, falseProbability);
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't create counting Bloom filter file " + file, e);
+            }
+        }
+    }
+
+    protected long getMaxSize() {
+        return Integer.MAX_VALUE * 2L;
+    }
+
+    /**
+     * Replaces counters with content of Redis bitset,
+     * for example with reply of <code>GET</code> command for Redis filter with the same config.
+     *
+     * @param in - stream of bitset bytes
+     * @throws IOException if stream can't be read
+     */
+    public void importFrom(InputStream in) throws IOException {
+        checkInitialized();
+        byte[] chunk = new byte[64 * 1024];
+        long position = 0;
+        int read;
+        while (position < dataSize && (read = in.read(chunk, 0, (int) Math.min(chunk.length, dataSize - position))) != -1) {
+            writeBytes(position, chunk, read);
+            position += read;
+        }
+        byte[] zeros = new byte[chunk.length];
+        for (; position < dataSize; position += zeros.length) {
+            writeBytes(position, zeros, (int) Math.min(zeros.length, dataSize - position));
+        }
+    }
+
+    /**
+     * Copies part of Redis bitset starting from <code>byteOffset</code>.
+     */
+    void importFrom(long byteOffset, byte[] bytes) {
+        checkInitialized();
+        writeBytes(byteOffset, bytes, (int) Math.min(bytes.length, dataSize - byteOffset));
+    }
+
+    /**
+     * Writes counters in the layout of Redis bitset.
+     *
+     * @param out - stream for bitset bytes
+     * @throws IOException if stream can't be written
+     */
+    public void exportTo(OutputStream out) throws IOException {
+        checkInitialized();
+        long length = (size * maxBinaryBit + Byte.SIZE - 1) / Byte.SIZE;
+        byte[] chunk = new byte[64 * 1024];
+        for (long position = 0; position < length; position += chunk.length) {
+            int count = (int) Math.min(chunk.length, length - position);
+            for (int i = 0; i < count; i++) {
+                long byteIndex = position + i;
+                chunk[i] = (byte) (readWord(byteIndex / Long.BYTES) >>> ((Long.BYTES - 1 - byteIndex % Long.BYTES) * Byte.SIZE));
+            }
+            out.write(chunk, 0, count);
+        }
+    }
+
+    @Override
+    public long getExpectedInsertions() {
+        checkInitialized();
+        return expectedInsertions;
+    }
+
+    @Override
+    public double getFalseProbability() {
+        checkInitialized();
+        return falseProbability;
+    }
+
+    @Override
+    public long getSize() {
+        checkInitialized();
+        return size;
+    }
+
+    @Override
+    public int getHashIterations() {
+        checkInitialized();
+        return hashIterations;
+    }
+
+    @Override
+    public long count() {
+        checkInitialized();
+        long cardinality = 0;
+        for (long i = 0; i < dataSize / Long.BYTES; i++) {
+            cardinality += Long.bitCount(readWord(i));
+        }
+        return Math.round(-size / ((double) hashIterations) * Math.log(1 - cardinality / ((double) size)));
+    }
+
+    private void checkInitialized() {
+        if (size == 0) {
+            throw new IllegalStateException("Counting Bloom filter is not initialized!");
+        }
+    }
+
+    /**
+     * Forces counters of mapped file to disk. Counters are written to mapped pages on every update,
+     * so they survive process crash without flush. Does nothing for filter stored in memory only.
+     */
+    public void flush() {
+        ByteBuffer buffer = this.buffer;
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package org.redisson;
+
+import org.redisson.api.GuardedMapWriter;
+import org.redisson.api.MapOptions;
+import org.redisson.api.RFuture;
+import org.redisson.api.map.MapLoader;
+import org.redisson.api.map.MapWriter;
+import org.redisson.client.RedisException;
+import org.redisson.command.CommandAsyncExecutor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Decorates loader and writer of map with Counting Bloom filter checks.
+ * <p>
+ * Each key stored in data source holds exactly one increment of filter counters.
+ * Whether written key is new or deleted key existed is taken from {@link GuardedMapWriter},
+ * otherwise from map loader, which costs one data source read per key not rejected by filter
+ * and isn't atomic with the write.
+ *
+ * @param <K> - map key
+ * @param <V> - map value
+ * @author linfeng
+ */
+class MapGuard<K, V> {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    final RedissonCountingBloomFilter<K> filter;
+    private final CommandAsyncExecutor commandExecutor;
+    private final MapLoader<K, V> loader;
+    private final MapWriter<K, V> writer;
+
+    /**
+     * Filter results of keys checked in advance by <code>getAll</code>, shared by concurrent calls.
+     */
+    private final Map<Object, Probe> probed = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented after keys are added to filter, so probe results taken before are not trusted.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    final LongAdder loads = new LongAdder();
+    final LongAdder avoidedLoads = new LongAdder();
+    final LongAdder falsePositiveLoads = new LongAdder();
+
+    MapGuard(RedissonCountingBloomFilter<K> filter, CommandAsyncExecutor commandExecutor, MapOptions<K, V> options) {
+        this.filter = filter;
+        this.commandExecutor = commandExecutor;
+        this.loader = options.getLoader();
+        this.writer = options.getWriter();
+        if (writer != null && loader == null && !(writer instanceof GuardedMapWriter)) {
+            throw new IllegalArgumentException("Map writer should implement GuardedMapWriter if map loader isn't defined");
+        }
+    }
+
+    boolean hasLoader() {
+        return loader != null;
+    }
+
+    MapOptions<K, V> options(MapOptions<K, V> options) {
+        MapOptions<K, V> result = MapOptions.defaults();
+        if (loader != null) {
+            result.loader(new GuardedLoader());
+        }
+        if (writer != null) {
+            result.writer(new GuardedWriter())
+                    .writeMode(options.getWriteMode())
+                    .writeBehindThreads(options.getWriteBehindThreads())
+                    .writeBehindFlushPeriod(options.getWriteBehindFlushPeriod());
+        }
+        return result;
+    }
+
+    private BitSet execute(Function<List<long[]>, RFuture<long[]>> operation, Collection<? extends K> keys) {
+        BitSet result = new BitSet(keys.size());
+        List<long[]> hashes = new ArrayList<>(Math.min(keys.size(), CHUNK_SIZE));
+        int offset = 0;
+        for (K key : keys) {
+            hashes.add(filter.hash(key));
+            if (hashes.size() == CHUNK_SIZE) {
+                or(result, offset, execute(operation, hashes));
+                offset += hashes.size();
+                hashes.clear();
+            }
+        }
+        if (!hashes.isEmpty()) {
+            or(result, offset, execute(operation, hashes));
+        }
+        return result;
+    }
+
+    private long[] execute(Function<List<long[]>, RFuture<long[]>> operation, List<long[]> hashes) {
+        while (true) {
+            try {
+                return commandExecutor.get(operation.apply(hashes));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                filter.readConfig();
+            }
+        }
+    }
+
+    private static void or(BitSet result, int offset, long[] bitmask) {
+        BitSet bits = BitSet.valueOf(bitmask);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result.set(offset + i);
+        }
+    }
+
+    BitSet contains(Collection<? extends K> keys) {
+        return execute(h -> filter.containsHashesAsync(commandExecutor, h), keys);
+    }
+
+    BitSet add(Collection<? extends K> keys) {
+        return execute(h -> filter.addHashesAsync(commandExecutor, h), keys);
+    }
+
+    BitSet remove(Collection<? extends K> keys) {
+        return execute(h -> filter.removeHashesAsync(commandExecutor, h), keys);
+    }
+
+    /**
+     * Checks keys in one pipeline so loader invoked by <code>getAll</code> doesn't probe filter per key.
+     */
+    void probe(List<K> keys) {
+        long generation = this.generation.get();
+        BitSet present = contains(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            boolean value = present.get(i);
+            probed.compute(keys.get(i), (k, p) -> new Probe(value, generation, p == null ? 1 : p.refs + 1));
+        }
+    }
+
+    void release(List<K> keys) {
+        for (K key : keys) {
+            // 其他getAll仍在使用时只减少引用
+            probed.computeIfPresent(key, (k, p) -> p.refs == 1 ? null : new Probe(p.present, p.generation, p.refs - 1));
+        }
+    }
+
+    private boolean isPresent(K key) {
+        Probe probe = probed.get(key);
+        if (probe != null && probe.generation == generation.get()) {
+            return probe.present;
+        }
+        return filter.contains(key);
+    }
+
+    long warmUp() {
+        long count = 0;
+        List<K> keys = new ArrayList<>(CHUNK_SIZE);
+        for (K key : loader.loadAllKeys()) {
+            keys.add(key);
+            if (keys.size() == CHUNK_SIZE) {
+                add(keys);
+                count += keys.size();
+                keys.clear();
+            }
+        }
+        if (!keys.isEmpty()) {
+            add(keys);
+            count += keys.size();
+        }
+        generation.incrementAndGet();
+        return count;
+    }
+
+    /**
+     * Returns keys absent in data source. Key rejected by filter is never stored, so loader is called only
+     * for keys present in filter.
+     */
+    private List<K> absentInStore(Collection<K> keys) {
+        BitSet present = contains(keys);
+        List<K> result = new ArrayList<>(keys.size());
+        int i = 0;
+        for (K key : keys) {
+            if (!present.get(i++) || loader.load(key) == null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns keys present in data source, loader is called only for keys present in filter.
+     */
+    private List<K> presentInStore(Collection<K> keys) {
+        BitSet present = contains(keys);
+        List<K> result = new ArrayList<>(present.cardinality());
+        int i = 0;
+        for (K key : keys) {
+            if (present.get(i++) && loader.load(key) != null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    private static final class Probe {
+
+        final boolean present;
+        final long generation;
+        final int refs;
+
+        Probe(boolean present, long generation, int refs) {
+            this.present = present;
+            this.generation = generation;
+            this.refs = refs;
+        }
+
+    }
+
+    private class GuardedLoader implements MapLoader<K, V> {
+
+        @Override
+        public V load(K key) {
+            if (!isPresent(key)) {
+                avoidedLoads.increment();
+                return null;
+            }
+
+            loads.increment();
+            V value = loader.load(key);
+            if (value == null) {
+                falsePositiveLoads.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public Iterable<K> loadAllKeys() {
+            return loader.loadAllKeys();
+        }
+
+    }
+
+    private class GuardedWriter implements MapWriter<K, V> {
+
+        /**
+         * Increments counters of keys inserted to data source. Updated keys hold their increment already,
+         * and new key reported present by filter as false positive is still added.
+         */
+        @Override
+        public void write(Map<K, V> map) {
+            Collection<K> inserted;
+            if (writer instanceof GuardedMapWriter) {
+                inserted = ((GuardedMapWriter<K, V>) writer).insert(map);
+            } else {
+                inserted = absentInStore(map.keySet());
+                writer.write(map);
+            }
+            if (!inserted.isEmpty()) {
+                add(inserted);
+            }
+            generation.incrementAndGet();
+        }
+
+        /**
+         * Decrements counters only of keys deleted from data source,
+         * so deletion of key never stored doesn't decrement counters of other keys.
+         */
+        @Override
+        public void delete(Collection<K> keys) {
+            Collection<K> deleted;
+            if (writer instanceof GuardedMapWriter) {
+                deleted = ((GuardedMapWriter<K, V>) writer).deleteExisting(keys);
+            } else {
+                deleted = presentInStore(keys);
+                writer.delete(keys);
+            }
+            if (!deleted.isEmpty()) {
+                remove(deleted);
+            }
+        }
+
+    }
+
+}
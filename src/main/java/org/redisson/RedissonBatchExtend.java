@@ -0,0 +1,77 @@
+package org.redisson;
+
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatchExtend;
+import org.redisson.api.RCountingBloomFilterAsync;
+import org.redisson.client.codec.Codec;
+import org.redisson.command.CommandBatchService;
+import org.redisson.connection.ConnectionManager;
+import org.redisson.eviction.EvictionScheduler;
+
+import java.lang.reflect.Field;
+
+/**
+ * Batch which also queues operations of extend objects.
+ *
+ * @author linfeng
+ */
+public class RedissonBatchExtend extends RedissonBatch implements RBatchExtend {
+
+    static final String SUPPORTED_VERSION = "2.15.x";
+
+    private static final Field EXECUTOR_FIELD = executorField();
+
+    private final CommandBatchService executorService;
+
+    public RedissonBatchExtend(EvictionScheduler evictionScheduler, ConnectionManager connectionManager, BatchOptions options) {
+        super(evictionScheduler, connectionManager, options);
+        this.executorService = batchExecutor();
+    }
+
+    /**
+     * RedissonBatch of Redisson {@value #SUPPORTED_VERSION} keeps its executor in private
+     * <code>executorService</code> field and doesn't expose it, so extend objects get it by reflection
+     * to share pipeline with other objects of batch. Field is looked up once, and batch of other
+     * Redisson version without such field fails on creation.
+     */
+    private static Field executorField() {
+        try {
+            Field field = RedissonBatch.class.getDeclaredField("executorService");
+            if (!CommandBatchService.class.isAssignableFrom(field.getType())) {
+                return null;
+            }
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private CommandBatchService batchExecutor() {
+        if (EXECUTOR_FIELD == null) {
+            throw new IllegalStateException(unsupportedVersion());
+        }
+        try {
+            return (CommandBatchService) EXECUTOR_FIELD.get(this);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(unsupportedVersion(), e);
+        }
+    }
+
+    static String unsupportedVersion() {
+        String version = RedissonBatch.class.getPackage().getImplementationVersion();
+        return "RBatchExtend supports Redisson " + SUPPORTED_VERSION + ", executor of RedissonBatch isn't accessible in Redisson "
+                + (version != null ? version : "of unknown version");
+    }
+
+    @Override
+    public <V> RCountingBloomFilterAsync<V> getCountingBloomFilter(String name, int repeat) {
+        return new RedissonCountingBloomFilter<>(executorService, name, repeat);
+    }
+
+    @Override
+    public <V> RCountingBloomFilterAsync<V> getCountingBloomFilter(String name, int repeat, Codec codec) {
+        return new RedissonCountingBloomFilter<>(codec, executorService, name, repeat);
+    }
+
+}
@@ -0,0 +1,519 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.FilterHealth;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.DoubleCodec;
+import org.redisson.client.codec.IntegerCodec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.convertor.VoidReplayConvertor;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+import org.redisson.misc.Hash;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocked counting Bloom filter based on Highway 128-bit hash.
+ * <p>
+ * All counters of an element are located inside one 512-bit block chosen by the first hash,
+ * so lookup reads single 64-byte range and update touches single block in one Lua call.
+ *
+ * @param <T> type of object
+ * @author linfeng
+ */
+public class RedissonBlockedCountingBloomFilter<T> extends RedissonExpirable implements RCountingBloomFilter<T> {
+
+    static final int BLOCK_BITS = 512;
+
+    private static final RedisCommand<byte[]> EVAL_BLOCK = new RedisCommand<byte[]>("EVAL");
+
+    private static final String ADD_SCRIPT = ScriptRegistry.register(updateScript(
+            "if value == 0 then " +
+                "result = 1;" +
+            "end;" +
+            "if value < max then " +
+                "redis.call('bitfield', KEYS[1], 'set', type, offset, value + 1);" +
+            "end;"));
+
+    private static final String REMOVE_SCRIPT = ScriptRegistry.register(updateScript(
+            "if value == 0 then " +
+                "return 0;" +
+            "end;" +
+            "result = 1;" +
+            "table.insert(changes, offset);" +
+            "table.insert(changes, value - 1);"));
+
+    private static final int DEFAULT_MAX_REPEAT = 3;
+    private volatile long size;
+    private volatile long blocks;
+    // 最大计数
+    private volatile int maxRepeat = DEFAULT_MAX_REPEAT;
+    private volatile int maxBinaryBit;
+    private volatile int hashIterations;
+
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+
+    protected RedissonBlockedCountingBloomFilter(CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        setMaxRepeat(repeat);
+    }
+
+    protected RedissonBlockedCountingBloomFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        setMaxRepeat(repeat);
+    }
+
+    private void setMaxRepeat(int repeat) {
+        this.maxRepeat = repeat > 0 ? repeat : DEFAULT_MAX_REPEAT;
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+    }
+
+    private int optimalNumOfHashFunctions(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    private long optimalNumOfBits(long n, double p) {
+        if (p == 0) {
+            p = Double.MIN_VALUE;
+        }
+        return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    private long[] hash(Object object) {
+        ByteBuf state = encode(object);
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    /**
+     * Returns distinct bit offsets of element counters. First hash selects the block,
+     * second hash is used for double hashing of counters inside the block.
+     * Step is coprime to amount of counters per block, so first <code>countersPerBlock</code>
+     * counters never repeat and each counter of element is updated once per script.
+     */
+    static long[] hash(long hash1, long hash2, int iterations, long blocks, int maxCount) {
+        int countersPerBlock = BLOCK_BITS / maxCount;
+        long blockOffset = ((hash1 & Long.MAX_VALUE) % blocks) * BLOCK_BITS;
+        long step = (hash1 >>> 32) % countersPerBlock;
+        while (gcd(step, countersPerBlock) != 1) {
+            step = (step + 1) % countersPerBlock;
+        }
+
+        long[] indexes = new long[Math.min(iterations, countersPerBlock)];
+        long counter = (hash2 & Long.MAX_VALUE) % countersPerBlock;
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = blockOffset + counter * maxCount;
+            counter = (counter + step) % countersPerBlock;
+        }
+        return indexes;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Reads counter value from block bytes using big-endian bit order of Redis bitset.
+     */
+    static int counter(byte[] block, int bitOffset, int maxCount) {
+        int value = 0;
+        for (int i = bitOffset; i < bitOffset + maxCount; i++) {
+            int bit = (i >>> 3) < block.length ? (block[i >>> 3] >>> (7 - (i & 7))) & 1 : 0;
+            value = (value << 1) | bit;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean add(T object) {
+        return update(object, ADD_SCRIPT);
+    }
+
+    @Override
+    public boolean remove(T object) {
+        return update(object, REMOVE_SCRIPT);
+    }
+
+    @Override
+    public RFuture<Boolean> addAsync(T object) {
+        return resetConfigOnChange(updateAsync(hash(object), ADD_SCRIPT));
+    }
+
+    @Override
+    public RFuture<Boolean> removeAsync(T object) {
+        return resetConfigOnChange(updateAsync(hash(object), REMOVE_SCRIPT));
+    }
+
+    private boolean update(T object, String script) {
+        long[] hashes = hash(object);
+
+        while (true) {
+            try {
+                return commandExecutor.get(updateAsync(hashes, script));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    private RFuture<Boolean> updateAsync(long[] hashes, String script) {
+        if (size == 0) {
+            readConfig();
+        }
+
+        int hashIterations = this.hashIterations;
+        long size = this.size;
+        int maxCount = this.maxBinaryBit;
+
+        long[] indexes = hash(hashes[0], hashes[1], hashIterations, blocks, maxCount);
+        List<Object> params = new ArrayList<>(indexes.length + 4);
+        params.add(size);
+        params.add(hashIterations);
+        params.add(maxCount);
+        params.add(maxRepeat);
+        for (long index : indexes) {
+            params.add(index);
+        }
+
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                script, Arrays.asList(getName(), configName), params.toArray());
+    }
+
+    /**
+     * Wraps update of one counter by config check and loop over counters of element.
+     */
+    private static String updateScript(String counterScript) {
+        return "local size = redis.call('hget', KEYS[2], 'size');" +
+                "local hashIterations = redis.call('hget', KEYS[2], 'hashIterations');" +
+                "assert(size == ARGV[1] and hashIterations == ARGV[2], 'Bloom filter config has been changed');" +
+                "local type = 'u' .. ARGV[3];" +
+                "local max = tonumber(ARGV[4]);" +
+                "local result = 0;" +
+                "local changes = {};" +
+                "for i = 5, #ARGV do " +
+                    "local offset = ARGV[i];" +
+                    "local value = redis.call('bitfield', KEYS[1], 'get', type, offset)[1];" +
+                    counterScript +
+                "end;" +
+                "for i = 1, #changes, 2 do " +
+                    "redis.call('bitfield', KEYS[1], 'set', type, changes[i], changes[i + 1]);" +
+                "end;" +
+                "return result;";
+    }
+
+    @Override
+    public boolean contains(T object) {
+        long[] hashes = hash(object);
+
+        while (true) {
+            try {
+                return commandExecutor.get(containsAsync(hashes));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    @Override
+    public RFuture<Boolean> containsAsync(T object) {
+        return resetConfigOnChange(containsAsync(hash(object)));
+    }
+
+    private RFuture<Boolean> containsAsync(long[] hashes) {
+        if (size == 0) {
+            readConfig();
+        }
+
+        int hashIterations = this.hashIterations;
+        long size = this.size;
+        int maxCount = this.maxBinaryBit;
+
+        long[] indexes = hash(hashes[0], hashes[1], hashIterations, blocks, maxCount);
+        long blockOffset = indexes[0] / BLOCK_BITS * BLOCK_BITS;
+
+        RFuture<byte[]> future = ScriptRegistry.evalReadAsync(commandExecutor, getName(), ByteArrayCodec.INSTANCE, EVAL_BLOCK,
+                "local size = redis.call('hget', KEYS[2], 'size');" +
+                        "local hashIterations = redis.call('hget', KEYS[2], 'hashIterations');" +
+                        "assert(size == ARGV[1] and hashIterations == ARGV[2], 'Bloom filter config has been changed');" +
+                        "return redis.call('getrange', KEYS[1], ARGV[3], ARGV[4]);",
+                Arrays.asList(getName(), configName),
+                size, hashIterations, blockOffset / 8, (blockOffset + BLOCK_BITS) / 8 - 1);
+
+        RPromise<Boolean> result = new RedissonPromise<>();
+        future.addListener(new FutureListener<byte[]>() {
+            @Override
+            public void operationComplete(Future<byte[]> f) throws Exception {
+                if (!f.isSuccess()) {
+                    result.tryFailure(f.cause());
+                    return;
+                }
+                byte[] block = f.getNow();
+                for (long index : indexes) {
+                    if (counter(block, (int) (index - blockOffset), maxCount) == 0) {
+                        result.trySuccess(false);
+                        return;
+                    }
+                }
+                result.trySuccess(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Resets cached config on config change, so it's read again by next call.
+     */
+    private RFuture<Boolean> resetConfigOnChange(RFuture<Boolean> future) {
+        future.addListener(new FutureListener<Boolean>() {
+            @Override
+            public void operationComplete(Future<Boolean> f) throws Exception {
+                if (!f.isSuccess()
+                        && f.cause() instanceof RedisException
+                        && f.cause().getMessage() != null
+                        && f.cause().getMessage().contains("Bloom filter config has been changed")) {
+                    size = 0;
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public long count() {
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        RFuture<Map<String, String>> configFuture = executorService.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        RFuture<Long> cardinalityFuture = new RedissonBitSet(executorService, getName()).cardinalityAsync();
+        executorService.execute();
+
+        readConfig(configFuture.getNow());
+
+        return Math.round(-size / ((double) hashIterations) * Math.log(1 - cardinalityFuture.getNow() / ((double) size)));
+    }
+
+    @Override
+    public FilterHealth health() {
+        return health(RedissonCountingBloomFilter.DEFAULT_HEALTH_SLICE);
+    }
+
+    @Override
+    public FilterHealth health(int sliceSize) {
+        if (sliceSize <= 0) {
+            throw new IllegalArgumentException("sliceSize should be greater than 0");
+        }
+        while (true) {
+            RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                    new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+            Map<String, String> config = syncExecutor.get(future);
+            readConfig(config);
+            long size = this.size;
+            int hashIterations = this.hashIterations;
+            long[] histogram = new long[maxRepeat + 1];
+            try {
+                long cursor = 0;
+                while (cursor < size) {
+                    RFuture<List<Long>> scan = ScriptRegistry.evalReadAsync(commandExecutor, getName(), LongCodec.INSTANCE,
+                            RedisCommands.EVAL_LIST, RedissonCountingBloomFilter.HEALTH_SCRIPT,
+                            Arrays.asList(getName(), configName),
+                            size, hashIterations, maxBinaryBit, cursor, Math.min(size, cursor + sliceSize),
+                            BLOCK_BITS / maxBinaryBit, BLOCK_BITS, maxRepeat);
+                    List<Long> result = commandExecutor.get(scan);
+                    cursor = result.get(0);
+                    for (int value = 0; value < histogram.length; value++) {
+                        histogram[value] += result.get(value + 1);
+                    }
+                }
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                continue;
+            }
+            return RedissonCountingBloomFilter.counterHealth(size, hashIterations, histogram,
+                    Double.valueOf(config.get("falseProbability")));
+        }
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName);
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = Arrays.asList(getName(), configName);
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    private void readConfig() {
+        RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        Map<String, String> config = syncExecutor.get(future);
+
+        readConfig(config);
+    }
+
+    private void readConfig(Map<String, String> config) {
+        if (config.get("hashIterations") == null
+                || config.get("size") == null) {
+            throw new IllegalStateException("Bloom filter is not initialized!");
+        }
+        size = Long.valueOf(config.get("size"));
+        hashIterations = Integer.valueOf(config.get("hashIterations"));
+        blocks = size / (BLOCK_BITS / maxBinaryBit);
+    }
+
+    protected long getMaxSize() {
+        return Integer.MAX_VALUE * 2L;
+    }
+
+    @Override
+    public boolean tryInit(long expectedInsertions, double falseProbability) {
+        if (falseProbability > 1) {
+            throw new IllegalArgumentException("Counting Bloom filter false probability can't be greater than 1");
+        }
+        if (falseProbability < 0) {
+            throw new IllegalArgumentException("Counting Bloom filter false probability can't be negative");
+        }
+
+        long bits = optimalNumOfBits(expectedInsertions, falseProbability);
+        if (bits == 0) {
+            throw new IllegalArgumentException("Counting Bloom filter calculated size is " + bits);
+        }
+        int countersPerBlock = BLOCK_BITS / maxBinaryBit;
+        long blocks = (bits + countersPerBlock - 1) / countersPerBlock;
+        long size = blocks * countersPerBlock;
+        if (blocks * BLOCK_BITS > getMaxSize()) {
+            throw new IllegalArgumentException("Counting Bloom filter size can't be greater than " + getMaxSize() + ". But calculated size is " + size);
+        }
+        int hashIterations = Math.min(optimalNumOfHashFunctions(expectedInsertions, size), countersPerBlock);
+
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        executorService.evalReadAsync(configName, codec, RedisCommands.EVAL_VOID,
+                "local size = redis.call('hget', KEYS[1], 'size');" +
+                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
+                        "assert(size == false and hashIterations == false, 'Bloom filter config has been changed')",
+                Arrays.asList(configName), size, hashIterations);
+        executorService.writeAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), configName,
+                "size", size, "hashIterations", hashIterations, "blockBits", BLOCK_BITS,
+                "expectedInsertions", expectedInsertions, "falseProbability", BigDecimal.valueOf(falseProbability).toPlainString());
+        try {
+            executorService.execute();
+        } catch (RedisException e) {
+            if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                throw e;
+            }
+            readConfig();
+            return false;
+        }
+
+        this.size = size;
+        this.hashIterations = hashIterations;
+        this.blocks = blocks;
+        return true;
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpire', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpireat', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpireat', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('persist', KEYS[1]); " +
+                        "return redis.call('persist', KEYS[2]); ",
+                Arrays.asList(getName(), configName));
+    }
+
+    @Override
+    public long getExpectedInsertions() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "expectedInsertions");
+        return check(result);
+    }
+
+    @Override
+    public double getFalseProbability() {
+        Double result = syncExecutor.read(configName, DoubleCodec.INSTANCE, RedisCommands.HGET, configName, "falseProbability");
+        return check(result);
+    }
+
+    @Override
+    public long getSize() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size");
+        return check(result);
+    }
+
+    @Override
+    public int getHashIterations() {
+        Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "hashIterations");
+        return check(result);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private <V> V check(V result) {
+        if (result == null) {
+            throw new IllegalStateException("Counting Bloom filter is not initialized!");
+        }
+        return result;
+    }
+
+}
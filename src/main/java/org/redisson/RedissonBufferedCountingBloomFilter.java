@@ -0,0 +1,385 @@
+package org.redisson;
+
+import org.redisson.api.RBufferedCountingBloomFilter;
+import org.redisson.client.RedisException;
+import org.redisson.command.CommandAsyncExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind view of {@link RedissonCountingBloomFilter}.
+ * <p>
+ * Counter deltas are accumulated in primitive open addressing map keyed by counter offset
+ * and written by one Lua script per flush. Caller which fills the buffer flushes it
+ * in own thread, so producers are slowed down to flush rate.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public class RedissonBufferedCountingBloomFilter<T> implements RBufferedCountingBloomFilter<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(RedissonBufferedCountingBloomFilter.class);
+
+    private final RedissonCountingBloomFilter<T> filter;
+    private final CommandAsyncExecutor commandExecutor;
+    private final int maxPendingCounters;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private CounterDeltas buffer;
+    private CounterDeltas flushing;
+
+    private final AtomicLong bufferedUpdates = new AtomicLong();
+    private final AtomicLong flushedCounters = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushTime = new AtomicLong();
+
+    RedissonBufferedCountingBloomFilter(RedissonCountingBloomFilter<T> filter, CommandAsyncExecutor commandExecutor,
+                                        long flushInterval, int maxPendingCounters, TimeUnit unit) {
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("flushInterval should be greater than 0");
+        }
+        if (maxPendingCounters <= 0) {
+            throw new IllegalArgumentException("maxPendingCounters should be greater than 0");
+        }
+        this.filter = filter;
+        this.commandExecutor = commandExecutor;
+        this.maxPendingCounters = maxPendingCounters;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redisson-filter-buffer-" + filter.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = unit.toMillis(flushInterval);
+        this.executor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("Unable to flush buffered counters of counting Bloom filter " + filter.getName(), e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns buffer matching current filter config.
+     * Deltas buffered for previous config are dropped as their offsets are no longer valid.
+     */
+    private CounterDeltas buffer() {
+        if (filter.getCachedSize() == 0) {
+            filter.readConfig();
+        }
+        long size = filter.getCachedSize();
+        int hashIterations = filter.getCachedHashIterations();
+        if (buffer == null
+                || buffer.filterSize != size
+                || buffer.hashIterations != hashIterations) {
+            if (buffer != null && buffer.size() > 0) {
+                log.warn("Config of counting Bloom filter {} has been changed, {} buffered counters dropped",
+                        filter.getName(), buffer.size());
+            }
+            buffer = new CounterDeltas(size, hashIterations, maxPendingCounters);
+        }
+        return buffer;
+    }
+
+    private boolean update(long[] hashes, int delta) {
+        synchronized (lock) {
+            CounterDeltas buffer = buffer();
+            long[] indexes = RedissonCountingBloomFilter.hash(hashes[0], hashes[1],
+                    buffer.hashIterations, buffer.filterSize, filter.getCounterBits());
+            for (long index : indexes) {
+                buffer.add(index, delta);
+            }
+            bufferedUpdates.addAndGet(indexes.length);
+            return buffer.size() >= maxPendingCounters;
+        }
+    }
+
+    @Override
+    public boolean add(T object) {
+        if (update(filter.hash(object), 1)) {
+            flush();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(T object) {
+        return contains(filter.hash(object));
+    }
+
+    private boolean contains(long[] hashes) {
+        int[] pending;
+        boolean buffered = false;
+        synchronized (lock) {
+            CounterDeltas buffer = buffer();
+            long[] indexes = RedissonCountingBloomFilter.hash(hashes[0], hashes[1],
+                    buffer.hashIterations, buffer.filterSize, filter.getCounterBits());
+            pending = new int[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                pending[i] = buffer.get(indexes[i]);
+                if (flushing != null
+                        && flushing.filterSize == buffer.filterSize
+                        && flushing.hashIterations == buffer.hashIterations) {
+                    pending[i] += flushing.get(indexes[i]);
+                }
+                buffered |= pending[i] != 0;
+            }
+        }
+
+        RedissonCountingBloomFilter.ReadResult readResult;
+        do {
+            readResult = filter.readData(hashes, true);
+        } while (readResult == null);
+
+        if (!buffered) {
+            return readResult.success();
+        }
+
+        int[] counters = readResult.counters();
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i] + pending[i] <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean remove(T object) {
+        long[] hashes = filter.hash(object);
+        if (!contains(hashes)) {
+            return false;
+        }
+        if (update(hashes, -1)) {
+            flush();
+        }
+        filter.invalidate(hashes);
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            CounterDeltas deltas;
+            synchronized (lock) {
+                if (buffer == null || buffer.size() == 0) {
+                    return;
+                }
+                deltas = buffer;
+                flushing = deltas;
+                buffer = new CounterDeltas(deltas.filterSize, deltas.hashIterations, maxPendingCounters);
+            }
+
+            try {
+                long[] offsets = new long[deltas.size()];
+                int[] values = new int[deltas.size()];
+                int length = deltas.drainTo(offsets, values);
+                if (length == 0) {
+                    return;
+                }
+
+                long startTime = System.nanoTime();
+                commandExecutor.get(filter.applyDeltasAsync(commandExecutor,
+                        deltas.filterSize, deltas.hashIterations, offsets, values, length));
+                flushTime.addAndGet(System.nanoTime() - startTime);
+                flushCount.incrementAndGet();
+                flushedCounters.addAndGet(length);
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    synchronized (lock) {
+                        buffer().merge(deltas);
+                    }
+                    throw e;
+                }
+                log.warn("Config of counting Bloom filter {} has been changed, {} buffered counters dropped",
+                        filter.getName(), deltas.size());
+                filter.readConfig();
+            } finally {
+                synchronized (lock) {
+                    flushing = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        flush();
+    }
+
+    @Override
+    public int getPendingCounters() {
+        synchronized (lock) {
+            return buffer == null ? 0 : buffer.size();
+        }
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    @Override
+    public long getAverageFlushLatency(TimeUnit unit) {
+        long count = flushCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        return unit.convert(flushTime.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public double getCoalescingRatio() {
+        long flushed = flushedCounters.get();
+        if (flushed == 0) {
+            return 0;
+        }
+        return (double) bufferedUpdates.get() / flushed;
+    }
+
+    @Override
+    public boolean tryInit(long expectedInsertions, double falseProbability) {
+        return filter.tryInit(expectedInsertions, falseProbability);
+    }
+
+    @Override
+    public long getExpectedInsertions() {
+        return filter.getExpectedInsertions();
+    }
+
+    @Override
+    public double getFalseProbability() {
+        return filter.getFalseProbability();
+    }
+
+    @Override
+    public long getSize() {
+        return filter.getSize();
+    }
+
+    @Override
+    public int getHashIterations() {
+        return filter.getHashIterations();
+    }
+
+    @Override
+    public long count() {
+        flush();
+        return filter.count();
+    }
+
+    /**
+     * Open addressing map of counter offset to delta.
+     */
+    private static final class CounterDeltas {
+
+        private static final long EMPTY = -1;
+        private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+        final long filterSize;
+        final int hashIterations;
+
+        private long[] offsets;
+        private int[] deltas;
+        private int size;
+
+        CounterDeltas(long filterSize, int hashIterations, int expectedSize) {
+            this.filterSize = filterSize;
+            this.hashIterations = hashIterations;
+            int capacity = Integer.highestOneBit(Math.min(expectedSize, MAX_INITIAL_CAPACITY) * 2 - 1) << 1;
+            this.offsets = new long[Math.max(capacity, 16)];
+            this.deltas = new int[offsets.length];
+            Arrays.fill(offsets, EMPTY);
+        }
+
+        private static int slot(long offset, int mask) {
+            long hash = offset * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long offset) {
+            int mask = offsets.length - 1;
+            for (int i = slot(offset, mask); offsets[i] != EMPTY; i = (i + 1) & mask) {
+                if (offsets[i] == offset) {
+                    return deltas[i];
+                }
+            }
+            return 0;
+        }
+
+        void add(long offset, int delta) {
+            int mask = offsets.length - 1;
+            int i = slot(offset, mask);
+            for (; offsets[i] != EMPTY; i = (i + 1) & mask) {
+                if (offsets[i] == offset) {
+                    deltas[i] += delta;
+                    return;
+                }
+            }
+            offsets[i] = offset;
+            deltas[i] = delta;
+            size++;
+            if (size * 2 > offsets.length) {
+                resize();
+            }
+        }
+
+        void merge(CounterDeltas other) {
+            if (other.filterSize != filterSize
+                    || other.hashIterations != hashIterations) {
+                return;
+            }
+            for (int i = 0; i < other.offsets.length; i++) {
+                if (other.offsets[i] != EMPTY) {
+                    add(other.offsets[i], other.deltas[i]);
+                }
+            }
+        }
+
+        /**
+         * Copies non-zero deltas.
+         *
+         * @return amount of copied deltas
+         */
+        int drainTo(long[] offsets, int[] deltas) {
+            int length = 0;
+            for (int i = 0; i < this.offsets.length; i++) {
+                if (this.offsets[i] != EMPTY && this.deltas[i] != 0) {
+                    offsets[length] = this.offsets[i];
+                    deltas[length] = this.deltas[i];
+                    length++;
+                }
+            }
+            return length;
+        }
+
+        private void resize() {
+            long[] oldOffsets = offsets;
+            int[] oldDeltas = deltas;
+            offsets = new long[oldOffsets.length * 2];
+            deltas = new int[offsets.length];
+            Arrays.fill(offsets, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldOffsets.length; i++) {
+                if (oldOffsets[i] != EMPTY) {
+                    add(oldOffsets[i], oldDeltas[i]);
+                }
+            }
+        }
+
+    }
+
+}
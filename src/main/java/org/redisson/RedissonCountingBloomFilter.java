@@ -1,29 +1,41 @@
 package org.redisson;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.FilterHealth;
 import org.redisson.api.RBitSetAsync;
+import org.redisson.api.RBufferableCountingBloomFilter;
+import org.redisson.api.RBufferedCountingBloomFilter;
 import org.redisson.api.RCountingBloomFilter;
 import org.redisson.api.RFuture;
+import org.redisson.api.RTopic;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.RedisClient;
 import org.redisson.client.RedisException;
 import org.redisson.client.codec.*;
 import org.redisson.client.protocol.RedisCommand;
 import org.redisson.client.protocol.RedisCommands;
 import org.redisson.client.protocol.convertor.VoidReplayConvertor;
 import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandAsyncExecutor;
 import org.redisson.command.CommandBatchService;
 import org.redisson.command.CommandExecutor;
 import org.redisson.misc.Hash;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static java.lang.Math.abs;
+import java.util.function.Function;
 
 /**
  * Counting Bloom filter based on Highway 128-bit hash.
@@ -31,66 +43,458 @@ import static java.lang.Math.abs;
  * @param <T> type of object
  * @author linfeng
  */
-public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements RCountingBloomFilter<T> {
-
+public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements RBufferableCountingBloomFilter<T> {
+
+
+    static final RedisCommand<int[]> EVAL_COUNTERS = new RedisCommand<int[]>("EVAL");
+
+    static final RedisCommand<long[]> EVAL_BITMASK = new RedisCommand<long[]>("EVAL");
+
+    static final String CONFIG_CHECK_SCRIPT =
+            "local size = redis.call('hget', KEYS[2], 'size');" +
+            "local hashIterations = redis.call('hget', KEYS[2], 'hashIterations');" +
+            "assert(size == ARGV[1] and hashIterations == ARGV[2], 'Bloom filter config has been changed');";
+
+    /**
+     * Also checks counter width <code>ARGV[3]</code>, since offsets of counters depend on it.
+     * Config written before counter width was stored doesn't contain it.
+     */
+    static final String COUNTER_CONFIG_CHECK_SCRIPT = CONFIG_CHECK_SCRIPT +
+            "local counterBits = redis.call('hget', KEYS[2], 'counterBits');" +
+            "assert(counterBits == false or counterBits == ARGV[3], 'Bloom filter config has been changed');";
+
+    static final String PACK_SCRIPT =
+            "local function pack(value) " +
+                "return string.char(math.floor(value / 16777216) % 256, math.floor(value / 65536) % 256, " +
+                                   "math.floor(value / 256) % 256, value % 256);" +
+            "end;";
+
+    /**
+     * Collects one bit per element by <code>mark(boolean)</code> function
+     * and packs them by <code>bitmask()</code> function into reply for {@link PrimitiveArrayCodec#BITMASK}.
+     */
+    static final String BITMASK_SCRIPT =
+            "local packed = {};" +
+            "local current = 0;" +
+            "local marked = 0;" +
+            "local function mark(value) " +
+                "if value then " +
+                    "current = current + 2 ^ (marked % 8);" +
+                "end;" +
+                "marked = marked + 1;" +
+                "if marked % 8 == 0 then " +
+                    "table.insert(packed, string.char(current));" +
+                    "current = 0;" +
+                "end;" +
+            "end;" +
+            "local function bitmask() " +
+                "if marked % 8 ~= 0 then " +
+                    "table.insert(packed, string.char(current));" +
+                "end;" +
+                "return table.concat(packed);" +
+            "end;";
+
+    /**
+     * Appends changed counters collected in <code>changes</code> table to delta log
+     * if delta log is enabled by mirror of filter.
+     */
+    static final String DELTA_LOG_SCRIPT =
+            "if #changes > 0 then " +
+                "local deltaLog = redis.call('hget', KEYS[2], 'deltaLog');" +
+                "if deltaLog then " +
+                    "local seq = redis.call('incr', KEYS[3]);" +
+                    "redis.call('rpush', KEYS[4], seq .. ':' .. table.concat(changes, ','));" +
+                    "redis.call('ltrim', KEYS[4], -tonumber(deltaLog), -1);" +
+                "end;" +
+            "end;";
+
+    /**
+     * Reads and writes counters by <code>getc(offset)</code> and <code>setc(offset, value)</code> functions.
+     * Counter of <code>ARGV[3]</code> bits which reached its max value keeps the rest in <code>overflow</code> hash,
+     * if <code>overflow</code> variable is defined.
+     */
+    static final String COUNTER_SCRIPT =
+            "local type = 'u' .. ARGV[3];" +
+            "local saturated = 2 ^ tonumber(ARGV[3]) - 1;" +
+            "local function getc(offset) " +
+                "local value = redis.call('bitfield', KEYS[1], 'get', type, offset)[1];" +
+                "if overflow and value == saturated then " +
+                    "value = value + tonumber(redis.call('hget', overflow, offset) or '0');" +
+                "end;" +
+                "return value;" +
+            "end;" +
+            "local function setc(offset, value) " +
+                "value = tonumber(value);" +
+                "if not overflow then " +
+                    "return redis.call('bitfield', KEYS[1], 'set', type, offset, value)[1];" +
+                "end;" +
+                "local previous = getc(offset);" +
+                "redis.call('bitfield', KEYS[1], 'set', type, offset, math.min(value, saturated));" +
+                "if value > saturated then " +
+                    "redis.call('hset', overflow, offset, value - saturated);" +
+                "elseif previous > saturated then " +
+                    "redis.call('hdel', overflow, offset);" +
+                "end;" +
+                "return previous;" +
+            "end;";
+
+    private static final String READ_SCRIPT =
+            ScriptRegistry.register(COUNTER_CONFIG_CHECK_SCRIPT + PACK_SCRIPT +
+            "local overflow = KEYS[3];" +
+            COUNTER_SCRIPT +
+            "local result = {};" +
+            "for i = 4, #ARGV do " +
+                "table.insert(result, pack(getc(ARGV[i])));" +
+            "end;" +
+            "return table.concat(result);");
+
+    /**
+     * Bodies of hashes scripts without config check, so objects built on filter counters
+     * can prepend checks of their own config.
+     */
+    static final String CONTAINS_HASHES_BODY_SCRIPT =
+            BITMASK_SCRIPT +
+            "local type = 'u' .. ARGV[3];" +
+            "local k = tonumber(ARGV[2]);" +
+            "for i = 4, #ARGV, k do " +
+                "local present = true;" +
+                "for j = i, i + k - 1 do " +
+                    "if redis.call('bitfield', KEYS[1], 'get', type, ARGV[j])[1] == 0 then " +
+                        "present = false;" +
+                        "break;" +
+                    "end;" +
+                "end;" +
+                "mark(present);" +
+            "end;" +
+            "return bitmask();";
+
+    private static final String CONTAINS_SCRIPT =
+            ScriptRegistry.register(COUNTER_CONFIG_CHECK_SCRIPT + CONTAINS_HASHES_BODY_SCRIPT);
+
+    /**
+     * Scans counters from <code>ARGV[4]</code> to <code>ARGV[5]</code> exclusive by one <code>getrange</code>
+     * and returns next cursor with histogram of counter values capped by <code>ARGV[8]</code>.
+     * Counter <code>c</code> is located at bit <code>floor(c / ARGV[6]) * ARGV[7] + (c % ARGV[6]) * ARGV[3]</code>.
+     */
+    static final String HEALTH_SCRIPT =
+            ScriptRegistry.register(COUNTER_CONFIG_CHECK_SCRIPT +
+            "local overflow = KEYS[3];" +
+            "local bits = tonumber(ARGV[3]);" +
+            "local saturated = 2 ^ bits - 1;" +
+            "local first = tonumber(ARGV[4]);" +
+            "local last = tonumber(ARGV[5]);" +
+            "local perBlock = tonumber(ARGV[6]);" +
+            "local blockBits = tonumber(ARGV[7]);" +
+            "local max = tonumber(ARGV[8]);" +
+            "local function offset(c) " +
+                "return math.floor(c / perBlock) * blockBits + (c % perBlock) * bits;" +
+            "end;" +
+            "local start = math.floor(offset(first) / 8);" +
+            "local data = redis.call('getrange', KEYS[1], start, math.floor((offset(last - 1) + bits - 1) / 8));" +
+            "local result = {last};" +
+            "for value = 0, max do " +
+                "result[value + 2] = 0;" +
+            "end;" +
+            "for c = first, last - 1 do " +
+                "local o = offset(c);" +
+                "local value = 0;" +
+                "for bit = o, o + bits - 1 do " +
+                    // 超出已写入长度的字节按0处理
+                    "local byte = string.byte(data, math.floor(bit / 8) - start + 1) or 0;" +
+                    "value = value * 2 + math.floor(byte / 2 ^ (7 - bit % 8)) % 2;" +
+                "end;" +
+                "if overflow and value == saturated then " +
+                    "value = value + tonumber(redis.call('hget', overflow, o) or '0');" +
+                "end;" +
+                "value = math.min(value, max);" +
+                "result[value + 2] = result[value + 2] + 1;" +
+            "end;" +
+            "return result;");
+
+    static final int DEFAULT_HEALTH_SLICE = 65536;
+
+    static final String ADD_HASHES_BODY_SCRIPT =
+            BITMASK_SCRIPT +
+            "local overflow = KEYS[5];" +
+            COUNTER_SCRIPT +
+            "local k = tonumber(ARGV[2]);" +
+            "local max = tonumber(ARGV[4]);" +
+            "local changes = {};" +
+            "for i = 5, #ARGV, k do " +
+                "local added = false;" +
+                "for j = i, i + k - 1 do " +
+                    "local value = getc(ARGV[j]);" +
+                    "if value == 0 then " +
+                        "added = true;" +
+                    "end;" +
+                    "if value < max then " +
+                        "setc(ARGV[j], value + 1);" +
+                        "table.insert(changes, ARGV[j] .. '=' .. (value + 1));" +
+                    "end;" +
+                "end;" +
+                "mark(added);" +
+            "end;" +
+            DELTA_LOG_SCRIPT +
+            "return bitmask();";
+
+    private static final String ADD_HASHES_SCRIPT =
+            ScriptRegistry.register(COUNTER_CONFIG_CHECK_SCRIPT + ADD_HASHES_BODY_SCRIPT);
+
+    static final String REMOVE_HASHES_BODY_SCRIPT =
+            BITMASK_SCRIPT +
+            "local overflow = KEYS[5];" +
+            COUNTER_SCRIPT +
+            "local k = tonumber(ARGV[2]);" +
+            "local changes = {};" +
+            "for i = 5, #ARGV, k do " +
+                "local values = {};" +
+                "local present = true;" +
+                "for j = i, i + k - 1 do " +
+                    "values[j] = getc(ARGV[j]);" +
+                    "if values[j] == 0 then " +
+                        "present = false;" +
+                    "end;" +
+                "end;" +
+                "if present then " +
+                    "for j = i, i + k - 1 do " +
+                        "local value = values[j] - 1;" +
+                        "setc(ARGV[j], value);" +
+                        "table.insert(changes, ARGV[j] .. '=' .. value);" +
+                    "end;" +
+                "end;" +
+                "mark(present);" +
+            "end;" +
+            DELTA_LOG_SCRIPT +
+            "return bitmask();";
+
+    private static final String REMOVE_HASHES_SCRIPT =
+            ScriptRegistry.register(COUNTER_CONFIG_CHECK_SCRIPT + REMOVE_HASHES_BODY_SCRIPT);
+
+    private static final String APPLY_DELTAS_SCRIPT =
+            ScriptRegistry.register(COUNTER_CONFIG_CHECK_SCRIPT +
+            "local overflow = KEYS[5];" +
+            COUNTER_SCRIPT +
+            "local max = tonumber(ARGV[4]);" +
+            "local changes = {};" +
+            "for i = 5, #ARGV, 2 do " +
+                "local previous = getc(ARGV[i]);" +
+                "local value = math.max(0, math.min(max, previous + tonumber(ARGV[i + 1])));" +
+                "if value ~= previous then " +
+                    "setc(ARGV[i], value);" +
+                    "table.insert(changes, ARGV[i] .. '=' .. value);" +
+                "end;" +
+            "end;" +
+            DELTA_LOG_SCRIPT);
 
     private int DEFAULT_MAX_REPEAT = 3;
-    private Boolean[] defaultList;
     private volatile long size;
     // 最大计数
     private volatile int maxRepeat = DEFAULT_MAX_REPEAT;
+    // 计数器位数和是否溢出以配置为准，初始化前使用本客户端的设置
     private volatile int maxBinaryBit;
+    private volatile boolean overflow;
     private volatile int hashIterations;
 
-    private final CommandExecutor commandExecutor;
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
     private final String configName;
-
-    protected RedissonCountingBloomFilter(CommandExecutor commandExecutor, String name) {
+    private final String seqName;
+    private final String deltaLogName;
+    private final String overflowName;
+    private final CountingBloomFilterOptions options;
+    private volatile CountingBloomFilterMirror mirror;
+    private volatile CountingBloomFilterDispatcher dispatcher;
+    private volatile CountingBloomFilterReplicas replicas;
+    private volatile CountingBloomFilterCache cache;
+    private volatile RTopic invalidationTopic;
+    private volatile boolean publishInvalidations;
+
+    protected RedissonCountingBloomFilter(CommandAsyncExecutor commandExecutor, String name) {
         super(commandExecutor, name);
         this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
         this.configName = suffixName(getName(), "config");
+        this.seqName = suffixName(getName(), "seq");
+        this.deltaLogName = suffixName(getName(), "deltas");
+        this.overflowName = suffixName(getName(), "overflow");
+        this.options = CountingBloomFilterOptions.defaults();
         this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
-        this.defaultList = defaultOneData();
     }
 
-    protected RedissonCountingBloomFilter(CommandExecutor commandExecutor, String name, int repeat) {
+    protected RedissonCountingBloomFilter(CommandAsyncExecutor commandExecutor, String name, int repeat) {
         super(commandExecutor, name);
         this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
         this.configName = suffixName(getName(), "config");
+        this.seqName = suffixName(getName(), "seq");
+        this.deltaLogName = suffixName(getName(), "deltas");
+        this.overflowName = suffixName(getName(), "overflow");
+        this.options = CountingBloomFilterOptions.defaults();
         this.maxRepeat = repeat;
         this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
-        this.defaultList = defaultOneData();
     }
 
-    protected RedissonCountingBloomFilter(Codec codec, CommandExecutor commandExecutor, String name) {
+    protected RedissonCountingBloomFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        this.seqName = suffixName(getName(), "seq");
+        this.deltaLogName = suffixName(getName(), "deltas");
+        this.overflowName = suffixName(getName(), "overflow");
+        this.options = CountingBloomFilterOptions.defaults();
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+    }
+
+    protected RedissonCountingBloomFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name, int repeat) {
         super(codec, commandExecutor, name);
         this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        this.seqName = suffixName(getName(), "seq");
+        this.deltaLogName = suffixName(getName(), "deltas");
+        this.overflowName = suffixName(getName(), "overflow");
+        this.options = CountingBloomFilterOptions.defaults();
+        this.maxRepeat = repeat;
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+    }
+
+    protected RedissonCountingBloomFilter(CommandAsyncExecutor commandExecutor, String name, int repeat,
+                                          CountingBloomFilterOptions options) {
+        super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
         this.configName = suffixName(getName(), "config");
+        this.seqName = suffixName(getName(), "seq");
+        this.deltaLogName = suffixName(getName(), "deltas");
+        this.overflowName = suffixName(getName(), "overflow");
+        this.options = options;
+        this.maxRepeat = repeat;
         this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
-        this.defaultList = defaultOneData();
+        if (options.isOverflowCounters()) {
+            this.maxBinaryBit = Math.min(maxBinaryBit, options.getOverflowBaseBits());
+        }
+        this.overflow = options.isOverflowCounters();
+        init();
     }
 
-    protected RedissonCountingBloomFilter(Codec codec, CommandExecutor commandExecutor, String name, int repeat) {
+    protected RedissonCountingBloomFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name, int repeat,
+                                          CountingBloomFilterOptions options) {
         super(codec, commandExecutor, name);
         this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
         this.configName = suffixName(getName(), "config");
+        this.seqName = suffixName(getName(), "seq");
+        this.deltaLogName = suffixName(getName(), "deltas");
+        this.overflowName = suffixName(getName(), "overflow");
+        this.options = options;
         this.maxRepeat = repeat;
         this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
-        this.defaultList = defaultOneData();
+        if (options.isOverflowCounters()) {
+            this.maxBinaryBit = Math.min(maxBinaryBit, options.getOverflowBaseBits());
+        }
+        this.overflow = options.isOverflowCounters();
+        init();
+    }
+
+    private void init() {
+        if (options.isLocalMirror()) {
+            // 溢出部分不影响是否为0，镜像只保留基础计数
+            int mirrorRepeat = Math.min(maxRepeat, (1 << maxBinaryBit) - 1);
+            mirror = new CountingBloomFilterMirror(commandExecutor, codec, getName(), configName, seqName, deltaLogName,
+                    mirrorRepeat, options);
+            mirror.start();
+        }
+        if (options.isCoalescing()) {
+            dispatcher = new CountingBloomFilterDispatcher(this, commandExecutor.getConnectionManager(), options);
+            dispatcher.start();
+        }
+        if (options.isReplicaReads()) {
+            replicas = new CountingBloomFilterReplicas(commandExecutor, getName(), options.getReplicaMaxLag());
+            replicas.start();
+        }
+        if (options.isPositiveCache()) {
+            CountingBloomFilterCache cache = new CountingBloomFilterCache(options.getPositiveCacheSize(),
+                    options.getPositiveCacheTtl());
+            RTopic topic = invalidationTopic();
+            topic.addListener(byte[].class, (channel, message) -> onInvalidation(cache, message));
+            topic.addListener(new BaseStatusListener() {
+                @Override
+                public void onSubscribe(String channel) {
+                    // 订阅中断期间可能丢失了失效消息
+                    cache.clear();
+                }
+            });
+            this.invalidationTopic = topic;
+            this.cache = cache;
+        }
+    }
+
+    private RTopic invalidationTopic() {
+        return new RedissonTopic(ByteArrayCodec.INSTANCE, commandExecutor, suffixName(getName(), "invalidations"));
     }
 
-    private int optimalNumOfHashFunctions(long n, long m) {
+    /**
+     * Marks in config that removed elements should be published to caches of other clients.
+     * Config of filter which is not initialized or already deleted is never created by this flag.
+     */
+    private void enablePublishInvalidations() {
+        publishInvalidations = true;
+        ScriptRegistry.evalWriteAsync(commandExecutor, configName, StringCodec.INSTANCE, RedisCommands.EVAL_VOID,
+                "if redis.call('hexists', KEYS[1], 'size') == 1 then " +
+                    "redis.call('hset', KEYS[1], 'positiveCache', 1);" +
+                "end;",
+                Arrays.<Object>asList(configName));
+    }
+
+    private static void onInvalidation(CountingBloomFilterCache cache, byte[] message) {
+        if (message.length == 0) {
+            cache.clear();
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        while (buffer.remaining() >= 2 * Long.BYTES) {
+            cache.invalidate(new long[] {buffer.getLong(), buffer.getLong()});
+        }
+    }
+
+    void invalidate(long[] hashes) {
+        invalidate(Collections.singletonList(hashes));
+    }
+
+    /**
+     * Removes elements from local cache and publishes their hashes to caches of other clients.
+     */
+    private void invalidate(List<long[]> hashes) {
+        CountingBloomFilterCache cache = this.cache;
+        if (cache != null) {
+            for (long[] hash : hashes) {
+                cache.invalidate(hash);
+            }
+        }
+        if (!publishInvalidations || hashes.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer message = ByteBuffer.allocate(hashes.size() * 2 * Long.BYTES);
+        for (long[] hash : hashes) {
+            message.putLong(hash[0]).putLong(hash[1]);
+        }
+        invalidationTopic().publishAsync(message.array());
+    }
+
+    static int optimalNumOfHashFunctions(long n, long m) {
         return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
     }
 
-    private long optimalNumOfBits(long n, double p) {
+    static long optimalNumOfBits(long n, double p) {
         if (p == 0) {
             p = Double.MIN_VALUE;
         }
         return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
     }
 
-    private long[] hash(Object object) {
+    long[] hash(Object object) {
         ByteBuf state = encode(object);
         try {
             return Hash.hash128(state);
@@ -103,37 +507,22 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
     public boolean add(T object) {
         long[] hashes = hash(object);
 
-        while (true) {
-
-            Boolean[] entryData;
-            ReadResult readResult = readData(hashes);
-            if (readResult != null && readResult.success()) {
-                // 获取已经+1的数组
-                entryData = readResult.increase();
-            } else {
-                entryData = defaultOneData();
-            }
-            Boolean writeSuccess = writeData(hashes, entryData);
-            if (writeSuccess != null) {
-                return writeSuccess;
-            }
+        CountingBloomFilterDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            return dispatcher.execute(CountingBloomFilterDispatcher.OperationType.ADD, hashes);
         }
+
+        return update(hashes, true);
     }
 
 
-    private long[][] hash(long hash1, long hash2, int iterations, long size, int maxCount) {
+    static long[] hash(long hash1, long hash2, int iterations, long size, int maxCount) {
 
-        long index;
-        long[][] indexes = new long[iterations][maxCount];
+        long[] indexes = new long[iterations];
         long hash = hash1;
         for (int i = 0; i < iterations; i++) {
 
-            index = ((hash & Long.MAX_VALUE) % size) * maxCount;
-
-            for (int j = 0; j < maxCount; j++) {
-                indexes[i][j] = index;
-                index++;
-            }
+            indexes[i] = ((hash & Long.MAX_VALUE) % size) * maxCount;
 
             if (i % 2 == 0) {
                 hash += hash2;
@@ -148,15 +537,47 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
     public boolean contains(T object) {
         long[] hashes = hash(object);
 
+        CountingBloomFilterCache cache = this.cache;
+        if (cache == null) {
+            return containsRemote(hashes);
+        }
+        if (cache.contains(hashes)) {
+            return true;
+        }
+        long generation = cache.generation();
+        boolean result = containsRemote(hashes);
+        if (result) {
+            cache.put(hashes, generation);
+        }
+        return result;
+    }
+
+    private boolean containsRemote(long[] hashes) {
+        CountingBloomFilterMirror mirror = this.mirror;
+        if (mirror != null) {
+            Boolean result = mirror.contains(hashes);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        CountingBloomFilterDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            return dispatcher.execute(CountingBloomFilterDispatcher.OperationType.CONTAINS, hashes);
+        }
+
         while (true) {
-            ReadResult readResult = readData(hashes);
+            ReadResult readResult = readData(hashes, true);
             if (readResult != null) {
                 return readResult.success();
             }
         }
     }
 
-    private ReadResult readData(long[] hashes) {
+    /**
+     * @param replicaRead - <code>true</code> if counters may be read from replica
+     */
+    ReadResult readData(long[] hashes, boolean replicaRead) {
         if (size == 0) {
             readConfig();
         }
@@ -165,56 +586,80 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
         long size = this.size;
         int maxCount = this.maxBinaryBit;
 
-        long[][] indexes = hash(hashes[0], hashes[1], hashIterations, size, maxCount);
+        long[] indexes = hash(hashes[0], hashes[1], hashIterations, size, maxCount);
 
-        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
-        addConfigCheck(hashIterations, size, executorService);
-        RBitSetAsync bs = createBitSet(executorService);
-        for (long[] index : indexes) {
-            for (int j = 0; j < maxCount; j++) {
-                bs.getAsync(index[j]);
-            }
+        List<Object> params = new ArrayList<>(indexes.length + 3);
+        params.add(size);
+        params.add(hashIterations);
+        params.add(maxCount);
+        for (long index : indexes) {
+            params.add(index);
         }
         try {
-            List<Boolean> result = (List<Boolean>) executorService.execute();
+            CountingBloomFilterReplicas replicas = replicaRead ? this.replicas : null;
+            Function<RedisClient, RFuture<int[]>> read = client -> ScriptRegistry.evalReadAsync(commandExecutor, client,
+                    getName(), PrimitiveArrayCodec.INT_ARRAY, EVAL_COUNTERS,
+                    READ_SCRIPT, counterKeys(getName(), configName), params.toArray());
+            int[] counters = commandExecutor.get(replicas == null ? read.apply(null) : replicas.read(read));
+            return initCheckResult(counters);
+        } catch (RedisException e) {
+            if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                throw e;
+            }
+            readConfig();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean remove(T object) {
 
-            List<Boolean> subResult = result.subList(1, result.size() - maxCount);
+        long[] hashes = hash(object);
 
-            int limit = subResult.size() / maxCount;
-            List<List<Boolean>> splitList = new ArrayList<>(limit);
-            Stream.iterate(0, n -> n + 1)
-                    .limit(limit)
-                    .forEach(i -> splitList.add(subResult.stream().skip((long) (i * maxCount)).limit(maxCount)
-                            .collect(Collectors.toList())));
+        CountingBloomFilterDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            return dispatcher.execute(CountingBloomFilterDispatcher.OperationType.REMOVE, hashes);
+        }
 
-            boolean val;
-            for (List<Boolean> resultList : splitList) {
+        return update(hashes, false);
+    }
 
-                if (resultList == null) {
-                    System.out.println("=================================0000000000000000000");
+    /**
+     * Increments or decrements counters by the same script as async and batch calls,
+     * so concurrent updates of the same counter are never lost.
+     */
+    private boolean update(long[] hashes, boolean add) {
+        while (true) {
+            try {
+                CommandAsyncExecutor executor = commandExecutor;
+                CommandBatchService executorService = null;
+                if (options.getWaitReplicas() > 0) {
+                    // WAIT 需要和写命令使用同一个连接
+                    executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+                    executor = executorService;
                 }
-                // 全部为false，则返回true, 标识没有值
-                val = resultList.stream().noneMatch(item -> item);
-                if (val) {
-                    return initCheckResult(false, null);
+                List<long[]> elements = Collections.singletonList(hashes);
+                RFuture<long[]> future = add ? addHashesAsync(executor, elements) : removeHashesAsync(executor, elements);
+                long[] bitmask;
+                if (executorService != null) {
+                    executorService.writeAsync(getName(), LongCodec.INSTANCE, RedisCommands.WAIT,
+                            options.getWaitReplicas(), options.getWaitTimeout());
+                    executorService.execute();
+                    bitmask = future.getNow();
+                } else {
+                    bitmask = commandExecutor.get(future);
                 }
-            }
-
-            List<Boolean> resultList = splitList.get(0);
-            Boolean[] resultBoolArray = new Boolean[resultList.size()];
-            resultList.toArray(resultBoolArray);
-            return initCheckResult(true, resultBoolArray);
-
-        } catch (RedisException e) {
-            if (!e.getMessage().contains("Bloom filter config has been changed")) {
-                throw e;
+                return bitmask.length > 0 && (bitmask[0] & 1) != 0;
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
             }
         }
-        return null;
     }
 
-    private Boolean writeData(long[] hashes, Boolean[] writeValue) {
-
+    private List<Object> hashesParams(List<long[]> hashes, boolean withMaxRepeat) {
         if (size == 0) {
             readConfig();
         }
@@ -223,96 +668,206 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
         long size = this.size;
         int maxCount = this.maxBinaryBit;
 
-        long[][] indexes = hash(hashes[0], hashes[1], hashIterations, size, maxCount);
-
-        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
-        addConfigCheck(hashIterations, size, executorService);
-        RBitSetAsync bs = createBitSet(executorService);
-        for (long[] index : indexes) {
-            for (int j = 0; j < maxCount; j++) {
-                bs.setAsync(index[j], writeValue[j] == null ? false : writeValue[j]);
-            }
+        List<Object> params = new ArrayList<>(hashes.size() * hashIterations + 4);
+        params.add(size);
+        params.add(hashIterations);
+        params.add(maxCount);
+        if (withMaxRepeat) {
+            params.add(maxCount(maxCount));
         }
-        try {
-            List<Boolean> result = (List<Boolean>) executorService.execute();
-
-            List<Boolean> subResult = result.subList(1, result.size() - maxCount);
-
-            int limit = subResult.size() / maxCount;
-            List<List<Boolean>> subList = new ArrayList<>(limit);
-            Stream.iterate(0, n -> n + 1)
-                    .limit(limit)
-                    .forEach(i -> subList.add(subResult.stream().skip((long) (i * maxCount)).limit(maxCount)
-                            .collect(Collectors.toList())));
-
-            boolean val;
-            for (List<Boolean> resultList : subList) {
-                // 全部为false，则返回true
-                val = resultList.stream().noneMatch(item -> item);
-                if (val) {
-                    return true;
-                }
-            }
-            return false;
-        } catch (RedisException e) {
-            if (!e.getMessage().contains("Bloom filter config has been changed")) {
-                throw e;
+        for (long[] hash : hashes) {
+            for (long index : hash(hash[0], hash[1], hashIterations, size, maxCount)) {
+                params.add(index);
             }
         }
-        return null;
+        return params;
     }
 
-    @Override
-    public boolean remove(T object) {
+    /**
+     * Checks presence of elements by their hashes in one Lua call.
+     *
+     * @return bitmask of present elements
+     */
+    RFuture<long[]> containsHashesAsync(CommandAsyncExecutor executor, List<long[]> hashes) {
+        return containsHashesAsync(executor, hashes, CONTAINS_SCRIPT);
+    }
 
-        long[] hashes = hash(object);
+    /**
+     * @param script - {@link #CONTAINS_HASHES_BODY_SCRIPT} with config checks
+     * @param args   - arguments appended after hashes
+     */
+    RFuture<long[]> containsHashesAsync(CommandAsyncExecutor executor, List<long[]> hashes, String script, Object... args) {
+        List<Object> params = hashesParams(hashes, false);
+        Collections.addAll(params, args);
+        Function<RedisClient, RFuture<long[]>> read = client -> ScriptRegistry.evalReadAsync(executor, client,
+                getName(), PrimitiveArrayCodec.BITMASK, EVAL_BITMASK, script,
+                Arrays.asList(getName(), configName), params.toArray());
+        CountingBloomFilterReplicas replicas = this.replicas;
+        if (replicas == null || executor instanceof CommandBatchService) {
+            return read.apply(null);
+        }
+        return replicas.read(read);
+    }
 
-        while (true) {
+    /**
+     * Increments counters of elements by their hashes in one Lua call.
+     *
+     * @return bitmask of elements which had at least one zero counter before
+     */
+    RFuture<long[]> addHashesAsync(CommandAsyncExecutor executor, List<long[]> hashes) {
+        return addHashesAsync(executor, hashes, ADD_HASHES_SCRIPT);
+    }
 
-            boolean exist = false;
-            Boolean[] defaultArray = defaultOneData();
-            ReadResult readResult = readData(hashes);
+    /**
+     * @param script - {@link #ADD_HASHES_BODY_SCRIPT} with config checks
+     * @param args   - arguments appended after hashes
+     */
+    RFuture<long[]> addHashesAsync(CommandAsyncExecutor executor, List<long[]> hashes, String script, Object... args) {
+        List<Object> params = hashesParams(hashes, true);
+        Collections.addAll(params, args);
+        written();
+        return ScriptRegistry.evalWriteAsync(executor, getName(), PrimitiveArrayCodec.BITMASK, EVAL_BITMASK,
+                script, counterKeys(getName(), configName, seqName, deltaLogName), params.toArray());
+    }
 
-            if (readResult != null && readResult.success()) {
-                exist = true;
-                defaultArray = readResult.subtract();
-            }
+    /**
+     * Decrements counters of present elements by their hashes in one Lua call.
+     *
+     * @return bitmask of removed elements
+     */
+    RFuture<long[]> removeHashesAsync(CommandAsyncExecutor executor, List<long[]> hashes) {
+        return removeHashesAsync(executor, hashes, REMOVE_HASHES_SCRIPT);
+    }
 
-            if (!exist) {
-                return false;
-            }
-            Boolean x = writeData(hashes, defaultArray);
-            if (x != null) {
-                return x;
+    /**
+     * @param script - {@link #REMOVE_HASHES_BODY_SCRIPT} with config checks
+     * @param args   - arguments appended after hashes
+     */
+    RFuture<long[]> removeHashesAsync(CommandAsyncExecutor executor, List<long[]> hashes, String script, Object... args) {
+        List<Object> params = hashesParams(hashes, true);
+        Collections.addAll(params, args);
+        written();
+        RFuture<long[]> future = ScriptRegistry.evalWriteAsync(executor, getName(), PrimitiveArrayCodec.BITMASK, EVAL_BITMASK,
+                script, counterKeys(getName(), configName, seqName, deltaLogName), params.toArray());
+        future.addListener(new FutureListener<long[]>() {
+            @Override
+            public void operationComplete(Future<long[]> f) throws Exception {
+                if (!f.isSuccess()) {
+                    return;
+                }
+                BitSet removed = BitSet.valueOf(f.getNow());
+                List<long[]> invalidated = new ArrayList<>(removed.cardinality());
+                for (int i = removed.nextSetBit(0); i >= 0 && i < hashes.size(); i = removed.nextSetBit(i + 1)) {
+                    invalidated.add(hashes.get(i));
+                }
+                invalidate(invalidated);
             }
+        });
+        return future;
+    }
+
+    /**
+     * Adds deltas to counters in one Lua call. Counters are kept within <code>[0, maxRepeat]</code>.
+     *
+     * @param size           - filter size used to compute offsets
+     * @param hashIterations - hash iterations used to compute offsets
+     */
+    RFuture<Void> applyDeltasAsync(CommandAsyncExecutor executor, long size, int hashIterations,
+                                   long[] offsets, int[] deltas, int length) {
+        List<Object> params = new ArrayList<>(length * 2 + 4);
+        params.add(size);
+        params.add(hashIterations);
+        int maxCount = this.maxBinaryBit;
+        params.add(maxCount);
+        params.add(maxCount(maxCount));
+        for (int i = 0; i < length; i++) {
+            params.add(offsets[i]);
+            params.add(deltas[i]);
         }
+        written();
+        return ScriptRegistry.evalWriteAsync(executor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_VOID,
+                APPLY_DELTAS_SCRIPT, counterKeys(getName(), configName, seqName, deltaLogName), params.toArray());
     }
 
-    private Boolean[] defaultOneData() {
-        Boolean[] defaultArray = new Boolean[maxBinaryBit];
-        for (int j = 0; j < maxBinaryBit; j++) {
-            defaultArray[j] = Boolean.FALSE;
-            if (j == maxBinaryBit - 1) {
-                defaultArray[j] = Boolean.TRUE;
-            }
+    /**
+     * Returns max counter value. Counter of filter without overflow hash can't exceed its bits,
+     * even if filter has been created by client with smaller max repeat.
+     */
+    private int maxCount(int counterBits) {
+        if (overflow) {
+            return maxRepeat;
         }
-        return defaultArray;
+        return (int) Math.min(maxRepeat, (1L << counterBits) - 1);
     }
 
-    protected RBitSetAsync createBitSet(CommandBatchService executorService) {
-        return new RedissonBitSet(executorService, getName());
+    /**
+     * Appends overflow hash to keys of counters script if overflow counters are enabled in filter config.
+     */
+    private List<Object> counterKeys(Object... keys) {
+        List<Object> result = new ArrayList<>(keys.length + 1);
+        Collections.addAll(result, keys);
+        if (overflow) {
+            result.add(overflowName);
+        }
+        return result;
     }
 
-    private void addConfigCheck(int hashIterations, long size, CommandBatchService executorService) {
-        executorService.evalReadAsync(configName, codec, RedisCommands.EVAL_VOID,
-                "local size = redis.call('hget', KEYS[1], 'size');" +
-                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
-                        "assert(size == ARGV[1] and hashIterations == ARGV[2], 'Bloom filter config has been changed')",
-                Arrays.asList(configName), size, hashIterations);
+    /**
+     * Keeps reads of this client on master while replicas may not have its changes.
+     */
+    private void written() {
+        CountingBloomFilterReplicas replicas = this.replicas;
+        if (replicas != null) {
+            replicas.written();
+        }
+    }
+
+    long getCachedSize() {
+        return size;
+    }
+
+    int getCachedHashIterations() {
+        return hashIterations;
+    }
+
+    int getCounterBits() {
+        return maxBinaryBit;
+    }
+
+    /**
+     * Drops cached config, so it's read again by next call.
+     */
+    void resetConfig() {
+        size = 0;
+    }
+
+    @Override
+    public RBufferedCountingBloomFilter<T> buffered(long flushInterval, int maxPendingCounters, TimeUnit unit) {
+        return new RedissonBufferedCountingBloomFilter<>(this, commandExecutor, flushInterval, maxPendingCounters, unit);
+    }
+
+    protected RBitSetAsync createBitSet(CommandBatchService executorService) {
+        return new RedissonBitSet(executorService, getName());
     }
 
     @Override
     public long count() {
+        CountingBloomFilterReplicas replicas = this.replicas;
+        if (replicas != null) {
+            List<Object> result = commandExecutor.get(replicas.<List<Object>>read(client -> ScriptRegistry.evalReadAsync(commandExecutor, client,
+                    getName(), StringCodec.INSTANCE, RedisCommands.EVAL_LIST,
+                    "return {redis.call('hget', KEYS[2], 'size') or '', " +
+                            "redis.call('hget', KEYS[2], 'hashIterations') or '', " +
+                            "redis.call('bitcount', KEYS[1])};",
+                    Arrays.<Object>asList(getName(), configName))));
+            if ("".equals(result.get(0)) || "".equals(result.get(1))) {
+                throw new IllegalStateException("Bloom filter is not initialized!");
+            }
+            long size = Long.valueOf((String) result.get(0));
+            int hashIterations = Integer.valueOf((String) result.get(1));
+            return Math.round(-size / ((double) hashIterations) * Math.log(1 - (Long) result.get(2) / ((double) size)));
+        }
+
         CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
         RFuture<Map<String, String>> configFuture = executorService.readAsync(configName, StringCodec.INSTANCE,
                 new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
@@ -325,32 +880,175 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
         return Math.round(-size / ((double) hashIterations) * Math.log(1 - cardinalityFuture.getNow() / ((double) size)));
     }
 
+    @Override
+    public FilterHealth health() {
+        return health(DEFAULT_HEALTH_SLICE);
+    }
+
+    @Override
+    public FilterHealth health(int sliceSize) {
+        if (sliceSize <= 0) {
+            throw new IllegalArgumentException("sliceSize should be greater than 0");
+        }
+        while (true) {
+            Map<String, String> config = syncExecutor.get(readConfigAsync(syncExecutor));
+            readConfig(config);
+            long size = this.size;
+            int hashIterations = this.hashIterations;
+            long[] histogram = new long[maxRepeat + 1];
+            try {
+                long cursor = 0;
+                while (cursor < size) {
+                    Object[] params = {size, hashIterations, maxBinaryBit, cursor, Math.min(size, cursor + sliceSize),
+                            size, 0, maxRepeat};
+                    Function<RedisClient, RFuture<List<Long>>> scan = client -> ScriptRegistry.evalReadAsync(commandExecutor, client,
+                            getName(), LongCodec.INSTANCE, RedisCommands.EVAL_LIST,
+                            HEALTH_SCRIPT, counterKeys(getName(), configName), params);
+                    CountingBloomFilterReplicas replicas = this.replicas;
+                    List<Long> result = commandExecutor.get(replicas != null ? replicas.read(scan) : scan.apply(null));
+                    cursor = result.get(0);
+                    for (int value = 0; value < histogram.length; value++) {
+                        histogram[value] += result.get(value + 1);
+                    }
+                }
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                // 扫描过程中过滤器被重建，从头开始
+                continue;
+            }
+            return counterHealth(size, hashIterations, histogram, Double.valueOf(config.get("falseProbability")));
+        }
+    }
+
+    /**
+     * Builds health report from histogram of counter values.
+     * Effective false positive probability is probability that all hash functions hit non-zero counters.
+     */
+    static FilterHealth counterHealth(long size, int hashIterations, long[] histogram, double falseProbability) {
+        long filled = size - histogram[0];
+        double fillRatio = filled / (double) size;
+        return new FilterHealth(size, filled, histogram, histogram[histogram.length - 1],
+                Math.pow(fillRatio, hashIterations), falseProbability);
+    }
+
+    @Override
+    public RFuture<Boolean> addAsync(T object) {
+        return firstBit(addHashesAsync(commandExecutor, Collections.singletonList(hash(object))));
+    }
+
+    @Override
+    public RFuture<Boolean> containsAsync(T object) {
+        long[] hashes = hash(object);
+        CountingBloomFilterCache cache = this.cache;
+        if (cache == null) {
+            return firstBit(containsHashesAsync(commandExecutor, Collections.singletonList(hashes)));
+        }
+        if (cache.contains(hashes)) {
+            RPromise<Boolean> result = new RedissonPromise<>();
+            result.trySuccess(true);
+            return result;
+        }
+
+        long generation = cache.generation();
+        RFuture<Boolean> result = firstBit(containsHashesAsync(commandExecutor, Collections.singletonList(hashes)));
+        result.addListener(new FutureListener<Boolean>() {
+            @Override
+            public void operationComplete(Future<Boolean> f) throws Exception {
+                if (f.isSuccess() && f.getNow()) {
+                    cache.put(hashes, generation);
+                }
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public RFuture<Boolean> removeAsync(T object) {
+        return firstBit(removeHashesAsync(commandExecutor, Collections.singletonList(hash(object))));
+    }
+
+    /**
+     * Converts bitmask of single element into result.
+     * Cached config is reset on config change, so it's read again by next call.
+     */
+    private RFuture<Boolean> firstBit(RFuture<long[]> future) {
+        RPromise<Boolean> result = new RedissonPromise<>();
+        future.addListener(new FutureListener<long[]>() {
+            @Override
+            public void operationComplete(Future<long[]> f) throws Exception {
+                if (!f.isSuccess()) {
+                    if (f.cause() instanceof RedisException
+                            && f.cause().getMessage() != null
+                            && f.cause().getMessage().contains("Bloom filter config has been changed")) {
+                        size = 0;
+                    }
+                    result.tryFailure(f.cause());
+                    return;
+                }
+                long[] bitmask = f.getNow();
+                result.trySuccess(bitmask.length > 0 && (bitmask[0] & 1) != 0);
+            }
+        });
+        return result;
+    }
+
     @Override
     public RFuture<Boolean> deleteAsync() {
-        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName);
+        CountingBloomFilterCache cache = this.cache;
+        if (cache != null) {
+            cache.clear();
+        }
+        if (publishInvalidations) {
+            invalidationTopic().publishAsync(new byte[0]);
+        }
+        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName, seqName, deltaLogName, overflowName);
     }
 
     @Override
     public RFuture<Long> sizeInMemoryAsync() {
-        List<Object> keys = Arrays.asList(getName(), configName);
+        List<Object> keys = Arrays.asList(getName(), configName, seqName, deltaLogName, overflowName);
         return super.sizeInMemoryAsync(keys);
     }
 
-    private void readConfig() {
-        RFuture<Map<String, String>> future = commandExecutor.readAsync(configName, StringCodec.INSTANCE,
-                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
-        Map<String, String> config = commandExecutor.get(future);
+    void readConfig() {
+        Map<String, String> config = syncExecutor.get(readConfigAsync(syncExecutor));
 
         readConfig(config);
     }
 
-    private void readConfig(Map<String, String> config) {
+    RFuture<Map<String, String>> readConfigAsync(CommandAsyncExecutor executor) {
+        return executor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+    }
+
+    void readConfig(Map<String, String> config) {
         if (config.get("hashIterations") == null
                 || config.get("size") == null) {
             throw new IllegalStateException("Bloom filter is not initialized!");
         }
-        size = Long.valueOf(config.get("size"));
-        hashIterations = Integer.valueOf(config.get("hashIterations"));
+        long size = Long.valueOf(config.get("size"));
+        int hashIterations = Integer.valueOf(config.get("hashIterations"));
+        int counterBits = this.maxBinaryBit;
+        if (config.get("counterBits") != null) {
+            counterBits = Integer.valueOf(config.get("counterBits"));
+            overflow = config.get("overflow") != null;
+        }
+        CountingBloomFilterCache cache = this.cache;
+        if (cache != null && (size != this.size || hashIterations != this.hashIterations || counterBits != this.maxBinaryBit)) {
+            cache.clear();
+        }
+        this.maxBinaryBit = counterBits;
+        this.size = size;
+        this.hashIterations = hashIterations;
+
+        if (config.get("positiveCache") != null) {
+            publishInvalidations = true;
+        } else if (cache != null) {
+            // 其他客户端初始化的过滤器或配置被重建后，需要开启失效通知
+            enablePublishInvalidations();
+        }
     }
 
     protected long getMaxSize() {
@@ -366,11 +1064,15 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
             throw new IllegalArgumentException("Counting Bloom filter false probability can't be negative");
         }
 
+        int counterBits = Integer.toBinaryString(maxRepeat).length();
+        if (options.isOverflowCounters()) {
+            counterBits = Math.min(counterBits, options.getOverflowBaseBits());
+        }
         size = optimalNumOfBits(expectedInsertions, falseProbability);
         if (size == 0) {
             throw new IllegalArgumentException("Counting Bloom filter calculated size is " + size);
         }
-        if (size * maxBinaryBit > getMaxSize()) {
+        if (size * counterBits > getMaxSize()) {
             throw new IllegalArgumentException("Counting Bloom filter size can't be greater than " + getMaxSize() + ". But calculated size is " + size);
         }
         hashIterations = optimalNumOfHashFunctions(expectedInsertions, size);
@@ -381,10 +1083,20 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
                         "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
                         "assert(size == false and hashIterations == false, 'Bloom filter config has been changed')",
                 Arrays.asList(configName), size, hashIterations);
-        executorService.writeAsync(configName, StringCodec.INSTANCE,
-                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), configName,
+        List<Object> config = new ArrayList<>(Arrays.<Object>asList(configName,
                 "size", size, "hashIterations", hashIterations,
-                "expectedInsertions", expectedInsertions, "falseProbability", BigDecimal.valueOf(falseProbability).toPlainString());
+                "expectedInsertions", expectedInsertions, "falseProbability", BigDecimal.valueOf(falseProbability).toPlainString(),
+                "counterBits", counterBits));
+        if (options.isOverflowCounters()) {
+            config.add("overflow");
+            config.add(1);
+        }
+        if (cache != null) {
+            config.add("positiveCache");
+            config.add(1);
+        }
+        executorService.writeAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), config.toArray());
         try {
             executorService.execute();
         } catch (RedisException e) {
@@ -395,59 +1107,98 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
             return false;
         }
 
+        maxBinaryBit = counterBits;
+        overflow = options.isOverflowCounters();
+        if (cache != null) {
+            publishInvalidations = true;
+        }
         return true;
     }
 
     @Override
     public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
-        return commandExecutor.evalWriteAsync(getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
                 "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                        "redis.call('pexpire', KEYS[3], ARGV[1]); " +
+                        "redis.call('pexpire', KEYS[4], ARGV[1]); " +
+                        "redis.call('pexpire', KEYS[5], ARGV[1]); " +
                         "return redis.call('pexpire', KEYS[2], ARGV[1]); ",
-                Arrays.asList(getName(), configName),
+                Arrays.asList(getName(), configName, seqName, deltaLogName, overflowName),
                 timeUnit.toMillis(timeToLive));
     }
 
     @Override
     public RFuture<Boolean> expireAtAsync(long timestamp) {
-        return commandExecutor.evalWriteAsync(getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
                 "redis.call('pexpireat', KEYS[1], ARGV[1]); " +
+                        "redis.call('pexpireat', KEYS[3], ARGV[1]); " +
+                        "redis.call('pexpireat', KEYS[4], ARGV[1]); " +
+                        "redis.call('pexpireat', KEYS[5], ARGV[1]); " +
                         "return redis.call('pexpireat', KEYS[2], ARGV[1]); ",
-                Arrays.asList(getName(), configName),
+                Arrays.asList(getName(), configName, seqName, deltaLogName, overflowName),
                 timestamp);
     }
 
     @Override
     public RFuture<Boolean> clearExpireAsync() {
-        return commandExecutor.evalWriteAsync(getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
                 "redis.call('persist', KEYS[1]); " +
+                        "redis.call('persist', KEYS[3]); " +
+                        "redis.call('persist', KEYS[4]); " +
+                        "redis.call('persist', KEYS[5]); " +
                         "return redis.call('persist', KEYS[2]); ",
-                Arrays.asList(getName(), configName));
+                Arrays.asList(getName(), configName, seqName, deltaLogName, overflowName));
     }
 
     @Override
     public long getExpectedInsertions() {
-        Long result = commandExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "expectedInsertions");
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "expectedInsertions");
         return check(result);
     }
 
     @Override
     public double getFalseProbability() {
-        Double result = commandExecutor.read(configName, DoubleCodec.INSTANCE, RedisCommands.HGET, configName, "falseProbability");
+        Double result = syncExecutor.read(configName, DoubleCodec.INSTANCE, RedisCommands.HGET, configName, "falseProbability");
         return check(result);
     }
 
     @Override
     public long getSize() {
-        Long result = commandExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size");
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size");
         return check(result);
     }
 
     @Override
     public int getHashIterations() {
-        Integer result = commandExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "hashIterations");
+        Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "hashIterations");
         return check(result);
     }
 
+    @Override
+    public void destroy() {
+        CountingBloomFilterMirror mirror = this.mirror;
+        if (mirror != null) {
+            this.mirror = null;
+            mirror.stop();
+        }
+        CountingBloomFilterDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            this.dispatcher = null;
+            dispatcher.stop();
+        }
+        CountingBloomFilterReplicas replicas = this.replicas;
+        if (replicas != null) {
+            this.replicas = null;
+            replicas.stop();
+        }
+        RTopic invalidationTopic = this.invalidationTopic;
+        if (invalidationTopic != null) {
+            this.invalidationTopic = null;
+            this.cache = null;
+            invalidationTopic.removeAllListeners();
+        }
+    }
+
     private <V> V check(V result) {
         if (result == null) {
             throw new IllegalStateException("Counting Bloom filter is not initialized!");
@@ -456,126 +1207,43 @@ public class RedissonCountingBloomFilter<T> extends RedissonExpirable implements
     }
 
 
-    private ReadResult initCheckResult(boolean success, Boolean[] resultList) {
+    private ReadResult initCheckResult(int[] counters) {
         return new ReadResult() {
 
             @Override
-            public boolean success() {
-                return success;
-            }
-
-            @Override
-            public Boolean[] increase() {
-
-                if (resultList == null) {
-                    return new Boolean[maxBinaryBit];
-                }
-                String binary = Arrays.stream(resultList)
-                        .map(item -> Boolean.TRUE.equals(item) ? "1" : "0")
-                        .collect(Collectors.joining());
-                int resultInt = Integer.parseInt(binary, 2);
-
-                int increaseInt = resultInt + 1;
-                if (increaseInt > maxRepeat) {
-                    return new Boolean[maxBinaryBit];
-                }
-                return addBinary2Array(resultList, defaultList);
+            public int[] counters() {
+                return counters;
             }
 
             @Override
-            public Boolean[] subtract() {
-
-                if (resultList == null) {
-                    return new Boolean[maxBinaryBit];
-                }
-                String binary = Arrays.stream(resultList)
-                        .map(item -> Boolean.TRUE.equals(item) ? "1" : "0")
-                        .collect(Collectors.joining());
-                int resultInt = Integer.parseInt(binary, 2);
-
-                int subtractInt = resultInt - 1;
-                if (subtractInt < 0) {
-                    return new Boolean[maxBinaryBit];
+            public boolean success() {
+                for (int counter : counters) {
+                    // 计数为0，则元素不存在
+                    if (counter == 0) {
+                        return false;
+                    }
                 }
-                return subBinary2Array(resultList, defaultList);
+                return true;
             }
         };
     }
 
-    private Boolean[] addBinary2Array(Boolean[] a, Boolean[] b) {
-
-        Boolean[] result = new Boolean[a.length];
-        int s = 0;
-
-        int i = a.length - 1;
-        int j = b.length - 1;
-        while (i >= 0 || j >= 0 || s == 1) {
-
-            s += ((i >= 0) ? (a[i] ? 1 : 0) : 0);
-            s += ((j >= 0) ? (b[j] ? 1 : 0) : 0);
-
-            result[i] = s % 2 == 1;
-
-            s /= 2;
-
-            i--;
-            j--;
-        }
-
-        return result;
-    }
-
-    private Boolean[] subBinary2Array(Boolean[] a, Boolean[] b) {
-
-        Boolean[] result = new Boolean[a.length];
-
-        int s = 0;
-        int s1 = 0;
-        int i = a.length - 1;
-        int j = b.length - 1;
-        while (i >= 0 || j >= 0) {
-
-            s += ((i >= 0) ? (a[i] ? 1 : 0) : 0);
-            s -= ((j >= 0) ? (b[j] ? 1 : 0) : 0);
-
-            result[i] = (abs(s) % 2) == 1;
-
-            if (s == -2) {
-                s += 1;
-            }
-            if (s > 0) {
-                s /= 2;
-            }
-            i--;
-            j--;
-        }
-
-        return result;
-    }
-
     interface ReadResult {
 
         /**
-         * return success
+         * counters of element
          *
-         * @return <code>true</code> find entry is success
-         * <code>false</code> find entry is not found
+         * @return current counters of element
          */
-        boolean success();
+        int[] counters();
 
         /**
-         * array to store after adding the same element
-         *
-         * @return Array to store after adding the same element
-         */
-        Boolean[] increase();
-
-        /**
-         * array to store after deleting element
+         * return success
          *
-         * @return array to store after deleting element
+         * @return <code>true</code> find entry is success
+         * <code>false</code> find entry is not found
          */
-        Boolean[] subtract();
+        boolean success();
     }
 
 }
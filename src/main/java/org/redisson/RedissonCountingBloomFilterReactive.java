@@ -0,0 +1,47 @@
+package org.redisson;
+
+import org.reactivestreams.Publisher;
+import org.redisson.api.RCountingBloomFilterReactive;
+import org.redisson.command.CommandAsyncExecutor;
+
+/**
+ * Reactive facade of {@link RedissonCountingBloomFilter}.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public class RedissonCountingBloomFilterReactive<T> implements RCountingBloomFilterReactive<T> {
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final RedissonCountingBloomFilter<T> filter;
+    private final CommandAsyncExecutor commandExecutor;
+
+    public RedissonCountingBloomFilterReactive(RedissonCountingBloomFilter<T> filter, CommandAsyncExecutor commandExecutor) {
+        this.filter = filter;
+        this.commandExecutor = commandExecutor;
+    }
+
+    @Override
+    public Publisher<Boolean> addAll(Publisher<? extends T> elements) {
+        return addAll(elements, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    @Override
+    public Publisher<Boolean> addAll(Publisher<? extends T> elements, int maxInFlight) {
+        return new CountingBloomFilterPublisher<>(filter, elements, maxInFlight,
+                hashes -> filter.addHashesAsync(commandExecutor, hashes));
+    }
+
+    @Override
+    public Publisher<Boolean> containsAll(Publisher<? extends T> elements) {
+        return containsAll(elements, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    @Override
+    public Publisher<Boolean> containsAll(Publisher<? extends T> elements, int maxInFlight) {
+        return new CountingBloomFilterPublisher<>(filter, elements, maxInFlight,
+                hashes -> filter.containsHashesAsync(commandExecutor, hashes));
+    }
+
+}
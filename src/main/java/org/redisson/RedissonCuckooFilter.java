@@ -1,70 +1,427 @@
 package org.redisson;
 
 import io.netty.buffer.ByteBuf;
-import org.redisson.api.MapOptions;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.CuckooFilterOptions;
+import org.redisson.api.FilterHealth;
 import org.redisson.api.RCuckooFilter;
-import org.redisson.api.RedissonClient;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
 import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
 import org.redisson.misc.Hash;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.math.DoubleMath.log2;
+import static com.google.common.math.LongMath.checkedMultiply;
+import static com.google.common.math.LongMath.checkedPow;
 import static com.google.common.math.LongMath.divide;
 import static java.lang.Math.ceil;
 import static java.lang.Math.pow;
 import static java.math.RoundingMode.CEILING;
 import static java.math.RoundingMode.HALF_DOWN;
 
-public class RedissonCuckooFilter<K, V> extends RedissonExpirable implements RCuckooFilter<V> {
+/**
+ * Cuckoo filter based on 64-bit hash.
+ * <p>
+ * Buckets of <code>entriesPerBucket</code> fingerprints are packed into Redis string.
+ * Alternate bucket is <code>i ± odd(H(fingerprint))</code> with sign chosen by parity of
+ * <code>i</code>, so it's computed from any of two buckets and even amount of buckets is enough.
+ * Each operation is one Lua call, which relocates fingerprints up to <code>maxKicks</code> times.
+ * Fingerprint left without slot at the end of kick chain is put into small victim stash
+ * <code>{name}:stash</code>, which is checked by lookup, so kick chains stay short at high load.
+ * Only if stash is full all relocated fingerprints are restored and insertion fails.
+ * <p>
+ * Optional semi-sorted format of 4-entry buckets keeps fingerprints sorted and stores their
+ * 4-bit prefixes as one 12-bit rank instead of 16 bits, so bucket is written as a whole.
+ * <p>
+ * In scalable mode filter is a chain of sub-filters. Element is added to the newest one, and
+ * when it's full new larger sub-filter is allocated. Lookup and removal check all sub-filters
+ * newest-first in the same Lua call.
+ *
+ * @param <V> type of object
+ * @author linfeng
+ */
+public class RedissonCuckooFilter<V> extends RedissonExpirable implements RCuckooFilter<V> {
 
     static double MIN_FPP = 1.0D / pow(2, 60);
     static double MAX_FPP = 0.99D;
     static final int MAX_ENTRIES_PER_BUCKET = 8;
     static final int MIN_ENTRIES_PER_BUCKET = 2;
+    static final int MAX_BITS_PER_ENTRY = 32;
+    static final int SEMI_SORTED_ENTRIES = 4;
+    static final int PREFIX_BITS = 4;
+    static final int RANK_BITS = 12;
+    static final int SCRIPT_CHUNK_SIZE = 1000;
+    static final int READ_CHUNK_SIZE = 10000;
+    static final int DEFAULT_HEALTH_SLICE = 4096;
+    // Redis 字符串最大 512MB
+    private static final long MAX_SIZE = 1L << 32;
 
-    private final RedissonMap<K, V> redissonOneMap;
-    private final RedissonMap<K, V> redissonTwoMap;
+    private static final String CONFIG_CHECK_SCRIPT =
+            "local subFilters = redis.call('hget', KEYS[1], 'subFilters');" +
+            "local buckets = redis.call('hget', KEYS[1], 'buckets');" +
+            "local bitsPerEntry = redis.call('hget', KEYS[1], 'bitsPerEntry');" +
+            "local semiSorted = redis.call('hget', KEYS[1], 'semiSorted');" +
+            "assert(subFilters == ARGV[1] and buckets == ARGV[2] and bitsPerEntry == ARGV[3] and semiSorted == ARGV[8], " +
+                    "'Cuckoo filter config has been changed');";
 
-    protected long numBuckets;
-    protected int numEntriesPerBucket;
-    protected int numBitsPerEntry;
+    /**
+     * Defines <code>sub(k, e)</code> with parameters of sub-filter <code>k</code> and element <code>e</code>
+     * passed by client, <code>bucket(s, i)</code> returning fingerprints of bucket, <code>replace(s, i, old, new)</code>,
+     * <code>lookup(s)</code> returning bucket of fingerprint, or <code>'stash'</code> if it's stashed,
+     * and <code>insert(s)</code>. Stash member is <code>k:min(i1, i2):fingerprint</code>.
+     * <code>alt(i, fp, m)</code> must match {@link #altIndex(long, long, long)}.
+     * <p>
+     * Semi-sorted bucket is sorted and stored as 12-bit rank of its 4-bit prefixes followed by suffixes,
+     * rank must match {@link #readBucket(byte[], long, int, int, boolean)}.
+     */
+    private static final String BUCKET_SCRIPT =
+            "local n = tonumber(ARGV[1]);" +
+            "local b = tonumber(ARGV[4]);" +
+            "local maxKicks = tonumber(ARGV[5]);" +
+            "local stashSize = tonumber(ARGV[6]);" +
+            "local groups = tonumber(ARGV[7]);" +
+            "local sorted = ARGV[8] == '1';" +
+            "local first = 9 + groups * 3;" +
+            "local elements = (#ARGV - first + 1) / (groups * 2);" +
+            "local stashed = redis.call('scard', KEYS[2]);" +
+            "local function mul32(x, y) " +
+                "local low = x % 65536;" +
+                "return (low * y + ((x - low) / 65536 * y % 65536) * 65536) % 4294967296;" +
+            "end;" +
+            "local function mix(h) " +
+                "h = bit.bxor(h, bit.rshift(h, 16)) % 4294967296;" +
+                "h = mul32(h, 2246822507);" +
+                "h = bit.bxor(h, bit.rshift(h, 13)) % 4294967296;" +
+                "h = mul32(h, 3266489909);" +
+                "return bit.bxor(h, bit.rshift(h, 16)) % 4294967296;" +
+            "end;" +
+            "local function alt(i, fp, m) " +
+                "local offset = mix(fp) % m;" +
+                "if offset % 2 == 0 then offset = offset + 1; end;" +
+                "if i % 2 == 0 then return (i + offset) % m; end;" +
+                "return (i - offset) % m;" +
+            "end;" +
+            "local function binom(x, k) " +
+                "local r = 1;" +
+                "for y = 1, k do r = r * (x - k + y) / y; end;" +
+                "return r;" +
+            "end;" +
+            "local function sub(k, e) " +
+                "local p = 9 + k * 3;" +
+                "local q = first + (e * groups + k) * 2;" +
+                "local f = tonumber(ARGV[p + 1]);" +
+                "return {k = k, key = KEYS[k + 3], m = tonumber(ARGV[p]), f = f, t = 'u' .. f, " +
+                        "bits = sorted and (4 * f - 4) or (b * f), " +
+                        "limit = tonumber(ARGV[p + 2]), fp = tonumber(ARGV[q]), i1 = tonumber(ARGV[q + 1])};" +
+            "end;" +
+            "local function bucket(s, i) " +
+                "local base = i * s.bits;" +
+                "local args = {};" +
+                "if not sorted then " +
+                    "for j = 0, b - 1 do " +
+                        "table.insert(args, 'get'); table.insert(args, s.t); table.insert(args, base + j * s.f);" +
+                    "end;" +
+                    "return redis.call('bitfield', s.key, unpack(args));" +
+                "end;" +
+                "local suffix = s.f - 4;" +
+                "for j = 0, 3 do " +
+                    "table.insert(args, 'get'); table.insert(args, 'u' .. suffix); table.insert(args, base + 12 + j * suffix);" +
+                "end;" +
+                "local values = redis.call('bitfield', s.key, 'get', 'u12', base, unpack(args));" +
+                "local rank = values[1];" +
+                "local result = {};" +
+                "for j = 3, 0, -1 do " +
+                    "local c = j + 15;" +
+                    "while binom(c, j + 1) > rank do c = c - 1; end;" +
+                    "rank = rank - binom(c, j + 1);" +
+                    "result[j + 1] = (c - j) * 2 ^ suffix + values[j + 2];" +
+                "end;" +
+                "return result;" +
+            "end;" +
+            // 替换桶中一个等于 old 的指纹, 半排序桶需要整体重新编码
+            "local function replace(s, i, old, new) " +
+                "local values = bucket(s, i);" +
+                "for j = 1, b do " +
+                    "if values[j] == old then " +
+                        "if not sorted then " +
+                            "redis.call('bitfield', s.key, 'set', s.t, i * s.bits + (j - 1) * s.f, new);" +
+                            "return true;" +
+                        "end;" +
+                        "values[j] = new;" +
+                        "table.sort(values);" +
+                        "local suffix = s.f - 4;" +
+                        "local unit = 2 ^ suffix;" +
+                        "local base = i * s.bits;" +
+                        "local rank = 0;" +
+                        "local args = {};" +
+                        "for x = 1, 4 do " +
+                            "rank = rank + binom(math.floor(values[x] / unit) + x - 1, x);" +
+                            "table.insert(args, 'set'); table.insert(args, 'u' .. suffix);" +
+                            "table.insert(args, base + 12 + (x - 1) * suffix); table.insert(args, values[x] % unit);" +
+                        "end;" +
+                        "redis.call('bitfield', s.key, 'set', 'u12', base, rank, unpack(args));" +
+                        "return true;" +
+                    "end;" +
+                "end;" +
+                "return false;" +
+            "end;" +
+            "local function contains(s, i, fp) " +
+                "for _, value in ipairs(bucket(s, i)) do " +
+                    "if value == fp then return true; end;" +
+                "end;" +
+                "return false;" +
+            "end;" +
+            "local function stashMember(s, i, fp) " +
+                "return s.k .. ':' .. math.min(i, alt(i, fp, s.m)) .. ':' .. fp;" +
+            "end;" +
+            "local function lookup(s) " +
+                "if contains(s, s.i1, s.fp) then return s.i1; end;" +
+                "local i2 = alt(s.i1, s.fp, s.m);" +
+                "if contains(s, i2, s.fp) then return i2; end;" +
+                "if stashed > 0 and redis.call('sismember', KEYS[2], stashMember(s, s.i1, s.fp)) == 1 then " +
+                    "return 'stash';" +
+                "end;" +
+                "return nil;" +
+            "end;" +
+            // 删除后空出的位置留给 stash 中属于该桶的指纹
+            "local function unstash(s, i) " +
+                "if stashed == 0 then return; end;" +
+                "for _, member in ipairs(redis.call('smembers', KEYS[2])) do " +
+                    "local k, low, fp = string.match(member, '(%d+):(%d+):(%d+)');" +
+                    "k = tonumber(k); low = tonumber(low); fp = tonumber(fp);" +
+                    "if k == s.k and (low == i or alt(low, fp, s.m) == i) then " +
+                        "replace(s, i, 0, fp);" +
+                        "redis.call('srem', KEYS[2], member);" +
+                        "stashed = stashed - 1;" +
+                        "return;" +
+                    "end;" +
+                "end;" +
+            "end;" +
+            "local function insert(s) " +
+                "local fp = s.fp;" +
+                "local i = s.i1;" +
+                "for attempt = 1, 2 do " +
+                    "if replace(s, i, 0, fp) then return true; end;" +
+                    "i = alt(i, fp, s.m);" +
+                "end;" +
+                "if math.random(2) == 2 then i = alt(i, fp, s.m); end;" +
+                "local path = {};" +
+                "for kick = 1, maxKicks do " +
+                    "local victim = bucket(s, i)[math.random(b)];" +
+                    "replace(s, i, victim, fp);" +
+                    "table.insert(path, {i, fp, victim});" +
+                    "fp = victim;" +
+                    "i = alt(i, fp, s.m);" +
+                    "if replace(s, i, 0, fp) then return true; end;" +
+                "end;" +
+                "if stashed < stashSize then " +
+                    "redis.call('sadd', KEYS[2], stashMember(s, i, fp));" +
+                    "stashed = stashed + 1;" +
+                    "return true;" +
+                "end;" +
+                // stash 已满时按相反顺序恢复被踢出的指纹
+                "for p = #path, 1, -1 do replace(s, path[p][1], path[p][2], path[p][3]); end;" +
+                "return false;" +
+            "end;";
 
+    private static final String CONTAINS_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "local result = {};" +
+            "for e = 0, elements - 1 do " +
+                "result[e + 1] = 0;" +
+                "for k = n - 1, 0, -1 do " +
+                    "if lookup(sub(k, e)) ~= nil then result[e + 1] = 1; break; end;" +
+                "end;" +
+            "end;" +
+            "return result;");
 
-    public RedissonCuckooFilter(CommandAsyncExecutor commandExecutor, String name,
-                                RedissonClient redisson, MapOptions<K, V> options,
-                                long capacity, double fpp) {
-        super(commandExecutor, name);
+    /**
+     * Scans buckets of sub-filter <code>ARGV[first]</code> from <code>ARGV[first + 1]</code>
+     * to <code>ARGV[first + 2]</code> exclusive and returns next cursor with histogram of buckets
+     * by amount of occupied entries.
+     */
+    private static final String HEALTH_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "local s = sub(tonumber(ARGV[first]), 0);" +
+            "local last = tonumber(ARGV[first + 2]);" +
+            "local result = {last};" +
+            "for j = 0, b do result[j + 2] = 0; end;" +
+            "for i = tonumber(ARGV[first + 1]), last - 1 do " +
+                "local occupied = 0;" +
+                "for _, value in ipairs(bucket(s, i)) do " +
+                    "if value ~= 0 then occupied = occupied + 1; end;" +
+                "end;" +
+                "result[occupied + 2] = result[occupied + 2] + 1;" +
+            "end;" +
+            "return result;");
 
-        checkArgument(capacity > 0, "Expected insertions (%s) must be > 0", capacity);
-        checkArgument(fpp > 0.0D, "False positive probability (%s) must be > 0.0", fpp);
-        checkArgument(fpp < 1.0D, "False positive probability (%s) must be < 1.0", fpp);
+    /**
+     * Returns per element <code>1</code> if it's added, <code>0</code> if it's present,
+     * <code>-1</code> if filter is full and <code>-2</code> if parameters of one more sub-filter
+     * are needed, so element is added again after config reload.
+     */
+    private static final String ADD_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "local function add(e) " +
+                "for k = n - 1, 0, -1 do " +
+                    "if lookup(sub(k, e)) ~= nil then return 0; end;" +
+                "end;" +
+                "local s = sub(n - 1, e);" +
+                "local count = tonumber(redis.call('hget', KEYS[1], 'count' .. (n - 1)) or 0);" +
+                "if (count < s.limit or groups <= n) and insert(s) then " +
+                    "redis.call('hincrby', KEYS[1], 'count' .. (n - 1), 1);" +
+                    "return 1;" +
+                "end;" +
+                "if groups <= n then " +
+                    "if n > tonumber(ARGV[1]) then return -2; end;" +
+                    "return -1;" +
+                "end;" +
+                "s = sub(n, e);" +
+                "redis.call('setrange', s.key, math.ceil(s.m * s.bits / 8) - 1, '\\0');" +
+                "replace(s, s.i1, 0, s.fp);" +
+                "redis.call('hmset', KEYS[1], 'subFilters', n + 1, 'count' .. n, 1);" +
+                "n = n + 1;" +
+                "return 1;" +
+            "end;" +
+            "local result = {};" +
+            "for e = 0, elements - 1 do " +
+                "result[e + 1] = add(e);" +
+            "end;" +
+            "return result;");
 
-        int numEntriesPerBucket = optimalEntriesPerBucket(fpp);
-        long numBuckets = optimalNumberOfBuckets(capacity, numEntriesPerBucket);
-        int numBitsPerEntry = optimalBitsPerEntry(fpp, numEntriesPerBucket);
+    private static final String REMOVE_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "local function remove(e) " +
+                "for k = n - 1, 0, -1 do " +
+                    "local s = sub(k, e);" +
+                    "local i = lookup(s);" +
+                    "if i == 'stash' then " +
+                        "redis.call('srem', KEYS[2], stashMember(s, s.i1, s.fp));" +
+                        "stashed = stashed - 1;" +
+                        "redis.call('hincrby', KEYS[1], 'count' .. k, -1);" +
+                        "return 1;" +
+                    "end;" +
+                    "if i ~= nil then " +
+                        "replace(s, i, s.fp, 0);" +
+                        "unstash(s, i);" +
+                        "redis.call('hincrby', KEYS[1], 'count' .. k, -1);" +
+                        "return 1;" +
+                    "end;" +
+                "end;" +
+                "return 0;" +
+            "end;" +
+            "local result = {};" +
+            "for e = 0, elements - 1 do " +
+                "result[e + 1] = remove(e);" +
+            "end;" +
+            "return result;");
 
-        this.redissonOneMap = new RedissonMap(commandExecutor, suffixName(name, "map1"), redisson, options);
-        this.redissonTwoMap = new RedissonMap(commandExecutor, suffixName(name, "map2"), redisson, options);
+    private static final String INIT_SCRIPT =
+            ScriptRegistry.register("if redis.call('exists', KEYS[1]) == 1 then " +
+                "return;" +
+            "end;" +
+            "redis.call('hmset', KEYS[1], 'capacity', ARGV[1], 'falseProbability', ARGV[2], " +
+                    "'entriesPerBucket', ARGV[3], 'bitsPerEntry', ARGV[4], 'buckets', ARGV[5], 'growth', ARGV[6], " +
+                    "'semiSorted', ARGV[7], 'subFilters', 1, 'count0', 0);" +
+            "redis.call('setrange', KEYS[2], ARGV[8] - 1, '\\0');");
 
-    }
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+    private final String subFilterPrefix;
+    private final String stashName;
 
-    public RedissonCuckooFilter(Codec codec, CommandAsyncExecutor commandExecutor,
-                                String name, RedissonClient redisson, MapOptions<K, V> options,
-                                long capacity, double fpp) {
+    private final long requestedCapacity;
+    private final double requestedFpp;
+    private final CuckooFilterOptions options;
+
+    // 0 表示配置尚未读取
+    private volatile int subFilters;
+    private volatile long capacity;
+    private volatile long buckets;
+    private volatile int numEntriesPerBucket;
+    private volatile int numBitsPerEntry;
+    private volatile int growth;
+    private volatile boolean semiSorted;
+
+    public RedissonCuckooFilter(CommandAsyncExecutor commandExecutor, String name,
+                                long capacity, double fpp, CuckooFilterOptions options) {
         super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        this.subFilterPrefix = suffixName(getName(), "sub:");
+        this.stashName = suffixName(getName(), "stash");
+        this.requestedCapacity = capacity;
+        this.requestedFpp = fpp;
+        this.options = options;
+
+        checkOptions(capacity, fpp, options);
+    }
+
+    public RedissonCuckooFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name,
+                                long capacity, double fpp, CuckooFilterOptions options) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        this.subFilterPrefix = suffixName(getName(), "sub:");
+        this.stashName = suffixName(getName(), "stash");
+        this.requestedCapacity = capacity;
+        this.requestedFpp = fpp;
+        this.options = options;
+
+        checkOptions(capacity, fpp, options);
+    }
 
+    private static void checkOptions(long capacity, double fpp, CuckooFilterOptions options) {
         checkArgument(capacity > 0, "Expected insertions (%s) must be > 0", capacity);
         checkArgument(fpp > 0.0D, "False positive probability (%s) must be > 0.0", fpp);
         checkArgument(fpp < 1.0D, "False positive probability (%s) must be < 1.0", fpp);
 
         int numEntriesPerBucket = optimalEntriesPerBucket(fpp);
         long numBuckets = optimalNumberOfBuckets(capacity, numEntriesPerBucket);
-        int numBitsPerEntry = optimalBitsPerEntry(fpp, numEntriesPerBucket);
+        int numBitsPerEntry = Math.min(MAX_BITS_PER_ENTRY, optimalBitsPerEntry(fpp, numEntriesPerBucket));
+        checkArgument(!options.isSemiSorted() || numEntriesPerBucket == SEMI_SORTED_ENTRIES,
+                "Semi-sorted buckets need %s entries per bucket, but false positive probability %s gives %s",
+                SEMI_SORTED_ENTRIES, fpp, numEntriesPerBucket);
+        checkArgument(numBuckets * bucketBits(numEntriesPerBucket, numBitsPerEntry, options.isSemiSorted()) <= MAX_SIZE,
+                "Cuckoo filter size can't be greater than %s bits", MAX_SIZE);
+    }
 
-        this.redissonOneMap = new RedissonMap(commandExecutor, suffixName(name, "map1"), redisson, options);
-        this.redissonTwoMap = new RedissonMap(commandExecutor, suffixName(name, "map2"), redisson, options);
-        
+    /**
+     * Semi-sorted bucket stores 4-bit prefixes of its sorted fingerprints as 12-bit rank
+     * of their multiset, which saves one bit per entry.
+     */
+    static int bucketBits(int numEntriesPerBucket, int numBitsPerEntry, boolean semiSorted) {
+        if (semiSorted) {
+            return RANK_BITS + SEMI_SORTED_ENTRIES * (numBitsPerEntry - PREFIX_BITS);
+        }
+        return numEntriesPerBucket * numBitsPerEntry;
     }
 
     static int optimalBitsPerEntry(double fpp, int numEntriesPerBucket) {
@@ -120,11 +477,11 @@ public class RedissonCuckooFilter<K, V> extends RedissonExpirable implements RCu
         }
     }
 
-    int fingerPrint(int hash, int unit) {
+    static int fingerPrint(int hash, int unit) {
 
-        int mask = (0x80000000 >> (unit - 1)) >>> (Long.SIZE - unit);
+        int mask = (0x80000000 >> (unit - 1)) >>> (Integer.SIZE - unit);
 
-        for (int bit = 0; (bit + unit) <= Long.SIZE; bit += unit) {
+        for (int bit = 0; (bit + unit) <= Integer.SIZE; bit += unit) {
             int ret = (hash >> bit) & mask;
             if (0 != ret) {
                 return ret;
@@ -133,27 +490,550 @@ public class RedissonCuckooFilter<K, V> extends RedissonExpirable implements RCu
         return 0x1;
     }
 
-    @Override
-    public boolean add(V object) {
+    /**
+     * Murmur3 finalizer of fingerprint, evaluated by Lua script with the same result.
+     */
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
 
-        final long hash64 = hash(object);
-        final int hash1 = (int) hash64;
-        final int hash2 = (int) (hash64 >>> 32);
+    static long index(int hash, long buckets) {
+        return Integer.toUnsignedLong(hash) % buckets;
+    }
 
-        final int fp = fingerPrint(hash2, 10);
+    /**
+     * Returns alternate bucket. Offset is odd and amount of buckets is even,
+     * so parity of bucket is flipped and the same call on result returns initial bucket.
+     */
+    static long altIndex(long index, long fingerprint, long buckets) {
+        long offset = Integer.toUnsignedLong(mix((int) fingerprint)) % buckets | 1;
+        if ((index & 1) == 0) {
+            return (index + offset) % buckets;
+        }
+        return Math.floorMod(index - offset, buckets);
+    }
 
-        return false;
+    private String subFilterName(int k) {
+        return k == 0 ? getName() : subFilterPrefix + k;
+    }
+
+    /**
+     * @return amount of buckets of sub-filter <code>k</code> or <code>-1</code> if it can't be allocated
+     */
+    private long subFilterBuckets(int k) {
+        if (k == 0) {
+            return buckets;
+        }
+        try {
+            long buckets = optimalNumberOfBuckets(checkedMultiply(capacity, checkedPow(growth, k)), numEntriesPerBucket);
+            if (checkedMultiply(buckets, bucketBits(numEntriesPerBucket, subFilterBits(k), semiSorted)) > MAX_SIZE) {
+                return -1;
+            }
+            return buckets;
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Each next sub-filter gets one more fingerprint bit, so sum of their false positive
+     * probabilities is below doubled probability of the first one.
+     */
+    private int subFilterBits(int k) {
+        return Math.min(MAX_BITS_PER_ENTRY, numBitsPerEntry + k);
+    }
+
+    @Override
+    public boolean add(V object) {
+        return check(execute(new long[] {hash(object)}, ADD_SCRIPT, false, true).get(0)) > 0;
     }
 
     @Override
     public boolean contains(V object) {
-        return false;
+        return execute(new long[] {hash(object)}, CONTAINS_SCRIPT, true, false).get(0) > 0;
     }
 
     @Override
     public boolean remove(V object) {
+        return execute(new long[] {hash(object)}, REMOVE_SCRIPT, false, false).get(0) > 0;
+    }
+
+    @Override
+    public BitSet addAll(Collection<? extends V> objects) {
+        return executeAll(hashes(objects), ADD_SCRIPT, true);
+    }
+
+    @Override
+    public BitSet removeAll(Collection<? extends V> objects) {
+        return executeAll(hashes(objects), REMOVE_SCRIPT, false);
+    }
+
+    private long[] hashes(Collection<? extends V> objects) {
+        long[] result = new long[objects.size()];
+        int i = 0;
+        for (V object : objects) {
+            result[i++] = hash(object);
+        }
+        return result;
+    }
+
+    private long check(long result) {
+        if (result == -1) {
+            throw new IllegalStateException("Cuckoo filter " + getName() + " is full");
+        }
+        return result;
+    }
+
+    /**
+     * Executes script for elements by chunks of {@value #SCRIPT_CHUNK_SIZE}, one Lua call per chunk.
+     * Elements which need one more sub-filter are executed again with reloaded config.
+     */
+    private BitSet executeAll(long[] hashes, String script, boolean grow) {
+        BitSet result = new BitSet(hashes.length);
+        for (int offset = 0; offset < hashes.length; offset += SCRIPT_CHUNK_SIZE) {
+            long[] chunk = Arrays.copyOfRange(hashes, offset, Math.min(hashes.length, offset + SCRIPT_CHUNK_SIZE));
+            int[] positions = new int[chunk.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = offset + i;
+            }
+
+            while (chunk.length > 0) {
+                List<Long> values = execute(chunk, script, false, grow);
+                int pending = 0;
+                for (int i = 0; i < chunk.length; i++) {
+                    long value = check(values.get(i));
+                    if (value > 0) {
+                        result.set(positions[i]);
+                    } else if (value == -2) {
+                        chunk[pending] = chunk[i];
+                        positions[pending] = positions[i];
+                        pending++;
+                    }
+                }
+                if (pending > 0) {
+                    readConfig();
+                }
+                chunk = Arrays.copyOf(chunk, pending);
+                positions = Arrays.copyOf(positions, pending);
+            }
+        }
+        return result;
+    }
+
+    private List<Long> execute(long[] hashes, String script, boolean readOnly, boolean grow) {
+        while (true) {
+            try {
+                return commandExecutor.get(executeAsync(hashes, script, readOnly, grow));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Cuckoo filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    /**
+     * Adds keys and parameters of {@link #BUCKET_SCRIPT} for <code>groups</code> sub-filters.
+     */
+    private void scriptArgs(int subFilters, int groups, List<Object> keys, List<Object> params) {
+        double loadFactor = optimalLoadFactor(numEntriesPerBucket);
+        keys.add(configName);
+        keys.add(stashName);
+        params.add(subFilters);
+        params.add(buckets);
+        params.add(numBitsPerEntry);
+        params.add(numEntriesPerBucket);
+        params.add(options.getMaxKicks());
+        params.add(options.getStashSize());
+        params.add(groups);
+        params.add(semiSorted ? 1 : 0);
+        for (int k = 0; k < groups; k++) {
+            long m = subFilterBuckets(k);
+            keys.add(subFilterName(k));
+            params.add(m);
+            params.add(subFilterBits(k));
+            params.add((long) (m * numEntriesPerBucket * loadFactor));
+        }
+    }
+
+    /**
+     * Executes script and resets cached config on config change, so it's read again by next call.
+     *
+     * @param grow - pass parameters of the next sub-filter, so script can allocate it
+     */
+    private RFuture<List<Long>> executeAsync(long[] hashes, String script, boolean readOnly, boolean grow) {
+        if (subFilters == 0) {
+            readConfig();
+        }
+
+        int subFilters = this.subFilters;
+        int groups = subFilters;
+        if (grow && growth > 0 && subFilterBuckets(subFilters) > 0) {
+            groups++;
+        }
+
+        long[] buckets = new long[groups];
+        int[] bits = new int[groups];
+        for (int k = 0; k < groups; k++) {
+            buckets[k] = subFilterBuckets(k);
+            bits[k] = subFilterBits(k);
+        }
+
+        List<Object> keys = new ArrayList<>(groups + 2);
+        List<Object> params = new ArrayList<>(8 + groups * 3 + hashes.length * groups * 2);
+        scriptArgs(subFilters, groups, keys, params);
+        for (long hash : hashes) {
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int k = 0; k < groups; k++) {
+                params.add(Integer.toUnsignedLong(fingerPrint(hash2, bits[k])));
+                params.add(index(hash1, buckets[k]));
+            }
+        }
+
+        RFuture<List<Long>> future;
+        if (readOnly) {
+            future = ScriptRegistry.evalReadAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_LIST,
+                    script, keys, params.toArray());
+        } else {
+            future = ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_LIST,
+                    script, keys, params.toArray());
+        }
+
+        RPromise<List<Long>> result = new RedissonPromise<>();
+        future.addListener(new FutureListener<List<Long>>() {
+            @Override
+            public void operationComplete(Future<List<Long>> f) throws Exception {
+                if (!f.isSuccess()) {
+                    if (f.cause() instanceof RedisException
+                            && f.cause().getMessage() != null
+                            && f.cause().getMessage().contains("Cuckoo filter config has been changed")) {
+                        RedissonCuckooFilter.this.subFilters = 0;
+                    }
+                    result.tryFailure(f.cause());
+                    return;
+                }
+                result.trySuccess(f.getNow());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads candidate buckets of elements by pipelined <code>GETRANGE</code> calls, each bucket is read once
+     * per chunk of {@value #READ_CHUNK_SIZE} elements. Config is read in the same pipeline, so chunk is read
+     * again if another client has allocated new sub-filter or recreated filter with other params.
+     */
+    @Override
+    public BitSet containsAll(Collection<? extends V> objects) {
+        long[] hashes = hashes(objects);
+        BitSet result = new BitSet(hashes.length);
+        if (subFilters == 0) {
+            readConfig();
+        }
+
+        for (int offset = 0; offset < hashes.length; offset += READ_CHUNK_SIZE) {
+            int end = Math.min(hashes.length, offset + READ_CHUNK_SIZE);
+            while (!containsAll(hashes, offset, end, result)) {
+                readConfig();
+            }
+        }
+        return result;
+    }
+
+    private boolean containsAll(long[] hashes, int offset, int end, BitSet result) {
+        int subFilters = this.subFilters;
+        long firstBuckets = this.buckets;
+        int b = numEntriesPerBucket;
+        int bitsPerEntry = numBitsPerEntry;
+        boolean semiSorted = this.semiSorted;
+        long[] buckets = new long[subFilters];
+        int[] bits = new int[subFilters];
+        List<Map<Long, RFuture<byte[]>>> reads = new ArrayList<>(subFilters);
+        for (int k = 0; k < subFilters; k++) {
+            buckets[k] = subFilterBuckets(k);
+            bits[k] = subFilterBits(k);
+            reads.add(new HashMap<>());
+        }
+
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        RFuture<Map<String, String>> config = executorService.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        RFuture<Set<Object>> stash = executorService.readAsync(stashName, StringCodec.INSTANCE, RedisCommands.SMEMBERS, stashName);
+        long[][] candidates = new long[end - offset][];
+        for (int e = offset; e < end; e++) {
+            int hash1 = (int) hashes[e];
+            int hash2 = (int) (hashes[e] >>> 32);
+            long[] candidate = new long[subFilters * 3];
+            for (int k = 0; k < subFilters; k++) {
+                long fingerprint = Integer.toUnsignedLong(fingerPrint(hash2, bits[k]));
+                long i1 = index(hash1, buckets[k]);
+                long i2 = altIndex(i1, fingerprint, buckets[k]);
+                candidate[k * 3] = fingerprint;
+                candidate[k * 3 + 1] = i1;
+                candidate[k * 3 + 2] = i2;
+                for (long i : new long[] {i1, i2}) {
+                    if (!reads.get(k).containsKey(i)) {
+                        long bucketBits = bucketBits(b, bits[k], semiSorted);
+                        long start = i * bucketBits;
+                        String name = subFilterName(k);
+                        reads.get(k).put(i, executorService.readAsync(name, ByteArrayCodec.INSTANCE,
+                                new RedisCommand<byte[]>("GETRANGE"), name, start >>> 3, (start + bucketBits - 1) >>> 3));
+                    }
+                }
+            }
+            candidates[e - offset] = candidate;
+        }
+        executorService.execute();
+
+        // 其他客户端新增子过滤器或重建过滤器后，按新配置重新读取
+        Map<String, String> current = config.getNow();
+        if (!String.valueOf(subFilters).equals(current.get("subFilters"))
+                || !String.valueOf(firstBuckets).equals(current.get("buckets"))
+                || !String.valueOf(b).equals(current.get("entriesPerBucket"))
+                || !String.valueOf(bitsPerEntry).equals(current.get("bitsPerEntry"))
+                || semiSorted != "1".equals(current.get("semiSorted"))) {
+            return false;
+        }
+
+        Set<Object> stashed = stash.getNow();
+        for (int e = offset; e < end; e++) {
+            long[] candidate = candidates[e - offset];
+            for (int k = subFilters - 1; k >= 0; k--) {
+                long fingerprint = candidate[k * 3];
+                long i1 = candidate[k * 3 + 1];
+                long i2 = candidate[k * 3 + 2];
+                if (find(readBucket(reads.get(k).get(i1).getNow(), i1, b, bits[k], semiSorted), fingerprint)
+                        || find(readBucket(reads.get(k).get(i2).getNow(), i2, b, bits[k], semiSorted), fingerprint)
+                        || (!stashed.isEmpty() && stashed.contains(k + ":" + Math.min(i1, i2) + ":" + fingerprint))) {
+                    result.set(e);
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean find(long[] fingerprints, long fingerprint) {
+        for (long value : fingerprints) {
+            if (value == fingerprint) {
+                return true;
+            }
+        }
         return false;
     }
 
+    /**
+     * Decodes fingerprints of bucket read by <code>GETRANGE</code> from the byte of its first bit.
+     * Rank of semi-sorted bucket is decoded greedily as combination <code>prefix[j] + j</code>
+     * in colexicographic order, the same as by Lua script.
+     */
+    static long[] readBucket(byte[] data, long bucket, int b, int bits, boolean semiSorted) {
+        int bucketBits = bucketBits(b, bits, semiSorted);
+        long offset = (bucket * bucketBits) & 7;
+        long[] result = new long[b];
+        if (!semiSorted) {
+            for (int j = 0; j < b; j++) {
+                result[j] = readBits(data, offset + (long) j * bits, bits);
+            }
+            return result;
+        }
+
+        int suffixBits = bits - PREFIX_BITS;
+        long rank = readBits(data, offset, RANK_BITS);
+        for (int j = SEMI_SORTED_ENTRIES - 1; j >= 0; j--) {
+            int c = j + (1 << PREFIX_BITS) - 1;
+            while (binomial(c, j + 1) > rank) {
+                c--;
+            }
+            rank -= binomial(c, j + 1);
+            long suffix = readBits(data, offset + RANK_BITS + (long) j * suffixBits, suffixBits);
+            result[j] = ((long) (c - j) << suffixBits) | suffix;
+        }
+        return result;
+    }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    /**
+     * Reads unsigned integer in BITFIELD order, missing bytes of shorter string are zeros.
+     */
+    static long readBits(byte[] data, long offset, int bits) {
+        long value = 0;
+        for (int i = 0; i < bits; i++) {
+            long bit = offset + i;
+            int index = (int) (bit >>> 3);
+            int next = index < data.length ? (data[index] >>> (7 - (int) (bit & 7))) & 1 : 0;
+            value = (value << 1) | next;
+        }
+        return value;
+    }
+
+    @Override
+    public FilterHealth health() {
+        return health(DEFAULT_HEALTH_SLICE);
+    }
+
+    /**
+     * Scans buckets of each sub-filter by slices. Effective false positive probability is sum of
+     * false positive probabilities of sub-filters, each of them is <code>1 - (1 - 2^-f)^(2 * filled / m)</code>
+     * where <code>f</code> is amount of fingerprint bits and <code>m</code> is amount of buckets.
+     * Stashed fingerprints aren't counted as filled entries.
+     */
+    @Override
+    public FilterHealth health(int sliceSize) {
+        if (sliceSize <= 0) {
+            throw new IllegalArgumentException("sliceSize should be greater than 0");
+        }
+        while (true) {
+            Map<String, String> config = readConfig();
+            int subFilters = this.subFilters;
+            int b = numEntriesPerBucket;
+            long[] histogram = new long[b + 1];
+            long size = 0;
+            long filled = 0;
+            double falseProbability = 0;
+            try {
+                for (int k = 0; k < subFilters; k++) {
+                    long m = subFilterBuckets(k);
+                    long[] subHistogram = new long[b + 1];
+                    long cursor = 0;
+                    while (cursor < m) {
+                        List<Object> keys = new ArrayList<>(subFilters + 2);
+                        List<Object> params = new ArrayList<>(11 + subFilters * 3);
+                        scriptArgs(subFilters, subFilters, keys, params);
+                        params.add(k);
+                        params.add(cursor);
+                        params.add(Math.min(m, cursor + sliceSize));
+                        List<Long> result = commandExecutor.get(ScriptRegistry.evalReadAsync(commandExecutor, getName(),
+                                LongCodec.INSTANCE, RedisCommands.EVAL_LIST, HEALTH_SCRIPT, keys, params.toArray()));
+                        cursor = result.get(0);
+                        for (int j = 0; j <= b; j++) {
+                            subHistogram[j] += result.get(j + 1);
+                        }
+                    }
+
+                    long subFilled = 0;
+                    for (int j = 0; j <= b; j++) {
+                        histogram[j] += subHistogram[j];
+                        subFilled += j * subHistogram[j];
+                    }
+                    size += m * b;
+                    filled += subFilled;
+                    falseProbability += 1 - pow(1 - pow(2, -subFilterBits(k)), 2.0 * subFilled / m);
+                }
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Cuckoo filter config has been changed")) {
+                    throw e;
+                }
+                // 扫描过程中新增了子过滤器，从头开始
+                continue;
+            }
+            return new FilterHealth(size, filled, histogram, histogram[b],
+                    Math.min(1, falseProbability), Double.valueOf(config.get("falseProbability")));
+        }
+    }
+
+    /**
+     * Reads config and creates it from requested capacity and false positive probability
+     * if filter doesn't exist. Config of existing filter always wins.
+     *
+     * @return config of filter
+     */
+    private Map<String, String> readConfig() {
+        Map<String, String> config = readConfigMap();
+        if (config.isEmpty()) {
+            int numEntriesPerBucket = optimalEntriesPerBucket(requestedFpp);
+            long numBuckets = optimalNumberOfBuckets(requestedCapacity, numEntriesPerBucket);
+            int numBitsPerEntry = Math.min(MAX_BITS_PER_ENTRY, optimalBitsPerEntry(requestedFpp, numEntriesPerBucket));
+            long size = numBuckets * bucketBits(numEntriesPerBucket, numBitsPerEntry, options.isSemiSorted());
+            syncExecutor.get(ScriptRegistry.evalWriteAsync(commandExecutor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_VOID,
+                    INIT_SCRIPT, Arrays.<Object>asList(configName, getName()),
+                    requestedCapacity, BigDecimal.valueOf(requestedFpp).toPlainString(),
+                    numEntriesPerBucket, numBitsPerEntry, numBuckets, options.getGrowth(),
+                    options.isSemiSorted() ? 1 : 0, (size + 7) / 8));
+            config = readConfigMap();
+        }
+
+        capacity = Long.valueOf(config.get("capacity"));
+        buckets = Long.valueOf(config.get("buckets"));
+        numEntriesPerBucket = Integer.valueOf(config.get("entriesPerBucket"));
+        numBitsPerEntry = Integer.valueOf(config.get("bitsPerEntry"));
+        growth = Integer.valueOf(config.get("growth"));
+        semiSorted = "1".equals(config.get("semiSorted"));
+        subFilters = Integer.valueOf(config.get("subFilters"));
+        return config;
+    }
+
+    private Map<String, String> readConfigMap() {
+        RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        return syncExecutor.get(future);
+    }
+
+    /**
+     * Applies command to config, stash and all sub-filters, amount of sub-filters is read by script
+     * because it could be changed by another client.
+     */
+    private RFuture<Boolean> allKeysAsync(String command, Object... params) {
+        List<Object> args = new ArrayList<>(params.length + 1);
+        args.add(subFilterPrefix);
+        for (Object param : params) {
+            args.add(param);
+        }
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "local n = tonumber(redis.call('hget', KEYS[2], 'subFilters') or 1);" +
+                        "for k = 1, n - 1 do " +
+                            "redis.call('" + command + "', ARGV[1] .. k, unpack(ARGV, 2));" +
+                        "end;" +
+                        "redis.call('" + command + "', KEYS[1], unpack(ARGV, 2));" +
+                        "redis.call('" + command + "', KEYS[3], unpack(ARGV, 2));" +
+                        "return redis.call('" + command + "', KEYS[2], unpack(ARGV, 2));",
+                Arrays.<Object>asList(getName(), configName, stashName), args.toArray());
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        subFilters = 0;
+        return allKeysAsync("del");
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = new ArrayList<>();
+        keys.add(configName);
+        keys.add(stashName);
+        for (int k = 0; k < Math.max(1, subFilters); k++) {
+            keys.add(subFilterName(k));
+        }
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return allKeysAsync("pexpire", timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return allKeysAsync("pexpireat", timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return allKeysAsync("persist");
+    }
 
 }
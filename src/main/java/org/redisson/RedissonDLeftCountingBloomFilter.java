@@ -0,0 +1,589 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.FilterHealth;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.DoubleCodec;
+import org.redisson.client.codec.IntegerCodec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.convertor.VoidReplayConvertor;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+import org.redisson.misc.Hash;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * d-left counting Bloom filter based on Highway 128-bit hash.
+ * <p>
+ * Filter consists of {@value #TABLES} sub-tables of buckets with {@value #CELLS_PER_BUCKET} cells.
+ * Cell holds fingerprint and counter, cell with zero counter is empty. Element is stored in one cell,
+ * so filter needs one fingerprint per element instead of counter per hash function.
+ * <p>
+ * Bucket and fingerprint of element in each sub-table are derived from one true fingerprint by
+ * invertible permutation, so equal fingerprints in the same bucket always belong to elements with
+ * equal true fingerprint and <code>remove</code> can't decrement cell of another element.
+ * Element is added to the least loaded candidate bucket, leftmost one on tie.
+ * Cells are packed into Redis string and each operation is one Lua call.
+ *
+ * @param <T> type of object
+ * @author linfeng
+ */
+public class RedissonDLeftCountingBloomFilter<T> extends RedissonExpirable implements RCountingBloomFilter<T> {
+
+    static final int TABLES = 4;
+    static final int CELLS_PER_BUCKET = 8;
+    private static final double MAX_LOAD = 0.75;
+    private static final int MIN_FINGERPRINT_BITS = 4;
+    private static final int MAX_FINGERPRINT_BITS = 32;
+
+    private static final long[] BUCKET_SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+    private static final long[] FINGERPRINT_SEEDS = {
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x27D4EB2F165667C5L, 0x94D049BB133111EBL};
+
+    private static final String CONFIG_CHECK_SCRIPT =
+            "local size = redis.call('hget', KEYS[2], 'size');" +
+            "local hashIterations = redis.call('hget', KEYS[2], 'hashIterations');" +
+            "local fingerprintBits = redis.call('hget', KEYS[2], 'fingerprintBits');" +
+            "local counterBits = redis.call('hget', KEYS[2], 'counterBits');" +
+            "assert(size == ARGV[1] and hashIterations == ARGV[2] and fingerprintBits == ARGV[3] " +
+                    "and counterBits == ARGV[4], 'Bloom filter config has been changed');";
+
+    /**
+     * Defines <code>find(n, fingerprint)</code> function, which looks for fingerprint in bucket <code>n</code>
+     * and returns bit offset of matched cell, its counter, bucket load and bit offset of first free cell.
+     */
+    private static final String BUCKET_SCRIPT =
+            "local fingerprintBits = tonumber(ARGV[3]);" +
+            "local counterBits = tonumber(ARGV[4]);" +
+            "local cells = tonumber(ARGV[5]);" +
+            "local max = tonumber(ARGV[6]);" +
+            "local ftype = 'u' .. fingerprintBits;" +
+            "local ctype = 'u' .. counterBits;" +
+            "local cellBits = fingerprintBits + counterBits;" +
+            "local function find(n, fingerprint) " +
+                "local base = n * cells * cellBits;" +
+                "local args = {};" +
+                "for j = 0, cells - 1 do " +
+                    "table.insert(args, 'get'); table.insert(args, ftype); table.insert(args, base + j * cellBits);" +
+                    "table.insert(args, 'get'); table.insert(args, ctype); table.insert(args, base + j * cellBits + fingerprintBits);" +
+                "end;" +
+                "local values = redis.call('bitfield', KEYS[1], unpack(args));" +
+                "local load = 0;" +
+                "local free = nil;" +
+                "local matched = nil;" +
+                "local count = 0;" +
+                "for j = 0, cells - 1 do " +
+                    "if values[2 * j + 2] > 0 then " +
+                        "load = load + 1;" +
+                        "if matched == nil and values[2 * j + 1] == fingerprint then " +
+                            "matched = base + j * cellBits;" +
+                            "count = values[2 * j + 2];" +
+                        "end;" +
+                    "elseif free == nil then " +
+                        "free = base + j * cellBits;" +
+                    "end;" +
+                "end;" +
+                "return matched, count, load, free;" +
+            "end;";
+
+    private static final String CONTAINS_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "for i = 7, #ARGV, 2 do " +
+                "if find(tonumber(ARGV[i]), tonumber(ARGV[i + 1])) ~= nil then " +
+                    "return 1;" +
+                "end;" +
+            "end;" +
+            "return 0;");
+
+    private static final String ADD_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "local target = nil;" +
+            "local targetLoad = cells;" +
+            "local targetFingerprint = nil;" +
+            "for i = 7, #ARGV, 2 do " +
+                "local matched, count, load, free = find(tonumber(ARGV[i]), tonumber(ARGV[i + 1]));" +
+                "if matched ~= nil then " +
+                    "if count < max then " +
+                        "redis.call('bitfield', KEYS[1], 'set', ctype, matched + fingerprintBits, count + 1);" +
+                    "end;" +
+                    "return 0;" +
+                "end;" +
+                "if free ~= nil and load < targetLoad then " +
+                    "target = free;" +
+                    "targetLoad = load;" +
+                    "targetFingerprint = ARGV[i + 1];" +
+                "end;" +
+            "end;" +
+            "if target == nil then " +
+                "return -1;" +
+            "end;" +
+            "redis.call('bitfield', KEYS[1], 'set', ftype, target, targetFingerprint, 'set', ctype, target + fingerprintBits, 1);" +
+            "redis.call('hincrby', KEYS[2], 'cells', 1);" +
+            "return 1;");
+
+    private static final String REMOVE_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT + BUCKET_SCRIPT +
+            "for i = 7, #ARGV, 2 do " +
+                "local matched, count = find(tonumber(ARGV[i]), tonumber(ARGV[i + 1]));" +
+                "if matched ~= nil then " +
+                    "if count == 1 then " +
+                        "redis.call('bitfield', KEYS[1], 'set', ftype, matched, 0, 'set', ctype, matched + fingerprintBits, 0);" +
+                        "redis.call('hincrby', KEYS[2], 'cells', -1);" +
+                    "else " +
+                        "redis.call('bitfield', KEYS[1], 'set', ctype, matched + fingerprintBits, count - 1);" +
+                    "end;" +
+                    "return 1;" +
+                "end;" +
+            "end;" +
+            "return 0;");
+
+    /**
+     * Scans cells from <code>ARGV[5]</code> to <code>ARGV[6]</code> exclusive by one <code>getrange</code>
+     * and returns next cursor with histogram of cell counters capped by <code>ARGV[7]</code>.
+     * Counter of cell <code>c</code> is located at bit <code>c * (ARGV[3] + ARGV[4]) + ARGV[3]</code>.
+     */
+    private static final String HEALTH_SCRIPT =
+            ScriptRegistry.register(CONFIG_CHECK_SCRIPT +
+            "local fingerprintBits = tonumber(ARGV[3]);" +
+            "local counterBits = tonumber(ARGV[4]);" +
+            "local first = tonumber(ARGV[5]);" +
+            "local last = tonumber(ARGV[6]);" +
+            "local max = tonumber(ARGV[7]);" +
+            "local cellBits = fingerprintBits + counterBits;" +
+            "local start = math.floor(first * cellBits / 8);" +
+            "local data = redis.call('getrange', KEYS[1], start, math.floor((last * cellBits - 1) / 8));" +
+            "local result = {last};" +
+            "for value = 0, max do " +
+                "result[value + 2] = 0;" +
+            "end;" +
+            "for c = first, last - 1 do " +
+                "local o = c * cellBits + fingerprintBits;" +
+                "local value = 0;" +
+                "for bit = o, o + counterBits - 1 do " +
+                    // 超出已写入长度的字节按0处理
+                    "local byte = string.byte(data, math.floor(bit / 8) - start + 1) or 0;" +
+                    "value = value * 2 + math.floor(byte / 2 ^ (7 - bit % 8)) % 2;" +
+                "end;" +
+                "value = math.min(value, max);" +
+                "result[value + 2] = result[value + 2] + 1;" +
+            "end;" +
+            "return result;");
+
+    private static final int DEFAULT_MAX_REPEAT = 3;
+    private volatile long size;
+    private volatile long buckets;
+    private volatile int fingerprintBits;
+    // 最大计数
+    private volatile int maxRepeat = DEFAULT_MAX_REPEAT;
+    // 计数器位数决定单元布局，以配置为准
+    private volatile int maxBinaryBit;
+
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+
+    protected RedissonDLeftCountingBloomFilter(CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        setMaxRepeat(repeat);
+    }
+
+    protected RedissonDLeftCountingBloomFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        setMaxRepeat(repeat);
+    }
+
+    private void setMaxRepeat(int repeat) {
+        this.maxRepeat = repeat > 0 ? repeat : DEFAULT_MAX_REPEAT;
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+    }
+
+    static int optimalFingerprintBits(double p) {
+        int bits = (int) Math.ceil(Math.log(TABLES * CELLS_PER_BUCKET * MAX_LOAD / p) / Math.log(2));
+        return Math.max(MIN_FINGERPRINT_BITS, Math.min(MAX_FINGERPRINT_BITS, bits));
+    }
+
+    static long optimalNumOfBuckets(long n) {
+        return Math.max(1, (long) Math.ceil(n / (TABLES * CELLS_PER_BUCKET * MAX_LOAD)));
+    }
+
+    private long[] hash(Object object) {
+        ByteBuf state = encode(object);
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Returns pairs of global bucket number and fingerprint of element for each sub-table.
+     * True fingerprint <code>(b, r)</code> is permuted per sub-table as
+     * <code>r' = r ^ H(b)</code>, <code>b' = (b + G(r')) mod buckets</code>, which is invertible.
+     */
+    static long[] cells(long hash1, long hash2, long buckets, int fingerprintBits) {
+        long mask = fingerprintBits == Long.SIZE ? -1L : (1L << fingerprintBits) - 1;
+        long bucket = (hash1 & Long.MAX_VALUE) % buckets;
+        long fingerprint = hash2 & mask;
+
+        long[] result = new long[TABLES * 2];
+        for (int i = 0; i < TABLES; i++) {
+            long tableFingerprint = fingerprint ^ (mix(bucket + BUCKET_SEEDS[i]) & mask);
+            long tableBucket = (bucket + (mix(tableFingerprint ^ FINGERPRINT_SEEDS[i]) & Long.MAX_VALUE) % buckets) % buckets;
+            result[2 * i] = i * buckets + tableBucket;
+            result[2 * i + 1] = tableFingerprint;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean add(T object) {
+        return execute(hash(object), ADD_SCRIPT, false);
+    }
+
+    @Override
+    public boolean contains(T object) {
+        return execute(hash(object), CONTAINS_SCRIPT, true);
+    }
+
+    @Override
+    public boolean remove(T object) {
+        return execute(hash(object), REMOVE_SCRIPT, false);
+    }
+
+    @Override
+    public RFuture<Boolean> addAsync(T object) {
+        return executeAsync(hash(object), ADD_SCRIPT, false);
+    }
+
+    @Override
+    public RFuture<Boolean> containsAsync(T object) {
+        return executeAsync(hash(object), CONTAINS_SCRIPT, true);
+    }
+
+    @Override
+    public RFuture<Boolean> removeAsync(T object) {
+        return executeAsync(hash(object), REMOVE_SCRIPT, false);
+    }
+
+    private boolean execute(long[] hashes, String script, boolean readOnly) {
+        while (true) {
+            try {
+                return commandExecutor.get(executeAsync(hashes, script, readOnly));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    /**
+     * Executes script and resets cached config on config change, so it's read again by next call.
+     */
+    private RFuture<Boolean> executeAsync(long[] hashes, String script, boolean readOnly) {
+        if (size == 0) {
+            readConfig();
+        }
+
+        long size = this.size;
+        long buckets = this.buckets;
+        int fingerprintBits = this.fingerprintBits;
+        int counterBits = this.maxBinaryBit;
+
+        long[] cells = cells(hashes[0], hashes[1], buckets, fingerprintBits);
+        List<Object> params = new ArrayList<>(cells.length + 6);
+        params.add(size);
+        params.add(TABLES);
+        params.add(fingerprintBits);
+        params.add(counterBits);
+        params.add(CELLS_PER_BUCKET);
+        // 其他客户端以更小的最大计数创建过滤器时，计数不能超过其位数
+        params.add((int) Math.min(maxRepeat, (1L << counterBits) - 1));
+        for (long cell : cells) {
+            params.add(cell);
+        }
+
+        RFuture<Long> future;
+        if (readOnly) {
+            future = ScriptRegistry.evalReadAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_LONG,
+                    script, Arrays.asList(getName(), configName), params.toArray());
+        } else {
+            future = ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_LONG,
+                    script, Arrays.asList(getName(), configName), params.toArray());
+        }
+
+        RPromise<Boolean> result = new RedissonPromise<>();
+        future.addListener(new FutureListener<Long>() {
+            @Override
+            public void operationComplete(Future<Long> f) throws Exception {
+                if (!f.isSuccess()) {
+                    if (f.cause() instanceof RedisException
+                            && f.cause().getMessage() != null
+                            && f.cause().getMessage().contains("Bloom filter config has been changed")) {
+                        RedissonDLeftCountingBloomFilter.this.size = 0;
+                    }
+                    result.tryFailure(f.cause());
+                    return;
+                }
+                if (f.getNow() < 0) {
+                    result.tryFailure(new IllegalStateException("All candidate buckets of element are full in d-left counting Bloom filter " + getName()));
+                    return;
+                }
+                result.trySuccess(f.getNow() > 0);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns amount of occupied cells, which is amount of distinct fingerprints added to filter.
+     */
+    @Override
+    public long count() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "cells");
+        if (result == null) {
+            check(syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size"));
+            return 0;
+        }
+        return result;
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName);
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = Arrays.asList(getName(), configName);
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    private void readConfig() {
+        RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        Map<String, String> config = syncExecutor.get(future);
+
+        readConfig(config);
+    }
+
+    private void readConfig(Map<String, String> config) {
+        if (config.get("size") == null
+                || config.get("fingerprintBits") == null) {
+            throw new IllegalStateException("Bloom filter is not initialized!");
+        }
+        if (config.get("counterBits") != null) {
+            maxBinaryBit = Integer.valueOf(config.get("counterBits"));
+        }
+        fingerprintBits = Integer.valueOf(config.get("fingerprintBits"));
+        size = Long.valueOf(config.get("size"));
+        buckets = size / (TABLES * CELLS_PER_BUCKET);
+    }
+
+    protected long getMaxSize() {
+        return Integer.MAX_VALUE * 2L;
+    }
+
+    @Override
+    public boolean tryInit(long expectedInsertions, double falseProbability) {
+        if (falseProbability > 1) {
+            throw new IllegalArgumentException("Counting Bloom filter false probability can't be greater than 1");
+        }
+        if (falseProbability <= 0) {
+            throw new IllegalArgumentException("d-left counting Bloom filter false probability should be greater than 0");
+        }
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Counting Bloom filter expected insertions should be greater than 0");
+        }
+
+        int fingerprintBits = optimalFingerprintBits(falseProbability);
+        int counterBits = Integer.toBinaryString(maxRepeat).length();
+        long buckets = optimalNumOfBuckets(expectedInsertions);
+        long size = buckets * TABLES * CELLS_PER_BUCKET;
+        if (size * (fingerprintBits + counterBits) > getMaxSize()) {
+            throw new IllegalArgumentException("Counting Bloom filter size can't be greater than " + getMaxSize()
+                    + ". But calculated size is " + size * (fingerprintBits + counterBits));
+        }
+
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        executorService.evalReadAsync(configName, codec, RedisCommands.EVAL_VOID,
+                "local size = redis.call('hget', KEYS[1], 'size');" +
+                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
+                        "assert(size == false and hashIterations == false, 'Bloom filter config has been changed')",
+                Arrays.asList(configName), size, TABLES);
+        executorService.writeAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), configName,
+                "size", size, "hashIterations", TABLES, "fingerprintBits", fingerprintBits, "counterBits", counterBits,
+                "cellsPerBucket", CELLS_PER_BUCKET, "cells", 0,
+                "expectedInsertions", expectedInsertions, "falseProbability", BigDecimal.valueOf(falseProbability).toPlainString());
+        try {
+            executorService.execute();
+        } catch (RedisException e) {
+            if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                throw e;
+            }
+            readConfig();
+            return false;
+        }
+
+        this.fingerprintBits = fingerprintBits;
+        this.maxBinaryBit = counterBits;
+        this.buckets = buckets;
+        this.size = size;
+        return true;
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpire', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpireat', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpireat', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('persist', KEYS[1]); " +
+                        "return redis.call('persist', KEYS[2]); ",
+                Arrays.asList(getName(), configName));
+    }
+
+    @Override
+    public long getExpectedInsertions() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "expectedInsertions");
+        return check(result);
+    }
+
+    @Override
+    public double getFalseProbability() {
+        Double result = syncExecutor.read(configName, DoubleCodec.INSTANCE, RedisCommands.HGET, configName, "falseProbability");
+        return check(result);
+    }
+
+    /**
+     * Returns amount of cells.
+     */
+    @Override
+    public long getSize() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size");
+        return check(result);
+    }
+
+    /**
+     * Returns amount of sub-tables, each of them is probed once per element.
+     */
+    @Override
+    public int getHashIterations() {
+        Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "hashIterations");
+        return check(result);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public FilterHealth health() {
+        return health(RedissonCountingBloomFilter.DEFAULT_HEALTH_SLICE);
+    }
+
+    /**
+     * Scans cells by slices. Histogram is indexed by counter of cell, so <code>histogram[0]</code>
+     * is amount of empty cells. Effective false positive probability is probability that fingerprint
+     * of absent element matches one of occupied cells of its candidate buckets,
+     * <code>1 - (1 - 2^-f)^(filled / buckets)</code>.
+     */
+    @Override
+    public FilterHealth health(int sliceSize) {
+        if (sliceSize <= 0) {
+            throw new IllegalArgumentException("sliceSize should be greater than 0");
+        }
+        while (true) {
+            RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                    new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+            Map<String, String> config = syncExecutor.get(future);
+            readConfig(config);
+            long size = this.size;
+            long buckets = this.buckets;
+            int fingerprintBits = this.fingerprintBits;
+            long[] histogram = new long[maxRepeat + 1];
+            try {
+                long cursor = 0;
+                while (cursor < size) {
+                    RFuture<List<Long>> scan = ScriptRegistry.evalReadAsync(commandExecutor, getName(), LongCodec.INSTANCE,
+                            RedisCommands.EVAL_LIST, HEALTH_SCRIPT, Arrays.asList(getName(), configName),
+                            size, TABLES, fingerprintBits, maxBinaryBit, cursor, Math.min(size, cursor + sliceSize), maxRepeat);
+                    List<Long> result = commandExecutor.get(scan);
+                    cursor = result.get(0);
+                    for (int value = 0; value < histogram.length; value++) {
+                        histogram[value] += result.get(value + 1);
+                    }
+                }
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                // 扫描过程中过滤器被重建，从头开始
+                continue;
+            }
+            long filled = size - histogram[0];
+            double falseProbability = 1 - Math.pow(1 - Math.pow(2, -fingerprintBits), filled / (double) buckets);
+            return new FilterHealth(size, filled, histogram, histogram[histogram.length - 1],
+                    Math.min(1, falseProbability), Double.valueOf(config.get("falseProbability")));
+        }
+    }
+
+    private <V> V check(V result) {
+        if (result == null) {
+            throw new IllegalStateException("Counting Bloom filter is not initialized!");
+        }
+        return result;
+    }
+
+}
@@ -1,10 +1,27 @@
 package org.redisson;
 
+import org.redisson.api.BatchOptions;
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.CuckooFilterOptions;
+import org.redisson.api.MapOptions;
+import org.redisson.api.RBatchExtend;
+import org.redisson.api.RBufferableCountingBloomFilter;
 import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RCountingBloomFilterReactive;
+import org.redisson.api.RCuckooFilter;
+import org.redisson.api.RFilterGroup;
+import org.redisson.api.RGuardedMap;
+import org.redisson.api.RInvertibleBloomFilter;
+import org.redisson.api.RRangeFilter;
+import org.redisson.api.RSketchRateLimiter;
+import org.redisson.api.RStableBloomFilter;
+import org.redisson.api.RXorFilter;
 import org.redisson.api.RedissonClientExtend;
 import org.redisson.client.codec.Codec;
 import org.redisson.config.Config;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author linfeng
  * @since 2020-06-06
@@ -13,6 +30,7 @@ public class RedissonExtend extends Redisson implements RedissonClientExtend {
 
     protected RedissonExtend(Config config) {
         super(config);
+        ScriptRegistry.attach(this.connectionManager.getCommandExecutor());
     }
 
     public static RedissonClientExtend create() {
@@ -33,22 +51,169 @@ public class RedissonExtend extends Redisson implements RedissonClientExtend {
     }
 
     @Override
-    public <V> RCountingBloomFilter<V> getCountingBloomFilter(String name) {
+    public void shutdown() {
+        ScriptRegistry.detach(this.connectionManager.getCommandExecutor());
+        super.shutdown();
+    }
+
+    @Override
+    public void shutdown(long quietPeriod, long timeout, TimeUnit unit) {
+        ScriptRegistry.detach(this.connectionManager.getCommandExecutor());
+        super.shutdown(quietPeriod, timeout, unit);
+    }
+
+    @Override
+    public <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name) {
         return new RedissonCountingBloomFilter<>(this.connectionManager.getCommandExecutor(), name);
     }
 
     @Override
-    public <V> RCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat) {
+    public <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat) {
         return new RedissonCountingBloomFilter<>(this.connectionManager.getCommandExecutor(), name, repeat);
     }
 
     @Override
-    public <V> RCountingBloomFilter<V> getCountingBloomFilter(String name, Codec codec) {
+    public <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, Codec codec) {
         return new RedissonCountingBloomFilter<>(codec, this.connectionManager.getCommandExecutor(), name);
     }
 
     @Override
-    public <V> RCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, Codec codec) {
+    public <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, Codec codec) {
         return new RedissonCountingBloomFilter<>(codec, this.connectionManager.getCommandExecutor(), name, repeat);
     }
+
+    @Override
+    public <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, CountingBloomFilterOptions options) {
+        return new RedissonCountingBloomFilter<>(this.connectionManager.getCommandExecutor(), name, repeat, options);
+    }
+
+    @Override
+    public <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, Codec codec, CountingBloomFilterOptions options) {
+        return new RedissonCountingBloomFilter<>(codec, this.connectionManager.getCommandExecutor(), name, repeat, options);
+    }
+
+    @Override
+    public <V> RCountingBloomFilter<V> getBlockedCountingBloomFilter(String name, int repeat) {
+        return new RedissonBlockedCountingBloomFilter<>(this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <V> RCountingBloomFilter<V> getBlockedCountingBloomFilter(String name, int repeat, Codec codec) {
+        return new RedissonBlockedCountingBloomFilter<>(codec, this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <V> RXorFilter<V> getXorFilter(String name) {
+        return new RedissonXorFilter<>(this.connectionManager.getCommandExecutor(), name);
+    }
+
+    @Override
+    public <V> RXorFilter<V> getXorFilter(String name, Codec codec) {
+        return new RedissonXorFilter<>(codec, this.connectionManager.getCommandExecutor(), name);
+    }
+
+    @Override
+    public <V> RCountingBloomFilterReactive<V> getCountingBloomFilterReactive(String name, int repeat) {
+        return new RedissonCountingBloomFilterReactive<>(
+                new RedissonCountingBloomFilter<V>(this.connectionManager.getCommandExecutor(), name, repeat),
+                this.connectionManager.getCommandExecutor());
+    }
+
+    @Override
+    public <V> RCountingBloomFilterReactive<V> getCountingBloomFilterReactive(String name, int repeat, Codec codec) {
+        return new RedissonCountingBloomFilterReactive<>(
+                new RedissonCountingBloomFilter<V>(codec, this.connectionManager.getCommandExecutor(), name, repeat),
+                this.connectionManager.getCommandExecutor());
+    }
+
+    @Override
+    public <V> RFilterGroup<V> getFilterGroup(int repeat, String... names) {
+        return new RedissonFilterGroup<>(this.connectionManager.getCommandExecutor(), repeat, names);
+    }
+
+    @Override
+    public <V> RFilterGroup<V> getFilterGroup(int repeat, Codec codec, String... names) {
+        return new RedissonFilterGroup<>(codec, this.connectionManager.getCommandExecutor(), repeat, names);
+    }
+
+    @Override
+    public RBatchExtend createBatchExtend(BatchOptions options) {
+        return new RedissonBatchExtend(this.evictionScheduler, this.connectionManager, options);
+    }
+
+    @Override
+    public RBatchExtend createBatchExtend() {
+        return createBatchExtend(BatchOptions.defaults());
+    }
+
+    @Override
+    public <V> RStableBloomFilter<V> getStableBloomFilter(String name, int repeat) {
+        return new RedissonStableBloomFilter<>(this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <V> RStableBloomFilter<V> getStableBloomFilter(String name, int repeat, Codec codec) {
+        return new RedissonStableBloomFilter<>(codec, this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public RInvertibleBloomFilter getInvertibleBloomFilter(String name) {
+        return new RedissonInvertibleBloomFilter(this.connectionManager.getCommandExecutor(), name);
+    }
+
+    @Override
+    public <K> RRangeFilter<K> getRangeFilter(String name, int repeat) {
+        return new RedissonRangeFilter<>(this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <K> RRangeFilter<K> getRangeFilter(String name, int repeat, Codec codec) {
+        return new RedissonRangeFilter<>(codec, this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <K, V> RGuardedMap<K, V> getGuardedMap(String name, String filterName, int repeat, MapOptions<K, V> options) {
+        return getGuardedMap(name, filterName, repeat, this.connectionManager.getCodec(), options);
+    }
+
+    @Override
+    public <K, V> RGuardedMap<K, V> getGuardedMap(String name, String filterName, int repeat, Codec codec, MapOptions<K, V> options) {
+        return new RedissonGuardedMap<>(codec, this.connectionManager.getCommandExecutor(), name, this, options, filterName, repeat);
+    }
+
+    @Override
+    public <K> RSketchRateLimiter<K> getSketchRateLimiter(String name) {
+        return new RedissonSketchRateLimiter<>(this.connectionManager.getCommandExecutor(), name);
+    }
+
+    @Override
+    public <K> RSketchRateLimiter<K> getSketchRateLimiter(String name, Codec codec) {
+        return new RedissonSketchRateLimiter<>(codec, this.connectionManager.getCommandExecutor(), name);
+    }
+
+    @Override
+    public <V> RCountingBloomFilter<V> getDLeftCountingBloomFilter(String name, int repeat) {
+        return new RedissonDLeftCountingBloomFilter<>(this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <V> RCountingBloomFilter<V> getDLeftCountingBloomFilter(String name, int repeat, Codec codec) {
+        return new RedissonDLeftCountingBloomFilter<>(codec, this.connectionManager.getCommandExecutor(), name, repeat);
+    }
+
+    @Override
+    public <V> RCuckooFilter<V> getCuckooFilter(String name, long capacity, double fpp) {
+        return getCuckooFilter(name, capacity, fpp, CuckooFilterOptions.defaults());
+    }
+
+    @Override
+    public <V> RCuckooFilter<V> getCuckooFilter(String name, long capacity, double fpp, CuckooFilterOptions options) {
+        return new RedissonCuckooFilter<>(this.connectionManager.getCommandExecutor(), name, capacity, fpp, options);
+    }
+
+    @Override
+    public <V> RCuckooFilter<V> getCuckooFilter(String name, long capacity, double fpp, Codec codec, CuckooFilterOptions options) {
+        return new RedissonCuckooFilter<>(codec, this.connectionManager.getCommandExecutor(), name, capacity, fpp, options);
+    }
+
 }
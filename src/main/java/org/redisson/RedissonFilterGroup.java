@@ -0,0 +1,137 @@
+package org.redisson;
+
+import org.redisson.api.RFilterGroup;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Group of {@link RedissonCountingBloomFilter} objects checked in one pipeline.
+ * <p>
+ * Hash of element doesn't depend on filter config, so element is encoded and hashed once
+ * and counter offsets are derived per filter from its size and hash iterations.
+ * Batch sends commands of each Redis node in parallel. Filter which is not initialized
+ * or has been deleted is reported as not containing element.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public class RedissonFilterGroup<T> implements RFilterGroup<T> {
+
+    private final CommandExecutor commandExecutor;
+    private final List<RedissonCountingBloomFilter<T>> filters;
+    private final List<String> names;
+
+    public RedissonFilterGroup(CommandExecutor commandExecutor, int repeat, String... names) {
+        this(null, commandExecutor, repeat, names);
+    }
+
+    public RedissonFilterGroup(Codec codec, CommandExecutor commandExecutor, int repeat, String... names) {
+        if (names.length == 0) {
+            throw new IllegalArgumentException("names can't be empty");
+        }
+        this.commandExecutor = commandExecutor;
+        this.filters = new ArrayList<>(names.length);
+        List<String> list = new ArrayList<>(names.length);
+        for (String name : names) {
+            if (codec == null) {
+                filters.add(new RedissonCountingBloomFilter<>(commandExecutor, name, repeat));
+            } else {
+                filters.add(new RedissonCountingBloomFilter<>(codec, commandExecutor, name, repeat));
+            }
+            list.add(name);
+        }
+        this.names = Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Reads configs of filters in one pipeline.
+     *
+     * @param all - <code>true</code> to read configs of all filters, otherwise of filters without cached config
+     * @return initialized filters
+     */
+    private BitSet readConfigs(boolean all) {
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        List<RFuture<Map<String, String>>> futures = new ArrayList<>(filters.size());
+        for (RedissonCountingBloomFilter<T> filter : filters) {
+            if (all || filter.getCachedSize() == 0) {
+                futures.add(filter.readConfigAsync(executorService));
+            } else {
+                futures.add(null);
+            }
+        }
+        executorService.execute();
+
+        BitSet initialized = new BitSet(filters.size());
+        for (int i = 0; i < filters.size(); i++) {
+            RFuture<Map<String, String>> future = futures.get(i);
+            if (future != null) {
+                Map<String, String> config = future.getNow();
+                if (config.get("size") == null || config.get("hashIterations") == null) {
+                    // 未初始化或已删除的过滤器不参与查询，下次调用重新读取配置
+                    filters.get(i).resetConfig();
+                    continue;
+                }
+                filters.get(i).readConfig(config);
+            }
+            initialized.set(i);
+        }
+        return initialized;
+    }
+
+    @Override
+    public BitSet contains(T object) {
+        List<long[]> hashes = Collections.singletonList(filters.get(0).hash(object));
+
+        BitSet initialized = readConfigs(false);
+        while (true) {
+            BitSet result = new BitSet(filters.size());
+            if (initialized.isEmpty()) {
+                return result;
+            }
+
+            CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+            List<RFuture<long[]>> futures = new ArrayList<>(filters.size());
+            for (int i = 0; i < filters.size(); i++) {
+                futures.add(initialized.get(i) ? filters.get(i).containsHashesAsync(executorService, hashes) : null);
+            }
+
+            try {
+                executorService.execute();
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                // 过滤器被重建或删除
+                initialized = readConfigs(true);
+                continue;
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                RFuture<long[]> future = futures.get(i);
+                if (future == null) {
+                    continue;
+                }
+                long[] bitmask = future.getNow();
+                if (bitmask.length > 0 && (bitmask[0] & 1) != 0) {
+                    result.set(i);
+                }
+            }
+            return result;
+        }
+    }
+
+}
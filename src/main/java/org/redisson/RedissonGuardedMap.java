@@ -0,0 +1,81 @@
+package org.redisson;
+
+import org.redisson.api.MapOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RGuardedMap;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.command.CommandAsyncExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map with loader guarded by {@link RedissonCountingBloomFilter}.
+ *
+ * @param <K> - map key
+ * @param <V> - map value
+ * @author linfeng
+ */
+public class RedissonGuardedMap<K, V> extends RedissonMap<K, V> implements RGuardedMap<K, V> {
+
+    private final MapGuard<K, V> guard;
+
+    public RedissonGuardedMap(Codec codec, CommandAsyncExecutor commandExecutor, String name, RedissonClient redisson,
+                              MapOptions<K, V> options, String filterName, int repeat) {
+        this(codec, commandExecutor, name, redisson, options,
+                new MapGuard<>(new RedissonCountingBloomFilter<K>(codec, commandExecutor, filterName, repeat), commandExecutor, options));
+    }
+
+    private RedissonGuardedMap(Codec codec, CommandAsyncExecutor commandExecutor, String name, RedissonClient redisson,
+                               MapOptions<K, V> options, MapGuard<K, V> guard) {
+        super(codec, commandExecutor, name, redisson, guard.options(options));
+        this.guard = guard;
+    }
+
+    @Override
+    public Map<K, V> getAll(Set<K> keys) {
+        if (!guard.hasLoader() || keys.isEmpty()) {
+            return super.getAll(keys);
+        }
+
+        List<K> list = new ArrayList<>(keys);
+        guard.probe(list);
+        try {
+            return super.getAll(keys);
+        } finally {
+            guard.release(list);
+        }
+    }
+
+    @Override
+    public RCountingBloomFilter<K> getFilter() {
+        return guard.filter;
+    }
+
+    @Override
+    public long warmUp() {
+        if (!guard.hasLoader()) {
+            throw new IllegalStateException("Map loader is not defined");
+        }
+        return guard.warmUp();
+    }
+
+    @Override
+    public long getLoads() {
+        return guard.loads.sum();
+    }
+
+    @Override
+    public long getAvoidedLoads() {
+        return guard.avoidedLoads.sum();
+    }
+
+    @Override
+    public long getFalsePositiveLoads() {
+        return guard.falsePositiveLoads.sum();
+    }
+
+}
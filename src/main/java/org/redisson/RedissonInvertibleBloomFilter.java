@@ -0,0 +1,287 @@
+package org.redisson;
+
+import org.redisson.api.InvertibleBloomTable;
+import org.redisson.api.RFuture;
+import org.redisson.api.RInvertibleBloomFilter;
+import org.redisson.api.SetDifference;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.IntegerCodec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.convertor.VoidReplayConvertor;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invertible Bloom Lookup Table stored in Redis string.
+ * <p>
+ * Cell <code>i</code> occupies 32-bit fields <code>#4i .. #4i+3</code> accessed by BITFIELD.
+ * Cells of element and its checksum are calculated by client with
+ * {@link InvertibleBloomTable}, so Lua script only toggles given cells.
+ *
+ * @author linfeng
+ */
+public class RedissonInvertibleBloomFilter extends RedissonExpirable implements RInvertibleBloomFilter {
+
+    private static final int DEFAULT_HASH_ITERATIONS = 3;
+    private static final int MAX_SIZE = 512 * 1024 * 1024 / InvertibleBloomTable.CELL_BYTES;
+    private static final int CHUNK_SIZE = 1000;
+
+    private volatile int size;
+    private volatile int hashIterations;
+
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+
+    protected RedissonInvertibleBloomFilter(CommandAsyncExecutor commandExecutor, String name) {
+        super(StringCodec.INSTANCE, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+    }
+
+    static int optimalNumOfCells(long expectedDifference, int hashIterations) {
+        // 差集较小时解码失败概率较高，需要更多冗余
+        double cells = expectedDifference < 200 ? expectedDifference * 2 + 30 : expectedDifference * 1.5;
+        return (int) Math.ceil(cells / hashIterations) * hashIterations;
+    }
+
+    @Override
+    public void add(long element) {
+        update(Collections.singletonList(element), 1);
+    }
+
+    @Override
+    public void addAll(Collection<Long> elements) {
+        update(elements, 1);
+    }
+
+    @Override
+    public void remove(long element) {
+        update(Collections.singletonList(element), -1);
+    }
+
+    @Override
+    public void removeAll(Collection<Long> elements) {
+        update(elements, -1);
+    }
+
+    private void update(Collection<Long> elements, int delta) {
+        List<Long> chunk = new ArrayList<>(Math.min(elements.size(), CHUNK_SIZE));
+        for (Long element : elements) {
+            chunk.add(element);
+            if (chunk.size() == CHUNK_SIZE) {
+                updateChunk(chunk, delta);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            updateChunk(chunk, delta);
+        }
+    }
+
+    private void updateChunk(List<Long> elements, int delta) {
+        List<long[]> hashes = new ArrayList<>(elements.size());
+        for (Long element : elements) {
+            hashes.add(InvertibleBloomTable.hash(element));
+        }
+
+        while (true) {
+            if (size == 0) {
+                readConfig();
+            }
+
+            int size = this.size;
+            int hashIterations = this.hashIterations;
+
+            List<Object> params = new ArrayList<>(3 + elements.size() * (3 + hashIterations));
+            params.add(size);
+            params.add(hashIterations);
+            params.add(delta);
+            for (int i = 0; i < elements.size(); i++) {
+                long element = elements.get(i);
+                long[] hash = hashes.get(i);
+                params.add((int) (element >>> 32));
+                params.add((int) element);
+                params.add(InvertibleBloomTable.checksum(hash));
+                for (int cell : InvertibleBloomTable.cells(hash, size, hashIterations)) {
+                    params.add(cell);
+                }
+            }
+
+            try {
+                commandExecutor.get(ScriptRegistry.evalWriteAsync(commandExecutor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_VOID,
+                        RedissonCountingBloomFilter.CONFIG_CHECK_SCRIPT +
+                                "local k = tonumber(ARGV[2]);" +
+                                "local delta = tonumber(ARGV[3]);" +
+                                "for i = 4, #ARGV, k + 3 do " +
+                                    "local high = tonumber(ARGV[i]);" +
+                                    "local low = tonumber(ARGV[i + 1]);" +
+                                    "local checksum = tonumber(ARGV[i + 2]);" +
+                                    "for j = i + 3, i + k + 2 do " +
+                                        "local base = tonumber(ARGV[j]) * 4;" +
+                                        "local cell = redis.call('bitfield', KEYS[1], " +
+                                                "'get', 'i32', '#' .. (base + 1), " +
+                                                "'get', 'i32', '#' .. (base + 2), " +
+                                                "'get', 'i32', '#' .. (base + 3));" +
+                                        "redis.call('bitfield', KEYS[1], 'overflow', 'wrap', " +
+                                                "'incrby', 'i32', '#' .. base, delta, " +
+                                                "'set', 'i32', '#' .. (base + 1), bit.bxor(cell[1], high), " +
+                                                "'set', 'i32', '#' .. (base + 2), bit.bxor(cell[2], low), " +
+                                                "'set', 'i32', '#' .. (base + 3), bit.bxor(cell[3], checksum));" +
+                                    "end;" +
+                                "end;",
+                        Arrays.asList(getName(), configName), params.toArray()));
+                return;
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    @Override
+    public InvertibleBloomTable export() {
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        RFuture<Map<String, String>> configFuture = executorService.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        RFuture<byte[]> cellsFuture = executorService.readAsync(getName(), ByteArrayCodec.INSTANCE,
+                RedisCommands.GET, getName());
+        executorService.execute();
+
+        readConfig(configFuture.getNow());
+        byte[] cells = cellsFuture.getNow();
+        return InvertibleBloomTable.fromCells(size, hashIterations, cells == null ? new byte[0] : cells);
+    }
+
+    @Override
+    public SetDifference difference(InvertibleBloomTable remote) {
+        return export().subtract(remote).decode();
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName);
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = Arrays.asList(getName(), configName);
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    private void readConfig() {
+        RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        Map<String, String> config = syncExecutor.get(future);
+
+        readConfig(config);
+    }
+
+    private void readConfig(Map<String, String> config) {
+        if (config.get("hashIterations") == null
+                || config.get("size") == null) {
+            throw new IllegalStateException("Invertible Bloom filter is not initialized!");
+        }
+        size = Integer.valueOf(config.get("size"));
+        hashIterations = Integer.valueOf(config.get("hashIterations"));
+    }
+
+    @Override
+    public boolean tryInit(long expectedDifference) {
+        if (expectedDifference <= 0) {
+            throw new IllegalArgumentException("Invertible Bloom filter expected difference should be greater than 0");
+        }
+
+        int hashIterations = DEFAULT_HASH_ITERATIONS;
+        long size = optimalNumOfCells(expectedDifference, hashIterations);
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Invertible Bloom filter size can't be greater than " + MAX_SIZE + ". But calculated size is " + size);
+        }
+
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        executorService.evalReadAsync(configName, codec, RedisCommands.EVAL_VOID,
+                "local size = redis.call('hget', KEYS[1], 'size');" +
+                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
+                        "assert(size == false and hashIterations == false, 'Bloom filter config has been changed')",
+                Arrays.asList(configName), size, hashIterations);
+        executorService.writeAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), configName,
+                "size", size, "hashIterations", hashIterations, "expectedDifference", expectedDifference);
+        try {
+            executorService.execute();
+        } catch (RedisException e) {
+            if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                throw e;
+            }
+            readConfig();
+            return false;
+        }
+
+        this.hashIterations = hashIterations;
+        this.size = (int) size;
+        return true;
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpire', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpireat', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpireat', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('persist', KEYS[1]); " +
+                        "return redis.call('persist', KEYS[2]); ",
+                Arrays.asList(getName(), configName));
+    }
+
+    @Override
+    public long getSize() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size");
+        return check(result);
+    }
+
+    @Override
+    public int getHashIterations() {
+        Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "hashIterations");
+        return check(result);
+    }
+
+    private <V> V check(V result) {
+        if (result == null) {
+            throw new IllegalStateException("Invertible Bloom filter is not initialized!");
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,252 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.redisson.api.RFuture;
+import org.redisson.api.RRangeFilter;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.IntegerCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandExecutor;
+import org.redisson.misc.Hash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * Range filter stored in {@link RedissonCountingBloomFilter} counters.
+ * <p>
+ * Value <code>v</code> of key is inserted as prefixes <code>v &gt;&gt;&gt; l</code> for each level <code>l</code>
+ * from <code>0</code> to <code>levels</code>. Range is split into at most two prefixes per level,
+ * which are checked by one Lua call. Levels are checked with filter config by each call,
+ * since prefixes depend on them.
+ *
+ * @param <K> - type of key
+ * @author linfeng
+ */
+public class RedissonRangeFilter<K> extends RedissonExpirable implements RRangeFilter<K> {
+
+    private static final int MAX_LEVELS = 63;
+
+    /**
+     * Takes expected levels from the last argument, so the rest of arguments is left for counters script.
+     */
+    private static final String LEVELS_CHECK_SCRIPT =
+            "local expectedLevels = table.remove(ARGV);" +
+            "assert(redis.call('hget', KEYS[2], 'levels') == expectedLevels, 'Bloom filter config has been changed');" +
+            RedissonCountingBloomFilter.COUNTER_CONFIG_CHECK_SCRIPT;
+
+    private static final String CONTAINS_SCRIPT =
+            ScriptRegistry.register(LEVELS_CHECK_SCRIPT + RedissonCountingBloomFilter.CONTAINS_HASHES_BODY_SCRIPT);
+
+    private static final String ADD_SCRIPT =
+            ScriptRegistry.register(LEVELS_CHECK_SCRIPT + RedissonCountingBloomFilter.ADD_HASHES_BODY_SCRIPT);
+
+    private static final String REMOVE_SCRIPT =
+            ScriptRegistry.register(LEVELS_CHECK_SCRIPT + RedissonCountingBloomFilter.REMOVE_HASHES_BODY_SCRIPT);
+
+    private final RedissonCountingBloomFilter<K> filter;
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+    private volatile int levels;
+
+    protected RedissonRangeFilter(CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(commandExecutor, name);
+        this.filter = new RedissonCountingBloomFilter<>(commandExecutor, name, repeat);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+    }
+
+    protected RedissonRangeFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(codec, commandExecutor, name);
+        this.filter = new RedissonCountingBloomFilter<>(codec, commandExecutor, name, repeat);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+    }
+
+    @Override
+    public boolean tryInit(long expectedInsertions, double falseProbability, int levels) {
+        if (levels <= 0 || levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Range filter levels should be in range [1, " + MAX_LEVELS + "]");
+        }
+
+        boolean result = filter.tryInit(expectedInsertions * (levels + 1), falseProbability);
+        syncExecutor.write(configName, StringCodec.INSTANCE, RedisCommands.HSETNX, configName, "levels", levels);
+        this.levels = 0;
+        return result;
+    }
+
+    private int levels() {
+        if (levels == 0) {
+            Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "levels");
+            if (result == null) {
+                throw new IllegalStateException("Range filter is not initialized!");
+            }
+            levels = result;
+        }
+        return levels;
+    }
+
+    private static void checkValue(long value, int levels) {
+        if (value < 0 || (levels < MAX_LEVELS && value >>> levels != 0)) {
+            throw new IllegalArgumentException("Value should be in range [0, 2^" + levels + ")");
+        }
+    }
+
+    private static long[] hash(long[] keyHash, int level, long prefix) {
+        ByteBuf state = Unpooled.buffer(2 * Long.BYTES + Integer.BYTES + Long.BYTES);
+        state.writeLong(keyHash[0]).writeLong(keyHash[1]).writeInt(level).writeLong(prefix);
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    private static List<long[]> prefixes(long[] keyHash, long value, int levels) {
+        checkValue(value, levels);
+        List<long[]> hashes = new ArrayList<>(levels + 1);
+        for (int level = 0; level <= levels; level++) {
+            hashes.add(hash(keyHash, level, value >>> level));
+        }
+        return hashes;
+    }
+
+    /**
+     * Splits range into minimal set of dyadic prefixes.
+     */
+    private static List<long[]> cover(long[] keyHash, long from, long to, int levels) {
+        List<long[]> hashes = new ArrayList<>(2 * (levels + 1));
+        long low = from;
+        long high = to;
+        for (int level = 0; level <= levels && low <= high; level++) {
+            if ((low & 1) == 1) {
+                hashes.add(hash(keyHash, level, low));
+                low++;
+            }
+            if (low <= high && (high & 1) == 0) {
+                hashes.add(hash(keyHash, level, high));
+                high--;
+            }
+            if (low > high) {
+                break;
+            }
+            low >>>= 1;
+            high >>>= 1;
+        }
+        return hashes;
+    }
+
+    /**
+     * Computes prefix hashes for current levels and executes operation with them.
+     * On config change levels are read again and hashes are computed for new levels.
+     */
+    private long[] execute(BiFunction<List<long[]>, Integer, RFuture<long[]>> operation, IntFunction<List<long[]>> hashes) {
+        while (true) {
+            int levels = levels();
+            try {
+                return commandExecutor.get(operation.apply(hashes.apply(levels), levels));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                filter.readConfig();
+                this.levels = 0;
+            }
+        }
+    }
+
+    private static boolean first(long[] bitmask) {
+        return bitmask.length > 0 && (bitmask[0] & 1) != 0;
+    }
+
+    @Override
+    public boolean add(K key, long value) {
+        long[] keyHash = filter.hash(key);
+        return first(execute((h, levels) -> filter.addHashesAsync(commandExecutor, h, ADD_SCRIPT, levels),
+                levels -> prefixes(keyHash, value, levels)));
+    }
+
+    @Override
+    public boolean remove(K key, long value) {
+        long[] keyHash = filter.hash(key);
+        return first(execute((h, levels) -> filter.removeHashesAsync(commandExecutor, h, REMOVE_SCRIPT, levels),
+                levels -> prefixes(keyHash, value, levels)));
+    }
+
+    @Override
+    public boolean contains(K key, long value) {
+        long[] keyHash = filter.hash(key);
+        return first(execute((h, levels) -> filter.containsHashesAsync(commandExecutor, h, CONTAINS_SCRIPT, levels),
+                levels -> {
+                    checkValue(value, levels);
+                    List<long[]> hashes = new ArrayList<>(1);
+                    hashes.add(hash(keyHash, 0, value));
+                    return hashes;
+                }));
+    }
+
+    @Override
+    public boolean containsRange(K key, long from, long to) {
+        int levels = levels();
+        checkValue(from, levels);
+        checkValue(to, levels);
+        if (from > to) {
+            return false;
+        }
+
+        long[] keyHash = filter.hash(key);
+        long[] bitmask = execute((h, l) -> filter.containsHashesAsync(commandExecutor, h, CONTAINS_SCRIPT, l),
+                l -> {
+                    checkValue(from, l);
+                    checkValue(to, l);
+                    return cover(keyHash, from, to, l);
+                });
+        for (long word : bitmask) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getLevels() {
+        return levels();
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return filter.deleteAsync();
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        return filter.sizeInMemoryAsync();
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return filter.expireAsync(timeToLive, timeUnit);
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return filter.expireAtAsync(timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return filter.clearExpireAsync();
+    }
+
+}
@@ -0,0 +1,328 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.api.RFuture;
+import org.redisson.api.RSketchRateLimiter;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.convertor.VoidReplayConvertor;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+import org.redisson.misc.Hash;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding window rate limiter which counts permits in counting Bloom filter cells.
+ * <p>
+ * Each window generation is stored in its own bitset with the same counter layout and hashing
+ * as {@link RedissonCountingBloomFilter}. Two generations are kept and rotated by parity.
+ * Permits of key are estimated as min of its counters in current generation plus
+ * weighted min of its counters in previous generation. Counters are updated conservatively:
+ * only counters lower than new estimate are raised.
+ *
+ * @param <K> - type of key
+ * @author linfeng
+ */
+public class RedissonSketchRateLimiter<K> extends RedissonExpirable implements RSketchRateLimiter<K> {
+
+    /**
+     * Reads estimate of key into <code>estimate</code>, <code>cur</code> and <code>curMin</code> variables.
+     */
+    private static final String ESTIMATE_SCRIPT =
+            RedissonCountingBloomFilter.CONFIG_CHECK_SCRIPT +
+            "local type = 'u' .. ARGV[3];" +
+            "local generation = tonumber(ARGV[6]);" +
+            "local curField = 'generation' .. (generation % 2);" +
+            "local prevField = 'generation' .. ((generation + 1) % 2);" +
+            "local ops = {};" +
+            "for i = 9, #ARGV do " +
+                "table.insert(ops, 'get');" +
+                "table.insert(ops, type);" +
+                "table.insert(ops, ARGV[i]);" +
+            "end;" +
+            "local function min(values) " +
+                "local result = values[1];" +
+                "for _, value in ipairs(values) do " +
+                    "result = math.min(result, value);" +
+                "end;" +
+                "return result;" +
+            "end;" +
+            "local curValid = redis.call('hget', KEYS[2], curField) == ARGV[6];" +
+            "local cur = {};" +
+            "local curMin = 0;" +
+            "if curValid then " +
+                "cur = redis.call('bitfield', KEYS[1], unpack(ops));" +
+                "curMin = min(cur);" +
+            "end;" +
+            "local prevMin = 0;" +
+            "if redis.call('hget', KEYS[2], prevField) == tostring(generation - 1) then " +
+                "prevMin = min(redis.call('bitfield', KEYS[3], unpack(ops)));" +
+            "end;" +
+            "local estimate = curMin + math.floor(prevMin * tonumber(ARGV[7]));";
+
+    private volatile long size;
+    private volatile int hashIterations;
+    private volatile int maxBinaryBit;
+    private volatile long rate;
+    private volatile long interval;
+
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+    private final String[] windowNames;
+
+    protected RedissonSketchRateLimiter(CommandAsyncExecutor commandExecutor, String name) {
+        super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        this.windowNames = new String[] {suffixName(getName(), "window:0"), suffixName(getName(), "window:1")};
+    }
+
+    protected RedissonSketchRateLimiter(Codec codec, CommandAsyncExecutor commandExecutor, String name) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        this.windowNames = new String[] {suffixName(getName(), "window:0"), suffixName(getName(), "window:1")};
+    }
+
+    private long[] hash(Object object) {
+        ByteBuf state = encode(object);
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    @Override
+    public boolean trySetRate(long rate, long interval, TimeUnit unit, long expectedKeys, double falseProbability) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate should be greater than 0");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval should be greater than 0");
+        }
+        if (falseProbability > 1) {
+            throw new IllegalArgumentException("Sketch rate limiter false probability can't be greater than 1");
+        }
+        if (falseProbability < 0) {
+            throw new IllegalArgumentException("Sketch rate limiter false probability can't be negative");
+        }
+
+        long size = RedissonCountingBloomFilter.optimalNumOfBits(expectedKeys, falseProbability);
+        if (size == 0) {
+            throw new IllegalArgumentException("Sketch rate limiter calculated size is " + size);
+        }
+        int maxBinaryBit = Long.toBinaryString(rate).length();
+        if (size * maxBinaryBit > getMaxSize()) {
+            throw new IllegalArgumentException("Sketch rate limiter size can't be greater than " + getMaxSize() + ". But calculated size is " + size);
+        }
+        int hashIterations = RedissonCountingBloomFilter.optimalNumOfHashFunctions(expectedKeys, size);
+
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        executorService.evalReadAsync(configName, codec, RedisCommands.EVAL_VOID,
+                "local size = redis.call('hget', KEYS[1], 'size');" +
+                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
+                        "assert(size == false and hashIterations == false, 'Bloom filter config has been changed')",
+                Arrays.asList(configName), size, hashIterations);
+        executorService.writeAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), configName,
+                "size", size, "hashIterations", hashIterations, "rate", rate, "interval", unit.toMillis(interval),
+                "expectedKeys", expectedKeys, "falseProbability", BigDecimal.valueOf(falseProbability).toPlainString());
+        try {
+            executorService.execute();
+        } catch (RedisException e) {
+            if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                throw e;
+            }
+            readConfig();
+            return false;
+        }
+
+        this.rate = rate;
+        this.interval = unit.toMillis(interval);
+        this.maxBinaryBit = maxBinaryBit;
+        this.hashIterations = hashIterations;
+        this.size = size;
+        return true;
+    }
+
+    protected long getMaxSize() {
+        return Integer.MAX_VALUE * 2L;
+    }
+
+    private List<Object> params(long[] hashes, long permits) {
+        long size = this.size;
+        int hashIterations = this.hashIterations;
+        int maxCount = this.maxBinaryBit;
+        long interval = this.interval;
+
+        long now = System.currentTimeMillis();
+        long generation = now / interval;
+        double previousWeight = 1 - (double) (now % interval) / interval;
+
+        long[] indexes = RedissonCountingBloomFilter.hash(hashes[0], hashes[1], hashIterations, size, maxCount);
+        List<Object> params = new ArrayList<>(indexes.length + 8);
+        params.add(size);
+        params.add(hashIterations);
+        params.add(maxCount);
+        params.add(rate);
+        params.add(permits);
+        params.add(generation);
+        params.add(BigDecimal.valueOf(previousWeight).toPlainString());
+        params.add(interval * 2);
+        for (long index : indexes) {
+            params.add(index);
+        }
+        return params;
+    }
+
+    private List<Object> keys(List<Object> params) {
+        long generation = (Long) params.get(5);
+        return Arrays.<Object>asList(windowNames[(int) (generation % 2)], configName, windowNames[(int) ((generation + 1) % 2)]);
+    }
+
+    @Override
+    public boolean tryAcquire(K key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public boolean tryAcquire(K key, long permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits should be greater than 0");
+        }
+        long[] hashes = hash(key);
+
+        while (true) {
+            if (size == 0) {
+                readConfig();
+            }
+
+            List<Object> params = params(hashes, permits);
+            try {
+                return commandExecutor.get(ScriptRegistry.evalWriteAsync(commandExecutor, configName, StringCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                        ESTIMATE_SCRIPT +
+                                "local permits = tonumber(ARGV[5]);" +
+                                "if estimate + permits > tonumber(ARGV[4]) then " +
+                                    "return 0;" +
+                                "end;" +
+                                "if not curValid then " +
+                                    "redis.call('del', KEYS[1]);" +
+                                    "redis.call('hset', KEYS[2], curField, ARGV[6]);" +
+                                "end;" +
+                                "local target = curMin + permits;" +
+                                "local updates = {};" +
+                                "for i = 9, #ARGV do " +
+                                    "if (cur[i - 8] or 0) < target then " +
+                                        "table.insert(updates, 'set');" +
+                                        "table.insert(updates, type);" +
+                                        "table.insert(updates, ARGV[i]);" +
+                                        "table.insert(updates, target);" +
+                                    "end;" +
+                                "end;" +
+                                "if #updates > 0 then " +
+                                    "redis.call('bitfield', KEYS[1], unpack(updates));" +
+                                "end;" +
+                                "redis.call('pexpire', KEYS[1], ARGV[8]);" +
+                                "return 1;",
+                        keys(params), params.toArray()));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    @Override
+    public long availablePermits(K key) {
+        long[] hashes = hash(key);
+
+        while (true) {
+            if (size == 0) {
+                readConfig();
+            }
+
+            List<Object> params = params(hashes, 0);
+            try {
+                Long estimate = commandExecutor.get(ScriptRegistry.evalReadAsync(commandExecutor, configName, LongCodec.INSTANCE, RedisCommands.EVAL_LONG,
+                        ESTIMATE_SCRIPT +
+                                "return estimate;",
+                        keys(params), params.toArray()));
+                return Math.max(0, rate - estimate);
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    private void readConfig() {
+        RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        Map<String, String> config = syncExecutor.get(future);
+
+        if (config.get("hashIterations") == null
+                || config.get("size") == null) {
+            throw new IllegalStateException("Sketch rate limiter is not initialized!");
+        }
+        rate = Long.valueOf(config.get("rate"));
+        interval = Long.valueOf(config.get("interval"));
+        maxBinaryBit = Long.toBinaryString(rate).length();
+        hashIterations = Integer.valueOf(config.get("hashIterations"));
+        size = Long.valueOf(config.get("size"));
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return commandExecutor.writeAsync(configName, RedisCommands.DEL_OBJECTS, configName, windowNames[0], windowNames[1]);
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = Arrays.<Object>asList(configName, windowNames[0], windowNames[1]);
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, configName, LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "return redis.call('pexpire', KEYS[1], ARGV[1]); ",
+                Arrays.<Object>asList(configName),
+                timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, configName, LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "return redis.call('pexpireat', KEYS[1], ARGV[1]); ",
+                Arrays.<Object>asList(configName),
+                timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, configName, LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "return redis.call('persist', KEYS[1]); ",
+                Arrays.<Object>asList(configName));
+    }
+
+}
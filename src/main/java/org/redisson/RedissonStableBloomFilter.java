@@ -0,0 +1,347 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.api.RFuture;
+import org.redisson.api.RStableBloomFilter;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.DoubleCodec;
+import org.redisson.client.codec.IntegerCodec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.convertor.VoidReplayConvertor;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+import org.redisson.misc.Hash;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stable Bloom filter stored in the same counter layout as {@link RedissonCountingBloomFilter}
+ * and using the same hashing.
+ * <p>
+ * Insertion decrements <code>decrementCells</code> consecutive counters starting from random position
+ * chosen by client, because Lua random generator is reseeded with the same value on each script call.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public class RedissonStableBloomFilter<T> extends RedissonExpirable implements RStableBloomFilter<T> {
+
+    private static final int DEFAULT_MAX_REPEAT = 1;
+
+    private volatile long size;
+    private volatile int hashIterations;
+    private volatile int decrementCells;
+    // 计数器最大值
+    private volatile int maxRepeat;
+    private volatile int maxBinaryBit;
+
+    private final CommandAsyncExecutor commandExecutor;
+    private final CommandExecutor syncExecutor;
+    private final String configName;
+
+    protected RedissonStableBloomFilter(CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        setMaxRepeat(repeat);
+    }
+
+    protected RedissonStableBloomFilter(Codec codec, CommandAsyncExecutor commandExecutor, String name, int repeat) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.syncExecutor = commandExecutor.getConnectionManager().getCommandExecutor();
+        this.configName = suffixName(getName(), "config");
+        setMaxRepeat(repeat);
+    }
+
+    private void setMaxRepeat(int repeat) {
+        this.maxRepeat = repeat > 0 ? repeat : DEFAULT_MAX_REPEAT;
+        this.maxBinaryBit = Integer.toBinaryString(maxRepeat).length();
+    }
+
+    static int optimalNumOfHashFunctions(double p) {
+        return Math.max(1, (int) Math.ceil(Math.log(1 / p) / Math.log(2)));
+    }
+
+    /**
+     * Calculates amount of counters decremented per insertion which keeps
+     * false probability at <code>p</code> once filter is stable.
+     */
+    static int optimalDecrementCells(long size, int hashIterations, int maxRepeat, double p) {
+        double zeros = Math.pow(1 - Math.pow(p, 1.0 / hashIterations), 1.0 / maxRepeat);
+        double cells = 1 / ((1 / zeros - 1) * (1.0 / hashIterations - 1.0 / size));
+        return (int) Math.max(1, Math.min(size, Math.round(cells)));
+    }
+
+    private long[] hash(Object object) {
+        ByteBuf state = encode(object);
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    private List<Object> params(long[] hashes) {
+        int hashIterations = this.hashIterations;
+        long size = this.size;
+        int maxCount = this.maxBinaryBit;
+
+        long[] indexes = RedissonCountingBloomFilter.hash(hashes[0], hashes[1], hashIterations, size, maxCount);
+
+        List<Object> params = new ArrayList<>(indexes.length + 6);
+        params.add(size);
+        params.add(hashIterations);
+        params.add(maxCount);
+        params.add(maxRepeat);
+        params.add(decrementCells);
+        params.add(ThreadLocalRandom.current().nextLong(size));
+        for (long index : indexes) {
+            params.add(index);
+        }
+        return params;
+    }
+
+    @Override
+    public boolean add(T object) {
+        long[] hashes = hash(object);
+
+        while (true) {
+            if (size == 0) {
+                readConfig();
+            }
+
+            List<Object> params = params(hashes);
+            try {
+                return commandExecutor.get(ScriptRegistry.evalWriteAsync(commandExecutor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                        RedissonCountingBloomFilter.CONFIG_CHECK_SCRIPT +
+                                "local type = 'u' .. ARGV[3];" +
+                                "local cellCount = tonumber(ARGV[1]);" +
+                                "local bits = tonumber(ARGV[3]);" +
+                                "local cells = tonumber(ARGV[5]);" +
+                                "local start = tonumber(ARGV[6]);" +
+                                "local ops = {};" +
+                                "for i = 7, #ARGV do " +
+                                    "table.insert(ops, 'get');" +
+                                    "table.insert(ops, type);" +
+                                    "table.insert(ops, ARGV[i]);" +
+                                "end;" +
+                                "local added = 0;" +
+                                "for _, value in ipairs(redis.call('bitfield', KEYS[1], unpack(ops))) do " +
+                                    "if value == 0 then " +
+                                        "added = 1;" +
+                                        "break;" +
+                                    "end;" +
+                                "end;" +
+                                "ops = {'overflow', 'sat'};" +
+                                "for i = 0, cells - 1 do " +
+                                    "table.insert(ops, 'incrby');" +
+                                    "table.insert(ops, type);" +
+                                    "table.insert(ops, ((start + i) % cellCount) * bits);" +
+                                    "table.insert(ops, -1);" +
+                                "end;" +
+                                "for i = 7, #ARGV do " +
+                                    "table.insert(ops, 'set');" +
+                                    "table.insert(ops, type);" +
+                                    "table.insert(ops, ARGV[i]);" +
+                                    "table.insert(ops, ARGV[4]);" +
+                                "end;" +
+                                "redis.call('bitfield', KEYS[1], unpack(ops));" +
+                                "return added;",
+                        Arrays.asList(getName(), configName), params.toArray()));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(T object) {
+        long[] hashes = hash(object);
+
+        while (true) {
+            if (size == 0) {
+                readConfig();
+            }
+
+            List<Object> params = params(hashes);
+            try {
+                return commandExecutor.get(ScriptRegistry.evalReadAsync(commandExecutor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                        RedissonCountingBloomFilter.CONFIG_CHECK_SCRIPT +
+                                "local type = 'u' .. ARGV[3];" +
+                                "local ops = {};" +
+                                "for i = 7, #ARGV do " +
+                                    "table.insert(ops, 'get');" +
+                                    "table.insert(ops, type);" +
+                                    "table.insert(ops, ARGV[i]);" +
+                                "end;" +
+                                "for _, value in ipairs(redis.call('bitfield', KEYS[1], unpack(ops))) do " +
+                                    "if value == 0 then " +
+                                        "return 0;" +
+                                    "end;" +
+                                "end;" +
+                                "return 1;",
+                        Arrays.asList(getName(), configName), params.toArray()));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName);
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = Arrays.asList(getName(), configName);
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    private void readConfig() {
+        RFuture<Map<String, String>> future = syncExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        Map<String, String> config = syncExecutor.get(future);
+
+        readConfig(config);
+    }
+
+    private void readConfig(Map<String, String> config) {
+        if (config.get("hashIterations") == null
+                || config.get("size") == null
+                || config.get("decrementCells") == null
+                || config.get("maxRepeat") == null) {
+            throw new IllegalStateException("Stable Bloom filter is not initialized!");
+        }
+        setMaxRepeat(Integer.valueOf(config.get("maxRepeat")));
+        decrementCells = Integer.valueOf(config.get("decrementCells"));
+        hashIterations = Integer.valueOf(config.get("hashIterations"));
+        size = Long.valueOf(config.get("size"));
+    }
+
+    protected long getMaxSize() {
+        return Integer.MAX_VALUE * 2L;
+    }
+
+    @Override
+    public boolean tryInit(long size, double falseProbability) {
+        if (falseProbability >= 1) {
+            throw new IllegalArgumentException("Stable Bloom filter false probability should be less than 1");
+        }
+        if (falseProbability <= 0) {
+            throw new IllegalArgumentException("Stable Bloom filter false probability should be greater than 0");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Stable Bloom filter size should be greater than 0");
+        }
+        if (size * maxBinaryBit > getMaxSize()) {
+            throw new IllegalArgumentException("Stable Bloom filter size can't be greater than " + getMaxSize() / maxBinaryBit);
+        }
+
+        int hashIterations = optimalNumOfHashFunctions(falseProbability);
+        int decrementCells = optimalDecrementCells(size, hashIterations, maxRepeat, falseProbability);
+
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        executorService.evalReadAsync(configName, codec, RedisCommands.EVAL_VOID,
+                "local size = redis.call('hget', KEYS[1], 'size');" +
+                        "local hashIterations = redis.call('hget', KEYS[1], 'hashIterations');" +
+                        "assert(size == false and hashIterations == false, 'Bloom filter config has been changed')",
+                Arrays.asList(configName), size, hashIterations);
+        executorService.writeAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Void>("HMSET", new VoidReplayConvertor()), configName,
+                "size", size, "hashIterations", hashIterations, "decrementCells", decrementCells,
+                "maxRepeat", maxRepeat, "falseProbability", BigDecimal.valueOf(falseProbability).toPlainString());
+        try {
+            executorService.execute();
+        } catch (RedisException e) {
+            if (!e.getMessage().contains("Bloom filter config has been changed")) {
+                throw e;
+            }
+            readConfig();
+            return false;
+        }
+
+        this.decrementCells = decrementCells;
+        this.hashIterations = hashIterations;
+        this.size = size;
+        return true;
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpire', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpireat', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpireat', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('persist', KEYS[1]); " +
+                        "return redis.call('persist', KEYS[2]); ",
+                Arrays.asList(getName(), configName));
+    }
+
+    @Override
+    public double getFalseProbability() {
+        Double result = syncExecutor.read(configName, DoubleCodec.INSTANCE, RedisCommands.HGET, configName, "falseProbability");
+        return check(result);
+    }
+
+    @Override
+    public long getSize() {
+        Long result = syncExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "size");
+        return check(result);
+    }
+
+    @Override
+    public int getHashIterations() {
+        Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "hashIterations");
+        return check(result);
+    }
+
+    @Override
+    public int getDecrementCells() {
+        Integer result = syncExecutor.read(configName, IntegerCodec.INSTANCE, RedisCommands.HGET, configName, "decrementCells");
+        return check(result);
+    }
+
+    private <V> V check(V result) {
+        if (result == null) {
+            throw new IllegalStateException("Stable Bloom filter is not initialized!");
+        }
+        return result;
+    }
+
+}
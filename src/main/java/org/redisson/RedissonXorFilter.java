@@ -0,0 +1,372 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.api.RFuture;
+import org.redisson.api.RXorFilter;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.client.protocol.decoder.ObjectMapReplayDecoder;
+import org.redisson.command.CommandBatchService;
+import org.redisson.command.CommandExecutor;
+import org.redisson.misc.Hash;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Immutable Xor filter based on Highway 128-bit hash.
+ * <p>
+ * Filter is built locally by peeling the 3-partite hypergraph of the elements
+ * and uploaded as packed fingerprint array. Each lookup reads exactly three
+ * fingerprints in one Lua call.
+ *
+ * @param <T> type of object
+ * @author linfeng
+ */
+public class RedissonXorFilter<T> extends RedissonExpirable implements RXorFilter<T> {
+
+    private static final int HASHES = 3;
+    private static final int MAX_BUILD_ATTEMPTS = 100;
+    private static final int UPLOAD_CHUNK_SIZE = 1024 * 1024;
+
+    private volatile long seed;
+    private volatile int blockLength;
+    private volatile int fingerprintBits;
+
+    private final CommandExecutor commandExecutor;
+    private final String configName;
+
+    protected RedissonXorFilter(CommandExecutor commandExecutor, String name) {
+        super(commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.configName = suffixName(getName(), "config");
+    }
+
+    protected RedissonXorFilter(Codec codec, CommandExecutor commandExecutor, String name) {
+        super(codec, commandExecutor, name);
+        this.commandExecutor = commandExecutor;
+        this.configName = suffixName(getName(), "config");
+    }
+
+    private long hash(Object object) {
+        ByteBuf state = encode(object);
+        try {
+            return Hash.hash128(state)[0];
+        } finally {
+            state.release();
+        }
+    }
+
+    private static long hash64(long hash, long seed) {
+        long h = hash + seed;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static int reduce(int hash, int n) {
+        return (int) (((hash & 0xffffffffL) * n) >>> 32);
+    }
+
+    private static int index(long hash, int i, int blockLength) {
+        long r = Long.rotateLeft(hash, i * 21);
+        return reduce((int) r, blockLength) + i * blockLength;
+    }
+
+    private static int fingerprint(long hash, int fingerprintBits) {
+        return (int) (hash ^ (hash >>> 32)) & ((1 << fingerprintBits) - 1);
+    }
+
+    @Override
+    public long build(Stream<? extends T> elements, int fingerprintBits) {
+        if (fingerprintBits != 8 && fingerprintBits != 16) {
+            throw new IllegalArgumentException("Xor filter fingerprint size should be 8 or 16 bits but was " + fingerprintBits);
+        }
+
+        long[] keys = elements.parallel().mapToLong(this::hash).toArray();
+        Arrays.parallelSort(keys);
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[size++] = keys[i];
+            }
+        }
+
+        int blockLength = (32 + (int) Math.ceil(1.23 * size)) / HASHES + 1;
+        int arrayLength = blockLength * HASHES;
+        if ((long) arrayLength * fingerprintBits > getMaxSize()) {
+            throw new IllegalArgumentException("Xor filter size can't be greater than " + getMaxSize() + ". But calculated size is " + (long) arrayLength * fingerprintBits);
+        }
+
+        long[] reverseOrder = new long[size];
+        byte[] reverseIndex = new byte[size];
+        long seed = 0;
+        int attempt = 0;
+        while (true) {
+            if (attempt++ == MAX_BUILD_ATTEMPTS) {
+                throw new IllegalStateException("Xor filter can't be built. Elements contain too many hash collisions");
+            }
+            seed = ThreadLocalRandom.current().nextLong();
+            if (peel(keys, size, seed, blockLength, reverseOrder, reverseIndex)) {
+                break;
+            }
+        }
+
+        int width = fingerprintBits / 8;
+        int[] fingerprints = new int[arrayLength];
+        for (int i = size - 1; i >= 0; i--) {
+            long hash = reverseOrder[i];
+            int found = reverseIndex[i];
+            int change = -1;
+            int xor = fingerprint(hash, fingerprintBits);
+            for (int hi = 0; hi < HASHES; hi++) {
+                int h = index(hash, hi, blockLength);
+                if (found == hi) {
+                    change = h;
+                } else {
+                    xor ^= fingerprints[h];
+                }
+            }
+            fingerprints[change] = xor;
+        }
+
+        byte[] data = new byte[arrayLength * width];
+        for (int i = 0; i < arrayLength; i++) {
+            if (width == 2) {
+                data[i * 2] = (byte) (fingerprints[i] >>> 8);
+                data[i * 2 + 1] = (byte) fingerprints[i];
+            } else {
+                data[i] = (byte) fingerprints[i];
+            }
+        }
+
+        upload(data, seed, blockLength, fingerprintBits, size);
+        return size;
+    }
+
+    static boolean peel(long[] keys, int size, long seed, int blockLength, long[] reverseOrder, byte[] reverseIndex) {
+        int arrayLength = blockLength * HASHES;
+        long[] sets = new long[arrayLength];
+        int[] counts = new int[arrayLength];
+        for (int i = 0; i < size; i++) {
+            long hash = hash64(keys[i], seed);
+            for (int hi = 0; hi < HASHES; hi++) {
+                int h = index(hash, hi, blockLength);
+                sets[h] ^= hash;
+                counts[h]++;
+            }
+        }
+
+        int[] alone = new int[arrayLength];
+        int alonePos = 0;
+        for (int i = 0; i < arrayLength; i++) {
+            if (counts[i] == 1) {
+                alone[alonePos++] = i;
+            }
+        }
+
+        int reversePos = 0;
+        while (alonePos > 0) {
+            int i = alone[--alonePos];
+            if (counts[i] != 1) {
+                continue;
+            }
+            long hash = sets[i];
+            for (int hi = 0; hi < HASHES; hi++) {
+                int h = index(hash, hi, blockLength);
+                if (h == i) {
+                    reverseIndex[reversePos] = (byte) hi;
+                }
+                sets[h] ^= hash;
+                counts[h]--;
+                if (counts[h] == 1) {
+                    alone[alonePos++] = h;
+                }
+            }
+            reverseOrder[reversePos++] = hash;
+        }
+        return reversePos == size;
+    }
+
+    /**
+     * Uploads fingerprints into temporary key unique for this build and renames it to filter name,
+     * so concurrent builds never write the same key and one of complete arrays wins.
+     */
+    private void upload(byte[] data, long seed, int blockLength, int fingerprintBits, long count) {
+        String buildName = suffixName(getName(), "build:" + UUID.randomUUID());
+        CommandBatchService executorService = new CommandBatchService(commandExecutor.getConnectionManager());
+        for (int offset = 0; offset < data.length; offset += UPLOAD_CHUNK_SIZE) {
+            byte[] chunk = Arrays.copyOfRange(data, offset, Math.min(data.length, offset + UPLOAD_CHUNK_SIZE));
+            executorService.writeAsync(buildName, ByteArrayCodec.INSTANCE, new RedisCommand<Long>("SETRANGE"), buildName, offset, chunk);
+        }
+        executorService.evalWriteAsync(getName(), StringCodec.INSTANCE, RedisCommands.EVAL_VOID,
+                "redis.call('rename', KEYS[3], KEYS[1]);" +
+                        "redis.call('del', KEYS[2]);" +
+                        "redis.call('hmset', KEYS[2], 'seed', ARGV[1], 'blockLength', ARGV[2], " +
+                        "'fingerprintBits', ARGV[3], 'count', ARGV[4]);",
+                Arrays.asList(getName(), configName, buildName),
+                seed, blockLength, fingerprintBits, count);
+        try {
+            executorService.execute();
+        } catch (RuntimeException e) {
+            // 上传失败时删除未完成的临时数组
+            try {
+                commandExecutor.get(commandExecutor.writeAsync(buildName, RedisCommands.DEL_OBJECTS, buildName));
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+
+        this.seed = seed;
+        this.blockLength = blockLength;
+        this.fingerprintBits = fingerprintBits;
+    }
+
+    @Override
+    public boolean contains(T object) {
+        long hash = hash(object);
+
+        while (true) {
+            if (blockLength == 0) {
+                readConfig();
+            }
+
+            long seed = this.seed;
+            int blockLength = this.blockLength;
+            int fingerprintBits = this.fingerprintBits;
+
+            long h = hash64(hash, seed);
+            try {
+                return commandExecutor.get(ScriptRegistry.evalReadAsync(commandExecutor, getName(), StringCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                        "local seed = redis.call('hget', KEYS[2], 'seed');" +
+                                "local blockLength = redis.call('hget', KEYS[2], 'blockLength');" +
+                                "assert(seed == ARGV[1] and blockLength == ARGV[2], 'Xor filter config has been changed');" +
+                                "local width = tonumber(ARGV[3]);" +
+                                "local fingerprint = 0;" +
+                                "for i = 5, 7 do " +
+                                    "local offset = tonumber(ARGV[i]) * width;" +
+                                    "local value = redis.call('getrange', KEYS[1], offset, offset + width - 1);" +
+                                    "local v = 0;" +
+                                    "for j = 1, #value do " +
+                                        "v = v * 256 + string.byte(value, j);" +
+                                    "end;" +
+                                    "fingerprint = bit.bxor(fingerprint, v);" +
+                                "end;" +
+                                "if fingerprint == tonumber(ARGV[4]) then " +
+                                    "return 1;" +
+                                "end;" +
+                                "return 0;",
+                        Arrays.asList(getName(), configName),
+                        seed, blockLength, fingerprintBits / 8, fingerprint(h, fingerprintBits),
+                        index(h, 0, blockLength), index(h, 1, blockLength), index(h, 2, blockLength)));
+            } catch (RedisException e) {
+                if (!e.getMessage().contains("Xor filter config has been changed")) {
+                    throw e;
+                }
+                readConfig();
+            }
+        }
+    }
+
+    private void readConfig() {
+        RFuture<Map<String, String>> future = commandExecutor.readAsync(configName, StringCodec.INSTANCE,
+                new RedisCommand<Map<Object, Object>>("HGETALL", new ObjectMapReplayDecoder()), configName);
+        Map<String, String> config = commandExecutor.get(future);
+
+        if (config.get("seed") == null
+                || config.get("blockLength") == null
+                || config.get("fingerprintBits") == null) {
+            throw new IllegalStateException("Xor filter is not built!");
+        }
+        seed = Long.valueOf(config.get("seed"));
+        fingerprintBits = Integer.valueOf(config.get("fingerprintBits"));
+        blockLength = Integer.valueOf(config.get("blockLength"));
+    }
+
+    protected long getMaxSize() {
+        return Integer.MAX_VALUE * 2L;
+    }
+
+    @Override
+    public long count() {
+        Long result = commandExecutor.read(configName, LongCodec.INSTANCE, RedisCommands.HGET, configName, "count");
+        return check(result);
+    }
+
+    @Override
+    public int getFingerprintBits() {
+        if (blockLength == 0) {
+            readConfig();
+        }
+        return fingerprintBits;
+    }
+
+    @Override
+    public double getFalseProbability() {
+        return 1D / (1L << getFingerprintBits());
+    }
+
+    @Override
+    public long getSize() {
+        if (blockLength == 0) {
+            readConfig();
+        }
+        return (long) blockLength * HASHES * fingerprintBits;
+    }
+
+    private <V> V check(V result) {
+        if (result == null) {
+            throw new IllegalStateException("Xor filter is not built!");
+        }
+        return result;
+    }
+
+    @Override
+    public RFuture<Boolean> deleteAsync() {
+        return commandExecutor.writeAsync(getName(), RedisCommands.DEL_OBJECTS, getName(), configName);
+    }
+
+    @Override
+    public RFuture<Long> sizeInMemoryAsync() {
+        List<Object> keys = Arrays.asList(getName(), configName);
+        return super.sizeInMemoryAsync(keys);
+    }
+
+    @Override
+    public RFuture<Boolean> expireAsync(long timeToLive, TimeUnit timeUnit) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpire', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timeUnit.toMillis(timeToLive));
+    }
+
+    @Override
+    public RFuture<Boolean> expireAtAsync(long timestamp) {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('pexpireat', KEYS[1], ARGV[1]); " +
+                        "return redis.call('pexpireat', KEYS[2], ARGV[1]); ",
+                Arrays.asList(getName(), configName),
+                timestamp);
+    }
+
+    @Override
+    public RFuture<Boolean> clearExpireAsync() {
+        return ScriptRegistry.evalWriteAsync(commandExecutor, getName(), LongCodec.INSTANCE, RedisCommands.EVAL_BOOLEAN,
+                "redis.call('persist', KEYS[1]); " +
+                        "return redis.call('persist', KEYS[2]); ",
+                Arrays.asList(getName(), configName));
+    }
+
+}
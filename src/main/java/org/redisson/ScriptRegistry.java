@@ -0,0 +1,244 @@
+package org.redisson;
+
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import org.redisson.api.RFuture;
+import org.redisson.client.RedisClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.command.CommandBatchService;
+import org.redisson.connection.ConnectionManager;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of Lua scripts used by extend objects.
+ * <p>
+ * Scripts are loaded by <code>SCRIPT LOAD</code> on each master of attached clients and invoked by
+ * <code>EVALSHA</code>. Script which is not loaded yet is sent by <code>EVAL</code>, and
+ * <code>NOSCRIPT</code> reply (node restart or failover) is retried by <code>EVAL</code> while
+ * all scripts are loaded again. Loaded scripts are tracked per connection manager, so reload of one
+ * client doesn't affect others. Batches always use <code>EVAL</code> because <code>NOSCRIPT</code>
+ * would fail the whole batch.
+ *
+ * @author linfeng
+ */
+final class ScriptRegistry {
+
+    /**
+     * SHA-1 digests of registered scripts by their source.
+     */
+    private static final ConcurrentMap<String, String> SCRIPTS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<ConnectionManager, Client> CLIENTS = new ConcurrentHashMap<>();
+
+    private static final class Client {
+
+        final CommandAsyncExecutor executor;
+        final Set<String> loaded = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean reloading = new AtomicBoolean();
+
+        Client(CommandAsyncExecutor executor) {
+            this.executor = executor;
+        }
+
+    }
+
+    private ScriptRegistry() {
+    }
+
+    /**
+     * Loads registered scripts on masters of client and loads scripts registered later.
+     */
+    static void attach(CommandAsyncExecutor executor) {
+        Client client = new Client(executor);
+        CLIENTS.put(executor.getConnectionManager(), client);
+        loadAll(client, null);
+    }
+
+    static void detach(CommandAsyncExecutor executor) {
+        CLIENTS.remove(executor.getConnectionManager());
+    }
+
+    /**
+     * Registers script so it's loaded in advance.
+     *
+     * @return the same script
+     */
+    static String register(String source) {
+        sha(source);
+        return source;
+    }
+
+    static <T, R> RFuture<R> evalReadAsync(CommandAsyncExecutor executor, String key, Codec codec,
+                                           RedisCommand<T> command, String source, List<Object> keys, Object... params) {
+        return evalAsync(executor, null, true, key, codec, command, source, keys, params);
+    }
+
+    /**
+     * Evaluates read-only script on given node.
+     */
+    static <T, R> RFuture<R> evalReadAsync(CommandAsyncExecutor executor, RedisClient client, String key, Codec codec,
+                                           RedisCommand<T> command, String source, List<Object> keys, Object... params) {
+        return evalAsync(executor, client, true, key, codec, command, source, keys, params);
+    }
+
+    static <T, R> RFuture<R> evalWriteAsync(CommandAsyncExecutor executor, String key, Codec codec,
+                                            RedisCommand<T> command, String source, List<Object> keys, Object... params) {
+        return evalAsync(executor, null, false, key, codec, command, source, keys, params);
+    }
+
+    private static <T, R> RFuture<R> evalAsync(final CommandAsyncExecutor executor, final RedisClient client, final boolean readOnly,
+                                               final String key, final Codec codec, final RedisCommand<T> command,
+                                               final String source, final List<Object> keys, final Object... params) {
+        String sha = sha(source);
+        final Client owner = CLIENTS.get(executor.getConnectionManager());
+        if (owner == null || !owner.loaded.contains(sha) || executor instanceof CommandBatchService) {
+            return eval(executor, client, readOnly, key, codec, command, source, keys, params);
+        }
+
+        final RPromise<R> result = new RedissonPromise<>();
+        RFuture<R> future = eval(executor, client, readOnly, key, codec, new RedisCommand<T>(command, "EVALSHA"), sha, keys, params);
+        future.addListener(new FutureListener<R>() {
+            @Override
+            public void operationComplete(Future<R> future) throws Exception {
+                if (future.isSuccess()) {
+                    result.trySuccess(future.getNow());
+                    return;
+                }
+                if (!isNoScript(future.cause())) {
+                    result.tryFailure(future.cause());
+                    return;
+                }
+
+                // 节点重启或故障切换后脚本缓存会丢失
+                reload(owner);
+                RFuture<R> retry = eval(executor, client, readOnly, key, codec, command, source, keys, params);
+                retry.addListener(new FutureListener<R>() {
+                    @Override
+                    public void operationComplete(Future<R> future) throws Exception {
+                        if (future.isSuccess()) {
+                            result.trySuccess(future.getNow());
+                        } else {
+                            result.tryFailure(future.cause());
+                        }
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    private static <T, R> RFuture<R> eval(CommandAsyncExecutor executor, RedisClient client, boolean readOnly, String key,
+                                          Codec codec, RedisCommand<T> command, String script, List<Object> keys, Object... params) {
+        if (client != null) {
+            return executor.evalReadAsync(client, key, codec, command, script, keys, params);
+        }
+        if (readOnly) {
+            return executor.evalReadAsync(key, codec, command, script, keys, params);
+        }
+        return executor.evalWriteAsync(key, codec, command, script, keys, params);
+    }
+
+    /**
+     * Returns digest of script and loads script on attached clients when it's seen first time.
+     */
+    private static String sha(String source) {
+        String sha = SCRIPTS.get(source);
+        if (sha != null) {
+            return sha;
+        }
+
+        sha = sha1(source);
+        String previous = SCRIPTS.putIfAbsent(source, sha);
+        if (previous != null) {
+            return previous;
+        }
+        for (Client client : CLIENTS.values()) {
+            load(client, source, sha, null);
+        }
+        return sha;
+    }
+
+    private static void load(final Client client, String source, final String sha, final Runnable callback) {
+        RFuture<Void> future = client.executor.writeAllAsync(RedisCommands.SCRIPT_LOAD, source);
+        future.addListener(new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) throws Exception {
+                if (future.isSuccess()) {
+                    client.loaded.add(sha);
+                }
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        });
+    }
+
+    private static void loadAll(Client client, Runnable callback) {
+        List<Map.Entry<String, String>> scripts = new ArrayList<>(SCRIPTS.entrySet());
+        if (scripts.isEmpty()) {
+            if (callback != null) {
+                callback.run();
+            }
+            return;
+        }
+
+        final AtomicInteger pending = new AtomicInteger(scripts.size());
+        final Runnable countDown = callback == null ? null : () -> {
+            if (pending.decrementAndGet() == 0) {
+                callback.run();
+            }
+        };
+        for (Map.Entry<String, String> entry : scripts) {
+            load(client, entry.getKey(), entry.getValue(), countDown);
+        }
+    }
+
+    /**
+     * Loads all scripts again on masters of client, only one reload per client at a time.
+     */
+    private static void reload(Client client) {
+        if (!client.reloading.compareAndSet(false, true)) {
+            return;
+        }
+        client.loaded.clear();
+        loadAll(client, () -> client.reloading.set(false));
+    }
+
+    private static boolean isNoScript(Throwable cause) {
+        for (Throwable e = cause; e != null; e = e.getCause()) {
+            if (e.getMessage() != null && e.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder result = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+package org.redisson.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for Counting Bloom filter object.
+ *
+ * @author linfeng
+ */
+public class CountingBloomFilterOptions {
+
+    private long mirrorSyncInterval;
+    private long mirrorMaxStaleness;
+    private int deltaLogSize = 10000;
+    private int coalescingBatchSize;
+    private long coalescingDelay;
+    private long replicaMaxLag = -1;
+    private int waitReplicas;
+    private long waitTimeout;
+    private int positiveCacheSize;
+    private long positiveCacheTtl;
+    private int overflowBaseBits;
+
+    protected CountingBloomFilterOptions() {
+    }
+
+    /**
+     * Creates a new instance of CountingBloomFilterOptions with default options.
+     * <p>
+     * This is equivalent to:
+     * <pre>
+     *     new CountingBloomFilterOptions()
+     *      .deltaLogSize(10000);
+     * </pre>
+     *
+     * @return CountingBloomFilterOptions instance
+     */
+    public static CountingBloomFilterOptions defaults() {
+        return new CountingBloomFilterOptions();
+    }
+
+    /**
+     * Enables local mirror of filter counters.
+     * Mirror is loaded by chunked snapshot and kept fresh by counter deltas
+     * published by <code>add</code> and <code>remove</code> operations of all clients.
+     * <code>contains</code> is answered locally while mirror is not older than <code>maxStaleness</code>,
+     * otherwise it's read from Redis.
+     *
+     * @param syncInterval - interval between delta log polls
+     * @param maxStaleness - max age of last successful sync
+     * @param unit         - time unit
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions localMirror(long syncInterval, long maxStaleness, TimeUnit unit) {
+        if (syncInterval <= 0) {
+            throw new IllegalArgumentException("syncInterval should be greater than 0");
+        }
+        if (maxStaleness < syncInterval) {
+            throw new IllegalArgumentException("maxStaleness can't be less than syncInterval");
+        }
+        this.mirrorSyncInterval = unit.toMillis(syncInterval);
+        this.mirrorMaxStaleness = unit.toMillis(maxStaleness);
+        return this;
+    }
+
+    public boolean isLocalMirror() {
+        return mirrorSyncInterval > 0;
+    }
+
+    public long getMirrorSyncInterval() {
+        return mirrorSyncInterval;
+    }
+
+    public long getMirrorMaxStaleness() {
+        return mirrorMaxStaleness;
+    }
+
+    /**
+     * Defines amount of counter deltas kept in Redis for mirrors.
+     * Mirror which lags behind by more deltas is reloaded from snapshot.
+     *
+     * @param deltaLogSize - amount of kept deltas
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions deltaLogSize(int deltaLogSize) {
+        if (deltaLogSize <= 0) {
+            throw new IllegalArgumentException("deltaLogSize should be greater than 0");
+        }
+        this.deltaLogSize = deltaLogSize;
+        return this;
+    }
+
+    public int getDeltaLogSize() {
+        return deltaLogSize;
+    }
+
+    /**
+     * Enables coalescing of concurrent <code>add</code>, <code>contains</code> and <code>remove</code> calls.
+     * Calls are queued and sent by single dispatcher thread as one multi-element Lua script
+     * per operation type once <code>maxBatchSize</code> calls are queued
+     * or <code>maxDelay</code> is elapsed since oldest queued call.
+     * Calls remain synchronous.
+     *
+     * @param maxBatchSize - max amount of calls sent in one batch
+     * @param maxDelay     - max time to wait for more calls
+     * @param unit         - time unit
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions coalescing(int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize should be greater than 0");
+        }
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay can't be negative");
+        }
+        this.coalescingBatchSize = maxBatchSize;
+        this.coalescingDelay = unit.toNanos(maxDelay);
+        return this;
+    }
+
+    public boolean isCoalescing() {
+        return coalescingBatchSize > 0;
+    }
+
+    public int getCoalescingBatchSize() {
+        return coalescingBatchSize;
+    }
+
+    /**
+     * @return max coalescing delay in nanoseconds
+     */
+    public long getCoalescingDelay() {
+        return coalescingDelay;
+    }
+
+    /**
+     * Enables reads of <code>contains</code>, <code>count</code> and bulk membership checks from replicas.
+     * Replica is used while its replication lag is not greater than <code>maxLag</code>,
+     * otherwise reads fall back to master. Replicas acknowledge offset once per second,
+     * so lower bounds mostly read from master. Reads of this client within <code>maxLag</code>
+     * after its own <code>add</code> or <code>remove</code> go to master as well.
+     * <code>add</code> and <code>remove</code> always read counters from master.
+     *
+     * @param maxLag - max replication lag
+     * @param unit   - time unit
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions replicaReads(long maxLag, TimeUnit unit) {
+        if (maxLag < 0) {
+            throw new IllegalArgumentException("maxLag can't be negative");
+        }
+        this.replicaMaxLag = unit.toMillis(maxLag);
+        return this;
+    }
+
+    public boolean isReplicaReads() {
+        return replicaMaxLag >= 0;
+    }
+
+    public long getReplicaMaxLag() {
+        return replicaMaxLag;
+    }
+
+    /**
+     * Makes <code>add</code> and <code>remove</code> wait by <code>WAIT</code> command
+     * until change is acknowledged by <code>replicas</code> or <code>timeout</code> is elapsed.
+     *
+     * @param replicas - amount of replicas
+     * @param timeout  - max wait time
+     * @param unit     - time unit
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions waitForReplicas(int replicas, long timeout, TimeUnit unit) {
+        if (replicas <= 0) {
+            throw new IllegalArgumentException("replicas should be greater than 0");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout should be greater than 0");
+        }
+        this.waitReplicas = replicas;
+        this.waitTimeout = unit.toMillis(timeout);
+        return this;
+    }
+
+    public int getWaitReplicas() {
+        return waitReplicas;
+    }
+
+    /**
+     * @return replicas wait timeout in milliseconds
+     */
+    public long getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    /**
+     * Enables local cache of positive <code>contains</code> results.
+     * Cached element is invalidated by pub/sub message with its hash published on <code>remove</code>
+     * by any client. Message may be lost or published late by client which loaded filter config
+     * before cache was enabled, so cached result may stay stale up to <code>ttl</code>.
+     *
+     * @param maxSize - max amount of cached elements
+     * @param ttl     - time to live of cached result
+     * @param unit    - time unit
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions positiveCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize should be greater than 0");
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl should be greater than 0");
+        }
+        this.positiveCacheSize = maxSize;
+        this.positiveCacheTtl = unit.toNanos(ttl);
+        return this;
+    }
+
+    public boolean isPositiveCache() {
+        return positiveCacheSize > 0;
+    }
+
+    public int getPositiveCacheSize() {
+        return positiveCacheSize;
+    }
+
+    /**
+     * @return time to live of cached result in nanoseconds
+     */
+    public long getPositiveCacheTtl() {
+        return positiveCacheTtl;
+    }
+
+    /**
+     * Stores counters in <code>baseBits</code> bits instead of bits required by max repeat.
+     * Counter which reaches <code>2^baseBits - 1</code> keeps the rest in <code>{name}:overflow</code> hash
+     * by its offset, so memory follows real distribution of counters.
+     * All clients of filter should use the same <code>baseBits</code>.
+     *
+     * @param baseBits - bits of base counter
+     * @return CountingBloomFilterOptions instance
+     */
+    public CountingBloomFilterOptions overflowCounters(int baseBits) {
+        if (baseBits <= 0 || baseBits > 31) {
+            throw new IllegalArgumentException("baseBits should be in range [1, 31]");
+        }
+        this.overflowBaseBits = baseBits;
+        return this;
+    }
+
+    public boolean isOverflowCounters() {
+        return overflowBaseBits > 0;
+    }
+
+    public int getOverflowBaseBits() {
+        return overflowBaseBits;
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.redisson.api;
+
+/**
+ * Configuration for Cuckoo filter object.
+ *
+ * @author linfeng
+ */
+public class CuckooFilterOptions {
+
+    private int growth;
+    private int maxKicks = 32;
+    private int stashSize = 16;
+    private boolean semiSorted;
+
+    protected CuckooFilterOptions() {
+    }
+
+    /**
+     * Creates a new instance of CuckooFilterOptions with default options.
+     * Filter has fixed capacity and <code>add</code> fails when element can't be placed.
+     * <p>
+     * This is equivalent to:
+     * <pre>
+     *     new CuckooFilterOptions()
+     *      .maxKicks(32)
+     *      .stashSize(16);
+     * </pre>
+     *
+     * @return CuckooFilterOptions instance
+     */
+    public static CuckooFilterOptions defaults() {
+        return new CuckooFilterOptions();
+    }
+
+    /**
+     * Enables scalable mode. When element can't be placed into the newest sub-filter or its load
+     * reaches optimal load factor, new sub-filter with <code>growth</code> times larger capacity
+     * and one more fingerprint bit is allocated, so total false positive probability stays
+     * below doubled configured one.
+     *
+     * @param growth - capacity ratio of each next sub-filter to previous one
+     * @return CuckooFilterOptions instance
+     */
+    public CuckooFilterOptions scalable(int growth) {
+        if (growth < 2) {
+            throw new IllegalArgumentException("growth should be greater than 1");
+        }
+        this.growth = growth;
+        return this;
+    }
+
+    public boolean isScalable() {
+        return growth > 0;
+    }
+
+    public int getGrowth() {
+        return growth;
+    }
+
+    /**
+     * Defines max length of relocation chain of one insertion.
+     * Long chains make Lua script slower, fingerprint left without slot goes to stash instead.
+     *
+     * @param maxKicks - max amount of relocated fingerprints
+     * @return CuckooFilterOptions instance
+     */
+    public CuckooFilterOptions maxKicks(int maxKicks) {
+        if (maxKicks < 0) {
+            throw new IllegalArgumentException("maxKicks can't be negative");
+        }
+        this.maxKicks = maxKicks;
+        return this;
+    }
+
+    public int getMaxKicks() {
+        return maxKicks;
+    }
+
+    /**
+     * Defines max amount of fingerprints in victim stash, which is checked by each lookup.
+     * Insertion fails, or allocates new sub-filter in scalable mode, only when stash is full.
+     *
+     * @param stashSize - max amount of stashed fingerprints
+     * @return CuckooFilterOptions instance
+     */
+    public CuckooFilterOptions stashSize(int stashSize) {
+        if (stashSize < 0) {
+            throw new IllegalArgumentException("stashSize can't be negative");
+        }
+        this.stashSize = stashSize;
+        return this;
+    }
+
+    public int getStashSize() {
+        return stashSize;
+    }
+
+    /**
+     * Enables semi-sorted buckets, which store sorted 4-bit prefixes of bucket fingerprints
+     * as 12-bit index in table of their combinations and save one bit per entry.
+     * Requires 4 entries per bucket, so false positive probability should be
+     * within <code>(0.00001, 0.002]</code>.
+     *
+     * @return CuckooFilterOptions instance
+     */
+    public CuckooFilterOptions semiSorted() {
+        this.semiSorted = true;
+        return this;
+    }
+
+    public boolean isSemiSorted() {
+        return semiSorted;
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.redisson.api;
+
+/**
+ * Result of filter health scan.
+ * <p>
+ * For counting Bloom filter histogram contains amount of counters by value, capped by max repeat number,
+ * and saturated counters are counters which reached max repeat number.
+ * For cuckoo filter histogram contains amount of buckets by amount of occupied entries,
+ * and saturated buckets are full buckets.
+ *
+ * @author linfeng
+ */
+public class FilterHealth {
+
+    private final long size;
+    private final long filled;
+    private final long[] histogram;
+    private final long saturated;
+    private final double falseProbability;
+    private final double configuredFalseProbability;
+
+    public FilterHealth(long size, long filled, long[] histogram, long saturated,
+                        double falseProbability, double configuredFalseProbability) {
+        this.size = size;
+        this.filled = filled;
+        this.histogram = histogram.clone();
+        this.saturated = saturated;
+        this.falseProbability = falseProbability;
+        this.configuredFalseProbability = configuredFalseProbability;
+    }
+
+    /**
+     * Returns amount of counters or fingerprint entries.
+     *
+     * @return amount of counters or fingerprint entries
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns amount of non-zero counters or occupied entries.
+     *
+     * @return amount of non-zero counters or occupied entries
+     */
+    public long getFilled() {
+        return filled;
+    }
+
+    /**
+     * Returns ratio of filled counters or entries to all of them.
+     *
+     * @return fill ratio
+     */
+    public double getFillRatio() {
+        return size == 0 ? 0 : filled / (double) size;
+    }
+
+    /**
+     * Returns histogram indexed by counter value or by amount of occupied entries of bucket.
+     *
+     * @return histogram
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Returns amount of saturated counters or full buckets.
+     *
+     * @return amount of saturated counters or full buckets
+     */
+    public long getSaturated() {
+        return saturated;
+    }
+
+    /**
+     * Returns false positive probability estimated from current fill.
+     *
+     * @return effective false positive probability
+     */
+    public double getFalseProbability() {
+        return falseProbability;
+    }
+
+    /**
+     * Returns false positive probability used for filter initialization.
+     *
+     * @return configured false positive probability
+     */
+    public double getConfiguredFalseProbability() {
+        return configuredFalseProbability;
+    }
+
+    /**
+     * @return <code>true</code> if effective false positive probability exceeds configured one
+     */
+    public boolean isDegraded() {
+        return falseProbability > configuredFalseProbability;
+    }
+
+}
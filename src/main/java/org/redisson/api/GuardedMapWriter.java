@@ -0,0 +1,48 @@
+package org.redisson.api;
+
+import org.redisson.api.map.MapWriter;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Map writer which reports whether keys existed in data source,
+ * so {@link RGuardedMap} increments filter counters exactly once per stored key.
+ * <p>
+ * Data source should decide it atomically with the write, for example by result of
+ * <code>INSERT ... ON CONFLICT</code> or <code>DELETE</code> statement.
+ * Map writer which doesn't implement this interface is checked by map loader before each write and delete.
+ *
+ * @param <K> - map key
+ * @param <V> - map value
+ * @author linfeng
+ */
+public interface GuardedMapWriter<K, V> extends MapWriter<K, V> {
+
+    /**
+     * Writes entries to data source.
+     *
+     * @param map - entries to write
+     * @return keys which were absent in data source before write
+     */
+    Collection<K> insert(Map<K, V> map);
+
+    /**
+     * Deletes keys from data source.
+     *
+     * @param keys - keys to delete
+     * @return keys which were present in data source and have been deleted
+     */
+    Collection<K> deleteExisting(Collection<K> keys);
+
+    @Override
+    default void write(Map<K, V> map) {
+        insert(map);
+    }
+
+    @Override
+    default void delete(Collection<K> keys) {
+        deleteExisting(keys);
+    }
+
+}
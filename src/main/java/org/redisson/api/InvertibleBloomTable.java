@@ -0,0 +1,234 @@
+package org.redisson.api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.redisson.misc.Hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Client side copy of Invertible Bloom Lookup Table cells.
+ * <p>
+ * Each cell consists of four 32-bit big-endian fields: count, high and low halves of keys xor
+ * and xor of key checksums. Cells are split into <code>hashIterations</code> equal parts
+ * and each element is placed into one cell of each part.
+ *
+ * @author linfeng
+ */
+public final class InvertibleBloomTable {
+
+    public static final int CELL_FIELDS = 4;
+    public static final int CELL_BYTES = CELL_FIELDS * Integer.BYTES;
+
+    private final int size;
+    private final int hashIterations;
+    private final int[] fields;
+
+    public InvertibleBloomTable(int size, int hashIterations) {
+        this(size, hashIterations, new int[size * CELL_FIELDS]);
+    }
+
+    private InvertibleBloomTable(int size, int hashIterations, int[] fields) {
+        if (size % hashIterations != 0) {
+            throw new IllegalArgumentException("size should be multiple of hashIterations");
+        }
+        this.size = size;
+        this.hashIterations = hashIterations;
+        this.fields = fields;
+    }
+
+    /**
+     * Creates table from cells stored in Redis. Missing tail of cells is treated as empty.
+     *
+     * @param size           - amount of cells
+     * @param hashIterations - hash iterations amount
+     * @param cells          - raw cells
+     * @return table
+     */
+    public static InvertibleBloomTable fromCells(int size, int hashIterations, byte[] cells) {
+        InvertibleBloomTable table = new InvertibleBloomTable(size, hashIterations);
+        ByteBuffer buffer = ByteBuffer.wrap(cells);
+        for (int i = 0; i < table.fields.length && buffer.remaining() >= Integer.BYTES; i++) {
+            table.fields[i] = buffer.getInt();
+        }
+        return table;
+    }
+
+    /**
+     * Restores table serialized by {@link #toByteArray()}.
+     *
+     * @param bytes - serialized table
+     * @return table
+     */
+    public static InvertibleBloomTable fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int size = buffer.getInt();
+        int hashIterations = buffer.getInt();
+        byte[] cells = new byte[buffer.remaining()];
+        buffer.get(cells);
+        return fromCells(size, hashIterations, cells);
+    }
+
+    /**
+     * Serializes table with its params to ship it to other side.
+     *
+     * @return serialized table
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + fields.length * Integer.BYTES);
+        buffer.putInt(size);
+        buffer.putInt(hashIterations);
+        for (int field : fields) {
+            buffer.putInt(field);
+        }
+        return buffer.array();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getHashIterations() {
+        return hashIterations;
+    }
+
+    /**
+     * Returns 128-bit hash of element.
+     *
+     * @param element - element
+     * @return hash of element
+     */
+    public static long[] hash(long element) {
+        ByteBuf state = Unpooled.buffer(Long.BYTES).writeLong(element);
+        try {
+            return Hash.hash128(state);
+        } finally {
+            state.release();
+        }
+    }
+
+    /**
+     * Returns cells of element, one per part of table.
+     *
+     * @param hash           - hash of element
+     * @param size           - amount of cells
+     * @param hashIterations - hash iterations amount
+     * @return indexes of cells
+     */
+    public static int[] cells(long[] hash, int size, int hashIterations) {
+        int partSize = size / hashIterations;
+        int[] cells = new int[hashIterations];
+        long value = hash[0];
+        for (int i = 0; i < hashIterations; i++) {
+            cells[i] = i * partSize + (int) ((value & Long.MAX_VALUE) % partSize);
+            value += hash[1];
+        }
+        return cells;
+    }
+
+    /**
+     * Returns checksum of element used to detect pure cells.
+     *
+     * @param hash - hash of element
+     * @return checksum
+     */
+    public static int checksum(long[] hash) {
+        return (int) (hash[1] >>> 32);
+    }
+
+    private void toggle(int cell, long element, int checksum, int delta) {
+        int offset = cell * CELL_FIELDS;
+        fields[offset] += delta;
+        fields[offset + 1] ^= (int) (element >>> 32);
+        fields[offset + 2] ^= (int) element;
+        fields[offset + 3] ^= checksum;
+    }
+
+    /**
+     * Subtracts cells of other table built with the same params.
+     *
+     * @param other - subtrahend
+     * @return table of difference
+     */
+    public InvertibleBloomTable subtract(InvertibleBloomTable other) {
+        if (other.size != size || other.hashIterations != hashIterations) {
+            throw new IllegalArgumentException("Tables have different params");
+        }
+        int[] result = new int[fields.length];
+        for (int i = 0; i < fields.length; i += CELL_FIELDS) {
+            result[i] = fields[i] - other.fields[i];
+            result[i + 1] = fields[i + 1] ^ other.fields[i + 1];
+            result[i + 2] = fields[i + 2] ^ other.fields[i + 2];
+            result[i + 3] = fields[i + 3] ^ other.fields[i + 3];
+        }
+        return new InvertibleBloomTable(size, hashIterations, result);
+    }
+
+    private boolean isPure(int cell) {
+        int offset = cell * CELL_FIELDS;
+        int count = fields[offset];
+        if (count != 1 && count != -1) {
+            return false;
+        }
+        long element = ((long) fields[offset + 1] << 32) | (fields[offset + 2] & 0xFFFFFFFFL);
+        return checksum(hash(element)) == fields[offset + 3];
+    }
+
+    /**
+     * Lists elements of table by peeling pure cells.
+     * Applied to result of {@link #subtract(InvertibleBloomTable)} it lists difference of sets.
+     * Table isn't modified.
+     *
+     * @return decoded elements
+     */
+    public SetDifference decode() {
+        InvertibleBloomTable table = new InvertibleBloomTable(size, hashIterations, fields.clone());
+        Set<Long> localOnly = new HashSet<>();
+        Set<Long> remoteOnly = new HashSet<>();
+
+        Deque<Integer> pure = new ArrayDeque<>();
+        for (int cell = 0; cell < size; cell++) {
+            if (table.isPure(cell)) {
+                pure.add(cell);
+            }
+        }
+
+        while (!pure.isEmpty()) {
+            int cell = pure.poll();
+            if (!table.isPure(cell)) {
+                continue;
+            }
+            int offset = cell * CELL_FIELDS;
+            int count = table.fields[offset];
+            long element = ((long) table.fields[offset + 1] << 32) | (table.fields[offset + 2] & 0xFFFFFFFFL);
+            if (count > 0) {
+                localOnly.add(element);
+            } else {
+                remoteOnly.add(element);
+            }
+
+            long[] hash = hash(element);
+            int checksum = checksum(hash);
+            for (int c : cells(hash, size, hashIterations)) {
+                table.toggle(c, element, checksum, -count);
+                if (table.isPure(c)) {
+                    pure.add(c);
+                }
+            }
+        }
+
+        boolean complete = true;
+        for (int field : table.fields) {
+            if (field != 0) {
+                complete = false;
+                break;
+            }
+        }
+        return new SetDifference(localOnly, remoteOnly, complete);
+    }
+
+}
@@ -0,0 +1,37 @@
+package org.redisson.api;
+
+import org.redisson.client.codec.Codec;
+
+/**
+ * Batch which also queues operations of extend objects.
+ * All operations are sent in one pipeline by {@link #execute()}.
+ * Shares pipeline of Redisson 2.15.x batch, creation fails with {@link IllegalStateException}
+ * on other Redisson version.
+ *
+ * @author linfeng
+ */
+public interface RBatchExtend extends RBatch {
+
+    /**
+     * Returns counting bloom filter instance by name.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param <V>    type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RCountingBloomFilterAsync<V> getCountingBloomFilter(String name, int repeat);
+
+    /**
+     * Returns counting bloom filter instance by name
+     * using provided codec for objects.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param codec  - codec for values
+     * @param <V>    type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RCountingBloomFilterAsync<V> getCountingBloomFilter(String name, int repeat, Codec codec);
+
+}
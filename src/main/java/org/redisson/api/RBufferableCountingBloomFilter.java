@@ -0,0 +1,25 @@
+package org.redisson.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting Bloom filter which supports write-behind buffered view.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RBufferableCountingBloomFilter<T> extends RCountingBloomFilter<T> {
+
+    /**
+     * Returns write-behind view of this filter.
+     * <code>add</code> and <code>remove</code> of view update local counter deltas
+     * which are written to Redis by one script per flush.
+     *
+     * @param flushInterval      - interval between flushes
+     * @param maxPendingCounters - amount of buffered counters which triggers flush in caller thread
+     * @param unit               - time unit
+     * @return buffered view
+     */
+    RBufferedCountingBloomFilter<T> buffered(long flushInterval, int maxPendingCounters, TimeUnit unit);
+
+}
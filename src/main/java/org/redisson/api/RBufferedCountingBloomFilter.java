@@ -0,0 +1,61 @@
+package org.redisson.api;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind view of {@link RCountingBloomFilter}.
+ * <p>
+ * <code>add</code> and <code>remove</code> accumulate counter deltas locally,
+ * so repeated updates of the same counter are written once.
+ * Deltas are flushed periodically, when buffer is full and on close.
+ * <code>add</code> always returns <code>true</code> because previous counters are not read.
+ * <code>contains</code> and <code>remove</code> take buffered deltas into account.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RBufferedCountingBloomFilter<T> extends CountingBloomFilter<T>, Closeable {
+
+    /**
+     * Writes buffered deltas to Redis.
+     * Waits for flush in progress.
+     */
+    void flush();
+
+    /**
+     * Stops periodic flush and writes buffered deltas.
+     */
+    @Override
+    void close();
+
+    /**
+     * Returns amount of counters with buffered deltas.
+     *
+     * @return amount of buffered counters
+     */
+    int getPendingCounters();
+
+    /**
+     * Returns amount of flushes which written deltas to Redis.
+     *
+     * @return amount of flushes
+     */
+    long getFlushCount();
+
+    /**
+     * Returns average latency of flush.
+     *
+     * @param unit - time unit
+     * @return average flush latency
+     */
+    long getAverageFlushLatency(TimeUnit unit);
+
+    /**
+     * Returns ratio of buffered counter updates to counters written by flushes.
+     *
+     * @return coalescing ratio
+     */
+    double getCoalescingRatio();
+
+}
@@ -6,81 +6,30 @@ package org.redisson.api;
  * @param <T> - type of object
  * @author linfeng
  */
-public interface RCountingBloomFilter<T> extends RExpirable {
+public interface RCountingBloomFilter<T> extends RExpirable, RCountingBloomFilterAsync<T>, CountingBloomFilter<T> {
 
     /**
-     * Adds element
-     *
-     * @param object - element to add
-     * @return <code>true</code> if element has been added successfully
-     * <code>false</code> if element is already present
-     */
-    boolean add(T object);
-
-    /**
-     * Check for element present
-     *
-     * @param object - element
-     * @return <code>true</code> if element is present
-     * <code>false</code> if element is not present
-     */
-    boolean contains(T object);
-
-    /**
-     * @param object - element
-     * @return <code>true</code> element is deleted
-     * <code>false</code> element is not deleted
-     */
-    boolean remove(T object);
-
-    /**
-     * Initializes Bloom filter params (size and hashIterations)
-     * calculated from <code>expectedInsertions</code> and <code>falseProbability</code>
-     * Stores config to Redis server.
-     *
-     * @param expectedInsertions - expected amount of insertions per element
-     * @param falseProbability   - expected false probability
-     * @return <code>true</code> if Bloom filter initialized
-     * <code>false</code> if Bloom filter already has been initialized
-     */
-    boolean tryInit(long expectedInsertions, double falseProbability);
-
-    /**
-     * Returns expected amount of insertions per element.
-     * Calculated during bloom filter initialization.
-     *
-     * @return expected amount of insertions per element
-     */
-    long getExpectedInsertions();
-
-    /**
-     * Returns false probability of element presence.
-     * Calculated during bloom filter initialization.
-     *
-     * @return false probability of element presence
-     */
-    double getFalseProbability();
-
-    /**
-     * Returns number of bits in Redis memory required by this instance
-     *
-     * @return number of bits
+     * Releases local resources of this instance like local mirror.
+     * Filter data stored in Redis is not affected.
      */
-    long getSize();
+    void destroy();
 
     /**
-     * Returns hash iterations amount used per element.
-     * Calculated during bloom filter initialization.
+     * Scans counters by slices of default size and returns fill ratio, histogram of counter values,
+     * amount of saturated counters and effective false positive probability.
      *
-     * @return hash iterations amount
+     * @return health report
      */
-    int getHashIterations();
+    FilterHealth health();
 
     /**
-     * Calculates probabilistic number of elements already added to Bloom filter.
+     * Scans counters by slices and returns fill ratio, histogram of counter values,
+     * amount of saturated counters and effective false positive probability.
+     * Each slice is scanned by separate script, so Redis is never blocked longer than one slice scan.
      *
-     * @return probabilistic number of elements
+     * @param sliceSize - amount of counters scanned by one script
+     * @return health report
      */
-    long count();
+    FilterHealth health(int sliceSize);
 
 }
@@ -0,0 +1,39 @@
+package org.redisson.api;
+
+/**
+ * Async interface of Counting Bloom filter.
+ * <p>
+ * Filter config is read synchronously before first operation,
+ * so operations of filter obtained from batch are queued without waiting for batch execution.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RCountingBloomFilterAsync<T> extends RExpirableAsync {
+
+    /**
+     * Adds element
+     *
+     * @param object - element to add
+     * @return <code>true</code> if element has been added successfully
+     * <code>false</code> if element is already present
+     */
+    RFuture<Boolean> addAsync(T object);
+
+    /**
+     * Check for element present
+     *
+     * @param object - element
+     * @return <code>true</code> if element is present
+     * <code>false</code> if element is not present
+     */
+    RFuture<Boolean> containsAsync(T object);
+
+    /**
+     * @param object - element
+     * @return <code>true</code> element is deleted
+     * <code>false</code> element is not deleted
+     */
+    RFuture<Boolean> removeAsync(T object);
+
+}
@@ -0,0 +1,56 @@
+package org.redisson.api;
+
+import org.reactivestreams.Publisher;
+
+/**
+ * Reactive interface of Redis based Counting Bloom filter.
+ * <p>
+ * Elements of source publisher are sent to Redis without waiting for previous replies,
+ * up to <code>maxInFlight</code> unacknowledged elements. Source is requested only
+ * when results are consumed, so ingestion rate follows Redis and subscriber capacity.
+ * Results are emitted in order of source elements.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RCountingBloomFilterReactive<T> {
+
+    /**
+     * Adds elements
+     *
+     * @param elements - elements to add
+     * @return <code>true</code> for each element added successfully
+     * <code>false</code> for each element already present
+     */
+    Publisher<Boolean> addAll(Publisher<? extends T> elements);
+
+    /**
+     * Adds elements
+     *
+     * @param elements    - elements to add
+     * @param maxInFlight - max amount of elements sent and not emitted yet
+     * @return <code>true</code> for each element added successfully
+     * <code>false</code> for each element already present
+     */
+    Publisher<Boolean> addAll(Publisher<? extends T> elements, int maxInFlight);
+
+    /**
+     * Check for elements present
+     *
+     * @param elements - elements
+     * @return <code>true</code> for each present element
+     * <code>false</code> for each element not present
+     */
+    Publisher<Boolean> containsAll(Publisher<? extends T> elements);
+
+    /**
+     * Check for elements present
+     *
+     * @param elements    - elements
+     * @param maxInFlight - max amount of elements sent and not emitted yet
+     * @return <code>true</code> for each present element
+     * <code>false</code> for each element not present
+     */
+    Publisher<Boolean> containsAll(Publisher<? extends T> elements, int maxInFlight);
+
+}
@@ -1,5 +1,8 @@
 package org.redisson.api;
 
+import java.util.BitSet;
+import java.util.Collection;
+
 public interface RCuckooFilter<T> extends RExpirable {
 
     /**
@@ -27,5 +30,47 @@ public interface RCuckooFilter<T> extends RExpirable {
      */
     boolean remove(T object);
 
+    /**
+     * Adds elements
+     *
+     * @param objects - elements to add
+     * @return bitmap with set bit for each element, in iteration order,
+     * which has been added successfully
+     */
+    BitSet addAll(Collection<? extends T> objects);
+
+    /**
+     * Check for elements present
+     *
+     * @param objects - elements
+     * @return bitmap with set bit for each element, in iteration order,
+     * which is present
+     */
+    BitSet containsAll(Collection<? extends T> objects);
+
+    /**
+     * @param objects - elements
+     * @return bitmap with set bit for each element, in iteration order,
+     * which is deleted
+     */
+    BitSet removeAll(Collection<? extends T> objects);
+
+    /**
+     * Scans buckets by slices of default size and returns bucket occupancy,
+     * amount of full buckets and effective false positive probability.
+     *
+     * @return health report
+     */
+    FilterHealth health();
+
+    /**
+     * Scans buckets by slices and returns bucket occupancy, amount of full buckets
+     * and effective false positive probability.
+     * Each slice is scanned by separate script, so Redis is never blocked longer than one slice scan.
+     *
+     * @param sliceSize - amount of buckets scanned by one script
+     * @return health report
+     */
+    FilterHealth health(int sliceSize);
 
 }
@@ -0,0 +1,31 @@
+package org.redisson.api;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Group of Counting Bloom filters sharing codec and repeat number.
+ * Element is hashed once and checked against all filters in one pipeline.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RFilterGroup<T> {
+
+    /**
+     * Check for element present in each filter of group.
+     * Filter which is not initialized or has been deleted doesn't contain element.
+     *
+     * @param object - element
+     * @return bitmap where bit <code>i</code> is set if element is present in filter <code>i</code>
+     */
+    BitSet contains(T object);
+
+    /**
+     * Returns names of filters in order of bitmap returned by {@link #contains(Object)}.
+     *
+     * @return names of filters
+     */
+    List<String> getNames();
+
+}
@@ -0,0 +1,53 @@
+package org.redisson.api;
+
+/**
+ * Map which protects its {@link org.redisson.api.map.MapLoader} with Counting Bloom filter.
+ * <p>
+ * Loader is invoked only for keys present in filter. Keys are added to filter
+ * when inserted to data source by map writer and removed when deleted from it,
+ * see {@link GuardedMapWriter}.
+ * Filter of existing data source keys is populated by {@link #warmUp()}.
+ *
+ * @param <K> - map key
+ * @param <V> - map value
+ * @author linfeng
+ */
+public interface RGuardedMap<K, V> extends RMap<K, V> {
+
+    /**
+     * Returns filter guarding loader of this map.
+     *
+     * @return filter
+     */
+    RCountingBloomFilter<K> getFilter();
+
+    /**
+     * Adds all keys returned by <code>MapLoader.loadAllKeys()</code> to filter.
+     * Should be called once after filter is initialized, each call increments counters of all keys.
+     *
+     * @return amount of added keys
+     */
+    long warmUp();
+
+    /**
+     * Returns amount of loads which reached data source.
+     *
+     * @return amount of loads
+     */
+    long getLoads();
+
+    /**
+     * Returns amount of loads rejected by filter, i.e. data source hits avoided.
+     *
+     * @return amount of avoided loads
+     */
+    long getAvoidedLoads();
+
+    /**
+     * Returns amount of loads which passed filter but returned no value.
+     *
+     * @return amount of false positive loads
+     */
+    long getFalsePositiveLoads();
+
+}
@@ -0,0 +1,84 @@
+package org.redisson.api;
+
+import java.util.Collection;
+
+/**
+ * Distributed implementation of Invertible Bloom Lookup Table of <code>long</code> identifiers.
+ * <p>
+ * Tables of two sets built with the same params can be subtracted and decoded
+ * to list elements present in only one of sets, so reconciliation costs
+ * are proportional to difference of sets instead of their size.
+ *
+ * @author linfeng
+ */
+public interface RInvertibleBloomFilter extends RExpirable {
+
+    /**
+     * Initializes table params (size and hashIterations)
+     * calculated from <code>expectedDifference</code>.
+     * Stores config to Redis server.
+     *
+     * @param expectedDifference - expected amount of elements in difference of reconciled sets
+     * @return <code>true</code> if table initialized
+     * <code>false</code> if table already has been initialized
+     */
+    boolean tryInit(long expectedDifference);
+
+    /**
+     * Adds element
+     *
+     * @param element - element to add
+     */
+    void add(long element);
+
+    /**
+     * Adds elements in one Lua call per chunk of elements
+     *
+     * @param elements - elements to add
+     */
+    void addAll(Collection<Long> elements);
+
+    /**
+     * Removes element previously added
+     *
+     * @param element - element to remove
+     */
+    void remove(long element);
+
+    /**
+     * Removes elements previously added
+     *
+     * @param elements - elements to remove
+     */
+    void removeAll(Collection<Long> elements);
+
+    /**
+     * Reads copy of table cells.
+     *
+     * @return table
+     */
+    InvertibleBloomTable export();
+
+    /**
+     * Reads table, subtracts <code>remote</code> table from it and decodes difference.
+     *
+     * @param remote - table of other set
+     * @return difference of sets
+     */
+    SetDifference difference(InvertibleBloomTable remote);
+
+    /**
+     * Returns amount of cells.
+     *
+     * @return amount of cells
+     */
+    long getSize();
+
+    /**
+     * Returns hash iterations amount used per element.
+     *
+     * @return hash iterations amount
+     */
+    int getHashIterations();
+
+}
@@ -0,0 +1,73 @@
+package org.redisson.api;
+
+/**
+ * Distributed range filter based on Counting Bloom filter.
+ * <p>
+ * Each value of key is inserted with all its dyadic prefixes,
+ * so presence of any value in range is checked with O(log range) probes.
+ * Values should be in range <code>[0, 2^levels)</code>.
+ *
+ * @param <K> - type of key
+ * @author linfeng
+ */
+public interface RRangeFilter<K> extends RExpirable {
+
+    /**
+     * Initializes filter params calculated from
+     * <code>expectedInsertions</code>, <code>falseProbability</code> and <code>levels</code>.
+     * Stores config to Redis server.
+     *
+     * @param expectedInsertions - expected amount of inserted values
+     * @param falseProbability   - expected false probability of single probe
+     * @param levels             - amount of bits of values
+     * @return <code>true</code> if filter initialized
+     * <code>false</code> if filter already has been initialized
+     */
+    boolean tryInit(long expectedInsertions, double falseProbability, int levels);
+
+    /**
+     * Adds value of key
+     *
+     * @param key   - key
+     * @param value - value
+     * @return <code>true</code> if value has been added successfully
+     * <code>false</code> if value is already present
+     */
+    boolean add(K key, long value);
+
+    /**
+     * Removes value of key previously added
+     *
+     * @param key   - key
+     * @param value - value
+     * @return <code>true</code> if value has been removed
+     */
+    boolean remove(K key, long value);
+
+    /**
+     * Check for value of key present
+     *
+     * @param key   - key
+     * @param value - value
+     * @return <code>true</code> if value is present
+     */
+    boolean contains(K key, long value);
+
+    /**
+     * Check for any value of key present in range
+     *
+     * @param key  - key
+     * @param from - lower bound of range, inclusive
+     * @param to   - upper bound of range, inclusive
+     * @return <code>true</code> if any value is present in range
+     */
+    boolean containsRange(K key, long from, long to);
+
+    /**
+     * Returns amount of bits of values.
+     *
+     * @return amount of bits
+     */
+    int getLevels();
+
+}
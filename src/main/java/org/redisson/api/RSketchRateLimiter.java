@@ -0,0 +1,58 @@
+package org.redisson.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed approximate rate limiter of unbounded amount of keys.
+ * <p>
+ * Permits of all keys are counted in fixed amount of shared counters,
+ * so memory usage doesn't depend on amount of keys. Key may be throttled
+ * earlier than its rate because of counters shared with other keys,
+ * but it's never allowed to exceed its rate.
+ *
+ * @param <K> - type of key
+ * @author linfeng
+ */
+public interface RSketchRateLimiter<K> extends RExpirable {
+
+    /**
+     * Initializes rate limiter params. Amount of counters and hash iterations are
+     * calculated from <code>expectedKeys</code> and <code>falseProbability</code>.
+     * Stores config to Redis server.
+     *
+     * @param rate             - permits per key per interval
+     * @param interval         - interval
+     * @param unit             - interval unit
+     * @param expectedKeys     - expected amount of active keys per interval
+     * @param falseProbability - probability of key throttled by counters of other keys
+     * @return <code>true</code> if rate limiter initialized
+     * <code>false</code> if rate limiter already has been initialized
+     */
+    boolean trySetRate(long rate, long interval, TimeUnit unit, long expectedKeys, double falseProbability);
+
+    /**
+     * Acquires a permit of key if it's available
+     *
+     * @param key - key
+     * @return <code>true</code> if permit has been acquired
+     */
+    boolean tryAcquire(K key);
+
+    /**
+     * Acquires permits of key if they are available
+     *
+     * @param key     - key
+     * @param permits - amount of permits
+     * @return <code>true</code> if permits have been acquired
+     */
+    boolean tryAcquire(K key, long permits);
+
+    /**
+     * Returns estimated amount of available permits of key
+     *
+     * @param key - key
+     * @return amount of available permits
+     */
+    long availablePermits(K key);
+
+}
@@ -0,0 +1,75 @@
+package org.redisson.api;
+
+/**
+ * Distributed implementation of Stable Bloom filter based on Highway 128-bit hash.
+ * <p>
+ * Each insertion decrements a fixed amount of random counters before setting counters
+ * of element to max value, so stale elements are evicted continuously.
+ * Memory usage and false probability stay fixed on unbounded stream of elements
+ * at the cost of false negatives for old elements.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RStableBloomFilter<T> extends RExpirable {
+
+    /**
+     * Adds element
+     *
+     * @param object - element to add
+     * @return <code>true</code> if element has been added successfully
+     * <code>false</code> if element is duplicate of recently added element
+     */
+    boolean add(T object);
+
+    /**
+     * Check for element present
+     *
+     * @param object - element
+     * @return <code>true</code> if element is present
+     * <code>false</code> if element is not present
+     */
+    boolean contains(T object);
+
+    /**
+     * Initializes Stable Bloom filter params (hashIterations and decrementCells)
+     * calculated from <code>size</code> and <code>falseProbability</code>
+     * Stores config to Redis server.
+     *
+     * @param size             - amount of counters
+     * @param falseProbability - false probability once filter is stable
+     * @return <code>true</code> if Stable Bloom filter initialized
+     * <code>false</code> if Stable Bloom filter already has been initialized
+     */
+    boolean tryInit(long size, double falseProbability);
+
+    /**
+     * Returns false probability of element presence once filter is stable.
+     *
+     * @return false probability of element presence
+     */
+    double getFalseProbability();
+
+    /**
+     * Returns amount of counters.
+     *
+     * @return amount of counters
+     */
+    long getSize();
+
+    /**
+     * Returns hash iterations amount used per element.
+     *
+     * @return hash iterations amount
+     */
+    int getHashIterations();
+
+    /**
+     * Returns amount of counters decremented per insertion.
+     * Calculated during filter initialization.
+     *
+     * @return amount of decremented counters
+     */
+    int getDecrementCells();
+
+}
@@ -0,0 +1,63 @@
+package org.redisson.api;
+
+import java.util.stream.Stream;
+
+/**
+ * Distributed implementation of immutable Xor filter based on Highway 128-bit hash.
+ * Filter is built locally and stored in Redis as packed 8-bit or 16-bit fingerprint array
+ * which takes about 1.23 * n * fingerprintBits bits.
+ *
+ * @param <T> - type of object
+ * @author linfeng
+ */
+public interface RXorFilter<T> extends RExpirable {
+
+    /**
+     * Builds filter from all elements of the stream and replaces
+     * previous content of the filter atomically.
+     *
+     * @param elements        - elements to store, duplicates are ignored
+     * @param fingerprintBits - fingerprint size, <code>8</code> or <code>16</code>
+     * @return amount of distinct elements stored in filter
+     */
+    long build(Stream<? extends T> elements, int fingerprintBits);
+
+    /**
+     * Check for element present
+     *
+     * @param object - element
+     * @return <code>true</code> if element is present
+     * <code>false</code> if element is not present
+     */
+    boolean contains(T object);
+
+    /**
+     * Returns amount of distinct elements stored during last build.
+     *
+     * @return amount of elements
+     */
+    long count();
+
+    /**
+     * Returns fingerprint size used by this instance.
+     *
+     * @return fingerprint size in bits
+     */
+    int getFingerprintBits();
+
+    /**
+     * Returns false probability of element presence.
+     * Calculated from fingerprint size.
+     *
+     * @return false probability of element presence
+     */
+    double getFalseProbability();
+
+    /**
+     * Returns number of bits in Redis memory required by this instance
+     *
+     * @return number of bits
+     */
+    long getSize();
+
+}
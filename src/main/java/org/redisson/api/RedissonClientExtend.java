@@ -16,7 +16,7 @@ public interface RedissonClientExtend extends RedissonClient {
      * @param name - name of object
      * @return CountingBloomFilter object
      */
-    <V> RCountingBloomFilter<V> getCountingBloomFilter(String name);
+    <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name);
 
     /**
      * Returns counting bloom filter instance by name.
@@ -26,7 +26,7 @@ public interface RedissonClientExtend extends RedissonClient {
      * @param <V>    type of value
      * @return CountingBloomFilter object
      */
-    <V> RCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat);
+    <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat);
 
     /**
      * Returns counting bloom filter instance by name
@@ -37,7 +37,7 @@ public interface RedissonClientExtend extends RedissonClient {
      * @param codec - codec for values
      * @return CountingBloomFilter object
      */
-    <V> RCountingBloomFilter<V> getCountingBloomFilter(String name, Codec codec);
+    <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, Codec codec);
 
 
     /**
@@ -50,5 +50,304 @@ public interface RedissonClientExtend extends RedissonClient {
      * @param <V>    type of value
      * @return CountingBloomFilter object
      */
-    <V> RCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, Codec codec);
+    <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, Codec codec);
+
+    /**
+     * Returns counting bloom filter instance by name
+     * configured by provided options.
+     *
+     * @param name    - name of object
+     * @param repeat  - repeat number of object
+     * @param options - options of object
+     * @param <V>     type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, CountingBloomFilterOptions options);
+
+    /**
+     * Returns counting bloom filter instance by name
+     * using provided codec for objects and configured by provided options.
+     *
+     * @param name    - name of object
+     * @param repeat  - repeat number of object
+     * @param codec   - codec for values
+     * @param options - options of object
+     * @param <V>     type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RBufferableCountingBloomFilter<V> getCountingBloomFilter(String name, int repeat, Codec codec, CountingBloomFilterOptions options);
+
+    /**
+     * Returns blocked counting bloom filter instance by name.
+     * All counters of an element are stored inside one 512-bit block.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param <V>    type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RCountingBloomFilter<V> getBlockedCountingBloomFilter(String name, int repeat);
+
+    /**
+     * Returns blocked counting bloom filter instance by name
+     * using provided codec for objects.
+     * All counters of an element are stored inside one 512-bit block.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param codec  - codec for values
+     * @param <V>    type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RCountingBloomFilter<V> getBlockedCountingBloomFilter(String name, int repeat, Codec codec);
+
+    /**
+     * Returns xor filter instance by name.
+     *
+     * @param <V>  type of value
+     * @param name - name of object
+     * @return XorFilter object
+     */
+    <V> RXorFilter<V> getXorFilter(String name);
+
+    /**
+     * Returns xor filter instance by name
+     * using provided codec for objects.
+     *
+     * @param <V>   type of value
+     * @param name  - name of object
+     * @param codec - codec for values
+     * @return XorFilter object
+     */
+    <V> RXorFilter<V> getXorFilter(String name, Codec codec);
+
+    /**
+     * Returns reactive interface of counting bloom filter instance by name.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param <V>    type of value
+     * @return CountingBloomFilterReactive object
+     */
+    <V> RCountingBloomFilterReactive<V> getCountingBloomFilterReactive(String name, int repeat);
+
+    /**
+     * Returns reactive interface of counting bloom filter instance by name
+     * using provided codec for objects.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param codec  - codec for values
+     * @param <V>    type of value
+     * @return CountingBloomFilterReactive object
+     */
+    <V> RCountingBloomFilterReactive<V> getCountingBloomFilterReactive(String name, int repeat, Codec codec);
+
+    /**
+     * Returns group of counting bloom filters by names.
+     * Element is checked against all filters in one round trip.
+     *
+     * @param repeat - repeat number of filters
+     * @param names  - names of filters
+     * @param <V>    type of value
+     * @return FilterGroup object
+     */
+    <V> RFilterGroup<V> getFilterGroup(int repeat, String... names);
+
+    /**
+     * Returns group of counting bloom filters by names
+     * using provided codec for objects.
+     * Element is checked against all filters in one round trip.
+     *
+     * @param repeat - repeat number of filters
+     * @param codec  - codec for values
+     * @param names  - names of filters
+     * @param <V>    type of value
+     * @return FilterGroup object
+     */
+    <V> RFilterGroup<V> getFilterGroup(int repeat, Codec codec, String... names);
+
+    /**
+     * Creates batch object which also queues operations of extend objects
+     * with defined <code>options</code>.
+     *
+     * @param options - batch configuration
+     * @return BatchExtend object
+     */
+    RBatchExtend createBatchExtend(BatchOptions options);
+
+    /**
+     * Creates batch object which also queues operations of extend objects.
+     *
+     * @return BatchExtend object
+     */
+    RBatchExtend createBatchExtend();
+
+    /**
+     * Returns stable bloom filter instance by name.
+     *
+     * @param name   - name of object
+     * @param repeat - max value of counters
+     * @param <V>    type of value
+     * @return StableBloomFilter object
+     */
+    <V> RStableBloomFilter<V> getStableBloomFilter(String name, int repeat);
+
+    /**
+     * Returns stable bloom filter instance by name
+     * using provided codec for objects.
+     *
+     * @param name   - name of object
+     * @param repeat - max value of counters
+     * @param codec  - codec for values
+     * @param <V>    type of value
+     * @return StableBloomFilter object
+     */
+    <V> RStableBloomFilter<V> getStableBloomFilter(String name, int repeat, Codec codec);
+
+    /**
+     * Returns invertible bloom filter instance by name.
+     *
+     * @param name - name of object
+     * @return InvertibleBloomFilter object
+     */
+    RInvertibleBloomFilter getInvertibleBloomFilter(String name);
+
+    /**
+     * Returns range filter instance by name.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param <K>    type of key
+     * @return RangeFilter object
+     */
+    <K> RRangeFilter<K> getRangeFilter(String name, int repeat);
+
+    /**
+     * Returns range filter instance by name
+     * using provided codec for keys.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param codec  - codec for keys
+     * @param <K>    type of key
+     * @return RangeFilter object
+     */
+    <K> RRangeFilter<K> getRangeFilter(String name, int repeat, Codec codec);
+
+    /**
+     * Returns map instance by name whose loader is guarded
+     * by counting bloom filter with <code>filterName</code>.
+     *
+     * @param name       - name of map
+     * @param filterName - name of filter
+     * @param repeat     - repeat number of filter
+     * @param options    - map options with loader and writer
+     * @param <K>        type of key
+     * @param <V>        type of value
+     * @return GuardedMap object
+     */
+    <K, V> RGuardedMap<K, V> getGuardedMap(String name, String filterName, int repeat, MapOptions<K, V> options);
+
+    /**
+     * Returns map instance by name whose loader is guarded
+     * by counting bloom filter with <code>filterName</code>
+     * using provided codec for map and filter.
+     *
+     * @param name       - name of map
+     * @param filterName - name of filter
+     * @param repeat     - repeat number of filter
+     * @param codec      - codec for keys and values
+     * @param options    - map options with loader and writer
+     * @param <K>        type of key
+     * @param <V>        type of value
+     * @return GuardedMap object
+     */
+    <K, V> RGuardedMap<K, V> getGuardedMap(String name, String filterName, int repeat, Codec codec, MapOptions<K, V> options);
+
+    /**
+     * Returns sketch rate limiter instance by name.
+     *
+     * @param name - name of object
+     * @param <K>  type of key
+     * @return SketchRateLimiter object
+     */
+    <K> RSketchRateLimiter<K> getSketchRateLimiter(String name);
+
+    /**
+     * Returns sketch rate limiter instance by name
+     * using provided codec for keys.
+     *
+     * @param name  - name of object
+     * @param codec - codec for keys
+     * @param <K>   type of key
+     * @return SketchRateLimiter object
+     */
+    <K> RSketchRateLimiter<K> getSketchRateLimiter(String name, Codec codec);
+
+    /**
+     * Returns d-left counting bloom filter instance by name.
+     * Each element is stored as fingerprint with counter in one of candidate buckets.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param <V>    type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RCountingBloomFilter<V> getDLeftCountingBloomFilter(String name, int repeat);
+
+    /**
+     * Returns d-left counting bloom filter instance by name
+     * using provided codec for objects.
+     * Each element is stored as fingerprint with counter in one of candidate buckets.
+     *
+     * @param name   - name of object
+     * @param repeat - repeat number of object
+     * @param codec  - codec for values
+     * @param <V>    type of value
+     * @return CountingBloomFilter object
+     */
+    <V> RCountingBloomFilter<V> getDLeftCountingBloomFilter(String name, int repeat, Codec codec);
+
+    /**
+     * Returns cuckoo filter instance by name.
+     * Filter is created with provided capacity and false positive probability if it doesn't exist.
+     *
+     * @param name     - name of object
+     * @param capacity - expected amount of elements
+     * @param fpp      - false positive probability
+     * @param <V>      type of value
+     * @return CuckooFilter object
+     */
+    <V> RCuckooFilter<V> getCuckooFilter(String name, long capacity, double fpp);
+
+    /**
+     * Returns cuckoo filter instance by name
+     * configured by provided options.
+     * Filter is created with provided capacity and false positive probability if it doesn't exist.
+     *
+     * @param name     - name of object
+     * @param capacity - expected amount of elements
+     * @param fpp      - false positive probability
+     * @param options  - options of object
+     * @param <V>      type of value
+     * @return CuckooFilter object
+     */
+    <V> RCuckooFilter<V> getCuckooFilter(String name, long capacity, double fpp, CuckooFilterOptions options);
+
+    /**
+     * Returns cuckoo filter instance by name
+     * using provided codec for objects and configured by provided options.
+     * Filter is created with provided capacity and false positive probability if it doesn't exist.
+     *
+     * @param name     - name of object
+     * @param capacity - expected amount of elements
+     * @param fpp      - false positive probability
+     * @param codec    - codec for values
+     * @param options  - options of object
+     * @param <V>      type of value
+     * @return CuckooFilter object
+     */
+    <V> RCuckooFilter<V> getCuckooFilter(String name, long capacity, double fpp, Codec codec, CuckooFilterOptions options);
+
 }
@@ -0,0 +1,51 @@
+package org.redisson.api;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Result of {@link InvertibleBloomTable#decode()}.
+ *
+ * @author linfeng
+ */
+public class SetDifference {
+
+    private final Set<Long> localOnly;
+    private final Set<Long> remoteOnly;
+    private final boolean complete;
+
+    public SetDifference(Set<Long> localOnly, Set<Long> remoteOnly, boolean complete) {
+        this.localOnly = Collections.unmodifiableSet(localOnly);
+        this.remoteOnly = Collections.unmodifiableSet(remoteOnly);
+        this.complete = complete;
+    }
+
+    /**
+     * Returns elements present only in minuend table.
+     *
+     * @return elements present only in minuend table
+     */
+    public Set<Long> getLocalOnly() {
+        return localOnly;
+    }
+
+    /**
+     * Returns elements present only in subtrahend table.
+     *
+     * @return elements present only in subtrahend table
+     */
+    public Set<Long> getRemoteOnly() {
+        return remoteOnly;
+    }
+
+    /**
+     * Returns <code>false</code> if difference is larger than table capacity
+     * and only part of it has been decoded.
+     *
+     * @return <code>true</code> if whole difference has been decoded
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.redisson.client.codec;
+
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.decoder.BitmaskReplayDecoder;
+import org.redisson.client.protocol.decoder.IntArrayReplayDecoder;
+
+/**
+ * Codec for Lua scripts which encode arguments as strings
+ * and return packed binary reply decoded into primitive array.
+ *
+ * @author linfeng
+ */
+public class PrimitiveArrayCodec extends StringCodec {
+
+    public static final PrimitiveArrayCodec INT_ARRAY = new PrimitiveArrayCodec(new IntArrayReplayDecoder());
+
+    public static final PrimitiveArrayCodec BITMASK = new PrimitiveArrayCodec(new BitmaskReplayDecoder());
+
+    private final Decoder<Object> decoder;
+
+    public PrimitiveArrayCodec(Decoder<Object> decoder) {
+        this.decoder = decoder;
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.redisson.client.protocol.decoder;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+
+/**
+ * Decodes bulk reply of packed bits straight into <code>long[]</code> bitmask.
+ * Bit <code>n</code> of reply is stored in byte <code>n / 8</code> at position <code>n % 8</code>,
+ * so result is compatible with {@link java.util.BitSet#valueOf(long[])}.
+ *
+ * @author linfeng
+ */
+public class BitmaskReplayDecoder implements Decoder<Object> {
+
+    @Override
+    public Object decode(ByteBuf buf, State state) {
+        int length = buf.readableBytes();
+        long[] result = new long[(length + Long.BYTES - 1) / Long.BYTES];
+        for (int i = 0; i < length; i++) {
+            result[i / Long.BYTES] |= (buf.readByte() & 0xffL) << (Byte.SIZE * (i % Long.BYTES));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.redisson.client.protocol.decoder;
+
+import io.netty.buffer.ByteBuf;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+
+/**
+ * Decodes bulk reply of packed 32-bit big-endian integers
+ * straight into <code>int[]</code>.
+ *
+ * @author linfeng
+ */
+public class IntArrayReplayDecoder implements Decoder<Object> {
+
+    @Override
+    public Object decode(ByteBuf buf, State state) {
+        int[] result = new int[buf.readableBytes() / Integer.BYTES];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buf.readInt();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,193 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkConfigChangeRetry;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class CountingBloomFilterCacheTest {
+
+    private static final String NAME = "cache-test";
+
+    public static void main(String[] args) throws Exception {
+        testConcurrentLookups();
+        testFrequentKeySurvivesScan();
+
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testConstructorDoesNotInit(client);
+            testRoundTrip(client);
+            testCachedResult(client);
+            testInvalidation(client);
+            testConfigChangeRetry(client);
+            testInvalidOptions();
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static CountingBloomFilterOptions options(long ttl) {
+        return CountingBloomFilterOptions.defaults().positiveCache(100, ttl, TimeUnit.MILLISECONDS);
+    }
+
+    private static RCountingBloomFilter<String> create(RedissonClientExtend client, long ttl) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter(NAME, 15, options(ttl));
+        filter.delete();
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed");
+        return filter;
+    }
+
+    private static void testConstructorDoesNotInit(RedissonClientExtend client) {
+        client.getCountingBloomFilter(NAME, 15).delete();
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter(NAME, 15, options(10000));
+        check(client.getKeys().countExists(RedissonObject.suffixName(NAME, "config")) == 0,
+                "filter with positive cache should not create config before tryInit");
+        expect(IllegalStateException.class, () -> filter.contains("a"), "not initialized filter should fail");
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed after filter object is created");
+        filter.delete();
+        filter.destroy();
+        passed("testConstructorDoesNotInit");
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 10000);
+        checkRoundTrip(filter);
+        filter.delete();
+        filter.destroy();
+        passed("testRoundTrip");
+    }
+
+    /**
+     * Counters deleted behind the filter don't publish invalidation, so positive result stays until ttl.
+     */
+    private static void testCachedResult(RedissonClientExtend client) throws InterruptedException {
+        RCountingBloomFilter<String> filter = create(client, 300);
+        filter.add("a");
+        check(filter.contains("a"), "added element should be present");
+
+        client.getKeys().delete(NAME);
+        check(filter.contains("a"), "positive result should be cached");
+        check(!filter.contains("b"), "negative result should not be cached");
+
+        Thread.sleep(500);
+        check(!filter.contains("a"), "cached result should expire after ttl");
+        filter.delete();
+        filter.destroy();
+        passed("testCachedResult");
+    }
+
+    /**
+     * Remove by other instance without cache invalidates cached result.
+     */
+    private static void testInvalidation(RedissonClientExtend client) throws InterruptedException {
+        RCountingBloomFilter<String> filter = create(client, 60000);
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter(NAME, 15);
+        filter.add("a");
+        filter.add("b");
+        check(filter.contains("a") && filter.contains("b"), "added elements should be present");
+
+        check(other.remove("a"), "other instance should remove element");
+        Thread.sleep(300);
+        check(!filter.contains("a"), "removed element should be invalidated in cache");
+        check(filter.contains("b"), "other cached element should stay present");
+
+        check(filter.remove("b"), "element should be removed");
+        check(!filter.contains("b"), "element removed by own instance should be absent");
+        filter.delete();
+        filter.destroy();
+        passed("testInvalidation");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter(NAME, 15, options(60000));
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter(NAME, 15);
+        checkConfigChangeRetry(filter, other);
+        check(!filter.contains("a"), "element added before config change should be absent");
+        other.delete();
+        filter.destroy();
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Lookups don't take lock, buffered accesses are applied by writes and full buffers.
+     */
+    private static void testConcurrentLookups() throws Exception {
+        CountingBloomFilterCache cache = new CountingBloomFilterCache(100, TimeUnit.MINUTES.toNanos(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20000; i++) {
+                        long value = (i * 31L + seed) % 500;
+                        long[] hashes = {value, value};
+                        if (!cache.contains(hashes)) {
+                            cache.put(hashes, cache.generation());
+                        }
+                        if (i % 1000 == 0) {
+                            cache.invalidate(hashes);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        check(cache.size() <= 100, "cache should stay bounded: " + cache.size());
+
+        long[] hashes = {1000, 1000};
+        cache.put(hashes, cache.generation());
+        check(cache.contains(hashes), "cached element should be present");
+        cache.invalidate(hashes);
+        check(!cache.contains(hashes), "invalidated element should be absent");
+        long generation = cache.generation();
+        cache.invalidate(new long[] {1001, 1001});
+        cache.put(hashes, generation);
+        check(!cache.contains(hashes), "result read before invalidation should not be cached");
+        passed("testConcurrentLookups");
+    }
+
+    private static void testFrequentKeySurvivesScan() {
+        CountingBloomFilterCache cache = new CountingBloomFilterCache(100, TimeUnit.MINUTES.toNanos(1));
+        long[] hot = {-1, -1};
+        cache.put(hot, cache.generation());
+        for (int i = 0; i < 10000; i++) {
+            long[] hashes = {i, i};
+            if (!cache.contains(hashes)) {
+                cache.put(hashes, cache.generation());
+            }
+            if (i % 10 == 0) {
+                check(cache.contains(hot), "frequent element should stay cached during scan " + i);
+            }
+        }
+        passed("testFrequentKeySurvivesScan");
+    }
+
+    private static void testInvalidOptions() {
+        expect(IllegalArgumentException.class, () -> CountingBloomFilterOptions.defaults().positiveCache(0, 1, TimeUnit.SECONDS),
+                "zero cache size should be rejected");
+        expect(IllegalArgumentException.class, () -> CountingBloomFilterOptions.defaults().positiveCache(10, 0, TimeUnit.SECONDS),
+                "zero ttl should be rejected");
+        passed("testInvalidOptions");
+    }
+
+}
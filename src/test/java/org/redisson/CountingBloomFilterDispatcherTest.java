@@ -0,0 +1,137 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class CountingBloomFilterDispatcherTest {
+
+    private static final int THREADS = 16;
+
+    public static void main(String[] args) throws Exception {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testConcurrentCalls(client);
+            testConfigChangeRetry(client);
+            testDestroy(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCountingBloomFilter<String> coalescing(RedissonClientExtend client) {
+        return client.getCountingBloomFilter("dispatcher-test", 15, CountingBloomFilterOptions.defaults()
+                .coalescing(64, 2, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Runs <code>task</code> with thread index in each of threads and waits for all of them.
+     */
+    private static void parallel(TaskWithIndex task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int index = t;
+                futures.add(executor.submit(() -> {
+                    task.run(index);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface TaskWithIndex {
+
+        void run(int index) throws Exception;
+
+    }
+
+    private static void testConcurrentCalls(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> filter = coalescing(client);
+        filter.delete();
+        filter.tryInit(10000, 0.01);
+        try {
+            parallel(t -> {
+                for (int i = 0; i < 100; i++) {
+                    filter.add("t" + t + "-" + i);
+                }
+                for (int i = 0; i < 100; i++) {
+                    check(filter.contains("t" + t + "-" + i), "coalesced contains should see coalesced add");
+                }
+                for (int i = 0; i < 50; i++) {
+                    check(filter.remove("t" + t + "-" + i), "coalesced remove should succeed");
+                }
+            });
+            for (int t = 0; t < THREADS; t++) {
+                check(positiveRatio(filter::contains, "t" + t + "-", 50) < 0.1, "removed elements should be absent");
+            }
+        } finally {
+            filter.destroy();
+            filter.delete();
+        }
+        passed("testConcurrentCalls");
+    }
+
+    /**
+     * Coalesced calls queued before filter is recreated should be retried with new config
+     * and never be left waiting.
+     */
+    private static void testConfigChangeRetry(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> filter = coalescing(client);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        filter.add("warm-up");
+        try {
+            RCountingBloomFilter<String> other = client.getCountingBloomFilter("dispatcher-test", 15);
+            other.delete();
+            other.tryInit(5000, 0.001);
+
+            parallel(t -> {
+                for (int i = 0; i < 20; i++) {
+                    filter.add("t" + t + "-" + i);
+                }
+            });
+            for (int t = 0; t < THREADS; t++) {
+                check(positiveRatio(other::contains, "t" + t + "-", 20) == 1, "retried adds should use new config");
+            }
+        } finally {
+            filter.destroy();
+            filter.delete();
+        }
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Destroyed filter sends calls directly.
+     */
+    private static void testDestroy(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = coalescing(client);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        filter.destroy();
+        check(filter.add("a") && filter.contains("a"), "destroyed filter should still work without coalescing");
+        filter.delete();
+        passed("testDestroy");
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class CountingBloomFilterMirrorTest {
+
+    private static final long SYNC_INTERVAL = 50;
+
+    public static void main(String[] args) throws Exception {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testDeltas(client);
+            testDeltaLogOverflow(client);
+            testConfigChange(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCountingBloomFilter<String> mirrored(RedissonClientExtend client, int deltaLogSize) {
+        return client.getCountingBloomFilter("mirror-test", 15, CountingBloomFilterOptions.defaults()
+                .localMirror(SYNC_INTERVAL, 10 * SYNC_INTERVAL, TimeUnit.MILLISECONDS)
+                .deltaLogSize(deltaLogSize));
+    }
+
+    private static void awaitSync() throws InterruptedException {
+        Thread.sleep(SYNC_INTERVAL * 4);
+    }
+
+    /**
+     * Adds and removes by other instance should reach mirror by delta log.
+     */
+    private static void testDeltas(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> writer = client.getCountingBloomFilter("mirror-test", 15);
+        writer.delete();
+        writer.tryInit(1000, 0.01);
+        RCountingBloomFilter<String> filter = mirrored(client, 10000);
+        try {
+            awaitSync();
+            for (int i = 0; i < 200; i++) {
+                writer.add("e" + i);
+            }
+            awaitSync();
+            check(positiveRatio(filter::contains, "e", 200) == 1, "mirror should contain added elements");
+
+            for (int i = 0; i < 200; i++) {
+                writer.remove("e" + i);
+            }
+            awaitSync();
+            check(positiveRatio(filter::contains, "e", 200) == 0, "mirror should apply removes");
+        } finally {
+            filter.destroy();
+            writer.delete();
+        }
+        passed("testDeltas");
+    }
+
+    /**
+     * Mirror which lags behind delta log is reloaded from snapshot.
+     */
+    private static void testDeltaLogOverflow(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> writer = client.getCountingBloomFilter("mirror-test", 15);
+        writer.delete();
+        writer.tryInit(1000, 0.01);
+        RCountingBloomFilter<String> filter = mirrored(client, 10);
+        try {
+            awaitSync();
+            for (int i = 0; i < 500; i++) {
+                writer.add("e" + i);
+            }
+            awaitSync();
+            check(positiveRatio(filter::contains, "e", 500) == 1, "reloaded mirror should contain all elements");
+        } finally {
+            filter.destroy();
+            writer.delete();
+        }
+        passed("testDeltaLogOverflow");
+    }
+
+    private static void testConfigChange(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> writer = client.getCountingBloomFilter("mirror-test", 15);
+        writer.delete();
+        writer.tryInit(1000, 0.01);
+        RCountingBloomFilter<String> filter = mirrored(client, 10000);
+        try {
+            writer.add("old");
+            awaitSync();
+            check(filter.contains("old"), "mirror should contain added element");
+
+            writer.delete();
+            writer.tryInit(5000, 0.001);
+            writer.add("new");
+            awaitSync();
+            check(filter.contains("new"), "mirror should be reloaded after config change");
+            check(filter.getSize() == writer.getSize(), "size should be read again");
+        } finally {
+            filter.destroy();
+            writer.delete();
+        }
+        passed("testConfigChange");
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkConfigChangeRetry;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.checkSaturation;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class CountingBloomFilterOverflowTest {
+
+    private static final String NAME = "overflow-test";
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testSpill(client);
+            testSaturation(client);
+            testMemory(client);
+            testConfigChangeRetry(client);
+            testCounterBitsFromConfig(client);
+            testInvalidOptions();
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCountingBloomFilter<String> create(RedissonClientExtend client, String name) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter(name, 200,
+                CountingBloomFilterOptions.defaults().overflowCounters(2));
+        filter.delete();
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed");
+        return filter;
+    }
+
+    private static long overflowFields(RedissonClientExtend client) {
+        return client.getMap(RedissonObject.suffixName(NAME, "overflow")).size();
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, NAME);
+        checkRoundTrip(filter);
+        check(overflowFields(client) == 0, "overflow should be empty after all elements are removed");
+        filter.delete();
+        passed("testRoundTrip");
+    }
+
+    /**
+     * Counters over <code>2^baseBits - 1</code> keep the rest in overflow hash and return from it on remove.
+     */
+    private static void testSpill(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, NAME);
+        for (int i = 0; i < 10; i++) {
+            filter.add("a");
+        }
+        check(overflowFields(client) > 0, "counters over base bits should spill into overflow");
+
+        for (int i = 0; i < 10; i++) {
+            check(filter.remove("a"), "element should be removed " + (i + 1) + " times");
+        }
+        check(!filter.contains("a"), "element should be absent after all removals");
+        check(!filter.remove("a"), "counters should not go below zero");
+        check(overflowFields(client) == 0, "overflow fields should be deleted after counters return to base bits");
+        filter.delete();
+        passed("testSpill");
+    }
+
+    private static void testSaturation(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, NAME);
+        checkSaturation(filter, 200);
+        filter.delete();
+        passed("testSaturation");
+    }
+
+    private static void testMemory(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, NAME);
+        RCountingBloomFilter<String> regular = client.getCountingBloomFilter(NAME + "-regular", 200);
+        regular.delete();
+        regular.tryInit(1000, 0.01);
+        for (int i = 0; i < 500; i++) {
+            filter.add("e" + i);
+            regular.add("e" + i);
+        }
+        check(filter.sizeInMemory() < regular.sizeInMemory(), "base counters should take less memory than full counters");
+        filter.delete();
+        regular.delete();
+        passed("testMemory");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        CountingBloomFilterOptions options = CountingBloomFilterOptions.defaults().overflowCounters(2);
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter(NAME, 200, options);
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter(NAME, 200, options);
+        checkConfigChangeRetry(filter, other);
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Counter width and overflow hash are taken from filter config, not from options of client.
+     */
+    private static void testCounterBitsFromConfig(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, NAME);
+        RCountingBloomFilter<String> plain = client.getCountingBloomFilter(NAME, 200);
+        for (int i = 0; i < 10; i++) {
+            filter.add("a");
+        }
+        check(plain.contains("a"), "client without overflow option should read base counters of config width");
+        for (int i = 0; i < 10; i++) {
+            check(plain.remove("a"), "client without overflow option should use overflow hash " + (i + 1));
+        }
+        check(!filter.contains("a"), "element should be absent after removals by other client");
+        check(overflowFields(client) == 0, "overflow fields should be deleted by other client");
+
+        // 配置被另一个位数的过滤器重建后，按新配置重试
+        plain.delete();
+        check(plain.tryInit(1000, 0.01), "tryInit without overflow should succeed");
+        check(filter.add("b") && plain.contains("b"), "client with overflow option should follow recreated config");
+        for (int i = 0; i < 20; i++) {
+            filter.add("c");
+        }
+        check(overflowFields(client) == 0, "filter without overflow in config should not spill");
+        plain.delete();
+        passed("testCounterBitsFromConfig");
+    }
+
+    private static void testInvalidOptions() {
+        expect(IllegalArgumentException.class, () -> CountingBloomFilterOptions.defaults().overflowCounters(0),
+                "zero base bits should be rejected");
+        expect(IllegalArgumentException.class, () -> CountingBloomFilterOptions.defaults().overflowCounters(32),
+                "base bits over 31 should be rejected");
+        passed("testInvalidOptions");
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilterOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkConfigChangeRetry;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * Runs against single Redis node, so replica reads fall back to master.
+ *
+ * @author linfeng
+ */
+public class CountingBloomFilterReplicasTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testReadsWithoutReplicas(client);
+            testWaitForReplicas(client);
+            testConfigChangeRetry(client);
+            testInvalidOptions();
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCountingBloomFilter<String> create(RedissonClientExtend client, CountingBloomFilterOptions options) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("replicas-test", 15, options);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        return filter;
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client,
+                CountingBloomFilterOptions.defaults().replicaReads(100, TimeUnit.MILLISECONDS));
+        checkRoundTrip(filter);
+        filter.delete();
+        filter.destroy();
+        passed("testRoundTrip");
+    }
+
+    /**
+     * Reads after max lag since own write would go to replicas, but there are none.
+     */
+    private static void testReadsWithoutReplicas(RedissonClientExtend client) throws InterruptedException {
+        RCountingBloomFilter<String> filter = create(client,
+                CountingBloomFilterOptions.defaults().replicaReads(100, TimeUnit.MILLISECONDS));
+        filter.add("a");
+        Thread.sleep(300);
+        check(filter.contains("a"), "element should be read from master without replicas");
+        check(!filter.contains("b"), "absent element should not be found");
+        check(filter.count() > 0, "count should be read from master without replicas");
+        filter.delete();
+        filter.destroy();
+        passed("testReadsWithoutReplicas");
+    }
+
+    private static void testWaitForReplicas(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client,
+                CountingBloomFilterOptions.defaults().waitForReplicas(1, 50, TimeUnit.MILLISECONDS));
+        check(filter.add("a"), "add should complete after wait timeout");
+        check(filter.contains("a"), "added element should be present");
+        check(filter.remove("a"), "remove should complete after wait timeout");
+        check(!filter.contains("a"), "removed element should be absent");
+        filter.delete();
+        filter.destroy();
+        passed("testWaitForReplicas");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        CountingBloomFilterOptions options = CountingBloomFilterOptions.defaults().replicaReads(100, TimeUnit.MILLISECONDS);
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("replicas-test", 15, options);
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter("replicas-test", 15);
+        checkConfigChangeRetry(filter, other);
+        other.delete();
+        filter.destroy();
+        passed("testConfigChangeRetry");
+    }
+
+    private static void testInvalidOptions() {
+        expect(IllegalArgumentException.class,
+                () -> CountingBloomFilterOptions.defaults().replicaReads(-1, TimeUnit.MILLISECONDS), "negative lag should be rejected");
+        expect(IllegalArgumentException.class,
+                () -> CountingBloomFilterOptions.defaults().waitForReplicas(0, 1, TimeUnit.SECONDS), "zero replicas should be rejected");
+        expect(IllegalArgumentException.class,
+                () -> CountingBloomFilterOptions.defaults().waitForReplicas(1, 0, TimeUnit.SECONDS), "zero timeout should be rejected");
+        passed("testInvalidOptions");
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.redisson;
+
+import org.redisson.api.CuckooFilterOptions;
+import org.redisson.api.FilterHealth;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RCuckooFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.Arrays;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class FilterHealthTest {
+
+    private static final int REPEAT = 7;
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testCountingHealth(client);
+            testBlockedHealth(client);
+            testDLeftHealth(client);
+            testCuckooHealth(client);
+            testConfigChange(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static long sum(long[] histogram) {
+        long result = 0;
+        for (long value : histogram) {
+            result += value;
+        }
+        return result;
+    }
+
+    /**
+     * Scan by small slices should give the same report as scan by default slices.
+     */
+    private static void checkSlices(FilterHealth health, FilterHealth sliced) {
+        check(health.getSize() == sliced.getSize() && health.getFilled() == sliced.getFilled()
+                        && health.getSaturated() == sliced.getSaturated()
+                        && Arrays.equals(health.getHistogram(), sliced.getHistogram()),
+                "sliced scan should give the same report: " + Arrays.toString(health.getHistogram())
+                        + " vs " + Arrays.toString(sliced.getHistogram()));
+    }
+
+    /**
+     * Checks empty, filled and saturated counters of initialized filter.
+     */
+    private static void checkCounters(RCountingBloomFilter<String> filter) {
+        FilterHealth health = filter.health();
+        check(health.getFilled() == 0 && health.getFalseProbability() == 0 && !health.isDegraded(),
+                "empty filter should be healthy");
+        check(health.getHistogram().length == REPEAT + 1, "histogram should be indexed up to max repeat");
+        check(health.getHistogram()[0] == health.getSize(), "all counters should be zero");
+
+        for (int i = 0; i < 100; i++) {
+            filter.add("e" + i);
+        }
+        for (int i = 0; i < REPEAT + 2; i++) {
+            filter.add("saturated");
+        }
+        health = filter.health();
+        check(health.getFilled() > 0 && health.getFillRatio() > 0, "added elements should fill counters");
+        check(sum(health.getHistogram()) == health.getSize(), "histogram should cover all counters");
+        check(health.getSaturated() > 0 && health.getSaturated() == health.getHistogram()[REPEAT],
+                "counters of element added over max repeat should be saturated");
+        check(health.getFalseProbability() > 0 && health.getFalseProbability() < 1, "effective probability should be estimated");
+        check(health.getConfiguredFalseProbability() == 0.01, "configured probability should be read from config");
+        checkSlices(health, filter.health(7));
+        expect(IllegalArgumentException.class, () -> filter.health(0), "zero slice size should be rejected");
+    }
+
+    private static void checkDegraded(RCountingBloomFilter<String> filter) {
+        filter.delete();
+        filter.tryInit(100, 0.01);
+        for (int i = 0; i < 2000; i++) {
+            filter.add("e" + i);
+        }
+        check(filter.health().isDegraded(), "overfilled filter should be degraded");
+    }
+
+    private static void testCountingHealth(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("health-test", REPEAT);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        checkCounters(filter);
+        checkDegraded(filter);
+        filter.delete();
+        passed("testCountingHealth");
+    }
+
+    private static void testBlockedHealth(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getBlockedCountingBloomFilter("health-test", REPEAT);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        checkCounters(filter);
+        checkDegraded(filter);
+        filter.delete();
+        passed("testBlockedHealth");
+    }
+
+    /**
+     * Cells of d-left filter are counted, so filled cells are amount of distinct fingerprints.
+     */
+    private static void testDLeftHealth(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getDLeftCountingBloomFilter("health-test", REPEAT);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        checkCounters(filter);
+        FilterHealth health = filter.health();
+        check(health.getFilled() == filter.count(), "filled cells should match count of filter");
+        check(health.getSaturated() == 1, "only cell of element added over max repeat should be saturated");
+        filter.delete();
+        passed("testDLeftHealth");
+    }
+
+    /**
+     * Histogram of cuckoo filter is indexed by occupied entries of bucket.
+     */
+    private static void testCuckooHealth(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = client.getCuckooFilter("health-test", 1000, 0.001,
+                CuckooFilterOptions.defaults().stashSize(0));
+        filter.delete();
+        FilterHealth health = filter.health();
+        int b = health.getHistogram().length - 1;
+        check(b == 4, "fpp 0.001 should give 4 entries per bucket");
+        check(health.getFilled() == 0 && health.getHistogram()[0] * b == health.getSize(), "all buckets should be empty");
+
+        int added = 0;
+        for (int i = 0; i < 900; i++) {
+            if (filter.add("e" + i)) {
+                added++;
+            }
+        }
+        health = filter.health();
+        check(health.getFilled() == added, "filled entries should match added elements: " + health.getFilled() + " vs " + added);
+        check(sum(health.getHistogram()) * b == health.getSize(), "histogram should cover all buckets");
+        check(health.getSaturated() == health.getHistogram()[b], "full buckets should be saturated");
+        check(health.getFalseProbability() > 0 && !health.isDegraded(), "filter within capacity should not be degraded");
+        checkSlices(health, filter.health(3));
+        expect(IllegalArgumentException.class, () -> filter.health(0), "zero slice size should be rejected");
+        filter.delete();
+        passed("testCuckooHealth");
+    }
+
+    private static void testConfigChange(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("health-test", REPEAT);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        long size = filter.health().getSize();
+
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter("health-test", REPEAT);
+        other.delete();
+        other.tryInit(5000, 0.001);
+        FilterHealth health = filter.health();
+        check(health.getSize() != size && health.getSize() == other.getSize(), "health should be scanned with new config");
+        check(health.getConfiguredFalseProbability() == 0.001, "configured probability should be read again");
+        other.delete();
+        passed("testConfigChange");
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.redisson;
+
+import org.redisson.api.CountingBloomFilter;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+import org.redisson.config.Config;
+
+import java.util.function.Predicate;
+
+/**
+ * Helpers of filter tests, which are run by <code>main</code> against local Redis.
+ *
+ * @author linfeng
+ */
+final class FilterTestSupport {
+
+    private FilterTestSupport() {
+    }
+
+    static RedissonClientExtend createClient() {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:6379");
+        return RedissonExtend.create(config);
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void expect(Class<? extends Throwable> type, Runnable action, String message) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return;
+            }
+            throw new AssertionError(message + ", but was " + e, e);
+        }
+        throw new AssertionError(message + ", but nothing was thrown");
+    }
+
+    /**
+     * Returns ratio of elements <code>prefix + i</code> reported as present.
+     */
+    static double positiveRatio(Predicate<String> contains, String prefix, int count) {
+        int positives = 0;
+        for (int i = 0; i < count; i++) {
+            if (contains.test(prefix + i)) {
+                positives++;
+            }
+        }
+        return positives / (double) count;
+    }
+
+    /**
+     * Adds, checks and removes elements of initialized filter. Filter should have max repeat
+     * high enough so counters are not saturated by 500 elements.
+     */
+    static void checkRoundTrip(CountingBloomFilter<String> filter) {
+        for (int i = 0; i < 500; i++) {
+            filter.add("e" + i);
+        }
+        check(positiveRatio(filter::contains, "e", 500) == 1, "all added elements should be present");
+        double fpp = positiveRatio(filter::contains, "absent", 1000);
+        check(fpp < 0.05, "false positive ratio is too high: " + fpp);
+
+        for (int i = 0; i < 500; i++) {
+            check(filter.remove("e" + i), "added element e" + i + " should be removed");
+        }
+        check(positiveRatio(filter::contains, "e", 500) == 0, "removed elements should be absent");
+        check(!filter.remove("e0"), "element can't be removed twice");
+    }
+
+    /**
+     * Adds the same element more times than max repeat. Counters stop at max repeat,
+     * so element is gone after max repeat removals.
+     */
+    static void checkSaturation(CountingBloomFilter<String> filter, int maxRepeat) {
+        for (int i = 0; i < maxRepeat + 2; i++) {
+            filter.add("saturated");
+        }
+        for (int i = 0; i < maxRepeat; i++) {
+            check(filter.remove("saturated"), "saturated element should be removed " + maxRepeat + " times");
+        }
+        check(!filter.contains("saturated"), "saturated counters should not go beyond max repeat");
+        check(!filter.remove("saturated"), "counters should not go below zero");
+    }
+
+    /**
+     * Recreates filter by other instance with different size, so cached config of filter is stale.
+     */
+    static void checkConfigChangeRetry(RCountingBloomFilter<String> filter, RCountingBloomFilter<String> other) {
+        other.delete();
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed");
+        filter.add("a");
+
+        other.delete();
+        check(other.tryInit(5000, 0.001), "tryInit of recreated filter should succeed");
+        check(filter.add("b"), "add should be retried with new config");
+        check(filter.contains("b"), "element added after config change should be present");
+        check(filter.getSize() == other.getSize(), "size should be read again");
+        check(filter.remove("b"), "remove should use new config");
+    }
+
+    static void passed(String test) {
+        System.out.println(test + ": ok");
+    }
+
+}
@@ -0,0 +1,163 @@
+package org.redisson;
+
+import org.redisson.client.codec.StringCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.checkSaturation;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class LocalCountingBloomFilterTest {
+
+    public static void main(String[] args) throws Exception {
+        testRoundTrip();
+        testSaturation();
+        testNotInitialized();
+        testConcurrentCrossingCounters();
+        testExportImport();
+        testFile();
+        testFileWithoutFlush();
+    }
+
+    private static void testRoundTrip() {
+        LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(15, StringCodec.INSTANCE);
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed");
+        check(!filter.tryInit(1000, 0.01), "second tryInit should fail");
+        checkRoundTrip(filter);
+        passed("testRoundTrip");
+    }
+
+    private static void testSaturation() {
+        LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(3, StringCodec.INSTANCE);
+        filter.tryInit(1000, 0.01);
+        checkSaturation(filter, 3);
+        passed("testSaturation");
+    }
+
+    private static void testNotInitialized() {
+        LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(3, StringCodec.INSTANCE);
+        expect(IllegalStateException.class, () -> filter.add("a"), "add to not initialized filter should fail");
+        passed("testNotInitialized");
+    }
+
+    /**
+     * Counters of 3 bits cross word boundaries, updates of neighbour counters shouldn't be lost.
+     */
+    private static void testConcurrentCrossingCounters() throws Exception {
+        LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(7, StringCodec.INSTANCE);
+        filter.tryInit(100, 0.1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String prefix = "t" + t + "-";
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 200; round++) {
+                        for (int i = 0; i < 5; i++) {
+                            filter.add(prefix + i);
+                        }
+                        for (int i = 0; i < 5; i++) {
+                            check(filter.remove(prefix + i), "element added by this thread should be removed");
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.exportTo(out);
+        for (byte b : out.toByteArray()) {
+            check(b == 0, "all counters should return to zero");
+        }
+        passed("testConcurrentCrossingCounters");
+    }
+
+    private static void testExportImport() throws Exception {
+        LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(7, StringCodec.INSTANCE);
+        filter.tryInit(1000, 0.01);
+        for (int i = 0; i < 500; i++) {
+            filter.add("e" + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.exportTo(out);
+
+        LocalCountingBloomFilter<String> copy = new LocalCountingBloomFilter<>(7, StringCodec.INSTANCE);
+        copy.tryInit(1000, 0.01);
+        copy.importFrom(new ByteArrayInputStream(out.toByteArray()));
+        check(positiveRatio(copy::contains, "e", 500) == 1, "imported counters should contain all elements");
+        check(copy.count() == filter.count(), "imported filter should have the same count");
+        passed("testExportImport");
+    }
+
+    private static void testFile() throws Exception {
+        Path file = Files.createTempFile("counting-bloom", ".bin");
+        Files.delete(file);
+        try {
+            LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(file, 7, StringCodec.INSTANCE);
+            filter.tryInit(1000, 0.01);
+            for (int i = 0; i < 500; i++) {
+                filter.add("e" + i);
+            }
+            filter.close();
+
+            LocalCountingBloomFilter<String> reopened = new LocalCountingBloomFilter<>(file, 7, StringCodec.INSTANCE);
+            check(reopened.getSize() == filter.getSize(), "config should be read from file");
+            check(positiveRatio(reopened::contains, "e", 500) == 1, "counters should be read from file");
+            check(reopened.remove("e0"), "counters read from file should be removable");
+            reopened.close();
+
+            expect(IllegalStateException.class, () -> new LocalCountingBloomFilter<String>(file, 3, StringCodec.INSTANCE),
+                    "file created with other repeat should be rejected");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        passed("testFile");
+    }
+
+    /**
+     * Counters are updated in mapped pages, so other mapping of the file sees them without flush.
+     */
+    private static void testFileWithoutFlush() throws Exception {
+        Path file = Files.createTempFile("counting-bloom", ".bin");
+        Files.delete(file);
+        try {
+            LocalCountingBloomFilter<String> filter = new LocalCountingBloomFilter<>(file, 7, StringCodec.INSTANCE);
+            filter.tryInit(1000, 0.01);
+            for (int i = 0; i < 500; i++) {
+                filter.add("e" + i);
+            }
+
+            LocalCountingBloomFilter<String> other = new LocalCountingBloomFilter<>(file, 7, StringCodec.INSTANCE);
+            check(positiveRatio(other::contains, "e", 500) == 1, "counters should be visible without flush");
+            check(other.remove("e0"), "element should be removed through other mapping");
+            check(filter.count() == other.count(), "both mappings should share counters");
+            other.close();
+            filter.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        passed("testFileWithoutFlush");
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.redisson;
+
+import org.redisson.api.RBatchExtend;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RCountingBloomFilterAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClientExtend;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonBatchExtendTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testConfigChangeRetry(client);
+            testUnsupportedVersionMessage();
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Filter operations are sent in the same pipeline as bucket operations.
+     */
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("batch-test", 15);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+
+        RBatchExtend batch = client.createBatchExtend();
+        RCountingBloomFilterAsync<String> batchFilter = batch.getCountingBloomFilter("batch-test", 15);
+        RFuture<Boolean> added = batchFilter.addAsync("a");
+        RFuture<Boolean> contains = batchFilter.containsAsync("a");
+        RFuture<Boolean> absent = batchFilter.containsAsync("b");
+        batch.getBucket("batch-test-bucket").setAsync("value");
+        check(!added.isDone(), "batch operation should wait for execute");
+        batch.execute();
+
+        check(added.getNow(), "element should be added by batch");
+        check(contains.getNow(), "element added earlier in batch should be present");
+        check(!absent.getNow(), "not added element should be absent");
+        check("value".equals(client.getBucket("batch-test-bucket").get()), "bucket should be set by the same batch");
+        check(filter.contains("a"), "element added by batch should be visible to filter");
+
+        batch = client.createBatchExtend();
+        batchFilter = batch.getCountingBloomFilter("batch-test", 15);
+        RFuture<Boolean> removed = batchFilter.removeAsync("a");
+        RFuture<Boolean> removedTwice = batchFilter.removeAsync("a");
+        batch.execute();
+        check(removed.getNow() && !removedTwice.getNow(), "element should be removed once");
+        check(!filter.contains("a"), "element removed by batch should be absent");
+
+        filter.delete();
+        client.getBucket("batch-test-bucket").delete();
+        passed("testRoundTrip");
+    }
+
+    /**
+     * Batch queued with stale config fails, then filter of next batch reads config again.
+     */
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter("batch-test", 15);
+        other.delete();
+        other.tryInit(1000, 0.01);
+
+        RBatchExtend batch = client.createBatchExtend();
+        RCountingBloomFilterAsync<String> batchFilter = batch.getCountingBloomFilter("batch-test", 15);
+        RFuture<Boolean> stale = batchFilter.addAsync("a");
+
+        other.delete();
+        other.tryInit(5000, 0.001);
+        RBatchExtend staleBatch = batch;
+        expect(RuntimeException.class, () -> staleBatch.execute(), "batch with stale config should fail");
+        check(!stale.isSuccess(), "add with stale config should fail");
+
+        batch = client.createBatchExtend();
+        RFuture<Boolean> added = batch.<String>getCountingBloomFilter("batch-test", 15).addAsync("a");
+        batch.execute();
+        check(added.getNow(), "add of new batch should use new config");
+        check(other.contains("a"), "element should be added with new config");
+
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    private static void testUnsupportedVersionMessage() {
+        check(RedissonBatchExtend.unsupportedVersion().contains(RedissonBatchExtend.SUPPORTED_VERSION),
+                "failure on other Redisson version should name supported version");
+        passed("testUnsupportedVersionMessage");
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.redisson;
+
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkConfigChangeRetry;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.checkSaturation;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonBlockedCountingBloomFilterTest {
+
+    public static void main(String[] args) {
+        testOffsetsDistinctWithinBlock();
+
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testSaturation(client);
+            testConfigChangeRetry(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Offsets of element should be distinct counters of one block for any step,
+     * including steps not coprime to amount of counters per block.
+     */
+    private static void testOffsetsDistinctWithinBlock() {
+        Random random = new Random(1);
+        for (int maxCount : new int[] {1, 2, 3, 4, 5, 8}) {
+            int countersPerBlock = RedissonBlockedCountingBloomFilter.BLOCK_BITS / maxCount;
+            for (int iterations : new int[] {1, 7, 20, countersPerBlock + 10}) {
+                for (int n = 0; n < 1000; n++) {
+                    long[] indexes = RedissonBlockedCountingBloomFilter.hash(random.nextLong(), random.nextLong(),
+                            iterations, 1000, maxCount);
+                    check(indexes.length == Math.min(iterations, countersPerBlock), "unexpected amount of offsets");
+
+                    long block = indexes[0] / RedissonBlockedCountingBloomFilter.BLOCK_BITS;
+                    Set<Long> distinct = new HashSet<>();
+                    for (long index : indexes) {
+                        check(index / RedissonBlockedCountingBloomFilter.BLOCK_BITS == block, "offsets should be in one block");
+                        check(index % RedissonBlockedCountingBloomFilter.BLOCK_BITS % maxCount == 0, "offset should be counter aligned");
+                        check(distinct.add(index), "offsets should be distinct for maxCount " + maxCount);
+                    }
+                }
+            }
+        }
+        passed("testOffsetsDistinctWithinBlock");
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getBlockedCountingBloomFilter("blocked-test", 15);
+        filter.delete();
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed");
+        check(!filter.tryInit(1000, 0.01), "second tryInit should fail");
+        checkRoundTrip(filter);
+        filter.delete();
+        passed("testRoundTrip");
+    }
+
+    private static void testSaturation(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getBlockedCountingBloomFilter("blocked-test", 3);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        checkSaturation(filter, 3);
+        filter.delete();
+        passed("testSaturation");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getBlockedCountingBloomFilter("blocked-test", 15);
+        RCountingBloomFilter<String> other = client.getBlockedCountingBloomFilter("blocked-test", 15);
+        checkConfigChangeRetry(filter, other);
+        filter.delete();
+        passed("testConfigChangeRetry");
+    }
+
+}
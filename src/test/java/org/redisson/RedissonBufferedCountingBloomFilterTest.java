@@ -0,0 +1,150 @@
+package org.redisson;
+
+import org.redisson.api.RBufferableCountingBloomFilter;
+import org.redisson.api.RBufferedCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class RedissonBufferedCountingBloomFilterTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testCoalescing(client);
+            testFlushByCaller(client);
+            testSaturation(client);
+            testConfigChange(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RBufferableCountingBloomFilter<String> filter(RedissonClientExtend client, int repeat) {
+        RBufferableCountingBloomFilter<String> filter = client.getCountingBloomFilter("buffered-test", repeat);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        return filter;
+    }
+
+    /**
+     * Buffered adds and removes are seen by view at once and by filter after flush.
+     */
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RBufferableCountingBloomFilter<String> filter = filter(client, 15);
+        RBufferedCountingBloomFilter<String> buffered = filter.buffered(1, 1000000, TimeUnit.HOURS);
+        try {
+            for (int i = 0; i < 200; i++) {
+                buffered.add("e" + i);
+            }
+            check(positiveRatio(buffered::contains, "e", 200) == 1, "view should see buffered adds");
+            check(positiveRatio(filter::contains, "e", 200) < 0.1, "filter shouldn't see adds before flush");
+
+            buffered.flush();
+            check(buffered.getPendingCounters() == 0, "flush should drain buffer");
+            check(positiveRatio(filter::contains, "e", 200) == 1, "filter should see flushed adds");
+
+            for (int i = 0; i < 200; i++) {
+                check(buffered.remove("e" + i), "added element should be removed");
+            }
+            check(positiveRatio(buffered::contains, "e", 200) == 0, "view should see buffered removes");
+            buffered.flush();
+            check(positiveRatio(filter::contains, "e", 200) == 0, "filter should see flushed removes");
+            check(!buffered.remove("absent"), "absent element can't be removed");
+        } finally {
+            buffered.close();
+            filter.delete();
+        }
+        passed("testRoundTrip");
+    }
+
+    private static void testCoalescing(RedissonClientExtend client) {
+        RBufferableCountingBloomFilter<String> filter = filter(client, 15);
+        RBufferedCountingBloomFilter<String> buffered = filter.buffered(1, 1000000, TimeUnit.HOURS);
+        try {
+            for (int i = 0; i < 10; i++) {
+                buffered.add("hot");
+            }
+            check(buffered.getPendingCounters() <= filter.getHashIterations(),
+                    "updates of the same counters should be coalesced");
+            buffered.flush();
+            check(buffered.getCoalescingRatio() >= 10, "coalescing ratio should count merged updates");
+            check(buffered.getFlushCount() == 1, "one flush should be counted");
+        } finally {
+            buffered.close();
+            filter.delete();
+        }
+        passed("testCoalescing");
+    }
+
+    private static void testFlushByCaller(RedissonClientExtend client) {
+        RBufferableCountingBloomFilter<String> filter = filter(client, 15);
+        RBufferedCountingBloomFilter<String> buffered = filter.buffered(1, 20, TimeUnit.HOURS);
+        try {
+            for (int i = 0; i < 100; i++) {
+                buffered.add("e" + i);
+            }
+            check(buffered.getFlushCount() > 0, "full buffer should be flushed by caller");
+            check(buffered.getPendingCounters() < 20 + filter.getHashIterations(), "buffer should stay bounded");
+        } finally {
+            buffered.close();
+            check(positiveRatio(filter::contains, "e", 100) == 1, "close should flush rest of buffer");
+            filter.delete();
+        }
+        passed("testFlushByCaller");
+    }
+
+    /**
+     * Flushed deltas are kept within max repeat.
+     */
+    private static void testSaturation(RedissonClientExtend client) {
+        RBufferableCountingBloomFilter<String> filter = filter(client, 3);
+        RBufferedCountingBloomFilter<String> buffered = filter.buffered(1, 1000000, TimeUnit.HOURS);
+        try {
+            for (int i = 0; i < 10; i++) {
+                buffered.add("saturated");
+            }
+            buffered.flush();
+            for (int i = 0; i < 3; i++) {
+                check(filter.remove("saturated"), "saturated element should be removed 3 times");
+            }
+            check(!filter.contains("saturated"), "flushed counters should not go beyond max repeat");
+        } finally {
+            buffered.close();
+            filter.delete();
+        }
+        passed("testSaturation");
+    }
+
+    /**
+     * Deltas computed for old config are dropped and view continues with new config.
+     */
+    private static void testConfigChange(RedissonClientExtend client) {
+        RBufferableCountingBloomFilter<String> filter = filter(client, 15);
+        RBufferedCountingBloomFilter<String> buffered = filter.buffered(1, 1000000, TimeUnit.HOURS);
+        try {
+            buffered.add("old");
+            RBufferableCountingBloomFilter<String> other = client.getCountingBloomFilter("buffered-test", 15);
+            other.delete();
+            other.tryInit(5000, 0.001);
+
+            buffered.flush();
+            buffered.add("new");
+            buffered.flush();
+            check(other.contains("new"), "add after config change should use new config");
+        } finally {
+            buffered.close();
+            filter.delete();
+        }
+        passed("testConfigChange");
+    }
+
+}
@@ -0,0 +1,194 @@
+package org.redisson;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RCountingBloomFilterReactive;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonCountingBloomFilterReactiveTest {
+
+    public static void main(String[] args) throws Exception {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testAddAndContainsAll(client);
+            testDownstreamDemand(client);
+            testConfigChangeRetry(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Publishes strings <code>prefix + i</code> on request and tracks elements not answered yet.
+     */
+    private static class RangePublisher implements Publisher<String> {
+
+        final String prefix;
+        final int count;
+        final AtomicInteger emitted = new AtomicInteger();
+        final AtomicInteger answered = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        RangePublisher(String prefix, int count) {
+            this.prefix = prefix;
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super String> subscriber) {
+            AtomicLong requested = new AtomicLong();
+            AtomicInteger wip = new AtomicInteger();
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    if (wip.getAndIncrement() != 0) {
+                        return;
+                    }
+                    do {
+                        while (requested.get() > 0 && emitted.get() < count) {
+                            requested.decrementAndGet();
+                            int i = emitted.getAndIncrement();
+                            maxInFlight.accumulateAndGet(i + 1 - answered.get(), Math::max);
+                            subscriber.onNext(prefix + i);
+                        }
+                        if (emitted.get() == count) {
+                            subscriber.onComplete();
+                            wip.set(0);
+                            return;
+                        }
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+
+    }
+
+    private static class CollectingSubscriber implements Subscriber<Boolean> {
+
+        final List<Boolean> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final RangePublisher source;
+        final long demand;
+        volatile Throwable error;
+        Subscription subscription;
+
+        CollectingSubscriber(RangePublisher source, long demand) {
+            this.source = source;
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(demand);
+        }
+
+        @Override
+        public void onNext(Boolean result) {
+            source.answered.incrementAndGet();
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            check(done.await(30, TimeUnit.SECONDS), "stream should complete");
+            check(error == null, "stream failed: " + error);
+        }
+
+    }
+
+    private static CollectingSubscriber run(Publisher<Boolean> publisher, RangePublisher source, long demand) {
+        CollectingSubscriber subscriber = new CollectingSubscriber(source, demand);
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static void testAddAndContainsAll(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("reactive-test", 15);
+        filter.delete();
+        filter.tryInit(10000, 0.01);
+        RCountingBloomFilterReactive<String> reactive = client.getCountingBloomFilterReactive("reactive-test", 15);
+
+        RangePublisher source = new RangePublisher("e", 1000);
+        CollectingSubscriber added = run(reactive.addAll(source, 16), source, Long.MAX_VALUE);
+        added.await();
+        check(added.results.size() == 1000, "result should be emitted per element");
+        check(source.maxInFlight.get() <= 16, "in-flight elements exceeded limit: " + source.maxInFlight.get());
+
+        RangePublisher lookup = new RangePublisher("e", 1000);
+        CollectingSubscriber contained = run(reactive.containsAll(lookup, 16), lookup, Long.MAX_VALUE);
+        contained.await();
+        check(!contained.results.contains(false), "all added elements should be present");
+        filter.delete();
+        passed("testAddAndContainsAll");
+    }
+
+    /**
+     * Source is not requested beyond downstream demand plus in-flight limit.
+     */
+    private static void testDownstreamDemand(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("reactive-test", 15);
+        filter.delete();
+        filter.tryInit(10000, 0.01);
+        RCountingBloomFilterReactive<String> reactive = client.getCountingBloomFilterReactive("reactive-test", 15);
+
+        RangePublisher source = new RangePublisher("e", 1000);
+        CollectingSubscriber subscriber = run(reactive.addAll(source, 8), source, 10);
+        Thread.sleep(500);
+        check(subscriber.results.size() == 10, "only requested results should be emitted");
+        check(source.emitted.get() <= 10 + 8, "source should not be requested beyond demand");
+        subscriber.subscription.cancel();
+        filter.delete();
+        passed("testDownstreamDemand");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("reactive-test", 15);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        RCountingBloomFilterReactive<String> reactive = client.getCountingBloomFilterReactive("reactive-test", 15);
+        RangePublisher warmUp = new RangePublisher("old", 1);
+        run(reactive.addAll(warmUp), warmUp, Long.MAX_VALUE).await();
+
+        filter.delete();
+        filter.tryInit(5000, 0.001);
+        RangePublisher source = new RangePublisher("new", 100);
+        run(reactive.addAll(source), source, Long.MAX_VALUE).await();
+        for (int i = 0; i < 100; i++) {
+            check(filter.contains("new" + i), "element added after config change should be present");
+        }
+        filter.delete();
+        passed("testConfigChangeRetry");
+    }
+
+}
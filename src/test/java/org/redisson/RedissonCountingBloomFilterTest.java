@@ -0,0 +1,118 @@
+package org.redisson;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+import org.redisson.client.protocol.decoder.BitmaskReplayDecoder;
+import org.redisson.client.protocol.decoder.IntArrayReplayDecoder;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkConfigChangeRetry;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.checkSaturation;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonCountingBloomFilterTest {
+
+    public static void main(String[] args) throws Exception {
+        testBitmaskDecoder();
+        testIntArrayDecoder();
+
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testSaturation(client);
+            testConfigChangeRetry(client);
+            testConcurrentAddRemove(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static void testBitmaskDecoder() {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[] {0x05, 0, 0, 0, 0, 0, 0, 0, (byte) 0x80});
+        long[] bitmask = (long[]) new BitmaskReplayDecoder().decode(buf, null);
+        BitSet bits = BitSet.valueOf(bitmask);
+        check(bits.get(0) && !bits.get(1) && bits.get(2), "bits of first byte should be decoded");
+        check(bits.get(71) && bits.cardinality() == 3, "bit of second word should be decoded");
+        passed("testBitmaskDecoder");
+    }
+
+    private static void testIntArrayDecoder() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(0).writeInt(7).writeInt(Integer.MAX_VALUE);
+        int[] values = (int[]) new IntArrayReplayDecoder().decode(buf, null);
+        check(values.length == 3 && values[0] == 0 && values[1] == 7 && values[2] == Integer.MAX_VALUE,
+                "packed integers should be decoded");
+        passed("testIntArrayDecoder");
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("counting-test", 15);
+        filter.delete();
+        check(filter.tryInit(1000, 0.01), "tryInit should succeed");
+        checkRoundTrip(filter);
+        filter.delete();
+        passed("testRoundTrip");
+    }
+
+    private static void testSaturation(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("counting-test", 3);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        checkSaturation(filter, 3);
+        filter.delete();
+        passed("testSaturation");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("counting-test", 15);
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter("counting-test", 15);
+        checkConfigChangeRetry(filter, other);
+        filter.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Add and remove of the same element from many threads shouldn't lose counter updates,
+     * so element is absent after all pairs are done.
+     */
+    private static void testConcurrentAddRemove(RedissonClientExtend client) throws Exception {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("counting-test", 15);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        filter.add("shared");
+                        check(filter.remove("shared"), "element added by this thread should be removed");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        check(!filter.contains("shared"), "counters should return to zero");
+        filter.delete();
+        passed("testConcurrentAddRemove");
+    }
+
+}
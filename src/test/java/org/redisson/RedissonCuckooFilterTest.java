@@ -0,0 +1,263 @@
+package org.redisson;
+
+import org.redisson.api.CuckooFilterOptions;
+import org.redisson.api.RCuckooFilter;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class RedissonCuckooFilterTest {
+
+    private static final String NAME = "cuckoo-test";
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testFullFilter(client);
+            testScalable(client);
+            testStash(client);
+            testBulk(client);
+            testScalableBulk(client);
+            testSemiSorted(client);
+            testConfigChangeRetry(client);
+            testBulkConfigChangeRetry(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCuckooFilter<String> create(RedissonClientExtend client, long capacity, double fpp,
+                                                CuckooFilterOptions options) {
+        RCuckooFilter<String> filter = client.getCuckooFilter(NAME, capacity, fpp, options);
+        filter.delete();
+        return filter;
+    }
+
+    private static void checkRoundTrip(RCuckooFilter<String> filter, int count) {
+        for (int i = 0; i < count; i++) {
+            check(filter.add("e" + i), "element e" + i + " should be added");
+        }
+        check(positiveRatio(filter::contains, "e", count) == 1, "all added elements should be present");
+        double fpp = positiveRatio(filter::contains, "absent", 1000);
+        check(fpp < 0.05, "false positive ratio is too high: " + fpp);
+
+        for (int i = 0; i < count; i++) {
+            check(filter.remove("e" + i), "added element e" + i + " should be removed");
+        }
+        check(positiveRatio(filter::contains, "e", count) == 0, "removed elements should be absent");
+        check(!filter.remove("e0"), "element can't be removed twice");
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 1000, 0.001, CuckooFilterOptions.defaults());
+        checkRoundTrip(filter, 900);
+
+        check(filter.add("a"), "element should be added");
+        check(!filter.add("a"), "present element should not be added twice");
+        check(filter.remove("a") && !filter.contains("a"), "element should be removed by one call");
+        filter.delete();
+        passed("testRoundTrip");
+    }
+
+    /**
+     * Filter without stash and growth fails once kick chain can't find a slot, and keeps added elements.
+     */
+    private static void testFullFilter(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 10, 0.01, CuckooFilterOptions.defaults().stashSize(0));
+        int added = fill(filter);
+        check(added >= 10, "filter should hold its capacity, but held " + added);
+        check(positiveRatio(filter::contains, "e", added) == 1, "elements added before failure should stay present");
+        filter.delete();
+        passed("testFullFilter");
+    }
+
+    private static void testScalable(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 10, 0.01, CuckooFilterOptions.defaults().scalable(2));
+        for (int i = 0; i < 500; i++) {
+            check(filter.add("e" + i), "scalable filter should not fail on element e" + i);
+        }
+        check(client.getKeys().countExists(RedissonObject.suffixName(NAME, "sub:") + 1) == 1,
+                "new sub-filter should be allocated");
+        check(positiveRatio(filter::contains, "e", 500) == 1, "elements of all sub-filters should be present");
+        for (int i = 0; i < 500; i++) {
+            check(filter.remove("e" + i), "element e" + i + " should be removed from its sub-filter");
+        }
+        check(positiveRatio(filter::contains, "e", 500) == 0, "removed elements should be absent");
+
+        filter.delete();
+        check(client.getKeys().countExists(RedissonObject.suffixName(NAME, "sub:") + 1) == 0,
+                "sub-filters should be deleted with filter");
+        expect(IllegalArgumentException.class, () -> CuckooFilterOptions.defaults().scalable(1), "growth 1 should be rejected");
+        passed("testScalable");
+    }
+
+    /**
+     * Adds elements until filter fails and returns amount of elements added before failure.
+     */
+    private static int fill(RCuckooFilter<String> filter) {
+        int[] added = new int[1];
+        expect(IllegalStateException.class, () -> {
+            for (int i = 0; i < 1000; i++) {
+                filter.add("e" + i);
+                added[0]++;
+            }
+        }, "add into full filter should fail");
+        return added[0];
+    }
+
+    /**
+     * Without kicks each failed placement goes to stash, so filter with stash holds exactly
+     * stash size elements more than the same filter without it.
+     */
+    private static void testStash(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 10, 0.01, CuckooFilterOptions.defaults().maxKicks(0).stashSize(0));
+        int withoutStash = fill(filter);
+
+        filter = create(client, 10, 0.01, CuckooFilterOptions.defaults().maxKicks(0).stashSize(16));
+        int withStash = fill(filter);
+        check(withStash >= withoutStash + 16, "stash should hold 16 more elements: " + withoutStash + " vs " + withStash);
+        String stashName = RedissonObject.suffixName(NAME, "stash");
+        check(client.getSet(stashName).size() == 16, "stash should be full");
+        check(positiveRatio(filter::contains, "e", withStash) == 1, "stashed elements should be present");
+
+        for (int i = 0; i < withStash; i++) {
+            check(filter.remove("e" + i), "element e" + i + " should be removed from table or stash");
+        }
+        check(client.getSet(stashName).size() == 0, "stash should be empty after all elements are removed");
+        check(positiveRatio(filter::contains, "e", withStash) == 0, "removed elements should be absent");
+        filter.delete();
+        passed("testStash");
+    }
+
+    private static List<String> elements(String prefix, int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(prefix + i);
+        }
+        return result;
+    }
+
+    /**
+     * Bulk operations run by several script calls and read chunks, and agree with single operations.
+     */
+    private static void testBulk(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 5000, 0.001, CuckooFilterOptions.defaults());
+        List<String> elements = elements("e", 2500);
+        elements.add("e0");
+
+        BitSet added = filter.addAll(elements);
+        check(added.cardinality() >= 2490 && added.get(0) && !added.get(2500),
+                "distinct elements should be added once: " + added.cardinality());
+        check(filter.containsAll(elements).cardinality() == elements.size(), "all added elements should be present");
+        check(filter.contains("e1234"), "element added by addAll should be found by contains");
+
+        List<String> mixed = new ArrayList<>();
+        mixed.add("absent");
+        mixed.add("e1");
+        filter.add("single");
+        mixed.add("single");
+        BitSet present = filter.containsAll(mixed);
+        check(!present.get(0) && present.get(1) && present.get(2), "containsAll should keep order of elements: " + present);
+
+        BitSet removed = filter.removeAll(elements);
+        check(removed.cardinality() == added.cardinality(), "each added element should be removed once");
+        check(filter.containsAll(elements("e", 2500)).cardinality() < 25, "removed elements should be absent");
+        check(filter.containsAll(new ArrayList<String>()).isEmpty(), "empty collection should give empty result");
+        filter.delete();
+        passed("testBulk");
+    }
+
+    private static void testScalableBulk(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 10, 0.01, CuckooFilterOptions.defaults().scalable(2));
+        List<String> elements = elements("e", 3000);
+        check(filter.addAll(elements).cardinality() > 2900, "addAll should allocate sub-filters instead of failing");
+        check(filter.containsAll(elements).cardinality() == elements.size(), "elements of all sub-filters should be present");
+        filter.removeAll(elements);
+        check(filter.containsAll(elements).cardinality() < 300, "removed elements should be absent");
+        filter.delete();
+        passed("testScalableBulk");
+    }
+
+    /**
+     * Returns length of buckets string, memory usage is rounded by allocator.
+     */
+    private static long length(RedissonClientExtend client, String name) {
+        return client.getScript().eval(RScript.Mode.READ_ONLY, "return redis.call('strlen', KEYS[1]);",
+                RScript.ReturnType.INTEGER, Collections.<Object>singletonList(name));
+    }
+
+    /**
+     * Semi-sorted buckets are re-encoded as a whole, so elements stay present while others are added and removed.
+     */
+    private static void testSemiSorted(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 1000, 0.001, CuckooFilterOptions.defaults().semiSorted());
+        checkRoundTrip(filter, 900);
+
+        List<String> elements = elements("e", 900);
+        filter.addAll(elements);
+        for (int i = 0; i < 900; i += 2) {
+            filter.remove("e" + i);
+        }
+        BitSet present = filter.containsAll(elements);
+        for (int i = 1; i < 900; i += 2) {
+            check(present.get(i), "element e" + i + " should stay present after neighbours are removed");
+            check(filter.contains("e" + i), "pipelined and script lookups should agree on element e" + i);
+        }
+
+        RCuckooFilter<String> plain = client.getCuckooFilter(NAME + "-plain", 1000, 0.001);
+        plain.delete();
+        plain.addAll(elements);
+        check(length(client, NAME) < length(client, NAME + "-plain"), "semi-sorted buckets should take less memory");
+
+        filter.delete();
+        plain.delete();
+        expect(IllegalArgumentException.class,
+                () -> client.getCuckooFilter(NAME, 1000, 0.01, CuckooFilterOptions.defaults().semiSorted()),
+                "semi-sorted format should need 4 entries per bucket");
+        passed("testSemiSorted");
+    }
+
+    /**
+     * Filter recreated by other client with different capacity is read again.
+     */
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 100, 0.01, CuckooFilterOptions.defaults());
+        filter.add("a");
+
+        RCuckooFilter<String> other = create(client, 10000, 0.01, CuckooFilterOptions.defaults());
+        check(other.add("b"), "other client should create new filter");
+        check(filter.contains("b"), "contains should be retried with new config");
+        check(!filter.contains("a"), "element of deleted filter should be absent");
+        check(filter.add("c") && other.contains("c"), "add should use new config");
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    private static void testBulkConfigChangeRetry(RedissonClientExtend client) {
+        RCuckooFilter<String> filter = create(client, 100, 0.01, CuckooFilterOptions.defaults());
+        filter.addAll(elements("a", 50));
+
+        RCuckooFilter<String> other = create(client, 10000, 0.01, CuckooFilterOptions.defaults());
+        other.addAll(elements("b", 50));
+        check(filter.containsAll(elements("b", 50)).cardinality() == 50, "containsAll should be read with new config");
+        check(filter.containsAll(elements("a", 50)).cardinality() < 5, "elements of deleted filter should be absent");
+        check(filter.addAll(elements("c", 50)).cardinality() > 45, "addAll should use new config");
+        check(other.containsAll(elements("c", 50)).cardinality() == 50, "elements added with new config should be present");
+        other.delete();
+        passed("testBulkConfigChangeRetry");
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.redisson;
+
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkConfigChangeRetry;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.checkSaturation;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonDLeftCountingBloomFilterTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRoundTrip(client);
+            testCount(client);
+            testSaturation(client);
+            testDefaultRepeat(client);
+            testFullBuckets(client);
+            testConfigChangeRetry(client);
+            testCounterBitsFromConfig(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCountingBloomFilter<String> create(RedissonClientExtend client, int repeat, long expectedInsertions) {
+        RCountingBloomFilter<String> filter = client.getDLeftCountingBloomFilter("dleft-test", repeat);
+        filter.delete();
+        check(filter.tryInit(expectedInsertions, 0.001), "tryInit should succeed");
+        return filter;
+    }
+
+    private static void testRoundTrip(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 15, 1000);
+        check(!filter.tryInit(1000, 0.001), "second tryInit should fail");
+        checkRoundTrip(filter);
+        filter.delete();
+        passed("testRoundTrip");
+    }
+
+    private static void testCount(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 15, 1000);
+        for (int i = 0; i < 100; i++) {
+            filter.add("e" + i);
+        }
+        filter.add("e0");
+        check(filter.count() == 100, "count should be amount of distinct elements, but was " + filter.count());
+        filter.remove("e0");
+        check(filter.count() == 100, "element added twice should keep its cell");
+        filter.remove("e0");
+        check(filter.count() == 99, "cell should be freed when counter reaches zero");
+        filter.delete();
+        passed("testCount");
+    }
+
+    private static void testSaturation(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 5, 1000);
+        checkSaturation(filter, 5);
+        filter.delete();
+        passed("testSaturation");
+    }
+
+    /**
+     * Non-positive repeat falls back to default max repeat instead of zero width counters.
+     */
+    private static void testDefaultRepeat(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 0, 1000);
+        check(filter.add("a"), "element should be added with default repeat");
+        check(filter.contains("a"), "added element should be present");
+        checkSaturation(filter, 3);
+        filter.delete();
+        passed("testDefaultRepeat");
+    }
+
+    /**
+     * Filter of one bucket per table fails once all candidate buckets are full.
+     */
+    private static void testFullBuckets(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 15, 1);
+        check(filter.getSize() == RedissonDLeftCountingBloomFilter.TABLES * RedissonDLeftCountingBloomFilter.CELLS_PER_BUCKET,
+                "filter should have one bucket per table");
+        expect(IllegalStateException.class, () -> {
+            for (int i = 0; i < 1000; i++) {
+                filter.add("e" + i);
+            }
+        }, "add into full buckets should fail");
+        check(filter.count() == filter.getSize(), "all cells should be occupied");
+        check(filter.contains("e0"), "elements added before should stay present");
+        filter.delete();
+        passed("testFullBuckets");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = client.getDLeftCountingBloomFilter("dleft-test", 15);
+        RCountingBloomFilter<String> other = client.getDLeftCountingBloomFilter("dleft-test", 15);
+        checkConfigChangeRetry(filter, other);
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Cell layout follows counter width of config, so clients with other repeat share cells.
+     */
+    private static void testCounterBitsFromConfig(RedissonClientExtend client) {
+        RCountingBloomFilter<String> filter = create(client, 3, 1000);
+        RCountingBloomFilter<String> other = client.getDLeftCountingBloomFilter("dleft-test", 15);
+        filter.add("a");
+        check(other.contains("a"), "client with other repeat should read cells of config width");
+        for (int i = 0; i < 5; i++) {
+            other.add("b");
+        }
+        check(filter.contains("b"), "element added by client with other repeat should be present");
+        for (int i = 0; i < 3; i++) {
+            check(filter.remove("b"), "counter should be capped by config width " + (i + 1));
+        }
+        check(!other.contains("b"), "capped counter should reach zero");
+        check(other.remove("a") && !filter.contains("a"), "element should be removed by other client");
+        filter.delete();
+        passed("testCounterBitsFromConfig");
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.redisson;
+
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RFilterGroup;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.BitSet;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonFilterGroupTest {
+
+    private static final String[] NAMES = {"group-test-0", "group-test-1", "group-test-2"};
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testContains(client);
+            testConfigChangeRetry(client);
+            testNotInitialized(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RCountingBloomFilter<String> init(RedissonClientExtend client, String name, long expectedInsertions) {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter(name, 15);
+        filter.delete();
+        filter.tryInit(expectedInsertions, 0.001);
+        return filter;
+    }
+
+    private static void delete(RedissonClientExtend client) {
+        for (String name : NAMES) {
+            client.getCountingBloomFilter(name, 15).delete();
+        }
+    }
+
+    private static void testContains(RedissonClientExtend client) {
+        RCountingBloomFilter<String> first = init(client, NAMES[0], 1000);
+        init(client, NAMES[1], 2000);
+        RCountingBloomFilter<String> third = init(client, NAMES[2], 3000);
+        first.add("a");
+        third.add("a");
+
+        RFilterGroup<String> group = client.getFilterGroup(15, NAMES);
+        BitSet result = group.contains("a");
+        check(result.get(0) && !result.get(1) && result.get(2), "unexpected filters containing element: " + result);
+        check(group.contains("absent").isEmpty(), "absent element should not be found");
+        check(group.getNames().size() == NAMES.length, "group should keep filter names");
+        delete(client);
+        passed("testContains");
+    }
+
+    /**
+     * Filter recreated after group has read its config is read again.
+     */
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        for (String name : NAMES) {
+            init(client, name, 1000);
+        }
+        RFilterGroup<String> group = client.getFilterGroup(15, NAMES);
+        group.contains("warm-up");
+
+        RCountingBloomFilter<String> second = init(client, NAMES[1], 5000);
+        second.add("b");
+        BitSet result = group.contains("b");
+        check(result.get(1) && result.cardinality() == 1, "recreated filter should be checked with new config: " + result);
+        delete(client);
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Not initialized or deleted filter is reported as not containing element, other filters are still checked.
+     */
+    private static void testNotInitialized(RedissonClientExtend client) {
+        RCountingBloomFilter<String> first = init(client, NAMES[0], 1000);
+        first.add("a");
+        client.getCountingBloomFilter(NAMES[1], 15).delete();
+        RFilterGroup<String> group = client.getFilterGroup(15, NAMES[0], NAMES[1]);
+        BitSet result = group.contains("a");
+        check(result.get(0) && !result.get(1), "not initialized filter should not contain element: " + result);
+
+        RCountingBloomFilter<String> second = init(client, NAMES[1], 1000);
+        second.add("a");
+        check(group.contains("a").cardinality() == 2, "filter initialized later should be checked");
+
+        first.delete();
+        result = group.contains("a");
+        check(!result.get(0) && result.get(1), "deleted filter should not contain element: " + result);
+        client.getCountingBloomFilter(NAMES[1], 15).delete();
+        check(group.contains("a").isEmpty(), "group of deleted filters should contain nothing");
+        delete(client);
+        passed("testNotInitialized");
+    }
+
+}
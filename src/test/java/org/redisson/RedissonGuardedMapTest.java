@@ -0,0 +1,282 @@
+package org.redisson;
+
+import org.redisson.api.GuardedMapWriter;
+import org.redisson.api.MapOptions;
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RGuardedMap;
+import org.redisson.api.RedissonClientExtend;
+import org.redisson.api.map.MapLoader;
+import org.redisson.api.map.MapWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class RedissonGuardedMapTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testGuardedLoads(client);
+            testGetAll(client);
+            testWriteAndDelete(client);
+            testFalsePositiveWrite(client);
+            testStoreReads(client);
+            testWriterWithoutLoader(client);
+            testConfigChangeRetry(client);
+            testWarmUpWithoutLoader(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Store behind the map, which counts loads.
+     */
+    private static class Store implements MapLoader<String, String>, MapWriter<String, String> {
+
+        final Map<String, String> data = new ConcurrentHashMap<>();
+        final AtomicInteger loads = new AtomicInteger();
+
+        Store(int count) {
+            for (int i = 0; i < count; i++) {
+                data.put("k" + i, "v" + i);
+            }
+        }
+
+        @Override
+        public String load(String key) {
+            loads.incrementAndGet();
+            return data.get(key);
+        }
+
+        @Override
+        public Iterable<String> loadAllKeys() {
+            return data.keySet();
+        }
+
+        @Override
+        public void write(Map<String, String> map) {
+            data.putAll(map);
+        }
+
+        @Override
+        public void delete(Collection<String> keys) {
+            for (String key : keys) {
+                data.remove(key);
+            }
+        }
+
+    }
+
+    /**
+     * Store which reports inserted and deleted keys.
+     */
+    private static class GuardedStore extends Store implements GuardedMapWriter<String, String> {
+
+        GuardedStore(int count) {
+            super(count);
+        }
+
+        @Override
+        public Collection<String> insert(Map<String, String> map) {
+            List<String> inserted = new ArrayList<>();
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                if (data.put(entry.getKey(), entry.getValue()) == null) {
+                    inserted.add(entry.getKey());
+                }
+            }
+            return inserted;
+        }
+
+        @Override
+        public Collection<String> deleteExisting(Collection<String> keys) {
+            List<String> deleted = new ArrayList<>();
+            for (String key : keys) {
+                if (data.remove(key) != null) {
+                    deleted.add(key);
+                }
+            }
+            return deleted;
+        }
+
+    }
+
+    private static RGuardedMap<String, String> create(RedissonClientExtend client, Store store) {
+        MapOptions<String, String> options = MapOptions.<String, String>defaults()
+                .loader(store)
+                .writer(store)
+                .writeMode(MapOptions.WriteMode.WRITE_THROUGH);
+        RGuardedMap<String, String> map = client.getGuardedMap("guarded-test", "guarded-test-filter", 15, options);
+        map.delete();
+        map.getFilter().delete();
+        map.getFilter().tryInit(1000, 0.001);
+        return map;
+    }
+
+    private static void delete(RGuardedMap<String, String> map) {
+        map.delete();
+        map.getFilter().delete();
+    }
+
+    private static void testGuardedLoads(RedissonClientExtend client) {
+        Store store = new Store(100);
+        RGuardedMap<String, String> map = create(client, store);
+        check(map.warmUp() == 100, "all keys of store should be added");
+        check(positiveRatio(map.getFilter()::contains, "k", 100) == 1, "all keys of store should be present");
+
+        check("v1".equals(map.get("k1")), "stored key should be loaded");
+        check(map.get("missing") == null, "missing key should not be found");
+        check(store.loads.get() == 1, "loader should not be called for missing key");
+        check(map.getLoads() == 1 && map.getAvoidedLoads() == 1, "loads should be counted");
+        check(map.getFalsePositiveLoads() == 0, "stored key load is not false positive");
+        delete(map);
+        passed("testGuardedLoads");
+    }
+
+    private static void testGetAll(RedissonClientExtend client) {
+        Store store = new Store(100);
+        RGuardedMap<String, String> map = create(client, store);
+        map.warmUp();
+
+        Map<String, String> result = map.getAll(new HashSet<>(Arrays.asList("k2", "k3", "missing1", "missing2")));
+        check(result.size() == 2 && "v2".equals(result.get("k2")) && "v3".equals(result.get("k3")),
+                "only stored keys should be returned: " + result);
+        check(store.loads.get() == 2, "loader should be called only for stored keys");
+        check(map.getAvoidedLoads() == 2, "missing keys should be avoided");
+        delete(map);
+        passed("testGetAll");
+    }
+
+    /**
+     * Written keys are added to filter, and only deleted stored keys are removed from it.
+     */
+    private static void testWriteAndDelete(RedissonClientExtend client) {
+        Store store = new Store(100);
+        RGuardedMap<String, String> map = create(client, store);
+        map.warmUp();
+        RCountingBloomFilter<String> filter = map.getFilter();
+
+        map.fastPut("new", "value");
+        check(filter.contains("new"), "written key should be added to filter");
+
+        map.fastRemove("never");
+        check(positiveRatio(filter::contains, "k", 100) == 1, "deletion of never added key should not remove other keys");
+
+        // 过滤器中存在但存储中不存在的键，不应减少计数
+        filter.add("ghost");
+        map.fastRemove("ghost");
+        check(filter.contains("ghost"), "key absent in store should not be removed from filter");
+
+        map.fastRemove("new");
+        check(!filter.contains("new"), "deleted stored key should be removed from filter");
+        check(!store.data.containsKey("new"), "deleted key should be removed from store");
+        check(positiveRatio(filter::contains, "k", 100) == 1, "other keys should stay in filter");
+        delete(map);
+        passed("testWriteAndDelete");
+    }
+
+    /**
+     * New key reported present by filter is still counted, updated key isn't counted twice.
+     */
+    private static void testFalsePositiveWrite(RedissonClientExtend client) {
+        GuardedStore store = new GuardedStore(100);
+        RGuardedMap<String, String> map = create(client, store);
+        map.warmUp();
+        RCountingBloomFilter<String> filter = map.getFilter();
+
+        // 模拟误判：新键写入前已被过滤器报告为存在
+        filter.add("fp");
+        map.fastPut("fp", "value");
+        filter.remove("fp");
+        check(filter.contains("fp"), "new key reported present by filter should be counted");
+
+        map.fastRemove("never");
+        check(positiveRatio(filter::contains, "k", 100) == 1, "deletion of never stored key should not remove other keys");
+
+        map.fastPut("k1", "updated");
+        map.fastPut("k1", "updated again");
+        map.fastRemove("k1");
+        check(!filter.contains("k1"), "updated key should hold one increment");
+        check(!store.data.containsKey("k1"), "deleted key should be removed from store");
+
+        check(store.loads.get() == 0, "writer reporting store state should not need loads");
+        delete(map);
+        passed("testFalsePositiveWrite");
+    }
+
+    /**
+     * Without {@link GuardedMapWriter} store state is read by loader, only for keys present in filter.
+     */
+    private static void testStoreReads(RedissonClientExtend client) {
+        Store store = new Store(100);
+        RGuardedMap<String, String> map = create(client, store);
+        map.warmUp();
+        RCountingBloomFilter<String> filter = map.getFilter();
+
+        map.fastPut("new", "value");
+        check(store.loads.get() == 0, "key rejected by filter should be written without store read");
+        map.fastPut("k1", "updated");
+        check(store.loads.get() == 1, "key present in filter should be read from store before write");
+        map.fastRemove("k1");
+        check(store.loads.get() == 2, "key present in filter should be read from store before delete");
+        check(!filter.contains("k1"), "updated and deleted key should be removed from filter");
+        map.fastRemove("never");
+        check(store.loads.get() == 2, "key rejected by filter should be deleted without store read");
+        delete(map);
+        passed("testStoreReads");
+    }
+
+    private static void testWriterWithoutLoader(RedissonClientExtend client) {
+        Store store = new Store(0);
+        expect(IllegalArgumentException.class, () -> client.getGuardedMap("guarded-test", "guarded-test-filter", 15,
+                MapOptions.<String, String>defaults().writer(store)), "plain writer without loader should be rejected");
+
+        GuardedStore guardedStore = new GuardedStore(0);
+        RGuardedMap<String, String> map = client.getGuardedMap("guarded-test", "guarded-test-filter", 15,
+                MapOptions.<String, String>defaults().writer(guardedStore).writeMode(MapOptions.WriteMode.WRITE_THROUGH));
+        map.getFilter().delete();
+        map.getFilter().tryInit(1000, 0.001);
+        map.fastPut("a", "value");
+        check(map.getFilter().contains("a"), "key inserted by guarded writer should be added");
+        delete(map);
+        passed("testWriterWithoutLoader");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        Store store = new Store(100);
+        RGuardedMap<String, String> map = create(client, store);
+        map.warmUp();
+        map.get("k1");
+
+        RCountingBloomFilter<String> other = client.getCountingBloomFilter("guarded-test-filter", 15);
+        other.delete();
+        other.tryInit(5000, 0.001);
+        check(map.warmUp() == 100, "warm up should be retried with new config");
+        check("v2".equals(map.get("k2")), "stored key should be loaded after config change");
+        check(map.get("missing") == null && map.getAvoidedLoads() == 1, "missing key should be avoided after config change");
+        delete(map);
+        passed("testConfigChangeRetry");
+    }
+
+    private static void testWarmUpWithoutLoader(RedissonClientExtend client) {
+        RGuardedMap<String, String> map = client.getGuardedMap("guarded-test", "guarded-test-filter", 15,
+                MapOptions.<String, String>defaults());
+        expect(IllegalStateException.class, () -> map.warmUp(), "warm up without loader should fail");
+        passed("testWarmUpWithoutLoader");
+    }
+
+}
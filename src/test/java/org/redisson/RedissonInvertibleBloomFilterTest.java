@@ -0,0 +1,135 @@
+package org.redisson;
+
+import org.redisson.api.InvertibleBloomTable;
+import org.redisson.api.RInvertibleBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+import org.redisson.api.SetDifference;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonInvertibleBloomFilterTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testDifference(client);
+            testAddRemoveRoundTrip(client);
+            testTooLargeDifference(client);
+            testConfigChangeRetry(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RInvertibleBloomFilter init(RedissonClientExtend client, String name, long expectedDifference) {
+        RInvertibleBloomFilter filter = client.getInvertibleBloomFilter(name);
+        filter.delete();
+        check(filter.tryInit(expectedDifference), "tryInit should succeed");
+        return filter;
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> result = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    private static void testDifference(RedissonClientExtend client) {
+        RInvertibleBloomFilter local = init(client, "iblt-test-local", 50);
+        RInvertibleBloomFilter remote = init(client, "iblt-test-remote", 50);
+        local.addAll(range(0, 10010));
+        remote.addAll(range(20, 10000));
+        remote.add(-5L);
+
+        // 传输后的表和远端表一致
+        InvertibleBloomTable exported = InvertibleBloomTable.fromByteArray(remote.export().toByteArray());
+        SetDifference difference = local.difference(exported);
+        check(difference.isComplete(), "difference within expected size should be decoded");
+        Set<Long> localOnly = new HashSet<>(range(0, 20));
+        localOnly.addAll(range(10000, 10010));
+        check(difference.getLocalOnly().equals(localOnly), "unexpected local only elements: " + difference.getLocalOnly());
+        check(difference.getRemoteOnly().size() == 1 && difference.getRemoteOnly().contains(-5L),
+                "unexpected remote only elements: " + difference.getRemoteOnly());
+
+        local.delete();
+        remote.delete();
+        passed("testDifference");
+    }
+
+    private static void testAddRemoveRoundTrip(RedissonClientExtend client) {
+        RInvertibleBloomFilter local = init(client, "iblt-test-local", 20);
+        RInvertibleBloomFilter remote = init(client, "iblt-test-remote", 20);
+        local.addAll(range(0, 1000));
+        remote.addAll(range(0, 1000));
+        local.removeAll(range(0, 5));
+        local.remove(999);
+
+        Set<Long> removed = new HashSet<>(range(0, 5));
+        removed.add(999L);
+        SetDifference difference = local.difference(remote.export());
+        check(difference.isComplete(), "difference should be decoded");
+        check(difference.getLocalOnly().isEmpty(), "removed elements should not be local only");
+        check(difference.getRemoteOnly().equals(removed),
+                "removed elements should be remote only: " + difference.getRemoteOnly());
+
+        local.addAll(range(0, 5));
+        local.add(999);
+        difference = local.difference(remote.export());
+        check(difference.isComplete() && difference.getLocalOnly().isEmpty() && difference.getRemoteOnly().isEmpty(),
+                "equal sets should have empty difference");
+
+        local.delete();
+        remote.delete();
+        passed("testAddRemoveRoundTrip");
+    }
+
+    /**
+     * Difference much larger than expected one can't be peeled completely.
+     */
+    private static void testTooLargeDifference(RedissonClientExtend client) {
+        RInvertibleBloomFilter local = init(client, "iblt-test-local", 10);
+        RInvertibleBloomFilter remote = init(client, "iblt-test-remote", 10);
+        local.addAll(range(0, 1000));
+
+        SetDifference difference = local.difference(remote.export());
+        check(!difference.isComplete(), "too large difference should be reported as incomplete");
+        check(difference.getLocalOnly().size() < 1000, "not all elements can be decoded");
+
+        RInvertibleBloomFilter other = init(client, "iblt-test-other", 1000);
+        expect(IllegalArgumentException.class, () -> local.difference(other.export()),
+                "tables with different params can't be subtracted");
+
+        local.delete();
+        remote.delete();
+        other.delete();
+        passed("testTooLargeDifference");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RInvertibleBloomFilter filter = init(client, "iblt-test-local", 10);
+        filter.add(1);
+
+        RInvertibleBloomFilter other = init(client, "iblt-test-local", 100);
+        filter.add(2);
+        check(filter.getSize() == other.getSize(), "size should be read again");
+        SetDifference difference = filter.export().decode();
+        check(difference.isComplete() && difference.getLocalOnly().size() == 1 && difference.getLocalOnly().contains(2L),
+                "element should be added with new config: " + difference.getLocalOnly());
+
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+}
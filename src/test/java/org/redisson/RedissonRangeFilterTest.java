@@ -0,0 +1,118 @@
+package org.redisson;
+
+import org.redisson.api.RRangeFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonRangeFilterTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testContainsRange(client);
+            testRemove(client);
+            testConfigChangeRetry(client);
+            testLevelsChange(client);
+            testInvalidValues(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RRangeFilter<String> init(RedissonClientExtend client, long expectedInsertions) {
+        RRangeFilter<String> filter = client.getRangeFilter("range-test", 15);
+        filter.delete();
+        check(filter.tryInit(expectedInsertions, 0.001, 20), "tryInit should succeed");
+        return filter;
+    }
+
+    private static void testContainsRange(RedissonClientExtend client) {
+        RRangeFilter<String> filter = init(client, 1000);
+        filter.add("user", 1000);
+        filter.add("user", 5000);
+
+        check(filter.contains("user", 1000) && filter.contains("user", 5000), "added values should be present");
+        check(!filter.contains("user", 1001), "not added value should be absent");
+        check(filter.containsRange("user", 1000, 1000), "single value range should be found");
+        check(filter.containsRange("user", 999, 1001), "range around value should be found");
+        check(filter.containsRange("user", 0, (1 << 20) - 1), "full range should be found");
+        check(filter.containsRange("user", 4001, 6000), "range with second value should be found");
+        check(!filter.containsRange("user", 1001, 4999), "range between values should be empty");
+        check(!filter.containsRange("user", 5001, 100000), "range after values should be empty");
+        check(!filter.containsRange("other", 0, (1 << 20) - 1), "other key should have no values");
+        check(!filter.containsRange("user", 5000, 1000), "reversed range should be empty");
+        filter.delete();
+        passed("testContainsRange");
+    }
+
+    private static void testRemove(RedissonClientExtend client) {
+        RRangeFilter<String> filter = init(client, 1000);
+        filter.add("user", 1000);
+        filter.add("user", 1001);
+        check(filter.remove("user", 1000), "added value should be removed");
+        check(!filter.contains("user", 1000), "removed value should be absent");
+        check(filter.containsRange("user", 0, 2000), "shared prefixes of other value should stay");
+        check(filter.remove("user", 1001), "second value should be removed");
+        check(!filter.containsRange("user", 0, 2000), "range should be empty after all values are removed");
+        check(!filter.remove("user", 1001), "value can't be removed twice");
+        filter.delete();
+        passed("testRemove");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RRangeFilter<String> filter = init(client, 1000);
+        filter.add("user", 10);
+
+        RRangeFilter<String> other = init(client, 5000);
+        check(filter.add("user", 20), "add should be retried with new config");
+        check(other.containsRange("user", 15, 25), "value added after config change should be found");
+        check(!other.containsRange("user", 5, 15), "value added before config change should be gone");
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    /**
+     * Filter recreated with other levels and the same counters size is detected by levels check,
+     * and prefixes are computed again for new levels.
+     */
+    private static void testLevelsChange(RedissonClientExtend client) {
+        RRangeFilter<String> filter = client.getRangeFilter("range-test", 15);
+        filter.delete();
+        check(filter.tryInit(1000, 0.001, 8), "tryInit should succeed");
+        filter.add("user", 200);
+        check(filter.getLevels() == 8, "levels should be read from config");
+
+        // 1000 * (8 + 1) == 3000 * (2 + 1)，计数器大小相同，只有层数不同
+        RRangeFilter<String> other = client.getRangeFilter("range-test", 15);
+        other.delete();
+        check(other.tryInit(3000, 0.001, 2), "tryInit with other levels should succeed");
+
+        check(filter.add("user", 3), "add should be retried with new levels");
+        check(filter.getLevels() == 2, "levels should be read again after config change");
+        check(other.containsRange("user", 0, 3), "range should cover value added with new levels");
+        check(other.containsRange("user", 2, 3) && !other.containsRange("user", 0, 2),
+                "prefixes of all new levels should be added");
+        expect(IllegalArgumentException.class, () -> filter.add("user", 200), "value out of new levels should be rejected");
+        other.delete();
+        passed("testLevelsChange");
+    }
+
+    private static void testInvalidValues(RedissonClientExtend client) {
+        RRangeFilter<String> filter = init(client, 1000);
+        expect(IllegalArgumentException.class, () -> filter.add("user", -1), "negative value should be rejected");
+        expect(IllegalArgumentException.class, () -> filter.add("user", 1 << 20), "value out of levels should be rejected");
+        RRangeFilter<String> invalid = client.getRangeFilter("range-test-invalid", 15);
+        expect(IllegalArgumentException.class, () -> invalid.tryInit(1000, 0.01, 0), "zero levels should be rejected");
+        filter.delete();
+        expect(IllegalStateException.class, () -> client.<String>getRangeFilter("range-test", 15).contains("user", 1),
+                "not initialized filter should fail");
+        passed("testInvalidValues");
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.redisson;
+
+import org.redisson.api.RSketchRateLimiter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class RedissonSketchRateLimiterTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRate(client);
+            testWindowRotation(client);
+            testConfigChangeRetry(client);
+            testInvalidParams(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static RSketchRateLimiter<String> init(RedissonClientExtend client, long rate, long expectedKeys) {
+        RSketchRateLimiter<String> limiter = client.getSketchRateLimiter("sketch-limiter-test");
+        limiter.delete();
+        check(limiter.trySetRate(rate, 1, TimeUnit.SECONDS, expectedKeys, 0.001), "trySetRate should succeed");
+        return limiter;
+    }
+
+    private static void testRate(RedissonClientExtend client) {
+        RSketchRateLimiter<String> limiter = init(client, 10, 1000);
+        check(!limiter.trySetRate(20, 1, TimeUnit.SECONDS, 1000, 0.001), "second trySetRate should fail");
+
+        check(limiter.availablePermits("a") == 10, "all permits should be available");
+        check(limiter.tryAcquire("a", 4), "permits within rate should be acquired");
+        for (int i = 0; i < 6; i++) {
+            check(limiter.tryAcquire("a"), "permit " + i + " within rate should be acquired");
+        }
+        check(!limiter.tryAcquire("a"), "permit over rate should not be acquired");
+        check(limiter.availablePermits("a") == 0, "no permits should be available");
+
+        check(limiter.tryAcquire("b", 10), "other key should have own permits");
+        check(!limiter.tryAcquire("c", 11), "more permits than rate can't be acquired");
+        check(limiter.availablePermits("c") == 10, "failed acquire should not take permits");
+        limiter.delete();
+        passed("testRate");
+    }
+
+    /**
+     * Permits of previous window are weighted, so they are fully available again after two intervals.
+     */
+    private static void testWindowRotation(RedissonClientExtend client) throws InterruptedException {
+        RSketchRateLimiter<String> limiter = init(client, 10, 1000);
+        check(limiter.tryAcquire("a", 10), "permits within rate should be acquired");
+        check(!limiter.tryAcquire("a"), "permit over rate should not be acquired");
+
+        Thread.sleep(2100);
+        check(limiter.availablePermits("a") == 10, "permits should be available after two intervals");
+        check(limiter.tryAcquire("a", 10), "permits should be acquired in new window");
+        limiter.delete();
+        passed("testWindowRotation");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RSketchRateLimiter<String> limiter = init(client, 10, 1000);
+        check(limiter.tryAcquire("a", 10), "permits within rate should be acquired");
+
+        init(client, 20, 5000);
+        check(limiter.tryAcquire("a", 15), "acquire should be retried with new config");
+        check(limiter.availablePermits("a") == 5, "permits should be counted with new rate");
+        limiter.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    private static void testInvalidParams(RedissonClientExtend client) {
+        RSketchRateLimiter<String> limiter = client.getSketchRateLimiter("sketch-limiter-test");
+        limiter.delete();
+        expect(IllegalArgumentException.class, () -> limiter.trySetRate(0, 1, TimeUnit.SECONDS, 1000, 0.01),
+                "zero rate should be rejected");
+        expect(IllegalArgumentException.class, () -> limiter.trySetRate(10, 1, TimeUnit.SECONDS, 1000, 2),
+                "false probability greater than 1 should be rejected");
+        expect(IllegalStateException.class, () -> limiter.tryAcquire("a"), "not initialized limiter should fail");
+
+        init(client, 10, 1000);
+        expect(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 0), "zero permits should be rejected");
+        limiter.delete();
+        passed("testInvalidParams");
+    }
+
+}
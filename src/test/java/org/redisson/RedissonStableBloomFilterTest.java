@@ -0,0 +1,87 @@
+package org.redisson;
+
+import org.redisson.api.RStableBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class RedissonStableBloomFilterTest {
+
+    public static void main(String[] args) {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testDuplicates(client);
+            testStableFalseProbability(client);
+            testConfigChangeRetry(client);
+            testInvalidParams(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static void testDuplicates(RedissonClientExtend client) {
+        RStableBloomFilter<String> filter = client.getStableBloomFilter("stable-test", 3);
+        filter.delete();
+        check(filter.tryInit(10000, 0.01), "tryInit should succeed");
+        check(!filter.tryInit(10000, 0.01), "second tryInit should fail");
+        check(filter.getDecrementCells() > 0, "insertion should decrement counters");
+
+        check(!filter.contains("a"), "element should be absent before add");
+        check(filter.add("a"), "first add should not be duplicate");
+        check(!filter.add("a"), "second add should be duplicate");
+        check(filter.contains("a"), "recent element should be present");
+        filter.delete();
+        passed("testDuplicates");
+    }
+
+    /**
+     * Stream much longer than filter size evicts old elements and doesn't saturate filter.
+     */
+    private static void testStableFalseProbability(RedissonClientExtend client) {
+        RStableBloomFilter<String> filter = client.getStableBloomFilter("stable-test", 3);
+        filter.delete();
+        filter.tryInit(2000, 0.01);
+        for (int i = 0; i < 20000; i++) {
+            filter.add("e" + i);
+        }
+        double old = positiveRatio(filter::contains, "e", 500);
+        check(old < 0.5, "old elements should be evicted: " + old);
+        check(filter.contains("e19999"), "last element should be present");
+        double fpp = positiveRatio(filter::contains, "absent", 1000);
+        check(fpp < 5 * filter.getFalseProbability(), "false positive ratio should stay bounded: " + fpp);
+        filter.delete();
+        passed("testStableFalseProbability");
+    }
+
+    private static void testConfigChangeRetry(RedissonClientExtend client) {
+        RStableBloomFilter<String> filter = client.getStableBloomFilter("stable-test", 3);
+        RStableBloomFilter<String> other = client.getStableBloomFilter("stable-test", 3);
+        other.delete();
+        filter.tryInit(1000, 0.01);
+        filter.add("a");
+
+        other.delete();
+        other.tryInit(5000, 0.001);
+        check(filter.add("b"), "add should be retried with new config");
+        check(filter.contains("b"), "element added after config change should be present");
+        check(filter.getSize() == 5000, "size should be read again");
+        other.delete();
+        passed("testConfigChangeRetry");
+    }
+
+    private static void testInvalidParams(RedissonClientExtend client) {
+        RStableBloomFilter<String> filter = client.getStableBloomFilter("stable-test", 3);
+        filter.delete();
+        expect(IllegalArgumentException.class, () -> filter.tryInit(1000, 1), "false probability 1 should be rejected");
+        expect(IllegalArgumentException.class, () -> filter.tryInit(0, 0.01), "zero size should be rejected");
+        expect(IllegalStateException.class, () -> filter.contains("a"), "not initialized filter should fail");
+        passed("testInvalidParams");
+    }
+
+}
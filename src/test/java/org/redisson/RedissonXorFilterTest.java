@@ -0,0 +1,101 @@
+package org.redisson;
+
+import org.redisson.api.RXorFilter;
+import org.redisson.api.RedissonClientExtend;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.expect;
+import static org.redisson.FilterTestSupport.passed;
+import static org.redisson.FilterTestSupport.positiveRatio;
+
+/**
+ * @author linfeng
+ */
+public class RedissonXorFilterTest {
+
+    public static void main(String[] args) {
+        testPeelFailsOnDuplicateKeys();
+
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testBuildAndContains(client);
+            testDuplicates(client);
+            testRebuildByOtherInstance(client);
+            testNotBuilt(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * Duplicate keys never get a slot of their own, so peeling can't complete.
+     */
+    private static void testPeelFailsOnDuplicateKeys() {
+        long[] keys = {1, 1, 2};
+        check(!RedissonXorFilter.peel(keys, keys.length, 0, 16, new long[keys.length], new byte[keys.length]),
+                "peel should fail on duplicate keys");
+        check(RedissonXorFilter.peel(new long[] {1, 2}, 2, 0, 16, new long[2], new byte[2]),
+                "peel should succeed on distinct keys");
+        passed("testPeelFailsOnDuplicateKeys");
+    }
+
+    private static void testBuildAndContains(RedissonClientExtend client) {
+        RXorFilter<String> filter = client.getXorFilter("xor-test");
+        filter.delete();
+
+        long count = filter.build(IntStream.range(0, 10000).mapToObj(i -> "e" + i), 8);
+        check(count == 10000, "count should be 10000 but was " + count);
+        check(filter.count() == 10000, "stored count should be 10000");
+        check(filter.getFingerprintBits() == 8, "fingerprint bits should be 8");
+        check(positiveRatio(filter::contains, "e", 10000) == 1, "all built elements should be present");
+        double fpp = positiveRatio(filter::contains, "absent", 10000);
+        check(fpp < 0.02, "false positive ratio is too high: " + fpp);
+        check(!client.getKeys().getKeysByPattern(filter.getName() + ":build:*").iterator().hasNext(),
+                "temporary build key should be renamed");
+
+        expect(IllegalArgumentException.class, () -> filter.build(Stream.of("a"), 12),
+                "fingerprint size other than 8 or 16 should be rejected");
+        filter.delete();
+        passed("testBuildAndContains");
+    }
+
+    private static void testDuplicates(RedissonClientExtend client) {
+        RXorFilter<String> filter = client.getXorFilter("xor-test");
+        filter.delete();
+
+        long count = filter.build(Stream.of("a", "b", "a", "c", "b"), 16);
+        check(count == 3, "duplicates should be counted once but count was " + count);
+        check(filter.contains("a") && filter.contains("b") && filter.contains("c"), "all elements should be present");
+        filter.delete();
+        passed("testDuplicates");
+    }
+
+    /**
+     * Instance with cached seed should read config again after filter is rebuilt by other instance.
+     */
+    private static void testRebuildByOtherInstance(RedissonClientExtend client) {
+        RXorFilter<String> filter = client.getXorFilter("xor-test");
+        filter.delete();
+        filter.build(IntStream.range(0, 1000).mapToObj(i -> "old" + i), 8);
+        check(filter.contains("old1"), "old element should be present");
+
+        RXorFilter<String> other = client.getXorFilter("xor-test");
+        other.build(IntStream.range(0, 1000).mapToObj(i -> "new" + i), 16);
+
+        check(positiveRatio(filter::contains, "new", 1000) == 1, "rebuilt elements should be present");
+        check(filter.getFingerprintBits() == 16, "fingerprint bits should be read again");
+        filter.delete();
+        passed("testRebuildByOtherInstance");
+    }
+
+    private static void testNotBuilt(RedissonClientExtend client) {
+        RXorFilter<String> filter = client.getXorFilter("xor-test");
+        filter.delete();
+        expect(IllegalStateException.class, () -> filter.contains("a"), "contains of not built filter should fail");
+        passed("testNotBuilt");
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.redisson;
+
+import org.redisson.api.RCountingBloomFilter;
+import org.redisson.api.RedissonClientExtend;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.command.CommandAsyncExecutor;
+
+import java.util.Collections;
+
+import static org.redisson.FilterTestSupport.check;
+import static org.redisson.FilterTestSupport.checkRoundTrip;
+import static org.redisson.FilterTestSupport.passed;
+
+/**
+ * @author linfeng
+ */
+public class ScriptRegistryTest {
+
+    private static final String SCRIPT = ScriptRegistry.register("return tonumber(ARGV[1]) + 1;");
+
+    public static void main(String[] args) throws InterruptedException {
+        RedissonClientExtend client = FilterTestSupport.createClient();
+        try {
+            testRegisteredScript(client);
+            testScriptFlush(client);
+            testOtherClientShutdown(client);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static CommandAsyncExecutor executor(RedissonClientExtend client) {
+        return ((Redisson) client).getConnectionManager().getCommandExecutor();
+    }
+
+    private static long eval(RedissonClientExtend client, long value) {
+        CommandAsyncExecutor executor = executor(client);
+        Long result = executor.get(ScriptRegistry.<Long, Long>evalWriteAsync(executor, "script-test", LongCodec.INSTANCE,
+                RedisCommands.EVAL_LONG, SCRIPT, Collections.emptyList(), value));
+        return result;
+    }
+
+    private static void testRegisteredScript(RedissonClientExtend client) throws InterruptedException {
+        check(eval(client, 41) == 42, "registered script should be evaluated");
+        // 等待脚本加载完成后通过EVALSHA调用
+        Thread.sleep(500);
+        check(eval(client, 1) == 2, "loaded script should be evaluated");
+        passed("testRegisteredScript");
+    }
+
+    /**
+     * Scripts flushed from Redis, as after restart, are evaluated by source and loaded again.
+     */
+    private static void testScriptFlush(RedissonClientExtend client) throws InterruptedException {
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("script-test", 15);
+        filter.delete();
+        filter.tryInit(1000, 0.01);
+        filter.add("a");
+        Thread.sleep(500);
+
+        client.getScript().scriptFlush();
+        check(filter.contains("a"), "contains should be retried after NOSCRIPT");
+        check(eval(client, 1) == 2, "registered script should be retried after NOSCRIPT");
+        checkRoundTrip(filter);
+
+        Thread.sleep(500);
+        client.getScript().scriptFlush();
+        checkRoundTrip(filter);
+        filter.delete();
+        passed("testScriptFlush");
+    }
+
+    /**
+     * Shutdown of other client doesn't change scripts loaded for this one.
+     */
+    private static void testOtherClientShutdown(RedissonClientExtend client) throws InterruptedException {
+        RedissonClientExtend other = FilterTestSupport.createClient();
+        RCountingBloomFilter<String> otherFilter = other.getCountingBloomFilter("script-test", 15);
+        otherFilter.delete();
+        otherFilter.tryInit(1000, 0.01);
+        otherFilter.add("a");
+        Thread.sleep(500);
+        other.getScript().scriptFlush();
+        check(otherFilter.contains("a"), "other client should reload scripts");
+        other.shutdown();
+
+        RCountingBloomFilter<String> filter = client.getCountingBloomFilter("script-test", 15);
+        check(filter.contains("a"), "filter of remaining client should work");
+        check(eval(client, 1) == 2, "registered script of remaining client should work");
+        checkRoundTrip(filter);
+        filter.delete();
+        passed("testOtherClientShutdown");
+    }
+
+}